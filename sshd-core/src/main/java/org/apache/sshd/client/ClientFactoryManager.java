@@ -19,6 +19,7 @@
 package org.apache.sshd.client;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.sshd.client.auth.UserAuth;
 import org.apache.sshd.client.auth.UserInteraction;
@@ -85,6 +86,62 @@ public interface ClientFactoryManager extends FactoryManager {
      */
     boolean DEFAULT_IGNORE_INVALID_IDENTITIES = true;
 
+    /**
+     * Max. number of concurrent leases (e.g., open channels) of a pooled session
+     * @see org.apache.sshd.client.session.ClientSessionPool
+     */
+    String POOL_MAX_LEASES_PER_SESSION = "session-pool-max-leases-per-session";
+
+    /**
+     * Default value of {@link #POOL_MAX_LEASES_PER_SESSION} if none configured
+     */
+    int DEFAULT_POOL_MAX_LEASES_PER_SESSION = 8;
+
+    /**
+     * Time (msec.) after which a pooled session that has no leases is closed -
+     * if non-positive then idle sessions are kept until the pool is closed
+     */
+    String POOL_IDLE_TIMEOUT = "session-pool-idle-timeout";
+
+    /**
+     * Default value of {@link #POOL_IDLE_TIMEOUT} if none configured
+     */
+    long DEFAULT_POOL_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(5L);
+
+    /**
+     * Time (msec.) a pooled session may be unused before a keep-alive request
+     * is sent to verify it is still healthy when it is leased again - if
+     * non-positive then no such check is made
+     */
+    String POOL_HEALTH_CHECK_INTERVAL = "session-pool-health-check-interval";
+
+    /**
+     * Default value of {@link #POOL_HEALTH_CHECK_INTERVAL} if none configured
+     */
+    long DEFAULT_POOL_HEALTH_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(30L);
+
+    /**
+     * Max. time (msec.) a caller leasing a pooled session that was unused for longer
+     * than the {@link #POOL_HEALTH_CHECK_INTERVAL} waits for the keep-alive reply -
+     * kept short since the leasing thread is blocked meanwhile
+     */
+    String POOL_HEALTH_CHECK_TIMEOUT = "session-pool-health-check-timeout";
+
+    /**
+     * Default value of {@link #POOL_HEALTH_CHECK_TIMEOUT} if none configured
+     */
+    long DEFAULT_POOL_HEALTH_CHECK_TIMEOUT = TimeUnit.SECONDS.toMillis(3L);
+
+    /**
+     * Timeout (msec.) used by the pool for connecting and authenticating sessions
+     */
+    String POOL_SESSION_TIMEOUT = "session-pool-session-timeout";
+
+    /**
+     * Default value of {@link #POOL_SESSION_TIMEOUT} if none configured
+     */
+    long DEFAULT_POOL_SESSION_TIMEOUT = TimeUnit.SECONDS.toMillis(30L);
+
     /**
      * Retrieve the server key verifier to be used to check the key when connecting
      * to an ssh server.
@@ -50,8 +50,13 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 import org.apache.sshd.client.future.ConnectFuture;
@@ -78,9 +83,14 @@ import org.apache.sshd.common.util.io.IoUtils;
 import org.apache.sshd.common.util.io.NoCloseInputStream;
 import org.apache.sshd.common.util.logging.AbstractSimplifiedLog;
 import org.apache.sshd.common.util.logging.LoggingUtils;
+import org.apache.sshd.common.util.threads.ThreadUtils;
 
 /**
- * A naive implementation of <A HREF="https://www.freebsd.org/cgi/man.cgi?query=ssh-keyscan&sektion=1">ssh-keyscan(1)</A>
+ * A naive implementation of <A HREF="https://www.freebsd.org/cgi/man.cgi?query=ssh-keyscan&sektion=1">ssh-keyscan(1)</A>.
+ * Hosts are read as a stream and can be scanned concurrently - see {@link #setParallelism(int)}.
+ * Each key type is scanned using a dedicated {@link SshClient} that is configured only with the
+ * signature factories for that key type, so no shared client configuration is modified while
+ * scanning, and the keys are written as soon as they are received.
  *
  * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
  */
@@ -93,15 +103,25 @@ public class SshKeyScan extends AbstractSimplifiedLog
             Collections.unmodifiableList(Arrays.asList(BuiltinIdentities.Constants.RSA, BuiltinIdentities.Constants.ECDSA));
     public static final long DEFAULT_TIMEOUT = TimeUnit.SECONDS.toMillis(5L);
     public static final Level DEFAULT_LEVEL = Level.INFO;
+    /**
+     * Default number of hosts scanned concurrently if not overridden
+     * from the command line - 1 means the hosts are scanned sequentially
+     * by the calling thread
+     */
+    public static final int DEFAULT_PARALLELISM = 1;
 
     private final AtomicBoolean open = new AtomicBoolean(true);
-    private SshClient client;
+    // key type -> client configured only with the signature factories of that type
+    private final Map<String, SshClient> clients = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private ExecutorService executor;
     private int port;
     private long timeout;
+    private int parallelism;
     private List<String> keyTypes;
     private InputStream input;
     private Level level;
-    private final Map<String, String> currentHostFingerprints = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    // remote location -> (key type -> fingerprint) of the hosts currently being scanned
+    private final ConcurrentMap<String, Map<String, String>> currentHostFingerprints = new ConcurrentHashMap<>();
 
     public SshKeyScan() {
         super();
@@ -139,6 +159,18 @@ public class SshKeyScan extends AbstractSimplifiedLog
         this.timeout = timeout;
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism Max. number of hosts scanned concurrently - if
+     * not positive then {@link #DEFAULT_PARALLELISM} is used
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     public Level getLogLevel() {
         return level;
     }
@@ -155,9 +187,12 @@ public class SshKeyScan extends AbstractSimplifiedLog
                 ps = System.err;
             }
 
-            ps.append('\t').println(message);
-            if (t != null) {
-                ps.append("\t\t").append(t.getClass().getSimpleName()).append(": ").println(t.getMessage());
+            // results may be reported concurrently from several hosts
+            synchronized (ps) {
+                ps.append('\t').println(message);
+                if (t != null) {
+                    ps.append("\t\t").append(t.getClass().getSimpleName()).append(": ").println(t.getMessage());
+                }
             }
         }
     }
@@ -197,39 +232,24 @@ public class SshKeyScan extends AbstractSimplifiedLog
 
         Exception err = null;
         try {
-            ValidateUtils.checkTrue(client == null, "Client still active");
-            client = SshClient.setUpDefaultClient();
-            client.setServerKeyVerifier(this);
-
-            try (BufferedReader rdr = new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8))) {
+            ValidateUtils.checkTrue(clients.isEmpty(), "Clients still active");
+            for (Map.Entry<String, List<NamedFactory<Signature>>> fe : sigFactories.entrySet()) {
+                String kt = fe.getKey();
+                SshClient client = createClient(kt, fe.getValue());
+                clients.put(kt, client);
                 client.start();
-                for (String line = rdr.readLine(); line != null; line = rdr.readLine()) {
-                    String[] hosts = GenericUtils.split(GenericUtils.trimToEmpty(line), ',');
-                    if (GenericUtils.isEmpty(hosts)) {
-                        continue;
-                    }
-
-                    for (String h : hosts) {
-                        if (!isOpen()) {
-                            throw new InterruptedIOException("Closed while preparing to contact host=" + h);
-                        }
+            }
 
-                        try {
-                            resolveServerKeys(client, h, pairsMap, sigFactories);
-                        } catch (Exception e) {
-                            // check if interrupted while scanning host keys
-                            if (e instanceof InterruptedIOException) {
-                                throw e;
-                            }
+            try (BufferedReader rdr = new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8))) {
+                int numThreads = getParallelism();
+                if (numThreads <= 0) {
+                    numThreads = DEFAULT_PARALLELISM;
+                }
 
-                            if (isEnabled(Level.FINE)) {
-                                log(Level.FINE, "Failed to retrieve keys from " + h, e);
-                            }
-                            err = GenericUtils.accumulateException(err, e);
-                        } finally {
-                            currentHostFingerprints.clear();
-                        }
-                    }
+                if (numThreads <= 1) {
+                    err = scanSequentially(rdr, pairsMap);
+                } else {
+                    err = scanConcurrently(rdr, pairsMap, numThreads);
                 }
             }
         } finally {
@@ -247,48 +267,207 @@ public class SshKeyScan extends AbstractSimplifiedLog
         return null;
     }
 
-    protected void resolveServerKeys(SshClient client, String host,
-                                     Map<String, List<KeyPair>> pairsMap,
-                                     Map<String, List<NamedFactory<Signature>>> sigFactories) throws IOException {
-        for (Map.Entry<String, List<KeyPair>> pe : pairsMap.entrySet()) {
-            String kt = pe.getKey();
-            if (!isOpen()) {
-                throw new InterruptedIOException("Closed while attempting to retrieve key type=" + kt + " from " + host);
+    /**
+     * @param keyType The key type to be scanned by the client
+     * @param factories The signature factories to use for the specific key type
+     * @return An <U>un-started</U> {@link SshClient} that uses only the specified
+     * signature factories in order to force the server to send only the specific
+     * key type
+     */
+    protected SshClient createClient(String keyType, List<NamedFactory<Signature>> factories) {
+        SshClient client = SshClient.setUpDefaultClient();
+        client.setSignatureFactories(factories);
+        client.setServerKeyVerifier(this);
+        return client;
+    }
+
+    protected Exception scanSequentially(BufferedReader rdr, Map<String, List<KeyPair>> pairsMap) throws Exception {
+        Exception err = null;
+        for (String line = rdr.readLine(); line != null; line = rdr.readLine()) {
+            String[] hosts = GenericUtils.split(GenericUtils.trimToEmpty(line), ',');
+            if (GenericUtils.isEmpty(hosts)) {
+                continue;
             }
 
-            List<NamedFactory<Signature>> current = client.getSignatureFactories();
-            try {
-                /*
-                 * Replace whatever factories there are right now with the
-                 * specific one for the key in order to extract only the
-                 * specific host key type
-                 */
-                List<NamedFactory<Signature>> forced = sigFactories.get(kt);
-                client.setSignatureFactories(forced);
-                resolveServerKeys(client, host, kt, pe.getValue());
-            } catch (Exception e) {
-                if (isEnabled(Level.FINE)) {
-                    log(Level.FINE, "Failed to resolve key=" + kt + " for " + host);
+            for (String h : hosts) {
+                if (!isOpen()) {
+                    throw new InterruptedIOException("Closed while preparing to contact host=" + h);
                 }
 
-                if (e instanceof ConnectException) {
-                    return; // makes no sense to try again with another key type...
+                try {
+                    resolveServerKeys(h, pairsMap);
+                } catch (Exception e) {
+                    // check if interrupted while scanning host keys
+                    if (e instanceof InterruptedIOException) {
+                        throw e;
+                    }
+
+                    if (isEnabled(Level.FINE)) {
+                        log(Level.FINE, "Failed to retrieve keys from " + h, e);
+                    }
+                    err = GenericUtils.accumulateException(err, e);
                 }
-            } finally {
-                client.setSignatureFactories(current);  // don't have to, but be nice...
             }
         }
+
+        return err;
     }
 
+    /**
+     * Scans the hosts using several threads. The hosts are read as they are
+     * needed - i.e., at most {@code numThreads} hosts are being scanned at
+     * any given time, and the rest of the input is read only when a host
+     * scan completes.
+     *
+     * @param rdr The {@link BufferedReader} of the hosts
+     * @param pairsMap The client key pairs to use - key=the key type
+     * @param numThreads Max. number of hosts scanned concurrently
+     * @return The accumulated scan failures - {@code null} if none
+     * @throws Exception If failed to read the hosts or interrupted
+     */
+    protected Exception scanConcurrently(BufferedReader rdr, final Map<String, List<KeyPair>> pairsMap, int numThreads) throws Exception {
+        final AtomicReference<Exception> errHolder = new AtomicReference<>();
+        final Semaphore slots = new Semaphore(numThreads);
+        ExecutorService service = ThreadUtils.newFixedThreadPool(getClass().getSimpleName(), numThreads);
+        synchronized (clients) {
+            executor = service;
+        }
+
+        try {
+            for (String line = rdr.readLine(); line != null; line = rdr.readLine()) {
+                String[] hosts = GenericUtils.split(GenericUtils.trimToEmpty(line), ',');
+                if (GenericUtils.isEmpty(hosts)) {
+                    continue;
+                }
+
+                for (final String h : hosts) {
+                    slots.acquire();
+                    if (!isOpen()) {
+                        throw new InterruptedIOException("Closed while preparing to contact host=" + h);
+                    }
+
+                    service.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                resolveServerKeys(h, pairsMap);
+                            } catch (Exception e) {
+                                if (isEnabled(Level.FINE)) {
+                                    log(Level.FINE, "Failed to retrieve keys from " + h, e);
+                                }
+
+                                synchronized (errHolder) {
+                                    errHolder.set(GenericUtils.accumulateException(errHolder.get(), e));
+                                }
+                            } finally {
+                                slots.release();
+                            }
+                        }
+                    });
+                }
+            }
+
+            // wait for the pending hosts scans to complete
+            slots.acquire(numThreads);
+        } finally {
+            service.shutdownNow();
+        }
+
+        synchronized (errHolder) {
+            return errHolder.get();
+        }
+    }
+
+    /**
+     * Retrieves all the key types from the host - <B>Note:</B> the {@link #getTimeout()}
+     * applies to the entire host scan, i.e., all the key types share the same deadline.
+     *
+     * @param host The host to contact
+     * @param pairsMap The client key pairs to use - key=the key type
+     * @throws IOException If closed while scanning
+     */
+    protected void resolveServerKeys(String host, Map<String, List<KeyPair>> pairsMap) throws IOException {
+        // the same key is used to track the host's fingerprints since the host string is kept as-is in the remote address
+        String location = GenericUtils.trimToEmpty(host);
+        long expiration = System.currentTimeMillis() + getTimeout();
+        try {
+            for (Map.Entry<String, List<KeyPair>> pe : pairsMap.entrySet()) {
+                String kt = pe.getKey();
+                if (!isOpen()) {
+                    throw new InterruptedIOException("Closed while attempting to retrieve key type=" + kt + " from " + location);
+                }
+
+                if (System.currentTimeMillis() >= expiration) {
+                    if (isEnabled(Level.FINE)) {
+                        log(Level.FINE, "Timeout expired before retrieving key type=" + kt + " from " + location);
+                    }
+                    return;
+                }
+
+                SshClient client;
+                synchronized (clients) {
+                    client = clients.get(kt);
+                }
+
+                if (client == null) {
+                    continue;   // can happen if no signature factories for the key type
+                }
+
+                try {
+                    resolveServerKeys(client, location, kt, pe.getValue(), expiration);
+                } catch (Exception e) {
+                    if (isEnabled(Level.FINE)) {
+                        log(Level.FINE, "Failed to resolve key=" + kt + " for " + location);
+                    }
+
+                    if (e instanceof ConnectException) {
+                        return; // makes no sense to try again with another key type...
+                    }
+                }
+            }
+        } finally {
+            currentHostFingerprints.remove(location);
+        }
+    }
+
+    /**
+     * Attempts to retrieve a specific key type from the host. <B>Note:</B> the
+     * timeout applies to the entire attempt - i.e., the connection and the
+     * (failed) authentication share the same time budget.
+     *
+     * @param client The {@link SshClient} to use - configured with the signature
+     * factories of the key type
+     * @param host The host to contact
+     * @param kt The key type
+     * @param ids The client identities matching the key type
+     * @throws Exception If failed to connect within the timeout
+     */
     protected void resolveServerKeys(SshClient client, String host, String kt, List<KeyPair> ids) throws Exception {
+        resolveServerKeys(client, host, kt, ids, System.currentTimeMillis() + getTimeout());
+    }
+
+    /**
+     * Attempts to retrieve a specific key type from the host
+     *
+     * @param client The {@link SshClient} to use - configured with the signature
+     * factories of the key type
+     * @param host The host to contact
+     * @param kt The key type
+     * @param ids The client identities matching the key type
+     * @param expiration The time (msec.) by which the connection and the (failed)
+     * authentication must be completed
+     * @throws Exception If failed to connect before the expiration
+     */
+    protected void resolveServerKeys(SshClient client, String host, String kt, List<KeyPair> ids, long expiration) throws Exception {
         int connectPort = getPort();
         if (isEnabled(Level.FINE)) {
             log(Level.FINE, "Connecting to " + host + ":" + connectPort + " to retrieve key type=" + kt);
         }
 
+        long waitTime = Math.max(expiration - System.currentTimeMillis(), 1L);
         ConnectFuture future = client.connect(UUID.randomUUID().toString(), host, connectPort);
-        long waitTime = getTimeout();
         if (!future.await(waitTime)) {
+            future.cancel();
             throw new ConnectException("Failed to connect to " + host + ":" + connectPort
                     + " within " + waitTime + " msec."
                     + " to retrieve key type=" + kt);
@@ -314,7 +493,7 @@ public class SshKeyScan extends AbstractSimplifiedLog
 
                 try {
                     // shouldn't really succeed, but do it since key exchange occurs only on auth attempt
-                    session.auth().verify(waitTime);
+                    session.auth().verify(Math.max(expiration - System.currentTimeMillis(), 1L));
                     log(Level.WARNING, "Unexpected authentication success using key type=" + kt + " with " + remoteLocation);
                 } catch (Exception e) {
                     if (isEnabled(Level.FINER)) {
@@ -369,7 +548,8 @@ public class SshKeyScan extends AbstractSimplifiedLog
         String extra = KeyUtils.getFingerPrint(serverKey);
         try {
             String keyType = KeyUtils.getKeyType(serverKey);
-            String current = GenericUtils.isEmpty(keyType) ? null : currentHostFingerprints.get(keyType);
+            Map<String, String> hostFingerprints = resolveHostFingerprints(GenericUtils.trimToEmpty(remoteLocation));
+            String current = GenericUtils.isEmpty(keyType) ? null : hostFingerprints.get(keyType);
             if (Objects.equals(current, extra)) {
                 if (isEnabled(Level.FINER)) {
                     log(Level.FINER, "verifyServerKey(" + remoteLocation + ")[" + keyType + "] skip existing key: " + extra);
@@ -382,7 +562,7 @@ public class SshKeyScan extends AbstractSimplifiedLog
                 writeServerKey(remoteLocation, keyType, serverKey);
 
                 if (!GenericUtils.isEmpty(keyType)) {
-                    currentHostFingerprints.put(keyType, extra);
+                    hostFingerprints.put(keyType, extra);
                 }
             }
         } catch (Exception e) {
@@ -392,6 +572,24 @@ public class SshKeyScan extends AbstractSimplifiedLog
         return true;
     }
 
+    /**
+     * @param remoteLocation The host string of the remote address - same as the
+     * (trimmed) one used to connect to the host
+     * @return The fingerprints of the keys already reported for the host - key=the key type
+     */
+    protected Map<String, String> resolveHostFingerprints(String remoteLocation) {
+        Map<String, String> hostFingerprints = currentHostFingerprints.get(remoteLocation);
+        if (hostFingerprints == null) {
+            hostFingerprints = new ConcurrentHashMap<>();
+            Map<String, String> prev = currentHostFingerprints.putIfAbsent(remoteLocation, hostFingerprints);
+            if (prev != null) {
+                hostFingerprints = prev;
+            }
+        }
+
+        return hostFingerprints;
+    }
+
     protected void writeServerKey(String remoteLocation, String keyType, PublicKey serverKey) throws Exception {
         StringBuilder sb = new StringBuilder(256).append(remoteLocation).append(' ');
         PublicKeyEntry.appendPublicKeyEntry(sb, serverKey);
@@ -513,19 +711,27 @@ public class SshKeyScan extends AbstractSimplifiedLog
             }
         }
 
-        if (client != null) {
-            try {
-                client.close();
-            } catch (IOException e) {
-                err = GenericUtils.accumulateException(err, e);
-            } finally {
+        synchronized (clients) {
+            if (executor != null) {
                 try {
-                    client.stop();
+                    executor.shutdownNow();
                 } finally {
-                    client = null;
+                    executor = null;
+                }
+            }
+
+            for (SshClient client : clients.values()) {
+                try {
+                    client.close();
+                } catch (IOException e) {
+                    err = GenericUtils.accumulateException(err, e);
+                } finally {
+                    client.stop();
                 }
             }
+            clients.clear();
         }
+
         if (err != null) {
             throw err;
         }
@@ -576,6 +782,15 @@ public class SshKeyScan extends AbstractSimplifiedLog
                 long timeout = Long.parseLong(timeoutValue);
                 ValidateUtils.checkTrue(timeout > 0L, "Bad timeout: %s", timeoutValue);
                 scanner.setTimeout(timeout);
+            } else if ("-P".equals(optName)) {
+                index++;
+                ValidateUtils.checkTrue(index < numArgs, "Missing %s option argument", optName);
+                ValidateUtils.checkTrue(scanner.getParallelism() <= 0, "%s option re-specified", optName);
+
+                String parallelismValue = args[index];
+                int parallelism = Integer.parseInt(parallelismValue);
+                ValidateUtils.checkTrue(parallelism > 0, "Bad parallelism: %s", parallelismValue);
+                scanner.setParallelism(parallelism);
             } else if ("-v".equals(optName)) {
                 ValidateUtils.checkTrue(scanner.getLogLevel() == null, "%s option re-specified", optName);
                 scanner.setLogLevel(Level.FINEST);
@@ -641,6 +856,10 @@ public class SshKeyScan extends AbstractSimplifiedLog
             scanner.setLogLevel(DEFAULT_LEVEL);
         }
 
+        if (scanner.getParallelism() <= 0) {
+            scanner.setParallelism(DEFAULT_PARALLELISM);
+        }
+
         return scanner;
     }
 
@@ -28,6 +28,8 @@ import org.apache.sshd.client.channel.exit.ExitSignalChannelRequestHandler;
 import org.apache.sshd.client.channel.exit.ExitStatusChannelRequestHandler;
 import org.apache.sshd.client.future.DefaultOpenFuture;
 import org.apache.sshd.client.future.OpenFuture;
+import org.apache.sshd.client.future.StateFuture;
+import org.apache.sshd.client.future.StateFutureTracker;
 import org.apache.sshd.common.Closeable;
 import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.SshConstants;
@@ -36,6 +38,8 @@ import org.apache.sshd.common.channel.AbstractChannel;
 import org.apache.sshd.common.channel.ChannelAsyncInputStream;
 import org.apache.sshd.common.channel.ChannelAsyncOutputStream;
 import org.apache.sshd.common.channel.ChannelListener;
+import org.apache.sshd.common.future.CloseFuture;
+import org.apache.sshd.common.future.SshFutureListener;
 import org.apache.sshd.common.io.IoInputStream;
 import org.apache.sshd.common.io.IoOutputStream;
 import org.apache.sshd.common.session.Session;
@@ -73,6 +77,12 @@ public abstract class AbstractClientChannel extends AbstractChannel implements C
     protected int openFailureReason;
     protected String openFailureMsg;
     protected OpenFuture openFuture;
+    protected final StateFutureTracker stateTracker = new StateFutureTracker() {
+        @Override
+        protected int getCurrentState() {
+            return resolveChannelState();
+        }
+    };
 
     protected AbstractClientChannel(String type) {
         super(true);
@@ -89,6 +99,14 @@ public abstract class AbstractClientChannel extends AbstractChannel implements C
         };
         addRequestHandler(new ExitStatusChannelRequestHandler(exitStatusHolder, notifier));
         addRequestHandler(new ExitSignalChannelRequestHandler(exitSignalHolder, notifier));
+
+        closeFuture.addListener(new SshFutureListener<CloseFuture>() {
+            @SuppressWarnings("synthetic-access")
+            @Override
+            public void operationComplete(CloseFuture future) {
+                stateTracker.stateChanged();
+            }
+        });
     }
 
     @Override
@@ -188,80 +206,61 @@ public abstract class AbstractClientChannel extends AbstractChannel implements C
 
     @Override
     public int waitFor(int mask, long timeout) {
-        long t = 0;
-        synchronized (lock) {
-            for (;;) {
-                int cond = 0;
-                if (openFuture != null && openFuture.isOpened()) {
-                    cond |= ClientChannel.OPENED;
-                }
-                if (closeFuture.isClosed()) {
-                    cond |= ClientChannel.CLOSED | ClientChannel.EOF;
-                }
-                if (isEofSignalled()) {
-                    cond |= ClientChannel.EOF;
-                }
-                if (exitStatusHolder.get() != null) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("waitFor({}) mask=0x{} - exit status={}", this, Integer.toHexString(mask), exitStatusHolder);
-                    }
-                    cond |= ClientChannel.EXIT_STATUS;
-                }
-                if (exitSignalHolder.get() != null) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("waitFor({}) mask=0x{} - exit signal={}", this, Integer.toHexString(mask), exitSignalHolder);
-                    }
-                    cond |= ClientChannel.EXIT_SIGNAL;
-                }
-                if ((cond & mask) != 0) {
-                    if (log.isTraceEnabled()) {
-                        log.trace("WaitFor call returning on channel {}, mask=0x{}, cond=0x{}",
-                                  this, Integer.toHexString(mask), Integer.toHexString(cond));
-                    }
-                    return cond;
-                }
-
-                if (timeout > 0L) {
-                    if (t == 0L) {
-                        t = System.currentTimeMillis() + timeout;
-                    } else {
-                        timeout = t - System.currentTimeMillis();
-                        if (timeout <= 0L) {
-                            if (log.isTraceEnabled()) {
-                                log.trace("WaitFor call timeout on channel {}, mask=0x{}", this, Integer.toHexString(mask));
-                            }
-                            cond |= ClientChannel.TIMEOUT;
-                            return cond;
-                        }
-                    }
-                }
-
-                if (log.isTraceEnabled()) {
-                    log.trace("Waiting {} millis for lock on channel {}, mask={}, cond={}", timeout, this, mask, cond);
-                }
-
-                long nanoStart = System.nanoTime();
-                try {
-                    if (timeout > 0L) {
-                        lock.wait(timeout);
-                    } else {
-                        lock.wait();
-                    }
+        StateFuture future = watchState(mask);
+        if (log.isTraceEnabled()) {
+            log.trace("Waiting {} millis for state on channel {}, mask=0x{}", timeout, this, Integer.toHexString(mask));
+        }
 
-                    long nanoEnd = System.nanoTime();
-                    long nanoDuration = nanoEnd - nanoStart;
-                    if (log.isTraceEnabled()) {
-                        log.trace("Lock notified on channel {} after {} nanos", this, nanoDuration);
-                    }
-                } catch (InterruptedException e) {
-                    long nanoEnd = System.nanoTime();
-                    long nanoDuration = nanoEnd - nanoStart;
-                    if (log.isTraceEnabled()) {
-                        log.trace("waitFor({}) mask={} - ignoring interrupted exception after {} nanos", this, Integer.toHexString(mask), nanoDuration);
-                    }
-                }
+        boolean signalled = (timeout > 0L) ? future.awaitUninterruptibly(timeout) : future.awaitUninterruptibly();
+        if (signalled) {
+            int cond = future.getState();
+            if (log.isTraceEnabled()) {
+                log.trace("WaitFor call returning on channel {}, mask=0x{}, cond=0x{}",
+                          this, Integer.toHexString(mask), Integer.toHexString(cond));
             }
+            return cond;
+        }
+
+        stateTracker.remove(future);
+        if (log.isTraceEnabled()) {
+            log.trace("WaitFor call timeout on channel {}, mask=0x{}", this, Integer.toHexString(mask));
         }
+        return resolveChannelState() | ClientChannel.TIMEOUT;
+    }
+
+    @Override
+    public StateFuture watchState(int mask) {
+        return stateTracker.watch(mask);
+    }
+
+    /**
+     * @return The current channel state bits
+     * @see #waitFor(int, long)
+     */
+    protected int resolveChannelState() {
+        int cond = 0;
+        if (openFuture != null && openFuture.isOpened()) {
+            cond |= ClientChannel.OPENED;
+        }
+        if (closeFuture.isClosed()) {
+            cond |= ClientChannel.CLOSED | ClientChannel.EOF;
+        }
+        if (isEofSignalled()) {
+            cond |= ClientChannel.EOF;
+        }
+        if (exitStatusHolder.get() != null) {
+            cond |= ClientChannel.EXIT_STATUS;
+        }
+        if (exitSignalHolder.get() != null) {
+            cond |= ClientChannel.EXIT_SIGNAL;
+        }
+        return cond;
+    }
+
+    @Override
+    protected void notifyStateChanged() {
+        super.notifyStateChanged();
+        stateTracker.stateChanged();
     }
 
     @Override
@@ -380,4 +379,12 @@ public abstract class AbstractClientChannel extends AbstractChannel implements C
     public Integer getExitStatus() {
         return exitStatusHolder.get();
     }
+
+    /**
+     * @return The signal name reported by the remote peer when the command
+     * was terminated - {@code null} if none received (yet)
+     */
+    public String getExitSignal() {
+        return exitSignalHolder.get();
+    }
 }
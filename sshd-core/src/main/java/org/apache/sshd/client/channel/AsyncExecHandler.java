@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.channel;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sshd.client.future.DefaultExecFuture;
+import org.apache.sshd.client.future.ExecFuture;
+import org.apache.sshd.client.future.OpenFuture;
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.channel.Channel;
+import org.apache.sshd.common.channel.ChannelListener;
+import org.apache.sshd.common.future.SshFutureListener;
+import org.apache.sshd.common.io.IoInputStream;
+import org.apache.sshd.common.io.IoReadFuture;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.common.util.io.IoUtils;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+
+/**
+ * Drives the execution of a {@link ChannelExec} without blocking any thread:
+ * the channel is opened with {@link ClientChannel.Streaming#Async} streaming,
+ * its standard input is closed (EOF) as soon as it is opened and its output
+ * is read via the {@link IoInputStream}s and handed to a {@link ChannelOutputHandler}.
+ * The returned {@link ExecFuture} is completed once the channel is closed
+ * and all its output has been delivered.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class AsyncExecHandler extends AbstractLoggingBean implements ChannelListener, SshFutureListener<OpenFuture> {
+    private final ChannelExec channel;
+    private final ChannelOutputHandler handler;
+    private final DefaultExecFuture future;
+    // standard output, standard error and the channel closure
+    private final AtomicInteger pending = new AtomicInteger(3);
+
+    /**
+     * @param channel The <U>un-opened</U> {@link ChannelExec} to execute
+     * @param handler The {@link ChannelOutputHandler} to receive the output
+     *                - if {@code null} then output is discarded
+     */
+    public AsyncExecHandler(ChannelExec channel, ChannelOutputHandler handler) {
+        this.channel = ValidateUtils.checkNotNull(channel, "No channel");
+        this.handler = handler;
+        this.future = new DefaultExecFuture(channel, null);
+    }
+
+    public final ChannelExec getChannel() {
+        return channel;
+    }
+
+    public final ChannelOutputHandler getOutputHandler() {
+        return handler;
+    }
+
+    /**
+     * Opens the channel and starts the command execution
+     *
+     * @return The {@link ExecFuture} signalled when the execution ends
+     * @throws IOException If failed to open the channel
+     */
+    public ExecFuture start() throws IOException {
+        channel.setStreaming(ClientChannel.Streaming.Async);
+        channel.addChannelListener(this);
+        channel.open().addListener(this);
+        return future;
+    }
+
+    @Override
+    public void operationComplete(OpenFuture openFuture) {
+        if (!openFuture.isOpened()) {
+            Throwable t = openFuture.getException();
+            future.setException((t == null) ? new SshException("Channel opening canceled") : t);
+            return;
+        }
+
+        // the command has no input
+        channel.getAsyncIn().close(false);
+        startReading(channel.getAsyncOut(), false);
+        startReading(channel.getAsyncErr(), true);
+    }
+
+    @Override
+    public void channelInitialized(Channel channel) {
+        // ignored
+    }
+
+    @Override
+    public void channelOpenSuccess(Channel channel) {
+        // ignored
+    }
+
+    @Override
+    public void channelOpenFailure(Channel channel, Throwable reason) {
+        // ignored - signalled via the open future
+    }
+
+    @Override
+    public void channelClosed(Channel channel) {
+        signalDone();
+    }
+
+    protected void startReading(final IoInputStream input, final boolean stderr) {
+        input.read(new ByteArrayBuffer(IoUtils.DEFAULT_COPY_SIZE)).addListener(new SshFutureListener<IoReadFuture>() {
+            @SuppressWarnings("synthetic-access")
+            @Override
+            public void operationComplete(IoReadFuture readFuture) {
+                if (readFuture.getException() != null) {
+                    // the stream is closed once the channel is closed and all the data consumed
+                    signalDone();
+                    return;
+                }
+
+                Buffer buffer = readFuture.getBuffer();
+                try {
+                    handleData(buffer, stderr);
+                } catch (Throwable t) {
+                    log.warn("operationComplete({}) failed ({}) to handle {} data: {}",
+                             channel, t.getClass().getSimpleName(), stderr ? "STDERR" : "STDOUT", t.getMessage());
+                    future.setException(t);
+                    channel.close(true);
+                    signalDone();
+                    return;
+                }
+
+                buffer.clear();
+                input.read(buffer).addListener(this);
+            }
+        });
+    }
+
+    protected void handleData(Buffer buffer, boolean stderr) throws IOException {
+        if (handler == null) {
+            return;
+        }
+
+        if (stderr) {
+            handler.handleError(channel, buffer.array(), buffer.rpos(), buffer.available());
+        } else {
+            handler.handleOutput(channel, buffer.array(), buffer.rpos(), buffer.available());
+        }
+    }
+
+    protected void signalDone() {
+        if (pending.decrementAndGet() == 0) {
+            if (log.isDebugEnabled()) {
+                log.debug("signalDone({}) exit status={}, signal={}", channel, channel.getExitStatus(), channel.getExitSignal());
+            }
+            future.setCompleted();
+        }
+    }
+}
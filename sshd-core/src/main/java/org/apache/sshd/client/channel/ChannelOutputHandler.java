@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.channel;
+
+import java.io.IOException;
+
+/**
+ * Receives the output of a channel opened with {@link ClientChannel.Streaming#Async}
+ * streaming. <B>Note:</B> the methods are invoked from the I/O threads so they
+ * should not block - the data array is re-used once the call returns.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public interface ChannelOutputHandler {
+    /**
+     * Invoked when data is received on the channel's standard output
+     *
+     * @param channel The {@link ClientChannel} that received the data
+     * @param data    The data buffer
+     * @param off     Offset of the data in the buffer
+     * @param len     Number of available data bytes
+     * @throws IOException If failed to handle the data - in which case
+     *                     the channel is closed
+     */
+    void handleOutput(ClientChannel channel, byte[] data, int off, int len) throws IOException;
+
+    /**
+     * Invoked when data is received on the channel's standard error
+     *
+     * @param channel The {@link ClientChannel} that received the data
+     * @param data    The data buffer
+     * @param off     Offset of the data in the buffer
+     * @param len     Number of available data bytes
+     * @throws IOException If failed to handle the data - in which case
+     *                     the channel is closed
+     */
+    void handleError(ClientChannel channel, byte[] data, int off, int len) throws IOException;
+}
@@ -23,6 +23,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 import org.apache.sshd.client.future.OpenFuture;
+import org.apache.sshd.client.future.StateFuture;
 import org.apache.sshd.common.channel.Channel;
 import org.apache.sshd.common.future.CloseFuture;
 import org.apache.sshd.common.io.IoInputStream;
@@ -95,8 +96,27 @@ public interface ClientChannel extends Channel {
 
     OpenFuture open() throws IOException;
 
+    /**
+     * Wait for a specific state.
+     *
+     * @param mask    The request mask
+     * @param timeout Wait time in milliseconds - non-positive means forever
+     * @return The actual state that was detected either due to the mask
+     * yielding non-zero state or due to timeout (in which case the {@link #TIMEOUT}
+     * bit is set)
+     * @see #watchState(int)
+     */
     int waitFor(int mask, long timeout);
 
+    /**
+     * Watch for a specific state without blocking.
+     *
+     * @param mask The request mask
+     * @return A {@link StateFuture} signalled with the actual state as soon as
+     * the mask yields non-zero state - signalled immediately if already so
+     */
+    StateFuture watchState(int mask);
+
     @Override
     CloseFuture close(boolean immediate);
 
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.future;
+
+import java.io.IOException;
+
+import org.apache.sshd.client.channel.ChannelExec;
+import org.apache.sshd.common.future.DefaultVerifiableSshFuture;
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class DefaultExecFuture extends DefaultVerifiableSshFuture<ExecFuture> implements ExecFuture {
+    private final ChannelExec channel;
+
+    public DefaultExecFuture(ChannelExec channel, Object lock) {
+        super(lock);
+        this.channel = ValidateUtils.checkNotNull(channel, "No channel");
+    }
+
+    @Override
+    public ChannelExec getChannel() {
+        return channel;
+    }
+
+    @Override   // TODO for JDK-8 make this a default method
+    public ExecFuture verify(long timeoutMillis) throws IOException {
+        verifyResult(Boolean.class, timeoutMillis);
+        return this;
+    }
+
+    @Override
+    public Integer getExitStatus() {
+        return channel.getExitStatus();
+    }
+
+    @Override
+    public String getExitSignal() {
+        return channel.getExitSignal();
+    }
+
+    @Override   // TODO for JDK-8 make this a default method
+    public Throwable getException() {
+        Object v = getValue();
+        if (v instanceof Throwable) {
+            return (Throwable) v;
+        } else {
+            return null;
+        }
+    }
+
+    @Override   // TODO for JDK-8 make this a default method
+    public boolean isCompleted() {
+        Object value = getValue();
+        return (value instanceof Boolean) && ((Boolean) value).booleanValue();
+    }
+
+    @Override   // TODO for JDK-8 make this a default method
+    public void setCompleted() {
+        setValue(Boolean.TRUE);
+    }
+
+    @Override   // TODO for JDK-8 make this a default method
+    public void setException(Throwable exception) {
+        ValidateUtils.checkNotNull(exception, "No exception provided");
+        setValue(exception);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.future;
+
+import java.io.IOException;
+
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.future.DefaultVerifiableSshFuture;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class DefaultStateFuture extends DefaultVerifiableSshFuture<StateFuture> implements StateFuture {
+    private final int mask;
+
+    public DefaultStateFuture(int mask, Object lock) {
+        super(lock);
+        this.mask = mask;
+    }
+
+    @Override
+    public int getMask() {
+        return mask;
+    }
+
+    @Override   // TODO for JDK-8 make this a default method
+    public StateFuture verify(long timeoutMillis) throws IOException {
+        if (isCanceled()) {
+            throw new SshException("State watch canceled");
+        }
+
+        verifyResult(Integer.class, timeoutMillis);
+        return this;
+    }
+
+    @Override   // TODO for JDK-8 make this a default method
+    public int getState() {
+        Object value = getValue();
+        return (value instanceof Integer) ? ((Integer) value).intValue() : 0;
+    }
+
+    @Override   // TODO for JDK-8 make this a default method
+    public void setState(int state) {
+        setValue(Integer.valueOf(state));
+    }
+}
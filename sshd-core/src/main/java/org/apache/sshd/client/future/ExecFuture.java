@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.future;
+
+import org.apache.sshd.client.channel.ChannelExec;
+import org.apache.sshd.common.future.SshFuture;
+import org.apache.sshd.common.future.VerifiableFuture;
+
+/**
+ * An {@link SshFuture} for asynchronous remote command execution - completed
+ * once the command's channel has been closed and all its output delivered
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public interface ExecFuture extends SshFuture<ExecFuture>, VerifiableFuture<ExecFuture> {
+    /**
+     * @return The {@link ChannelExec} used to execute the command
+     */
+    ChannelExec getChannel();
+
+    /**
+     * @return The command exit status - {@code null} if the command has not
+     * completed yet or if the remote peer did not report any
+     */
+    Integer getExitStatus();
+
+    /**
+     * @return The signal that terminated the command - {@code null} if the
+     * command has not completed yet or if it was not terminated by a signal
+     */
+    String getExitSignal();
+
+    /**
+     * Returns the cause of the execution failure.
+     *
+     * @return <code>null</code> if the execution is not finished yet,
+     * or if it was successful (use {@link #isDone()} to distinguish
+     * between the two).
+     */
+    Throwable getException();
+
+    /**
+     * @return <code>true</code> if the command execution is finished successfully.
+     */
+    boolean isCompleted();
+
+    /**
+     * Marks the execution as completed and notifies all threads waiting for
+     * this future.  This method is invoked by SSHD internally.  Please do not
+     * call this method directly.
+     */
+    void setCompleted();
+
+    /**
+     * Sets the exception caught due to execution failure and notifies all
+     * threads waiting for this future.  This method is invoked by SSHD
+     * internally.  Please do not call this method directly.
+     *
+     * @param exception The caught {@link Throwable}
+     */
+    void setException(Throwable exception);
+}
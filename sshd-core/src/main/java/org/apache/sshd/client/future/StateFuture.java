@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.future;
+
+import org.apache.sshd.common.future.SshFuture;
+import org.apache.sshd.common.future.VerifiableFuture;
+
+/**
+ * Signalled once (any of) the watched state bits of a channel or session become
+ * set - e.g., {@link org.apache.sshd.client.channel.ClientChannel#CLOSED}. Unlike
+ * the blocking {@code waitFor} calls, listeners can be registered on many such
+ * futures so that a single thread can supervise many channels and/or sessions.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public interface StateFuture extends SshFuture<StateFuture>, VerifiableFuture<StateFuture> {
+    /**
+     * @return The watched state bits mask
+     */
+    int getMask();
+
+    /**
+     * @return The full state detected when the future was signalled - zero
+     * if not signalled (yet) or canceled
+     */
+    int getState();
+
+    /**
+     * @return {@code true} if the watch has been canceled by {@link #cancel()} method.
+     */
+    boolean isCanceled();
+
+    /**
+     * Signals the detected state and notifies all threads waiting for
+     * this future.  This method is invoked by SSHD internally.  Please do not
+     * call this method directly.
+     *
+     * @param state The full detected state
+     */
+    void setState(int state);
+
+    /**
+     * Cancels the watch and notifies all threads waiting for this future.
+     */
+    void cancel();
+}
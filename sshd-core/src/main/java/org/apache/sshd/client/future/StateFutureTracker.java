@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.future;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+
+/**
+ * Keeps track of the {@link StateFuture}s registered on a channel or session
+ * and signals them when the state changes. Each future has its own lock, so
+ * only the threads waiting for the affected futures are woken up - instead
+ * of every thread waiting on the owner's lock.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public abstract class StateFutureTracker extends AbstractLoggingBean {
+    private final List<StateFuture> watchers = new LinkedList<>();
+
+    protected StateFutureTracker() {
+        super();
+    }
+
+    /**
+     * @param mask The state bits to watch
+     * @return A {@link StateFuture} signalled as soon as any of the watched
+     * bits is set - if already set then the returned future is signalled
+     */
+    public StateFuture watch(int mask) {
+        StateFuture future = new DefaultStateFuture(mask, null);
+        int state;
+        synchronized (watchers) {
+            state = getCurrentState();
+            if ((state & mask) == 0) {
+                watchers.add(future);
+                return future;
+            }
+        }
+
+        future.setState(state);
+        return future;
+    }
+
+    /**
+     * Stops tracking the specified future - <B>Note:</B> the future is not
+     * signalled or canceled
+     *
+     * @param future The {@link StateFuture} to remove
+     * @return {@code true} if the future was being tracked
+     */
+    public boolean remove(StateFuture future) {
+        synchronized (watchers) {
+            return watchers.remove(future);
+        }
+    }
+
+    /**
+     * @return Number of currently tracked futures
+     */
+    public int size() {
+        synchronized (watchers) {
+            return watchers.size();
+        }
+    }
+
+    /**
+     * Invoked whenever the state may have changed - signals the futures
+     * whose watched bits are set in the {@link #getCurrentState() current state}
+     */
+    public void stateChanged() {
+        List<StateFuture> ready = null;
+        int state;
+        synchronized (watchers) {
+            if (watchers.isEmpty()) {
+                return;
+            }
+
+            state = getCurrentState();
+            for (Iterator<StateFuture> iter = watchers.iterator(); iter.hasNext();) {
+                StateFuture future = iter.next();
+                if (future.isDone()) {  // canceled
+                    iter.remove();
+                    continue;
+                }
+
+                if ((state & future.getMask()) != 0) {
+                    iter.remove();
+                    if (ready == null) {
+                        ready = new ArrayList<>();
+                    }
+                    ready.add(future);
+                }
+            }
+        }
+
+        if (GenericUtils.isEmpty(ready)) {
+            return;
+        }
+
+        if (log.isTraceEnabled()) {
+            log.trace("stateChanged(0x{}) signal {} futures", Integer.toHexString(state), ready.size());
+        }
+
+        // signal outside the lock since listeners are invoked
+        for (StateFuture future : ready) {
+            future.setState(state);
+        }
+    }
+
+    /**
+     * @return The current state bits
+     */
+    protected abstract int getCurrentState();
+}
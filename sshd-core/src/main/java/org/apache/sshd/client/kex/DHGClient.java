@@ -82,7 +82,7 @@ public class DHGClient extends AbstractDHClientKeyExchange {
 
         log.debug("Send SSH_MSG_KEXDH_INIT");
         Buffer buffer = s.createBuffer(SshConstants.SSH_MSG_KEXDH_INIT);
-        buffer.putMPInt(e);
+        dh.putE(buffer, e);
 
         s.writePacket(buffer);
     }
@@ -120,8 +120,8 @@ public class DHGClient extends AbstractDHClientKeyExchange {
         buffer.putBytes(i_c);
         buffer.putBytes(i_s);
         buffer.putBytes(k_s);
-        buffer.putMPInt(e);
-        buffer.putMPInt(f);
+        dh.putE(buffer, e);
+        dh.putF(buffer, f);
         buffer.putMPInt(k);
         hash.update(buffer.array(), 0, buffer.available());
         h = hash.digest();
@@ -27,10 +27,13 @@ import org.apache.sshd.client.ClientFactoryManager;
 import org.apache.sshd.client.auth.UserInteraction;
 import org.apache.sshd.client.channel.ChannelDirectTcpip;
 import org.apache.sshd.client.channel.ChannelExec;
+import org.apache.sshd.client.channel.ChannelOutputHandler;
 import org.apache.sshd.client.channel.ChannelShell;
 import org.apache.sshd.client.channel.ChannelSubsystem;
 import org.apache.sshd.client.channel.ClientChannel;
 import org.apache.sshd.client.future.AuthFuture;
+import org.apache.sshd.client.future.ExecFuture;
+import org.apache.sshd.client.future.StateFuture;
 import org.apache.sshd.client.scp.ScpClient;
 import org.apache.sshd.client.subsystem.sftp.SftpClient;
 import org.apache.sshd.client.subsystem.sftp.SftpVersionSelector;
@@ -61,6 +64,7 @@ import org.apache.sshd.common.session.Session;
  * When using the client in an interactive mode, the
  * {@link #waitFor(int, long)} method can be used to listen to specific
  * events such as the session being established, authenticated or closed.
+ * The {@link #watchState(int)} method provides the same without blocking.
  * </P>
  *
  * When a given session is no longer used, it must be closed using the
@@ -166,6 +170,20 @@ public interface ClientSession extends Session, KeyPairProviderHolder {
      */
     ChannelExec createExecChannel(String command) throws IOException;
 
+    /**
+     * Executes a command without blocking the calling thread. The command
+     * receives no input (EOF is sent once the channel is opened) and its
+     * output is delivered to the handler from the I/O threads.
+     *
+     * @param command The command to execute
+     * @param handler The {@link ChannelOutputHandler} to receive the command's
+     *                output - if {@code null} then output is discarded
+     * @return An {@link ExecFuture} signalled when the command exits and
+     * its channel is closed - the exit status is available from it
+     * @throws IOException If failed to create or open the channel
+     */
+    ExecFuture executeAsync(String command, ChannelOutputHandler handler) throws IOException;
+
     /**
      * Create a subsystem channel.
      *
@@ -320,9 +338,19 @@ public interface ClientSession extends Session, KeyPairProviderHolder {
      * @return The actual state that was detected either due to the mask
      * yielding non-zero state or due to timeout (in which case the {@link #TIMEOUT}
      * bit is set)
+     * @see #watchState(int)
      */
     int waitFor(int mask, long timeout);
 
+    /**
+     * Watch for a specific state without blocking.
+     *
+     * @param mask The request mask
+     * @return A {@link StateFuture} signalled with the actual state as soon as
+     * the mask yields non-zero state - signalled immediately if already so
+     */
+    StateFuture watchState(int mask);
+
     /**
      * Access to the metadata.
      *
@@ -31,13 +31,18 @@ import java.util.Map;
 
 import org.apache.sshd.client.ClientFactoryManager;
 import org.apache.sshd.client.auth.UserInteraction;
+import org.apache.sshd.client.channel.AsyncExecHandler;
 import org.apache.sshd.client.channel.ChannelDirectTcpip;
 import org.apache.sshd.client.channel.ChannelExec;
+import org.apache.sshd.client.channel.ChannelOutputHandler;
 import org.apache.sshd.client.channel.ChannelShell;
 import org.apache.sshd.client.channel.ChannelSubsystem;
 import org.apache.sshd.client.channel.ClientChannel;
 import org.apache.sshd.client.future.AuthFuture;
 import org.apache.sshd.client.future.DefaultAuthFuture;
+import org.apache.sshd.client.future.ExecFuture;
+import org.apache.sshd.client.future.StateFuture;
+import org.apache.sshd.client.future.StateFutureTracker;
 import org.apache.sshd.client.keyverifier.ServerKeyVerifier;
 import org.apache.sshd.client.scp.DefaultScpClient;
 import org.apache.sshd.client.scp.ScpClient;
@@ -57,8 +62,10 @@ import org.apache.sshd.common.cipher.BuiltinCiphers;
 import org.apache.sshd.common.cipher.CipherNone;
 import org.apache.sshd.common.config.keys.KeyUtils;
 import org.apache.sshd.common.forward.TcpipForwarder;
+import org.apache.sshd.common.future.CloseFuture;
 import org.apache.sshd.common.future.DefaultKeyExchangeFuture;
 import org.apache.sshd.common.future.KeyExchangeFuture;
+import org.apache.sshd.common.future.SshFutureListener;
 import org.apache.sshd.common.io.IoSession;
 import org.apache.sshd.common.kex.KexProposalOption;
 import org.apache.sshd.common.kex.KexState;
@@ -111,6 +118,12 @@ public class ClientSessionImpl extends AbstractSession implements ClientSession
     };
 
     protected AuthFuture authFuture;
+    protected final StateFutureTracker stateTracker = new StateFutureTracker() {
+        @Override
+        protected int getCurrentState() {
+            return resolveSessionState();
+        }
+    };
 
     /**
      * For clients to store their own metadata
@@ -130,6 +143,12 @@ public class ClientSessionImpl extends AbstractSession implements ClientSession
     public ClientSessionImpl(ClientFactoryManager client, IoSession session) throws Exception {
         super(false, client, session);
         log.debug("Client session created: {}", session);
+        closeFuture.addListener(new SshFutureListener<CloseFuture>() {
+            @Override
+            public void operationComplete(CloseFuture future) {
+                stateTracker.stateChanged();
+            }
+        });
         // Need to set the initial service early as calling code likes to start trying to
         // manipulate it before the connection has even been established.  For instance, to
         // set the authPassword.
@@ -257,10 +276,19 @@ public class ClientSessionImpl extends AbstractSession implements ClientSession
         }
 
         ClientUserAuthService authService = getUserAuthService();
+        AuthFuture future;
         synchronized (lock) {
-            authFuture = authService.auth(identities, nextServiceName());
-            return authFuture;
+            future = authService.auth(identities, nextServiceName());
+            authFuture = future;
         }
+
+        future.addListener(new SshFutureListener<AuthFuture>() {
+            @Override
+            public void operationComplete(AuthFuture f) {
+                notifyStateChanged();
+            }
+        });
+        return future;
     }
 
     private String nextServiceName() {
@@ -388,6 +416,12 @@ public class ClientSessionImpl extends AbstractSession implements ClientSession
         return channel;
     }
 
+    @Override
+    public ExecFuture executeAsync(String command, ChannelOutputHandler handler) throws IOException {
+        ChannelExec channel = createExecChannel(command);
+        return new AsyncExecHandler(channel, handler).start();
+    }
+
     @Override
     public ChannelSubsystem createSubsystemChannel(String subsystem) throws IOException {
         ChannelSubsystem channel = new ChannelSubsystem(subsystem);
@@ -518,66 +552,57 @@ public class ClientSessionImpl extends AbstractSession implements ClientSession
 
     @Override
     public int waitFor(int mask, long timeout) {
-        long t = 0L;
-        synchronized (lock) {
-            for (;;) {
-                int cond = 0;
-                if (closeFuture.isClosed()) {
-                    cond |= CLOSED;
-                }
-                if (authed) { // authFuture.isSuccess()
-                    cond |= AUTHED;
-                }
-                if (KexState.DONE.equals(kexState.get()) && authFuture.isFailure()) {
-                    cond |= WAIT_AUTH;
-                }
-                if ((cond & mask) != 0) {
-                    if (log.isTraceEnabled()) {
-                        log.trace("WaitFor call returning on session {}, mask=0x{}, cond=0x{}",
-                                  this, Integer.toHexString(mask), Integer.toHexString(cond));
-                    }
-                    return cond;
-                }
-                if (timeout > 0L) {
-                    if (t == 0L) {
-                        t = System.currentTimeMillis() + timeout;
-                    } else {
-                        timeout = t - System.currentTimeMillis();
-                        if (timeout <= 0L) {
-                            if (log.isTraceEnabled()) {
-                                log.trace("WaitFor call timeout on session {}, mask=0x{}", this, Integer.toHexString(mask));
-                            }
-                            cond |= TIMEOUT;
-                            return cond;
-                        }
-                    }
-                }
+        StateFuture future = watchState(mask);
+        if (log.isTraceEnabled()) {
+            log.trace("Waiting {} millis for state on session {}, mask=0x{}", timeout, this, Integer.toHexString(mask));
+        }
 
-                if (log.isTraceEnabled()) {
-                    log.trace("Waiting {} millis for lock on session {}, mask={}, cond={}", timeout, this, mask, cond);
-                }
+        boolean signalled = (timeout > 0L) ? future.awaitUninterruptibly(timeout) : future.awaitUninterruptibly();
+        if (signalled) {
+            int cond = future.getState();
+            if (log.isTraceEnabled()) {
+                log.trace("WaitFor call returning on session {}, mask=0x{}, cond=0x{}",
+                          this, Integer.toHexString(mask), Integer.toHexString(cond));
+            }
+            return cond;
+        }
 
-                long nanoStart = System.nanoTime();
-                try {
-                    if (timeout > 0) {
-                        lock.wait(timeout);
-                    } else {
-                        lock.wait();
-                    }
+        stateTracker.remove(future);
+        if (log.isTraceEnabled()) {
+            log.trace("WaitFor call timeout on session {}, mask=0x{}", this, Integer.toHexString(mask));
+        }
+        return resolveSessionState() | TIMEOUT;
+    }
 
-                    long nanoEnd = System.nanoTime();
-                    long nanoDuration = nanoEnd - nanoStart;
-                    if (log.isTraceEnabled()) {
-                        log.trace("Lock notified on session {} after {} nanos", this, nanoDuration);
-                    }
-                } catch (InterruptedException e) {
-                    long nanoEnd = System.nanoTime();
-                    long nanoDuration = nanoEnd - nanoStart;
-                    if (log.isTraceEnabled()) {
-                        log.trace("waitFor({}) mask={} - ignoring interrupted exception after {} nanos", this, Integer.toHexString(mask), nanoDuration);
-                    }
-                }
-            }
+    @Override
+    public StateFuture watchState(int mask) {
+        return stateTracker.watch(mask);
+    }
+
+    /**
+     * @return The current session state bits
+     * @see #waitFor(int, long)
+     */
+    protected int resolveSessionState() {
+        int cond = 0;
+        if (closeFuture.isClosed()) {
+            cond |= CLOSED;
+        }
+        if (authed) { // authFuture.isSuccess()
+            cond |= AUTHED;
+        }
+        if (KexState.DONE.equals(kexState.get()) && authFuture.isFailure()) {
+            cond |= WAIT_AUTH;
+        }
+        return cond;
+    }
+
+    @Override
+    protected void notifyStateChanged() {
+        super.notifyStateChanged();
+        // may be invoked by the super constructor
+        if (stateTracker != null) {
+            stateTracker.stateChanged();
         }
     }
 
@@ -640,9 +665,7 @@ public class ClientSessionImpl extends AbstractSession implements ClientSession
         if (event == SessionListener.Event.KeyEstablished) {
             sendInitialServiceRequest();
         }
-        synchronized (lock) {
-            lock.notifyAll();
-        }
+        notifyStateChanged();
         super.sendSessionEvent(event);
     }
 
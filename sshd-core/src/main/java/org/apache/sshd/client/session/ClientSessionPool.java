@@ -0,0 +1,626 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.session;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.sshd.client.ClientFactoryManager;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.config.hosts.HostConfigEntry;
+import org.apache.sshd.client.config.hosts.HostConfigEntryResolver;
+import org.apache.sshd.common.FactoryManagerUtils;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.future.GlobalRequestFuture;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.SessionListener;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+
+/**
+ * Re-uses authenticated {@link ClientSession}s for subsequent operations
+ * against the same target - similar to OpenSSH's {@code ControlMaster}. Sessions
+ * are pooled by user, host, port and identities, and each one is leased to
+ * up to {@link ClientFactoryManager#POOL_MAX_LEASES_PER_SESSION} callers at a
+ * time - a new session is created if all the pooled ones are at their limit. Callers
+ * that arrive while a session is being created for the same target wait for it
+ * (up to its max. leases) rather than creating sessions of their own.
+ * Sessions that were not used for a while are verified via a keep-alive request
+ * before being leased again, dead sessions are replaced transparently and idle
+ * ones are closed after {@link ClientFactoryManager#POOL_IDLE_TIMEOUT}. Usage:
+ * <pre>
+ *      try (ClientSessionPool.Lease lease = pool.lease(user, host, port)) {
+ *          try (ChannelExec channel = lease.getSession().createExecChannel(command)) {
+ *              ...
+ *          }
+ *      }
+ * </pre>
+ * <B>Note:</B> leased sessions must not be closed by the caller - the lease
+ * should be {@link Lease#invalidate() invalidated} instead if the session is
+ * found to be unusable
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ClientSessionPool extends AbstractLoggingBean implements java.io.Closeable {
+    private final SshClient client;
+    private final int maxLeases;
+    private final long idleTimeout;
+    private final long healthCheckInterval;
+    private final long sessionTimeout;
+    private final long healthCheckTimeout;
+    private final Map<PoolKey, List<PooledSession>> pool = new HashMap<>();
+    // sessions being created - guarded by the pool lock
+    private final Map<PoolKey, List<SessionCreation>> creations = new HashMap<>();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final ScheduledFuture<?> evictionTask;
+
+    /**
+     * @param client The {@link SshClient} used to create the sessions - <B>Note:</B>
+     * must be started and remain so while the pool is in use
+     */
+    public ClientSessionPool(SshClient client) {
+        this.client = ValidateUtils.checkNotNull(client, "No client");
+        this.maxLeases = FactoryManagerUtils.getIntProperty(client,
+                ClientFactoryManager.POOL_MAX_LEASES_PER_SESSION, ClientFactoryManager.DEFAULT_POOL_MAX_LEASES_PER_SESSION);
+        ValidateUtils.checkTrue(maxLeases > 0, "Bad max. leases per session: %d", maxLeases);
+        this.idleTimeout = FactoryManagerUtils.getLongProperty(client,
+                ClientFactoryManager.POOL_IDLE_TIMEOUT, ClientFactoryManager.DEFAULT_POOL_IDLE_TIMEOUT);
+        this.healthCheckInterval = FactoryManagerUtils.getLongProperty(client,
+                ClientFactoryManager.POOL_HEALTH_CHECK_INTERVAL, ClientFactoryManager.DEFAULT_POOL_HEALTH_CHECK_INTERVAL);
+        this.sessionTimeout = FactoryManagerUtils.getLongProperty(client,
+                ClientFactoryManager.POOL_SESSION_TIMEOUT, ClientFactoryManager.DEFAULT_POOL_SESSION_TIMEOUT);
+        this.healthCheckTimeout = FactoryManagerUtils.getLongProperty(client,
+                ClientFactoryManager.POOL_HEALTH_CHECK_TIMEOUT, ClientFactoryManager.DEFAULT_POOL_HEALTH_CHECK_TIMEOUT);
+
+        if (idleTimeout > 0L) {
+            long interval = Math.max(idleTimeout / 2L, 1L);
+            evictionTask = client.getScheduledExecutorService().scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    evictIdleSessions();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            evictionTask = null;
+        }
+    }
+
+    public final SshClient getClient() {
+        return client;
+    }
+
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    /**
+     * Resolves the <U>effective</U> {@link HostConfigEntry} - same as
+     * {@link SshClient#connect(String, String, int)} - and leases a session to it
+     *
+     * @param username The intended username
+     * @param host The target host name/address
+     * @param port The target port
+     * @return The {@link Lease}
+     * @throws IOException If failed to resolve the target or obtain a session
+     */
+    public Lease lease(String username, String host, int port) throws IOException {
+        HostConfigEntryResolver resolver = client.getHostConfigEntryResolver();
+        HostConfigEntry entry = resolver.resolveEffectiveHost(host, port, username);
+        if (entry == null) {
+            entry = new HostConfigEntry(host, host, port, username);
+        }
+        return lease(entry);
+    }
+
+    /**
+     * @param entry The target {@link HostConfigEntry}
+     * @return A {@link Lease} of an authenticated session to the target
+     * @throws IOException If failed to obtain a session
+     */
+    public Lease lease(HostConfigEntry entry) throws IOException {
+        ValidateUtils.checkNotNull(entry, "No host configuration");
+        PoolKey key = new PoolKey(entry);
+        for (;;) {
+            if (!isOpen()) {
+                throw new IllegalStateException("Session pool closed");
+            }
+
+            PooledSession pooled;
+            SessionCreation creation = null;
+            boolean creator = false;
+            boolean checkHealth;
+            long now = System.currentTimeMillis();
+            synchronized (pool) {
+                pooled = findAvailableSession(key);
+                checkHealth = (pooled != null) && (pooled.leases == 0) && (healthCheckInterval > 0L)
+                           && ((now - pooled.lastUsed) > healthCheckInterval);
+                if (pooled != null) {
+                    pooled.leases++;
+                    pooled.lastUsed = now;
+                } else {
+                    // join a session being created for the same target - or start a new creation
+                    creation = findAvailableCreation(key);
+                    if (creation == null) {
+                        creation = new SessionCreation();
+                        List<SessionCreation> pending = creations.get(key);
+                        if (pending == null) {
+                            pending = new ArrayList<>();
+                            creations.put(key, pending);
+                        }
+                        pending.add(creation);
+                        creator = true;
+                    }
+                    creation.reserved++;
+                }
+            }
+
+            if (creation != null) {
+                pooled = creator ? completeCreation(key, entry, creation) : awaitCreation(key, creation);
+            } else if (checkHealth && (!isHealthy(pooled.session))) {
+                log.debug("lease({}) replacing unhealthy session={}", key, pooled.session);
+                pooled.invalidate();
+                release(pooled);
+                continue;
+            }
+
+            if (log.isTraceEnabled()) {
+                log.trace("lease({}) leased session={}", key, pooled.session);
+            }
+            return new Lease(pooled);
+        }
+    }
+
+    /**
+     * @return Number of pooled sessions
+     */
+    public int getSessionCount() {
+        int count = 0;
+        synchronized (pool) {
+            for (List<PooledSession> sessions : pool.values()) {
+                count += sessions.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Closes the sessions that have no leases and were not used for
+     * longer than the {@link ClientFactoryManager#POOL_IDLE_TIMEOUT}
+     */
+    public void evictIdleSessions() {
+        List<PooledSession> evicted = null;
+        long now = System.currentTimeMillis();
+        synchronized (pool) {
+            for (Iterator<List<PooledSession>> lists = pool.values().iterator(); lists.hasNext();) {
+                List<PooledSession> sessions = lists.next();
+                for (Iterator<PooledSession> iter = sessions.iterator(); iter.hasNext();) {
+                    PooledSession pooled = iter.next();
+                    if ((pooled.leases > 0) || ((now - pooled.lastUsed) <= idleTimeout)) {
+                        continue;
+                    }
+
+                    iter.remove();
+                    if (evicted == null) {
+                        evicted = new ArrayList<>();
+                    }
+                    evicted.add(pooled);
+                }
+
+                if (sessions.isEmpty()) {
+                    lists.remove();
+                }
+            }
+        }
+
+        if (evicted != null) {
+            for (PooledSession pooled : evicted) {
+                log.debug("evictIdleSessions() closing idle session={}", pooled.session);
+                pooled.session.close(false);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (evictionTask != null) {
+            evictionTask.cancel(false);
+        }
+
+        List<PooledSession> sessions = new ArrayList<>();
+        synchronized (pool) {
+            for (List<PooledSession> l : pool.values()) {
+                sessions.addAll(l);
+            }
+            pool.clear();
+        }
+
+        for (PooledSession pooled : sessions) {
+            pooled.session.close(false);
+        }
+    }
+
+    /**
+     * Called after the session is connected and before it is authenticated -
+     * e.g., in order to add password identities. By default does nothing
+     *
+     * @param session The newly connected {@link ClientSession}
+     * @param entry The target {@link HostConfigEntry}
+     * @throws IOException If failed to set up the session
+     */
+    protected void setupSession(ClientSession session, HostConfigEntry entry) throws IOException {
+        // do nothing
+    }
+
+    /**
+     * Sends a keep-alive global request and waits (up to the
+     * {@link ClientFactoryManager#POOL_HEALTH_CHECK_TIMEOUT}) for a reply - any
+     * reply (including a failure) means the peer is alive
+     *
+     * @param session The {@link ClientSession} to check
+     * @return {@code true} if the session is healthy
+     */
+    protected boolean isHealthy(ClientSession session) {
+        if (!isUsable(session)) {
+            return false;
+        }
+
+        try {
+            String request = FactoryManagerUtils.getStringProperty(session,
+                    ClientFactoryManager.HEARTBEAT_REQUEST, ClientFactoryManager.DEFAULT_KEEP_ALIVE_HEARTBEAT_STRING);
+            Buffer buffer = session.createBuffer(SshConstants.SSH_MSG_GLOBAL_REQUEST);
+            buffer.putString(request);
+            buffer.putBoolean(true);
+            GlobalRequestFuture future = session.requestAsync(buffer);
+            future.verify(healthCheckTimeout, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.debug("isHealthy({}) health check failed ({}): {}", session, e.getClass().getSimpleName(), e.getMessage());
+            return false;
+        }
+    }
+
+    protected boolean isUsable(ClientSession session) {
+        return session.isOpen() && (!session.isClosing()) && session.isAuthenticated();
+    }
+
+    /**
+     * Creates a session for the target and registers it in the pool with the
+     * leases reserved by the callers that waited for it
+     *
+     * @param key The target {@link PoolKey}
+     * @param entry The target {@link HostConfigEntry}
+     * @param creation The {@link SessionCreation} tracking the callers
+     * @return The created {@link PooledSession}
+     * @throws IOException If failed to create the session
+     */
+    protected PooledSession completeCreation(PoolKey key, HostConfigEntry entry, SessionCreation creation) throws IOException {
+        PooledSession pooled;
+        try {
+            pooled = createPooledSession(key, entry);
+        } catch (IOException | RuntimeException e) {
+            synchronized (pool) {
+                removeCreation(key, creation);
+                creation.failure = e;
+                pool.notifyAll();
+            }
+            throw e;
+        }
+
+        synchronized (pool) {
+            removeCreation(key, creation);
+            if (isOpen()) {
+                pooled.leases = creation.reserved;
+                List<PooledSession> sessions = pool.get(key);
+                if (sessions == null) {
+                    sessions = new ArrayList<>();
+                    pool.put(key, sessions);
+                }
+                sessions.add(pooled);
+                creation.pooled = pooled;
+                pool.notifyAll();
+                log.debug("completeCreation({}) created session={} for {} leases", key, pooled.session, creation.reserved);
+                return pooled;
+            }
+
+            creation.failure = new IllegalStateException("Session pool closed");
+            pool.notifyAll();
+        }
+
+        pooled.session.close(true);
+        throw new IllegalStateException("Session pool closed");
+    }
+
+    /**
+     * Waits for a session being created by another caller - whose lease has already been reserved
+     *
+     * @param key The target {@link PoolKey}
+     * @param creation The {@link SessionCreation} being waited for
+     * @return The created {@link PooledSession}
+     * @throws IOException If the creation failed or interrupted while waiting
+     */
+    protected PooledSession awaitCreation(PoolKey key, SessionCreation creation) throws IOException {
+        synchronized (pool) {
+            // the creation is bounded by the session timeout(s), so no need for an extra timeout
+            while ((creation.pooled == null) && (creation.failure == null)) {
+                try {
+                    pool.wait();
+                } catch (InterruptedException e) {
+                    creation.reserved--;
+                    throw (IOException) new InterruptedIOException("Interrupted while waiting for session of " + key).initCause(e);
+                }
+            }
+
+            if (creation.pooled != null) {
+                return creation.pooled;
+            }
+        }
+
+        Exception e = creation.failure;
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        throw new SshException("Failed (" + e.getClass().getSimpleName() + ") to create session for " + key + ": " + e.getMessage(), e);
+    }
+
+    // must be called under the pool lock
+    protected SessionCreation findAvailableCreation(PoolKey key) {
+        List<SessionCreation> pending = creations.get(key);
+        if (GenericUtils.isEmpty(pending)) {
+            return null;
+        }
+
+        for (SessionCreation creation : pending) {
+            if (creation.reserved < maxLeases) {
+                return creation;
+            }
+        }
+        return null;
+    }
+
+    // must be called under the pool lock
+    protected void removeCreation(PoolKey key, SessionCreation creation) {
+        List<SessionCreation> pending = creations.get(key);
+        if ((pending != null) && pending.remove(creation) && pending.isEmpty()) {
+            creations.remove(key);
+        }
+    }
+
+    /**
+     * @param key The target {@link PoolKey}
+     * @param entry The target {@link HostConfigEntry}
+     * @return A connected and authenticated {@link PooledSession} - <B>Note:</B>
+     * not registered in the pool yet
+     * @throws IOException If failed to create the session
+     */
+    protected PooledSession createPooledSession(PoolKey key, HostConfigEntry entry) throws IOException {
+        ClientSession session = client.connect(entry).verify(sessionTimeout, TimeUnit.MILLISECONDS).getSession();
+        try {
+            setupSession(session, entry);
+            session.auth().verify(sessionTimeout, TimeUnit.MILLISECONDS);
+        } catch (IOException | RuntimeException e) {
+            session.close(true);
+            throw e;
+        }
+
+        final PooledSession pooled = new PooledSession(key, session);
+        session.addSessionListener(new SessionListener() {
+            @Override
+            public void sessionCreated(Session s) {
+                // ignored
+            }
+
+            @Override
+            public void sessionEvent(Session s, Event event) {
+                // ignored
+            }
+
+            @Override
+            public void sessionClosed(Session s) {
+                remove(pooled);
+            }
+        });
+        return pooled;
+    }
+
+    /*
+     * Prefers the busiest session that still has room so that the others
+     * become idle and can be evicted - must be called under the pool lock
+     */
+    protected PooledSession findAvailableSession(PoolKey key) {
+        List<PooledSession> sessions = pool.get(key);
+        if (GenericUtils.isEmpty(sessions)) {
+            return null;
+        }
+
+        PooledSession selected = null;
+        for (PooledSession pooled : sessions) {
+            if (pooled.invalid || (pooled.leases >= maxLeases) || (!isUsable(pooled.session))) {
+                continue;
+            }
+
+            if ((selected == null) || (pooled.leases > selected.leases)) {
+                selected = pooled;
+            }
+        }
+        return selected;
+    }
+
+    protected void release(PooledSession pooled) {
+        boolean discard;
+        synchronized (pool) {
+            pooled.leases--;
+            pooled.lastUsed = System.currentTimeMillis();
+            discard = (pooled.leases <= 0) && (pooled.invalid || (!isUsable(pooled.session)));
+        }
+
+        if (discard) {
+            remove(pooled);
+            pooled.session.close(false);
+        }
+    }
+
+    protected void remove(PooledSession pooled) {
+        synchronized (pool) {
+            List<PooledSession> sessions = pool.get(pooled.key);
+            if ((sessions != null) && sessions.remove(pooled) && sessions.isEmpty()) {
+                pool.remove(pooled.key);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + client + "]";
+    }
+
+    /**
+     * Represents the usage of a pooled session by a single caller - closing
+     * the lease returns the session to the pool
+     */
+    public class Lease implements java.io.Closeable {
+        private final PooledSession pooled;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        Lease(PooledSession pooled) {
+            this.pooled = pooled;
+        }
+
+        public ClientSession getSession() {
+            return pooled.session;
+        }
+
+        /**
+         * Marks the session as unusable - it is no longer leased and
+         * is closed once all its leases are released
+         */
+        public void invalidate() {
+            pooled.invalidate();
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(pooled);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "[" + getSession() + "]";
+        }
+    }
+
+    protected static class PooledSession {
+        private final PoolKey key;
+        private final ClientSession session;
+        private int leases;
+        private long lastUsed = System.currentTimeMillis();
+        private volatile boolean invalid;
+
+        PooledSession(PoolKey key, ClientSession session) {
+            this.key = key;
+            this.session = session;
+        }
+
+        void invalidate() {
+            invalid = true;
+        }
+    }
+
+    /**
+     * Tracks a session being created and the callers waiting for it
+     */
+    protected static class SessionCreation {
+        // all guarded by the pool lock
+        private int reserved;
+        private PooledSession pooled;
+        private Exception failure;
+
+        SessionCreation() {
+            super();
+        }
+    }
+
+    /**
+     * Identifies the sessions that can be shared - i.e., same user, target and identities
+     */
+    protected static final class PoolKey {
+        private final String username;
+        private final String host;
+        private final int port;
+        private final Collection<String> identities;
+        private final boolean identitiesOnly;
+
+        PoolKey(HostConfigEntry entry) {
+            this.username = entry.getUsername();
+            this.host = entry.getHostName();
+            this.port = entry.getPort();
+            Collection<String> ids = entry.getIdentities();
+            this.identities = GenericUtils.isEmpty(ids)
+                    ? Collections.<String>emptyList()
+                    : Collections.unmodifiableList(new ArrayList<>(ids));
+            this.identitiesOnly = entry.isIdentitiesOnly();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(username, host, port, identities, identitiesOnly);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PoolKey)) {
+                return false;
+            }
+
+            PoolKey other = (PoolKey) obj;
+            return (port == other.port)
+                && (identitiesOnly == other.identitiesOnly)
+                && Objects.equals(username, other.username)
+                && Objects.equals(host, other.host)
+                && identities.equals(other.identities);
+        }
+
+        @Override
+        public String toString() {
+            return username + "@" + host + ":" + port + identities;
+        }
+    }
+}
@@ -19,13 +19,13 @@
 package org.apache.sshd.common;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.sshd.agent.SshAgentFactory;
 import org.apache.sshd.common.channel.Channel;
@@ -43,6 +43,7 @@ import org.apache.sshd.common.kex.KeyExchange;
 import org.apache.sshd.common.keyprovider.KeyPairProvider;
 import org.apache.sshd.common.keyprovider.KeyPairProviderHolder;
 import org.apache.sshd.common.mac.Mac;
+import org.apache.sshd.common.metrics.MetricsRegistry;
 import org.apache.sshd.common.random.Random;
 import org.apache.sshd.common.session.AbstractSessionFactory;
 import org.apache.sshd.common.session.ConnectionService;
@@ -51,6 +52,7 @@ import org.apache.sshd.common.session.SessionTimeoutListener;
 import org.apache.sshd.common.signature.Signature;
 import org.apache.sshd.common.util.EventListenerUtils;
 import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.VersionedHashMap;
 import org.apache.sshd.common.util.closeable.AbstractInnerCloseable;
 import org.apache.sshd.common.util.threads.ThreadUtils;
 import org.apache.sshd.server.forward.ForwardingFilter;
@@ -64,7 +66,7 @@ public abstract class AbstractFactoryManager
         extends AbstractInnerCloseable
         implements FactoryManager, KeyPairProviderHolder {
 
-    protected Map<String, Object> properties = new HashMap<>();
+    protected Map<String, Object> properties = new VersionedHashMap<>();
     protected IoServiceFactoryFactory ioServiceFactoryFactory;
     protected IoServiceFactory ioServiceFactory;
     protected List<NamedFactory<KeyExchange>> keyExchangeFactories;
@@ -82,6 +84,7 @@ public abstract class AbstractFactoryManager
     protected FileSystemFactory fileSystemFactory;
     protected List<ServiceFactory> serviceFactories;
     protected List<RequestHandler<ConnectionService>> globalRequestHandlers;
+    protected MetricsRegistry metricsRegistry;
     protected SessionTimeoutListener sessionTimeoutListener;
     protected ScheduledFuture<?> timeoutListenerFuture;
     protected final Collection<SessionListener> sessionListeners = new CopyOnWriteArraySet<>();
@@ -90,6 +93,7 @@ public abstract class AbstractFactoryManager
     protected final ChannelListener channelListenerProxy;
 
     private KeyPairProvider keyPairProvider;
+    private final AtomicReference<PropertiesSnapshot> snapshotHolder = new AtomicReference<>();
 
     protected AbstractFactoryManager() {
         ClassLoader loader = getClass().getClassLoader();
@@ -187,6 +191,22 @@ public abstract class AbstractFactoryManager
         this.properties = ValidateUtils.checkNotNull(properties, "Null properties not allowed");
     }
 
+    /**
+     * @return A {@link PropertiesSnapshot} of the current properties - re-created
+     * if the properties have been replaced or modified since it was last used
+     * @see PropertyKey#get(FactoryManager)
+     */
+    public PropertiesSnapshot getPropertiesSnapshot() {
+        Map<String, Object> props = getProperties();
+        PropertiesSnapshot snapshot = snapshotHolder.get();
+        if ((snapshot == null) || (!snapshot.isValid(props))) {
+            snapshot = new PropertiesSnapshot(props);
+            snapshotHolder.set(snapshot);
+        }
+
+        return snapshot;
+    }
+
     @Override
     public String getVersion() {
         return FactoryManagerUtils.getStringProperty(VersionProperties.getVersionProperties(), "sshd-version", DEFAULT_VERSION).toUpperCase();
@@ -286,6 +306,20 @@ public abstract class AbstractFactoryManager
         this.globalRequestHandlers = globalRequestHandlers;
     }
 
+    @Override
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * @param metricsRegistry The {@link MetricsRegistry} to report metrics to -
+     * {@code null} to disable metrics collection. <B>Note:</B> should be set before
+     * the manager is started since components resolve their metrics once
+     */
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
     @Override
     public void addSessionListener(SessionListener listener) {
         ValidateUtils.checkNotNull(listener, "addSessionListener(%s) null instance", this);
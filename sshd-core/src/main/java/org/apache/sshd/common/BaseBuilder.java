@@ -73,6 +73,8 @@ public class BaseBuilder<T extends AbstractFactoryManager, S extends BaseBuilder
             BuiltinCiphers.aes128ctr,
             BuiltinCiphers.aes192ctr,
             BuiltinCiphers.aes256ctr,
+            BuiltinCiphers.aes128gcm,
+            BuiltinCiphers.aes256gcm,
             BuiltinCiphers.arcfour256,
             BuiltinCiphers.arcfour128,
             BuiltinCiphers.aes128cbc,
@@ -91,6 +93,9 @@ public class BaseBuilder<T extends AbstractFactoryManager, S extends BaseBuilder
      */
     public static final List<BuiltinDHFactories> DEFAULT_KEX_PREFERENCE =
         Collections.unmodifiableList(Arrays.asList(
+            BuiltinDHFactories.curve25519,
+            BuiltinDHFactories.curve25519libssh,
+
             BuiltinDHFactories.ecdhp521,
             BuiltinDHFactories.ecdhp384,
             BuiltinDHFactories.ecdhp256,
@@ -109,6 +114,9 @@ public class BaseBuilder<T extends AbstractFactoryManager, S extends BaseBuilder
      */
     public static final List<BuiltinMacs> DEFAULT_MAC_PREFERENCE =
         Collections.unmodifiableList(Arrays.asList(
+            BuiltinMacs.hmacsha256etm,
+            BuiltinMacs.hmacsha512etm,
+            BuiltinMacs.hmacsha1etm,
             BuiltinMacs.hmacmd5,
             BuiltinMacs.hmacsha1,
             BuiltinMacs.hmacsha256,
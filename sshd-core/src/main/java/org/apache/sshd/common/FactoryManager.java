@@ -21,6 +21,7 @@ package org.apache.sshd.common;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.sshd.agent.SshAgentFactory;
 import org.apache.sshd.common.channel.Channel;
@@ -33,6 +34,7 @@ import org.apache.sshd.common.forward.TcpipForwarderFactory;
 import org.apache.sshd.common.io.IoServiceFactory;
 import org.apache.sshd.common.kex.KeyExchange;
 import org.apache.sshd.common.mac.Mac;
+import org.apache.sshd.common.metrics.MetricsRegistry;
 import org.apache.sshd.common.random.Random;
 import org.apache.sshd.common.session.ConnectionService;
 import org.apache.sshd.common.session.SessionListenerManager;
@@ -153,6 +155,206 @@ public interface FactoryManager extends SessionListenerManager, ChannelListenerM
      */
     String NIO2_READ_BUFFER_SIZE = "nio2-read-buf-size";
 
+    /**
+     * Max. number of connections a NIO2 acceptor holds while its handler defers
+     * them - connections beyond this number are rejected. If non-positive then
+     * deferred connections are rejected immediately.
+     * See {@link org.apache.sshd.common.io.IoAcceptFilter.Decision#DEFER}
+     */
+    String NIO2_ACCEPT_QUEUE_SIZE = "nio2-accept-queue-size";
+
+    /**
+     * Default value for {@link #NIO2_ACCEPT_QUEUE_SIZE} if none set
+     */
+    int DEFAULT_NIO2_ACCEPT_QUEUE_SIZE = 0;
+
+    /**
+     * Max. time (msec.) a deferred connection is held before being rejected
+     */
+    String NIO2_ACCEPT_QUEUE_TIMEOUT = "nio2-accept-queue-timeout";
+
+    /**
+     * Default value for {@link #NIO2_ACCEPT_QUEUE_TIMEOUT} if none set
+     */
+    long DEFAULT_NIO2_ACCEPT_QUEUE_TIMEOUT = TimeUnit.SECONDS.toMillis(10L);
+
+    /**
+     * Interval (msec.) at which deferred connections are re-evaluated
+     */
+    String NIO2_ACCEPT_RETRY_INTERVAL = "nio2-accept-retry-interval";
+
+    /**
+     * Default value for {@link #NIO2_ACCEPT_RETRY_INTERVAL} if none set
+     */
+    long DEFAULT_NIO2_ACCEPT_RETRY_INTERVAL = 100L;
+
+    /**
+     * Whether to also report session metrics per authenticated user (if a
+     * {@link #getMetricsRegistry()} is configured). <B>Note:</B> creates metrics
+     * per username, so it should be used only for a bounded set of users
+     */
+    String METRICS_PER_USER = "metrics-per-user";
+
+    /**
+     * Default value for {@link #METRICS_PER_USER} if none set
+     */
+    boolean DEFAULT_METRICS_PER_USER = false;
+
+    /**
+     * Number of entries kept by the per-session packets flight recorder. If
+     * non-positive then no packets metadata is recorded
+     */
+    String FLIGHT_RECORDER_SIZE = "flight-recorder-size";
+
+    /**
+     * Default value for {@link #FLIGHT_RECORDER_SIZE} if none set
+     */
+    int DEFAULT_FLIGHT_RECORDER_SIZE = 64;
+
+    /**
+     * Max. number of channel opens that may be pending (i.e., not yet confirmed)
+     * for connections accepted on the same port forwarding listener - further
+     * connections are kept (without reading from them) until some of the pending
+     * opens complete. If non-positive then no limit is enforced
+     */
+    String MAX_PENDING_FORWARD_OPENS = "max-pending-forward-opens";
+
+    /**
+     * Default value for {@link #MAX_PENDING_FORWARD_OPENS} if none set
+     */
+    int DEFAULT_MAX_PENDING_FORWARD_OPENS = 64;
+
+    /**
+     * Whether the SOCKS proxy of a dynamic port forwarding confirms a CONNECT
+     * request before its channel is confirmed - i.e., the client starts sending
+     * data while the channel is being opened, saving a round-trip per connection.
+     * <B>Note:</B> if the channel cannot be opened then the client connection is
+     * just closed instead of receiving a SOCKS error reply
+     */
+    String SOCKS_OPTIMISTIC_CONNECT = "socks-optimistic-connect";
+
+    /**
+     * Default value for {@link #SOCKS_OPTIMISTIC_CONNECT} if none set
+     */
+    boolean DEFAULT_SOCKS_OPTIMISTIC_CONNECT = false;
+
+    /**
+     * Max. number of destinations for which the SOCKS proxy of a dynamic port
+     * forwarding keeps connection statistics - the least recently used ones are
+     * evicted. If non-positive then no statistics are kept
+     */
+    String SOCKS_MAX_TRACKED_DESTINATIONS = "socks-max-tracked-destinations";
+
+    /**
+     * Default value for {@link #SOCKS_MAX_TRACKED_DESTINATIONS} if none set
+     */
+    int DEFAULT_SOCKS_MAX_TRACKED_DESTINATIONS = 128;
+
+    /**
+     * Number of outbound bytes queued by a session (i.e., written but not yet
+     * sent) above which the session becomes non-writable. If non-positive then
+     * the session is always writable. See {@link org.apache.sshd.common.session.Session#isWritable()}
+     */
+    String OUTBOUND_HIGH_WATERMARK = "outbound-high-watermark";
+
+    /**
+     * Default value for {@link #OUTBOUND_HIGH_WATERMARK} if none set
+     */
+    long DEFAULT_OUTBOUND_HIGH_WATERMARK = 16L * 1024L * 1024L;
+
+    /**
+     * Number of outbound bytes queued by a non-writable session below which
+     * it becomes writable again - should be lower than the {@link #OUTBOUND_HIGH_WATERMARK}
+     */
+    String OUTBOUND_LOW_WATERMARK = "outbound-low-watermark";
+
+    /**
+     * Default value for {@link #OUTBOUND_LOW_WATERMARK} if none set
+     */
+    long DEFAULT_OUTBOUND_LOW_WATERMARK = 8L * 1024L * 1024L;
+
+    /**
+     * Max. time (msec.) a blocking channel output stream waits for a non-writable
+     * session to become writable again before failing the write. <B>Note:</B> writes
+     * invoked by an I/O thread do not wait at all (see {@link org.apache.sshd.common.io.IoThreads})
+     */
+    String OUTBOUND_WRITABLE_TIMEOUT = "outbound-writable-timeout";
+
+    /**
+     * Default value for {@link #OUTBOUND_WRITABLE_TIMEOUT} if none set
+     */
+    long DEFAULT_OUTBOUND_WRITABLE_TIMEOUT = TimeUnit.SECONDS.toMillis(30L);
+
+    /**
+     * Number of threads per session used to encrypt and MAC outgoing packets
+     * concurrently - applicable only for ciphers whose state can be computed per
+     * packet (e.g., CTR and GCM ones). Packets are still sent in order. If
+     * non-positive (default) then packets are encoded serially by the writing thread
+     */
+    String PARALLEL_ENCODER_THREADS = "parallel-encoder-threads";
+
+    /**
+     * Default value for {@link #PARALLEL_ENCODER_THREADS} if none set
+     */
+    int DEFAULT_PARALLEL_ENCODER_THREADS = 0;
+
+    /**
+     * Packets smaller than this size (in bytes) are encoded by the writing thread
+     * even if {@link #PARALLEL_ENCODER_THREADS} is used, since handing them over to
+     * another thread costs more than encoding them
+     */
+    String PARALLEL_ENCODER_MIN_PACKET_SIZE = "parallel-encoder-min-packet-size";
+
+    /**
+     * Default value for {@link #PARALLEL_ENCODER_MIN_PACKET_SIZE} if none set
+     */
+    int DEFAULT_PARALLEL_ENCODER_MIN_PACKET_SIZE = 4096;
+
+    /**
+     * The zlib compression level (0-9) used for outgoing data if compression
+     * has been negotiated - if not set then the zlib default is used
+     */
+    String COMPRESSION_LEVEL = "compression-level";
+
+    /**
+     * Default value for {@link #COMPRESSION_LEVEL} if none set
+     */
+    int DEFAULT_COMPRESSION_LEVEL = -1;
+
+    /**
+     * Outgoing packets smaller than this size (in bytes) are not compressed - i.e., they
+     * are sent as stored (uncompressed) zlib blocks
+     */
+    String COMPRESSION_MIN_PACKET_SIZE = "compression-min-packet-size";
+
+    /**
+     * Default value for {@link #COMPRESSION_MIN_PACKET_SIZE} if none set
+     */
+    int DEFAULT_COMPRESSION_MIN_PACKET_SIZE = 0;
+
+    /**
+     * If the recent compressed size of outgoing data is at least this percentage of its
+     * uncompressed size then compression is bypassed for the next {@link #COMPRESSION_BYPASS_PACKETS}
+     * packets - e.g., when sending already compressed data. Non-positive disables it.
+     */
+    String COMPRESSION_BYPASS_RATIO = "compression-bypass-ratio";
+
+    /**
+     * Default value for {@link #COMPRESSION_BYPASS_RATIO} if none set
+     */
+    int DEFAULT_COMPRESSION_BYPASS_RATIO = 95;
+
+    /**
+     * Number of packets for which compression is bypassed once the data was found to
+     * be incompressible - see {@link #COMPRESSION_BYPASS_RATIO}
+     */
+    String COMPRESSION_BYPASS_PACKETS = "compression-bypass-packets";
+
+    /**
+     * Default value for {@link #COMPRESSION_BYPASS_PACKETS} if none set
+     */
+    int DEFAULT_COMPRESSION_BYPASS_PACKETS = 64;
+
     /**
      * The default reported version of {@link #getVersion()} if the built-in
      * version information cannot be accessed
@@ -292,4 +494,10 @@ public interface FactoryManager extends SessionListenerManager, ChannelListenerM
      */
     List<RequestHandler<ConnectionService>> getGlobalRequestHandlers();
 
+    /**
+     * @return The {@link MetricsRegistry} to which the various components
+     * report their metrics - {@code null} if metrics are not collected
+     */
+    MetricsRegistry getMetricsRegistry();
+
 }
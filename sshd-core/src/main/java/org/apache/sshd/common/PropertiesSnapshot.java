@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.sshd.common.util.VersionedHashMap;
+
+/**
+ * Caches the resolved values of {@link PropertyKey}s for a specific properties
+ * {@link Map}. The snapshot is valid as long as the same map is used and it has
+ * not been modified since the snapshot was created - which can be detected only
+ * for {@link VersionedHashMap}s. For any other map the values are resolved on
+ * each access (i.e., no caching takes place)
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class PropertiesSnapshot {
+    // placeholder for cached null values
+    private static final Object NULL_VALUE = new Object();
+
+    private final Map<String, ?> properties;
+    private final boolean cacheable;
+    private final long version;
+    private volatile Object[] values = new Object[Byte.SIZE * Byte.SIZE];
+
+    public PropertiesSnapshot(Map<String, ?> properties) {
+        this.properties = properties;
+        this.cacheable = properties instanceof VersionedHashMap<?, ?>;
+        this.version = cacheable ? ((VersionedHashMap<?, ?>) properties).getVersion() : -1L;
+    }
+
+    public final Map<String, ?> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @param props The current properties {@link Map}
+     * @return {@code true} if the cached values (if any) reflect the map's contents
+     */
+    public boolean isValid(Map<String, ?> props) {
+        if (props != properties) {
+            return false;
+        }
+
+        return (!cacheable) || (version == ((VersionedHashMap<?, ?>) props).getVersion());
+    }
+
+    /**
+     * @param <T> Type of property value
+     * @param key The {@link PropertyKey}
+     * @return The (cached) property value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(PropertyKey<T> key) {
+        if (!cacheable) {
+            return key.resolve(properties);
+        }
+
+        int index = key.getIndex();
+        Object[] cached = values;
+        Object value = (index < cached.length) ? cached[index] : null;
+        if (value == null) {
+            value = key.resolve(properties);
+            cache(index, (value == null) ? NULL_VALUE : value);
+        }
+
+        return (value == NULL_VALUE) ? null : (T) value;
+    }
+
+    /*
+     * NOTE: concurrent resolution of the same key is harmless since it yields
+     * the same (immutable) value, so the array is only copied when it needs to grow
+     */
+    private void cache(int index, Object value) {
+        Object[] cached = values;
+        if (index < cached.length) {
+            cached[index] = value;
+            return;
+        }
+
+        synchronized (this) {
+            cached = values;
+            if (index >= cached.length) {
+                cached = Arrays.copyOf(cached, Math.max(index + 1, cached.length * 2));
+            }
+            cached[index] = value;
+            values = cached;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[version=" + version + ", cacheable=" + cacheable + "]";
+    }
+}
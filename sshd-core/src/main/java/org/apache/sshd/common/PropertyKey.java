@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * A typed {@link FactoryManager} property whose resolved value is cached in
+ * the manager's {@link PropertiesSnapshot} - thus avoiding the string keyed
+ * lookup (and parsing) on each access. Keys are intended to be declared as
+ * {@code static final} constants
+ *
+ * @param <T> Type of property value
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public abstract class PropertyKey<T> {
+    private static final AtomicInteger INDEX_GENERATOR = new AtomicInteger(0);
+
+    private final String name;
+    private final T defaultValue;
+    private final int index;
+
+    protected PropertyKey(String name, T defaultValue) {
+        this.name = ValidateUtils.checkNotNullAndNotEmpty(name, "No property name");
+        this.defaultValue = defaultValue;
+        this.index = INDEX_GENERATOR.getAndIncrement();
+    }
+
+    public final String getName() {
+        return name;
+    }
+
+    public final T getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * @return A unique index used to locate the cached value in a {@link PropertiesSnapshot}
+     */
+    public final int getIndex() {
+        return index;
+    }
+
+    /**
+     * @param session The {@link Session} whose manager's properties are used
+     * @return The (cached) property value
+     */
+    public T get(Session session) {
+        return get(session.getFactoryManager());
+    }
+
+    /**
+     * @param manager The {@link FactoryManager} whose properties are used
+     * @return The (cached) property value - resolved directly from the
+     * properties if the manager does not maintain a {@link PropertiesSnapshot}
+     */
+    public T get(FactoryManager manager) {
+        if (manager instanceof AbstractFactoryManager) {
+            return ((AbstractFactoryManager) manager).getPropertiesSnapshot().get(this);
+        } else {
+            return resolve(manager.getProperties());
+        }
+    }
+
+    /**
+     * @param props The properties {@link Map} - ignored if {@code null}/empty
+     * @return The resolved value - or the default if the property does not exist
+     * @throws NumberFormatException if malformed numeric value
+     */
+    public abstract T resolve(Map<String, ?> props);
+
+    @Override
+    public String toString() {
+        return getName() + "[default=" + getDefaultValue() + "]";
+    }
+
+    public static PropertyKey<Integer> intKey(String name, int defaultValue) {
+        return new PropertyKey<Integer>(name, defaultValue) {
+            @Override
+            public Integer resolve(Map<String, ?> props) {
+                return FactoryManagerUtils.getIntProperty(props, getName(), getDefaultValue());
+            }
+        };
+    }
+
+    public static PropertyKey<Long> longKey(String name, long defaultValue) {
+        return new PropertyKey<Long>(name, defaultValue) {
+            @Override
+            public Long resolve(Map<String, ?> props) {
+                return FactoryManagerUtils.getLongProperty(props, getName(), getDefaultValue());
+            }
+        };
+    }
+
+    public static PropertyKey<Boolean> booleanKey(String name, boolean defaultValue) {
+        return new PropertyKey<Boolean>(name, defaultValue) {
+            @Override
+            public Boolean resolve(Map<String, ?> props) {
+                return FactoryManagerUtils.getBooleanProperty(props, getName(), getDefaultValue());
+            }
+        };
+    }
+
+    public static PropertyKey<String> stringKey(String name, String defaultValue) {
+        return new PropertyKey<String>(name, defaultValue) {
+            @Override
+            public String resolve(Map<String, ?> props) {
+                return FactoryManagerUtils.getStringProperty(props, getName(), getDefaultValue());
+            }
+        };
+    }
+}
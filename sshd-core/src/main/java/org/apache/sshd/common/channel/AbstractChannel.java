@@ -30,7 +30,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.sshd.common.Closeable;
 import org.apache.sshd.common.FactoryManager;
-import org.apache.sshd.common.FactoryManagerUtils;
+import org.apache.sshd.common.PropertyKey;
 import org.apache.sshd.common.SshConstants;
 import org.apache.sshd.common.future.CloseFuture;
 import org.apache.sshd.common.future.DefaultCloseFuture;
@@ -63,6 +63,7 @@ public abstract class AbstractChannel
     public static final int DEFAULT_PACKET_SIZE = 0x8000;
 
     public static final long DEFAULT_CHANNEL_CLOSE_TIMEOUT = TimeUnit.SECONDS.toMillis(5L);
+    public static final PropertyKey<Long> CHANNEL_CLOSE_TIMEOUT_KEY = PropertyKey.longKey(FactoryManager.CHANNEL_CLOSE_TIMEOUT, DEFAULT_CHANNEL_CLOSE_TIMEOUT);
 
     /**
      * Default growth factor function used to resize response buffers
@@ -309,7 +310,7 @@ public abstract class AbstractChannel
                 Buffer buffer = s.createBuffer(SshConstants.SSH_MSG_CHANNEL_CLOSE, Short.SIZE);
                 buffer.putInt(getRecipient());
                 try {
-                    long timeout = FactoryManagerUtils.getLongProperty(getSession(), FactoryManager.CHANNEL_CLOSE_TIMEOUT, DEFAULT_CHANNEL_CLOSE_TIMEOUT);
+                    long timeout = CHANNEL_CLOSE_TIMEOUT_KEY.get(getSession());
                     session.writePacket(buffer, timeout, TimeUnit.MILLISECONDS).addListener(new SshFutureListener<IoWriteFuture>() {
                         @SuppressWarnings("synthetic-access")
                         @Override
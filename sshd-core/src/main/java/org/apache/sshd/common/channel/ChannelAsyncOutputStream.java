@@ -28,6 +28,7 @@ import org.apache.sshd.common.io.IoOutputStream;
 import org.apache.sshd.common.io.IoWriteFuture;
 import org.apache.sshd.common.io.WritePendingException;
 import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.SessionWritabilityListener;
 import org.apache.sshd.common.util.buffer.Buffer;
 import org.apache.sshd.common.util.closeable.AbstractCloseable;
 
@@ -36,6 +37,16 @@ public class ChannelAsyncOutputStream extends AbstractCloseable implements IoOut
     private final Channel channel;
     private final byte cmd;
     private final AtomicReference<IoWriteFutureImpl> pendingWrite = new AtomicReference<>();
+    private final SessionWritabilityListener writabilityListener = new SessionWritabilityListener() {
+        @SuppressWarnings("synthetic-access")
+        @Override
+        public void writabilityChanged(Session session, boolean writable) {
+            if (writable) {
+                session.removeWritabilityListener(this);
+                doWriteIfPossible(true);
+            }
+        }
+    };
 
     public ChannelAsyncOutputStream(Channel channel, byte cmd) {
         this.channel = channel;
@@ -83,6 +94,19 @@ public class ChannelAsyncOutputStream extends AbstractCloseable implements IoOut
                 log.trace("doWriteIfPossible({})[resume={}] attempting to write {} out of {}", this, resume, length, total);
             }
 
+            Session s = channel.getSession();
+            if ((length > 0) && (!s.isWritable())) {
+                // resume once the session's outbound queue drops below its low watermark
+                s.addWritabilityListener(writabilityListener);
+                if (!s.isWritable()) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Delaying write to {} until the session becomes writable", this);
+                    }
+                    return;
+                }
+                s.removeWritabilityListener(writabilityListener);
+            }
+
             if (length > 0) {
                 if (resume) {
                     if (log.isDebugEnabled()) {
@@ -90,7 +114,6 @@ public class ChannelAsyncOutputStream extends AbstractCloseable implements IoOut
                     }
                 }
 
-                Session s = channel.getSession();
                 Buffer buf = s.createBuffer(cmd, length + 12);
                 buf.putInt(channel.getRecipient());
                 if (cmd == SshConstants.SSH_MSG_CHANNEL_EXTENDED_DATA) {
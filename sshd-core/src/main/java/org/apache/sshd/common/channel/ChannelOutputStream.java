@@ -23,8 +23,12 @@ import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.channels.Channel;
 
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.FactoryManagerUtils;
 import org.apache.sshd.common.SshConstants;
 import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.io.IoThreads;
+import org.apache.sshd.common.session.Session;
 import org.apache.sshd.common.util.buffer.Buffer;
 import org.slf4j.Logger;
 
@@ -138,6 +142,25 @@ public class ChannelOutputStream extends OutputStream implements Channel {
                 }
                 lastSize = length;
                 remoteWindow.waitAndConsume(length);
+                // do not add to the session's outbound queue while it is above its high watermark - unless
+                // writing from an I/O thread, which might be needed to drain the queue, so the watermark is exceeded
+                Session session = channel.getSession();
+                if ((!session.isWritable()) && IoThreads.isIoThread()) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Session of channel {} not writable - not waiting in I/O thread {}",
+                                Integer.valueOf(channel.getId()), Thread.currentThread().getName());
+                    }
+                } else if (!session.isWritable()) {
+                    long timeout = FactoryManagerUtils.getLongProperty(session,
+                            FactoryManager.OUTBOUND_WRITABLE_TIMEOUT, FactoryManager.DEFAULT_OUTBOUND_WRITABLE_TIMEOUT);
+                    if (log.isDebugEnabled()) {
+                        log.debug("Waiting up to {} msec. for session of channel {} to become writable",
+                                Long.valueOf(timeout), Integer.valueOf(channel.getId()));
+                    }
+                    if ((!session.waitForWritable(Math.max(timeout, 1L))) && (!session.isClosing())) {
+                        throw new SshException("Session of channel " + channel.getId() + " not writable within " + timeout + " msec.");
+                    }
+                }
                 if (log.isDebugEnabled()) {
                     log.debug("Send {} on channel {}",
                             (cmd == SshConstants.SSH_MSG_CHANNEL_DATA) ? "SSH_MSG_CHANNEL_DATA" : "SSH_MSG_CHANNEL_EXTENDED_DATA",
@@ -27,6 +27,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.FactoryManagerUtils;
+import org.apache.sshd.common.PropertyKey;
+import org.apache.sshd.common.metrics.MetricsRegistry;
 import org.apache.sshd.common.session.Session;
 import org.apache.sshd.common.util.ValidateUtils;
 import org.apache.sshd.common.util.logging.AbstractLoggingBean;
@@ -41,6 +43,11 @@ import org.apache.sshd.common.util.logging.AbstractLoggingBean;
  * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
  */
 public class Window extends AbstractLoggingBean implements java.nio.channels.Channel {
+    public static final PropertyKey<Integer> WINDOW_SIZE_KEY =
+            PropertyKey.intKey(FactoryManager.WINDOW_SIZE, AbstractChannel.DEFAULT_WINDOW_SIZE);
+    public static final PropertyKey<Integer> MAX_PACKET_SIZE_KEY =
+            PropertyKey.intKey(FactoryManager.MAX_PACKET_SIZE, AbstractChannel.DEFAULT_PACKET_SIZE);
+
     private final AtomicInteger waitingCount = new AtomicInteger(0);
     private final AtomicBoolean closed = new AtomicBoolean(false);
     private final AtomicBoolean initialized = new AtomicBoolean(false);
@@ -82,7 +89,7 @@ public class Window extends AbstractLoggingBean implements java.nio.channels.Cha
     }
 
     public void init(FactoryManager manager) {
-        init(manager.getProperties());
+        init(WINDOW_SIZE_KEY.get(manager), MAX_PACKET_SIZE_KEY.get(manager), manager.getProperties());
     }
 
     public void init(Map<String, ?> props) {
@@ -200,8 +207,12 @@ public class Window extends AbstractLoggingBean implements java.nio.channels.Cha
         ValidateUtils.checkTrue(len >= 0, "Negative wait consume length: %d", len);
         checkInitialized("waitAndConsume");
 
+        long stallStart = 0L;
         synchronized (lock) {
             while (isOpen() && (sizeHolder.get() < len)) {
+                if (stallStart == 0L) {
+                    stallStart = System.nanoTime();
+                }
                 int waiters = waitingCount.incrementAndGet();
                 if (log.isDebugEnabled()) {
                     log.debug("waitAndConsume({}) - requested={}, available={}, waiters={}", this, len, sizeHolder, waiters);
@@ -221,6 +232,10 @@ public class Window extends AbstractLoggingBean implements java.nio.channels.Cha
                 }
             }
 
+            if (stallStart != 0L) {
+                recordStall(System.nanoTime() - stallStart);
+            }
+
             if (!isOpen()) {
                 throw new WindowClosedException(toString());
             }
@@ -243,8 +258,12 @@ public class Window extends AbstractLoggingBean implements java.nio.channels.Cha
     public int waitForSpace() throws InterruptedException, WindowClosedException {
         checkInitialized("waitForSpace");
 
+        long stallStart = 0L;
         synchronized (lock) {
             while (isOpen() && (sizeHolder.get() <= 0)) {
+                if (stallStart == 0L) {
+                    stallStart = System.nanoTime();
+                }
                 int waiters = waitingCount.incrementAndGet();
                 if (log.isDebugEnabled()) {
                     log.debug("waitForSpace({}) - waiters={}", this, waiters);
@@ -263,6 +282,10 @@ public class Window extends AbstractLoggingBean implements java.nio.channels.Cha
                 }
             }
 
+            if (stallStart != 0L) {
+                recordStall(System.nanoTime() - stallStart);
+            }
+
             if (!isOpen()) {
                 throw new WindowClosedException(toString());
             }
@@ -274,6 +297,21 @@ public class Window extends AbstractLoggingBean implements java.nio.channels.Cha
         }
     }
 
+    /**
+     * Reports a wait for the window to expand to the {@link MetricsRegistry} - if any
+     *
+     * @param nanoDuration The wait duration
+     */
+    protected void recordStall(long nanoDuration) {
+        Session session = channel.getSession();
+        FactoryManager manager = (session == null) ? null : session.getFactoryManager();
+        MetricsRegistry metrics = (manager == null) ? null : manager.getMetricsRegistry();
+        if (metrics != null) {
+            metrics.getCounter(MetricsRegistry.WINDOW_STALLS).increment();
+            metrics.getHistogram(MetricsRegistry.WINDOW_STALL_DURATION).record(nanoDuration);
+        }
+    }
+
     protected void updateSize(int size) {
         ValidateUtils.checkTrue(size >= 0, "Invalid size: %d", size);
         this.sizeHolder.set(size);
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.cipher;
+
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * Counter (CTR) mode cipher - the counter block used for any position of the
+ * stream is the IV plus the number of blocks that precede it, so the cipher
+ * can be {@link #seek(long, long) positioned} directly at any block boundary.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class BaseCTRCipher extends BaseCipher implements SeekableCipher {
+    protected int opmode;
+    protected SecretKeySpec secretKey;
+    protected byte[] iv;
+    protected long position;
+
+    public BaseCTRCipher(int ivsize, int bsize, String algorithm, String transformation) {
+        super(ivsize, bsize, algorithm, transformation);
+    }
+
+    @Override
+    public void init(Mode mode, byte[] key, byte[] iv) throws Exception {
+        super.init(mode, key, iv);
+        this.opmode = (mode == Mode.Encrypt) ? javax.crypto.Cipher.ENCRYPT_MODE : javax.crypto.Cipher.DECRYPT_MODE;
+        this.secretKey = new SecretKeySpec(resize(key, bsize), algorithm);
+        this.iv = resize(iv, ivsize).clone();
+        this.position = 0L;
+    }
+
+    @Override
+    public void update(byte[] input, int inputOffset, int inputLen) throws Exception {
+        super.update(input, inputOffset, inputLen);
+        position += inputLen;
+    }
+
+    @Override
+    public void seek(long packets, long bytes) throws Exception {
+        if (bytes == position) {
+            return; // avoid re-initializing if already there - e.g., consecutive packets
+        }
+
+        ValidateUtils.checkTrue((bytes >= 0L) && ((bytes % ivsize) == 0L), "Position not block aligned: %d", bytes);
+        byte[] counter = iv.clone();
+        addToCounter(counter, bytes / ivsize);
+        cipher.init(opmode, secretKey, new IvParameterSpec(counter));
+        position = bytes;
+    }
+
+    /**
+     * Adds a value to a (big-endian) counter block
+     *
+     * @param counter The counter block to update
+     * @param value The (non-negative) value to add
+     */
+    protected static void addToCounter(byte[] counter, long value) {
+        long carry = value;
+        for (int index = counter.length - 1; (index >= 0) && (carry != 0L); index--) {
+            long sum = (counter[index] & 0xFFL) + (carry & 0xFFL);
+            counter[index] = (byte) sum;
+            carry = (carry >>> Byte.SIZE) + (sum >>> Byte.SIZE);
+        }
+    }
+}
@@ -55,6 +55,16 @@ public class BaseCipher implements Cipher {
         return bsize;
     }
 
+    @Override
+    public int getCipherBlockSize() {
+        return ivsize;
+    }
+
+    @Override
+    public int getAuthenticationTagSize() {
+        return 0;
+    }
+
     @Override
     public void init(Mode mode, byte[] key, byte[] iv) throws Exception {
         key = resize(key, bsize);
@@ -80,6 +90,11 @@ public class BaseCipher implements Cipher {
         cipher.update(input, inputOffset, inputLen, input, inputOffset);
     }
 
+    @Override
+    public void updateAAD(byte[] data, int offset, int length) throws Exception {
+        throw new UnsupportedOperationException("Not an AEAD cipher: " + this);
+    }
+
     protected static byte[] resize(byte[] data, int size) {
         if (data.length > size) {
             byte[] tmp = new byte[size];
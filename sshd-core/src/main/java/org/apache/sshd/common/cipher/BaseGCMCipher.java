@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.cipher;
+
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.util.SecurityUtils;
+
+/**
+ * AES-GCM cipher as used by OpenSSH ({@code aes128-gcm@openssh.com} and
+ * {@code aes256-gcm@openssh.com}) - see <A HREF="https://tools.ietf.org/html/rfc5647">RFC 5647</A>.
+ * The packet length is sent in the clear as additional authenticated data and
+ * the 12 bytes IV consists of a fixed 4 bytes field followed by an 8 bytes
+ * invocation counter that is incremented after each packet.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class BaseGCMCipher extends BaseCipher implements SeekableCipher {
+    /**
+     * Size (in bytes) of the fixed part of the IV
+     */
+    public static final int FIXED_IV_SIZE = 4;
+
+    protected final int authSize;
+    protected final int cipherBlockSize;
+    protected Mode mode;
+    protected SecretKeySpec secretKey;
+    protected byte[] initialIv;
+    protected byte[] iv;
+    protected boolean initialized;
+
+    /**
+     * @param ivsize The IV size (in bytes) - 12 for GCM
+     * @param authSize The authentication tag size (in bytes)
+     * @param bsize The key size (in bytes)
+     * @param algorithm The cipher algorithm
+     * @param cipherBlockSize The cipher block size (in bytes)
+     * @param transformation The JCE transformation
+     */
+    public BaseGCMCipher(int ivsize, int authSize, int bsize, String algorithm, int cipherBlockSize, String transformation) {
+        super(ivsize, bsize, algorithm, transformation);
+        this.authSize = authSize;
+        this.cipherBlockSize = cipherBlockSize;
+    }
+
+    @Override
+    public int getCipherBlockSize() {
+        return cipherBlockSize;
+    }
+
+    @Override
+    public int getAuthenticationTagSize() {
+        return authSize;
+    }
+
+    @Override
+    public void init(Mode mode, byte[] key, byte[] iv) throws Exception {
+        this.mode = mode;
+        this.secretKey = new SecretKeySpec(resize(key, bsize), algorithm);
+        this.initialIv = resize(iv, ivsize).clone();
+        this.iv = initialIv.clone();   // clone since we modify it
+        try {
+            cipher = SecurityUtils.getCipher(transformation);
+        } catch (Exception e) {
+            cipher = null;
+            throw new SshException("Unable to initialize cipher " + this, e);
+        }
+        initialized = false;
+    }
+
+    @Override
+    public void updateAAD(byte[] data, int offset, int length) throws Exception {
+        initPacket();
+        cipher.updateAAD(data, offset, length);
+    }
+
+    @Override
+    public void update(byte[] input, int inputOffset, int inputLen) throws Exception {
+        initPacket();
+        try {
+            if (mode == Mode.Decrypt) {
+                // the tag follows the encrypted data and is verified by the cipher
+                cipher.doFinal(input, inputOffset, inputLen + authSize, input, inputOffset);
+            } else {
+                // generates the encrypted data followed by the tag
+                cipher.doFinal(input, inputOffset, inputLen, input, inputOffset);
+            }
+        } finally {
+            // the next packet uses the next IV regardless of the outcome
+            initialized = false;
+            incrementCounter(iv);
+        }
+    }
+
+    @Override
+    public void seek(long packets, long bytes) throws Exception {
+        // each packet uses its own IV so only the number of packets matters
+        byte[] seekIv = initialIv.clone();
+        long carry = packets;
+        for (int index = seekIv.length - 1; (index >= FIXED_IV_SIZE) && (carry != 0L); index--) {
+            long sum = (seekIv[index] & 0xFFL) + (carry & 0xFFL);
+            seekIv[index] = (byte) sum;
+            carry = (carry >>> Byte.SIZE) + (sum >>> Byte.SIZE);
+        }
+        iv = seekIv;
+        initialized = false;
+    }
+
+    /**
+     * Initializes the cipher for the next packet - if not already initialized.
+     * The JCE does not allow re-using a key+IV combination for encryption, so
+     * the cipher has to be re-initialized for each packet.
+     *
+     * @throws Exception If failed to initialize
+     */
+    protected void initPacket() throws Exception {
+        if (initialized) {
+            return;
+        }
+
+        cipher.init((mode == Mode.Encrypt) ? javax.crypto.Cipher.ENCRYPT_MODE : javax.crypto.Cipher.DECRYPT_MODE,
+                secretKey, new GCMParameterSpec(authSize * Byte.SIZE, iv));
+        initialized = true;
+    }
+
+    /**
+     * Increments the (big-endian) invocation counter that follows the fixed part of the IV
+     *
+     * @param iv The IV to update
+     */
+    protected static void incrementCounter(byte[] iv) {
+        for (int index = iv.length - 1; index >= FIXED_IV_SIZE; index--) {
+            iv[index]++;
+            if (iv[index] != 0) {
+                break;  // no carry
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + algorithm + "," + ivsize + "," + authSize + "," + bsize + "," + transformation + "]";
+    }
+}
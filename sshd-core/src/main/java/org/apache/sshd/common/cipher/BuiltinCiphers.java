@@ -36,6 +36,7 @@ import org.apache.sshd.common.NamedFactory;
 import org.apache.sshd.common.NamedResource;
 import org.apache.sshd.common.config.NamedFactoriesListParseResult;
 import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.SecurityUtils;
 import org.apache.sshd.common.util.ValidateUtils;
 
 /**
@@ -51,11 +52,38 @@ public enum BuiltinCiphers implements CipherFactory {
         }
     },
     aes128cbc(Constants.AES128_CBC, 16, 16, "AES", "AES/CBC/NoPadding"),
-    aes128ctr(Constants.AES128_CTR, 16, 16, "AES", "AES/CTR/NoPadding"),
+    aes128ctr(Constants.AES128_CTR, 16, 16, "AES", "AES/CTR/NoPadding") {
+        @Override
+        public Cipher create() {
+            return new BaseCTRCipher(getIVSize(), getBlockSize(), getAlgorithm(), getTransformation());
+        }
+    },
     aes192cbc(Constants.AES192_CBC, 16, 24, "AES", "AES/CBC/NoPadding"),
-    aes192ctr(Constants.AES192_CTR, 16, 24, "AES", "AES/CTR/NoPadding"),
+    aes192ctr(Constants.AES192_CTR, 16, 24, "AES", "AES/CTR/NoPadding") {
+        @Override
+        public Cipher create() {
+            return new BaseCTRCipher(getIVSize(), getBlockSize(), getAlgorithm(), getTransformation());
+        }
+    },
     aes256cbc(Constants.AES256_CBC, 16, 32, "AES", "AES/CBC/NoPadding"),
-    aes256ctr(Constants.AES256_CTR, 16, 32, "AES", "AES/CTR/NoPadding"),
+    aes256ctr(Constants.AES256_CTR, 16, 32, "AES", "AES/CTR/NoPadding") {
+        @Override
+        public Cipher create() {
+            return new BaseCTRCipher(getIVSize(), getBlockSize(), getAlgorithm(), getTransformation());
+        }
+    },
+    aes128gcm(Constants.AES128_GCM, 12, 16, "AES", "AES/GCM/NoPadding") {
+        @Override
+        public Cipher create() {
+            return new BaseGCMCipher(getIVSize(), Constants.GCM_TAG_SIZE, getBlockSize(), getAlgorithm(), 16, getTransformation());
+        }
+    },
+    aes256gcm(Constants.AES256_GCM, 12, 32, "AES", "AES/GCM/NoPadding") {
+        @Override
+        public Cipher create() {
+            return new BaseGCMCipher(getIVSize(), Constants.GCM_TAG_SIZE, getBlockSize(), getAlgorithm(), 16, getTransformation());
+        }
+    },
     arcfour128(Constants.ARCFOUR128, 8, 16, "ARCFOUR", "RC4") {
         @Override
         public Cipher create() {
@@ -124,7 +152,16 @@ public enum BuiltinCiphers implements CipherFactory {
     private static boolean checkSupported(String xform, int keyLength) {
         try {
             int maxKeyLength = javax.crypto.Cipher.getMaxAllowedKeyLength(xform);
-            return maxKeyLength >= keyLength;
+            if (maxKeyLength < keyLength) {
+                return false;
+            }
+
+            // the policy may allow the key length even if the mode is not implemented (e.g., GCM on JDK-7)
+            if (xform.indexOf('/') > 0) {
+                return SecurityUtils.getCipher(xform) != null;
+            }
+
+            return true;
         } catch (Exception e) {
             return false;
         }
@@ -340,6 +377,12 @@ public enum BuiltinCiphers implements CipherFactory {
         public static final String AES192_CTR = "aes192-ctr";
         public static final String AES256_CBC = "aes256-cbc";
         public static final String AES256_CTR = "aes256-ctr";
+        public static final String AES128_GCM = "aes128-gcm@openssh.com";
+        public static final String AES256_GCM = "aes256-gcm@openssh.com";
+        /**
+         * Size (in bytes) of the authentication tag appended by the GCM ciphers
+         */
+        public static final int GCM_TAG_SIZE = 16;
         public static final String ARCFOUR128 = "arcfour128";
         public static final String ARCFOUR256 = "arcfour256";
         public static final String BLOWFISH_CBC = "blowfish-cbc";
@@ -40,6 +40,18 @@ public interface Cipher {
      */
     int getBlockSize();
 
+    /**
+     * @return The size (in bytes) to which the encrypted packet data has to be aligned
+     */
+    int getCipherBlockSize();
+
+    /**
+     * @return Size (in bytes) of the authentication tag generated by an AEAD cipher
+     * (and appended to the encrypted data) - zero if not an AEAD cipher. <B>Note:</B>
+     * AEAD ciphers provide both encryption and integrity, so no separate MAC is used
+     */
+    int getAuthenticationTagSize();
+
     /**
      * Initialize the cipher for encryption or decryption with
      * the given key and initialization vector
@@ -70,4 +82,21 @@ public interface Cipher {
      */
     void update(byte[] input, int inputOffset, int inputLen) throws Exception;
 
+    /**
+     * Adds the provided data as Additional Authenticated Data - i.e., data that is
+     * not encrypted but is covered by the authentication tag. Must be called before
+     * {@link #update(byte[], int, int)} for each packet. <B>Note:</B> for AEAD ciphers,
+     * the update call processes a whole packet - when encrypting, the tag is written
+     * right after the encrypted data, and when decrypting it is expected (and verified)
+     * right after the input data.
+     *
+     * @param data   The data bytes
+     * @param offset The offset of the data in the buffer
+     * @param length The number of bytes to add - starting at the given offset
+     * @throws Exception If failed to execute
+     * @throws UnsupportedOperationException If not an AEAD cipher
+     * @see #getAuthenticationTagSize()
+     */
+    void updateAAD(byte[] data, int offset, int length) throws Exception;
+
 }
@@ -44,6 +44,16 @@ public class CipherNone implements Cipher {
         return 16;  // dummy
     }
 
+    @Override
+    public int getCipherBlockSize() {
+        return getIVSize();
+    }
+
+    @Override
+    public int getAuthenticationTagSize() {
+        return 0;
+    }
+
     @Override
     public void init(Mode mode, byte[] bytes, byte[] bytes1) throws Exception {
         // ignored - always succeeds
@@ -58,4 +68,9 @@ public class CipherNone implements Cipher {
     public void update(byte[] input, int inputOffset, int inputLen) throws Exception {
         // ignored - always succeeds
     }
+
+    @Override
+    public void updateAAD(byte[] data, int offset, int length) throws Exception {
+        throw new UnsupportedOperationException("Not an AEAD cipher: " + getClass().getSimpleName());
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.cipher;
+
+/**
+ * A {@link Cipher} whose state at any position of the processed stream can be
+ * computed directly - e.g., a counter based one. This allows several instances
+ * initialized with the same key and IV to process different packets of the same
+ * stream independently (and concurrently) of each other.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public interface SeekableCipher extends Cipher {
+    /**
+     * Positions the cipher as if it had processed the given data since it was initialized
+     *
+     * @param packets Number of packets processed so far
+     * @param bytes Number of bytes processed so far - must be a multiple of
+     * the {@link #getCipherBlockSize()}
+     * @throws Exception If failed to re-position the cipher
+     */
+    void seek(long packets, long bytes) throws Exception;
+}
@@ -48,13 +48,13 @@ public enum BuiltinCompressions implements CompressionFactory {
     zlib(Constants.ZLIB) {
         @Override
         public Compression create() {
-            return new CompressionZlib();
+            return new CompressionAdaptiveZlib(false);
         }
     },
     delayedZlib(Constants.DELAYED_ZLIB) {
         @Override
         public Compression create() {
-            return new CompressionDelayedZlib();
+            return new CompressionAdaptiveZlib(true);
         }
     };
 
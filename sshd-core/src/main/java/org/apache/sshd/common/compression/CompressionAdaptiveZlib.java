@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.compression;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.BufferUtils;
+
+/**
+ * ZLib based compression that deflates and inflates directly into the packet
+ * buffers (pre-sized according to the expected output) instead of going through
+ * an intermediate buffer. In order to save CPU on data that does not compress
+ * well, small packets and packets sent while the recent compression ratio is
+ * poor are only stored - i.e., sent as uncompressed deflate blocks, which the
+ * peer inflates as usual. The stored mode lasts for a configured number of packets,
+ * after which compression is attempted again.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class CompressionAdaptiveZlib implements Compression {
+    /**
+     * Packets smaller than this size do not affect the recent compression ratio,
+     * since the flushing overhead dominates their compressed size
+     */
+    public static final int MIN_RATIO_SAMPLE_SIZE = 256;
+
+    /**
+     * Number of bytes after which the accumulated recent ratio sample is decayed
+     */
+    public static final int RATIO_SAMPLE_WINDOW = 256 * 1024;
+
+    /**
+     * Min. number of sampled bytes before deciding whether to bypass compression
+     */
+    public static final int MIN_RATIO_DECISION_SIZE = 8 * 1024;
+
+    private static final int MIN_OUTPUT_ROOM = 64;
+
+    private final boolean delayed;
+    private int minCompressSize = FactoryManager.DEFAULT_COMPRESSION_MIN_PACKET_SIZE;
+    private int bypassRatio = FactoryManager.DEFAULT_COMPRESSION_BYPASS_RATIO;
+    private int bypassPackets = FactoryManager.DEFAULT_COMPRESSION_BYPASS_PACKETS;
+    private CompressionStatistics statistics = new CompressionStatistics();
+    private int level;
+    private int currentLevel;
+    private Deflater deflater;
+    private Inflater inflater;
+    private byte[] input = new byte[0];
+    private int bypassRemaining;
+    private long recentUncompressed;
+    private long recentCompressed;
+
+    public CompressionAdaptiveZlib() {
+        this(false);
+    }
+
+    /**
+     * @param delayed Whether compression is delayed until after authentication
+     * @see #isDelayed()
+     */
+    public CompressionAdaptiveZlib(boolean delayed) {
+        this.delayed = delayed;
+    }
+
+    @Override
+    public boolean isDelayed() {
+        return delayed;
+    }
+
+    public int getMinCompressSize() {
+        return minCompressSize;
+    }
+
+    /**
+     * @param minCompressSize Packets smaller than this size are only stored
+     */
+    public void setMinCompressSize(int minCompressSize) {
+        this.minCompressSize = minCompressSize;
+    }
+
+    public int getBypassRatio() {
+        return bypassRatio;
+    }
+
+    /**
+     * @param bypassRatio If the recent compressed size is at least this percentage of the
+     * uncompressed one then the following packets are only stored - non-positive disables it
+     */
+    public void setBypassRatio(int bypassRatio) {
+        this.bypassRatio = bypassRatio;
+    }
+
+    public int getBypassPackets() {
+        return bypassPackets;
+    }
+
+    /**
+     * @param bypassPackets Number of packets that are only stored once the recent
+     * compression ratio was found to be poor
+     */
+    public void setBypassPackets(int bypassPackets) {
+        this.bypassPackets = bypassPackets;
+    }
+
+    public CompressionStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @param statistics The {@link CompressionStatistics} to update - e.g., shared by
+     * all the compressions used by the same direction of a session
+     */
+    public void setStatistics(CompressionStatistics statistics) {
+        this.statistics = ValidateUtils.checkNotNull(statistics, "No statistics");
+    }
+
+    @Override
+    public void init(Type type, int level) {
+        this.level = level;
+        this.currentLevel = level;
+        if (Type.Deflater.equals(type)) {
+            deflater = new Deflater(level);
+        } else {
+            inflater = new Inflater();
+        }
+    }
+
+    @Override
+    public void compress(Buffer buffer) throws IOException {
+        long start = System.nanoTime();
+        int len = buffer.available();
+        boolean bypass = (len < getMinCompressSize()) || (bypassRemaining > 0);
+        int wantedLevel = bypass ? Deflater.NO_COMPRESSION : level;
+        if (wantedLevel != currentLevel) {
+            deflater.setLevel(wantedLevel);
+            currentLevel = wantedLevel;
+        }
+
+        // the output overwrites the input so it has to be copied aside
+        if (input.length < len) {
+            input = new byte[BufferUtils.getNextPowerOf2(len)];
+        }
+        int rpos = buffer.rpos();
+        System.arraycopy(buffer.array(), rpos, input, 0, len);
+        deflater.setInput(input, 0, len);
+
+        buffer.wpos(rpos);
+        buffer.ensureCapacity(getMaxCompressedSize(len), BufferUtils.DEFAULT_BUFFER_GROWTH_FACTOR);
+        for (;;) {
+            if (buffer.capacity() < MIN_OUTPUT_ROOM) {
+                buffer.ensureCapacity(Math.max(MIN_OUTPUT_ROOM, len), BufferUtils.DEFAULT_BUFFER_GROWTH_FACTOR);
+            }
+
+            int wpos = buffer.wpos();
+            int room = buffer.capacity();
+            int count = deflater.deflate(buffer.array(), wpos, room, Deflater.SYNC_FLUSH);
+            buffer.wpos(wpos + count);
+            // if not all the output fitted or changing the level interrupted the deflation
+            if ((count >= room) || (!deflater.needsInput())) {
+                continue;
+            }
+            break;
+        }
+
+        int compressed = buffer.available();
+        if (bypass) {
+            if ((bypassRemaining > 0) && (len >= getMinCompressSize())) {
+                bypassRemaining--;
+            }
+        } else {
+            updateRecentRatio(len, compressed);
+        }
+        statistics.update(len, compressed, System.nanoTime() - start, bypass);
+    }
+
+    /**
+     * Updates the recent compression ratio and starts bypassing compression
+     * if the ratio is poor
+     *
+     * @param uncompressed Size of a compressed packet before compression
+     * @param compressed Its size after compression
+     */
+    protected void updateRecentRatio(int uncompressed, int compressed) {
+        if (uncompressed < MIN_RATIO_SAMPLE_SIZE) {
+            return;
+        }
+
+        recentUncompressed += uncompressed;
+        recentCompressed += compressed;
+
+        int ratio = getBypassRatio();
+        if ((ratio > 0) && (recentUncompressed >= MIN_RATIO_DECISION_SIZE)
+                && ((recentCompressed * 100L) >= (recentUncompressed * ratio))) {
+            bypassRemaining = getBypassPackets();
+            // start with a clean sample when compression is re-attempted
+            recentUncompressed = 0L;
+            recentCompressed = 0L;
+        } else if (recentUncompressed > RATIO_SAMPLE_WINDOW) {
+            // decay the older data so that the sample reflects the recent one
+            recentUncompressed >>>= 1;
+            recentCompressed >>>= 1;
+        }
+    }
+
+    @Override
+    public void uncompress(Buffer from, Buffer to) throws IOException {
+        long start = System.nanoTime();
+        int len = from.available();
+        int before = to.wpos();
+        inflater.setInput(from.array(), from.rpos(), len);
+        // pre-size for the typical ratio - grows as needed
+        to.ensureCapacity(Math.max(MIN_OUTPUT_ROOM, 2 * len), BufferUtils.DEFAULT_BUFFER_GROWTH_FACTOR);
+        try {
+            for (;;) {
+                if (to.capacity() < MIN_OUTPUT_ROOM) {
+                    to.ensureCapacity(Math.max(MIN_OUTPUT_ROOM, len), BufferUtils.DEFAULT_BUFFER_GROWTH_FACTOR);
+                }
+
+                int wpos = to.wpos();
+                int room = to.capacity();
+                int count = inflater.inflate(to.array(), wpos, room);
+                to.wpos(wpos + count);
+                if (count >= room) {
+                    continue;   // there may be more output
+                }
+                if (inflater.needsInput()) {
+                    break;
+                }
+                if (inflater.finished() || inflater.needsDictionary()) {
+                    throw new IOException("Unexpected end of compressed stream");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Error decompressing data", e);
+        }
+
+        statistics.update(to.wpos() - before, len, System.nanoTime() - start, false);
+    }
+
+    /**
+     * @param len Uncompressed data size
+     * @return The max. size of the data once compressed and flushed - including
+     * the overhead of stored blocks
+     */
+    public static int getMaxCompressedSize(int len) {
+        return len + (len >>> 12) + (len >>> 14) + (len >>> 25) + 13 + 5;
+    }
+}
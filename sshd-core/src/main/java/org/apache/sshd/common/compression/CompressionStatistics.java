@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.compression;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates the compression (or decompression) activity of one direction
+ * of a session - across key exchanges
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class CompressionStatistics {
+    private final AtomicLong packets = new AtomicLong(0L);
+    private final AtomicLong bypassedPackets = new AtomicLong(0L);
+    private final AtomicLong uncompressedBytes = new AtomicLong(0L);
+    private final AtomicLong compressedBytes = new AtomicLong(0L);
+    private final AtomicLong processingNanos = new AtomicLong(0L);
+
+    public CompressionStatistics() {
+        super();
+    }
+
+    /**
+     * @param uncompressed Number of uncompressed bytes
+     * @param compressed Number of compressed bytes
+     * @param nanos Time (nanoseconds) spent (de-)compressing them
+     * @param bypassed {@code true} if the data was only stored without being compressed
+     */
+    public void update(int uncompressed, int compressed, long nanos, boolean bypassed) {
+        packets.incrementAndGet();
+        if (bypassed) {
+            bypassedPackets.incrementAndGet();
+        }
+        uncompressedBytes.addAndGet(uncompressed);
+        compressedBytes.addAndGet(compressed);
+        processingNanos.addAndGet(nanos);
+    }
+
+    /**
+     * @return Number of processed packets
+     */
+    public long getPackets() {
+        return packets.get();
+    }
+
+    /**
+     * @return Number of packets that were only stored without being compressed -
+     * either because they were too small or because the recent data proved to
+     * be incompressible
+     */
+    public long getBypassedPackets() {
+        return bypassedPackets.get();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * @return Total time (nanoseconds) spent (de-)compressing
+     */
+    public long getProcessingNanos() {
+        return processingNanos.get();
+    }
+
+    /**
+     * @return Ratio between the compressed and uncompressed sizes - i.e., the lower
+     * the better - {@code 1.0} if nothing processed yet
+     */
+    public double getRatio() {
+        long uncompressed = getUncompressedBytes();
+        return (uncompressed <= 0L) ? 1.0d : (double) getCompressedBytes() / (double) uncompressed;
+    }
+
+    @Override
+    public String toString() {
+        return "packets=" + getPackets()
+             + ", bypassed=" + getBypassedPackets()
+             + ", uncompressed=" + getUncompressedBytes()
+             + ", compressed=" + getCompressedBytes()
+             + ", ratio=" + getRatio()
+             + ", time=" + TimeUnit.NANOSECONDS.toMillis(getProcessingNanos()) + "ms";
+    }
+}
@@ -19,7 +19,6 @@
 package org.apache.sshd.common.forward;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.HashMap;
@@ -32,6 +31,7 @@ import org.apache.sshd.client.future.OpenFuture;
 import org.apache.sshd.common.Closeable;
 import org.apache.sshd.common.Factory;
 import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.FactoryManagerUtils;
 import org.apache.sshd.common.SshConstants;
 import org.apache.sshd.common.SshException;
 import org.apache.sshd.common.SshdSocketAddress;
@@ -41,6 +41,9 @@ import org.apache.sshd.common.io.IoHandler;
 import org.apache.sshd.common.io.IoHandlerFactory;
 import org.apache.sshd.common.io.IoServiceFactory;
 import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.metrics.Counter;
+import org.apache.sshd.common.metrics.Histogram;
+import org.apache.sshd.common.metrics.MetricsRegistry;
 import org.apache.sshd.common.session.ConnectionService;
 import org.apache.sshd.common.session.Session;
 import org.apache.sshd.common.util.GenericUtils;
@@ -59,12 +62,6 @@ import org.apache.sshd.server.forward.ForwardingFilter;
 public class DefaultTcpipForwarder extends AbstractInnerCloseable implements TcpipForwarder {
 
     private final ConnectionService service;
-    private final IoHandlerFactory socksProxyIoHandlerFactory = new IoHandlerFactory() {
-        @Override
-        public IoHandler create() {
-            return new SocksProxy(getConnectionService());
-        }
-    };
     private final Session session;
     private final Map<Integer, SshdSocketAddress> localToRemote = new HashMap<>();
     private final Map<Integer, SshdSocketAddress> remoteToLocal = new HashMap<>();
@@ -76,11 +73,31 @@ public class DefaultTcpipForwarder extends AbstractInnerCloseable implements Tcp
             return new StaticIoHandler();
         }
     };
+    private final Map<Integer, PendingOpensLimiter> opensLimiters = new HashMap<>();
+    private final int maxPendingOpens;
     private IoAcceptor acceptor;
 
+    //
+    // Metrics - {@code null} if no registry configured
+    //
+    private final Counter connectionsMetric;
+    private final Counter pendingOpensMetric;
+    private final Counter deferredOpensMetric;
+    private final Counter failedOpensMetric;
+    private final Histogram openDurationMetric;
+
     public DefaultTcpipForwarder(ConnectionService service) {
         this.service = ValidateUtils.checkNotNull(service, "No connection service");
         this.session = ValidateUtils.checkNotNull(service.getSession(), "No session");
+        this.maxPendingOpens = FactoryManagerUtils.getIntProperty(session,
+                FactoryManager.MAX_PENDING_FORWARD_OPENS, FactoryManager.DEFAULT_MAX_PENDING_FORWARD_OPENS);
+
+        MetricsRegistry metrics = session.getFactoryManager().getMetricsRegistry();
+        connectionsMetric = (metrics == null) ? null : metrics.getCounter(MetricsRegistry.FORWARD_CONNECTIONS);
+        pendingOpensMetric = (metrics == null) ? null : metrics.getCounter(MetricsRegistry.FORWARD_OPENS_PENDING);
+        deferredOpensMetric = (metrics == null) ? null : metrics.getCounter(MetricsRegistry.FORWARD_OPENS_DEFERRED);
+        failedOpensMetric = (metrics == null) ? null : metrics.getCounter(MetricsRegistry.FORWARD_OPENS_FAILED);
+        openDurationMetric = (metrics == null) ? null : metrics.getHistogram(MetricsRegistry.FORWARD_OPEN_DURATION);
     }
 
     public final ConnectionService getConnectionService() {
@@ -130,6 +147,7 @@ public class DefaultTcpipForwarder extends AbstractInnerCloseable implements Tcp
         synchronized (localToRemote) {
             bound = localToRemote.remove(local.getPort());
         }
+        removeOpensLimiter(local.getPort());
 
         if ((bound != null) && (acceptor != null)) {
             if (log.isDebugEnabled()) {
@@ -143,8 +161,13 @@ public class DefaultTcpipForwarder extends AbstractInnerCloseable implements Tcp
         }
     }
 
+    /*
+     * Not synchronized on purpose - the response may take a full round-trip, and holding the
+     * lock would serialize concurrent requests instead of pipelining them. The mappings are
+     * protected by their own lock.
+     */
     @Override
-    public synchronized SshdSocketAddress startRemotePortForwarding(SshdSocketAddress remote, SshdSocketAddress local) throws IOException {
+    public SshdSocketAddress startRemotePortForwarding(SshdSocketAddress remote, SshdSocketAddress local) throws IOException {
         ValidateUtils.checkNotNull(local, "Local address is null");
         ValidateUtils.checkNotNull(remote, "Remote address is null");
 
@@ -213,9 +236,15 @@ public class DefaultTcpipForwarder extends AbstractInnerCloseable implements Tcp
             throw new IllegalStateException("TcpipForwarder is closing");
         }
 
-        SocksProxy socksProxy = new SocksProxy(service);
+        final SocksProxy socksProxy = new SocksProxy(service);
         SocksProxy prev;
-        InetSocketAddress bound = doBind(local, socksProxyIoHandlerFactory);
+        // use the same proxy instance that is tracked (and closed) for this port
+        InetSocketAddress bound = doBind(local, new IoHandlerFactory() {
+            @Override
+            public IoHandler create() {
+                return socksProxy;
+            }
+        });
         int port = bound.getPort();
         synchronized (dynamicLocal) {
             prev = dynamicLocal.put(port, socksProxy);
@@ -253,6 +282,16 @@ public class DefaultTcpipForwarder extends AbstractInnerCloseable implements Tcp
         }
     }
 
+    /**
+     * @param port The local port of a dynamic port forwarding
+     * @return The {@link SocksProxy} serving it - {@code null} if no such forwarding
+     */
+    public SocksProxy getDynamicPortForwardingProxy(int port) {
+        synchronized (dynamicLocal) {
+            return dynamicLocal.get(port);
+        }
+    }
+
     @Override
     public synchronized SshdSocketAddress getForwardedPort(int remotePort) {
         synchronized (remoteToLocal) {
@@ -300,6 +339,9 @@ public class DefaultTcpipForwarder extends AbstractInnerCloseable implements Tcp
                 localForwards.remove(entry);
             }
         }
+        if (entry != null) {
+            removeOpensLimiter(entry.getPort());
+        }
 
         if ((entry != null) && (acceptor != null)) {
             if (log.isDebugEnabled()) {
@@ -359,15 +401,49 @@ public class DefaultTcpipForwarder extends AbstractInnerCloseable implements Tcp
         }
     }
 
+    /**
+     * @param port The listener port
+     * @return The {@link PendingOpensLimiter} for the connections accepted on the port
+     */
+    protected PendingOpensLimiter resolveOpensLimiter(int port) {
+        synchronized (opensLimiters) {
+            PendingOpensLimiter limiter = opensLimiters.get(port);
+            if (limiter == null) {
+                limiter = new PendingOpensLimiter(maxPendingOpens);
+                opensLimiters.put(port, limiter);
+            }
+            return limiter;
+        }
+    }
+
+    protected void removeOpensLimiter(int port) {
+        synchronized (opensLimiters) {
+            opensLimiters.remove(port);
+        }
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "[" + session + "]";
     }
 
+    private static void addMetric(Counter counter, long delta) {
+        if (counter != null) {
+            counter.add(delta);
+        }
+    }
+
     //
     // Static IoHandler implementation
     //
 
+    /**
+     * Handles the connections accepted on a forwarded port without blocking any thread:
+     * reading from the connection is suspended until its channel is confirmed, and then
+     * whenever its data is being written to the channel - so that the remote window
+     * throttles the connection. The data received over the channel is written to the
+     * connection asynchronously and the local window is consumed only once written.
+     */
     class StaticIoHandler implements IoHandler {
         StaticIoHandler() {
             super();
@@ -376,32 +452,115 @@ public class DefaultTcpipForwarder extends AbstractInnerCloseable implements Tcp
         @SuppressWarnings("synthetic-access")
         @Override
         public void sessionCreated(final IoSession session) throws Exception {
+            // nothing is read until the channel is confirmed
+            session.suspendRead();
+            addMetric(connectionsMetric, 1L);
+
+            InetSocketAddress local = (InetSocketAddress) session.getLocalAddress();
+            PendingOpensLimiter limiter = resolveOpensLimiter(local.getPort());
+            session.setAttribute(PendingOpensLimiter.class, limiter);
+            if (!limiter.acquire(session)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("sessionCreated({}) deferred channel open: {}", session, limiter);
+                }
+                addMetric(deferredOpensMetric, 1L);
+                return;
+            }
+
+            try {
+                openChannel(session, limiter);
+            } catch (Exception e) {
+                releaseOpen(limiter);
+                throw e;
+            }
+        }
+
+        @SuppressWarnings("synthetic-access")
+        protected void openChannel(final IoSession session, final PendingOpensLimiter limiter) throws IOException {
+            if (session.isClosing()) {
+                throw new SshException("Connection closed before opening its channel: " + session);
+            }
+
             InetSocketAddress local = (InetSocketAddress) session.getLocalAddress();
-            int localPort = local.getPort();
-            SshdSocketAddress remote = localToRemote.get(localPort);
+            SshdSocketAddress remote;
+            synchronized (localToRemote) {
+                remote = localToRemote.get(local.getPort());
+            }
+
             final TcpipClientChannel channel;
             if (remote != null) {
                 channel = new TcpipClientChannel(TcpipClientChannel.Type.Direct, session, remote);
             } else {
                 channel = new TcpipClientChannel(TcpipClientChannel.Type.Forwarded, session, null);
             }
+            channel.setStreaming(ClientChannel.Streaming.Async);
             session.setAttribute(TcpipClientChannel.class, channel);
             service.registerChannel(channel);
-            channel.open().addListener(new SshFutureListener<OpenFuture>() {
+
+            final long startNanos = System.nanoTime();
+            addMetric(pendingOpensMetric, 1L);
+            OpenFuture openFuture;
+            try {
+                openFuture = channel.open();
+            } catch (IOException | RuntimeException e) {
+                addMetric(pendingOpensMetric, -1L);
+                addMetric(failedOpensMetric, 1L);
+                session.setAttribute(TcpipClientChannel.class, null);
+                service.unregisterChannel(channel);
+                channel.close(true);
+                throw e;
+            }
+
+            openFuture.addListener(new SshFutureListener<OpenFuture>() {
                 @Override
                 public void operationComplete(OpenFuture future) {
+                    addMetric(pendingOpensMetric, -1L);
+                    releaseOpen(limiter);
+
                     Throwable t = future.getException();
                     if (t != null) {
+                        log.debug("Failed ({}) to open channel for {}: {}", t.getClass().getSimpleName(), session, t.getMessage());
+                        addMetric(failedOpensMetric, 1L);
                         DefaultTcpipForwarder.this.service.unregisterChannel(channel);
                         channel.close(false);
+                    } else {
+                        if (openDurationMetric != null) {
+                            openDurationMetric.record(System.nanoTime() - startNanos);
+                        }
+                        session.resumeRead();
                     }
                 }
             });
         }
 
+        /**
+         * Releases the slot of a completed open - if any connections were deferred
+         * then the slot is handed to the next one
+         *
+         * @param limiter The {@link PendingOpensLimiter} of the listener
+         */
+        @SuppressWarnings("synthetic-access")
+        protected void releaseOpen(PendingOpensLimiter limiter) {
+            for (IoSession next = limiter.release(); next != null; next = limiter.release()) {
+                try {
+                    openChannel(next, limiter);
+                    return;
+                } catch (Exception e) {
+                    log.warn("Failed (" + e.getClass().getSimpleName() + ") to open deferred channel for " + next + ": " + e.getMessage());
+                    next.close(true);
+                }
+            }
+        }
+
         @SuppressWarnings("synthetic-access")
         @Override
         public void sessionClosed(IoSession session) throws Exception {
+            PendingOpensLimiter limiter = (PendingOpensLimiter) session.getAttribute(PendingOpensLimiter.class);
+            if ((limiter != null) && limiter.remove(session)) {
+                log.debug("IoSession {} closed while its channel open was deferred", session);
+                return;
+            }
+
             TcpipClientChannel channel = (TcpipClientChannel) session.getAttribute(TcpipClientChannel.class);
             if (channel != null) {
                 log.debug("IoSession {} closed, will now close the channel", session);
@@ -412,13 +571,10 @@ public class DefaultTcpipForwarder extends AbstractInnerCloseable implements Tcp
         @Override
         public void messageReceived(IoSession session, Readable message) throws Exception {
             TcpipClientChannel channel = (TcpipClientChannel) session.getAttribute(TcpipClientChannel.class);
-            Buffer buffer = new ByteArrayBuffer();
+            Buffer buffer = new ByteArrayBuffer(message.available());
             buffer.putBuffer(message);
-            channel.waitFor(ClientChannel.OPENED | ClientChannel.CLOSED, Long.MAX_VALUE);
-            
-            OutputStream outputStream = channel.getInvertedIn();
-            outputStream.write(buffer.array(), buffer.rpos(), buffer.available());
-            outputStream.flush();
+
+            channel.forwardData(buffer);
         }
 
         @Override
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.forward;
+
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.apache.sshd.common.io.IoSession;
+
+/**
+ * Limits the number of channel opens that may be pending (i.e., not yet confirmed)
+ * for the connections accepted on the same port forwarding listener. Connections
+ * beyond the limit are queued (in arrival order) and handed the slot of the next
+ * completed open.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class PendingOpensLimiter {
+    private final int maxPending;
+    private final Queue<IoSession> deferred = new LinkedList<>();
+    private int pending;
+
+    /**
+     * @param maxPending Max. number of pending opens - if non-positive then
+     * no limit is enforced
+     */
+    public PendingOpensLimiter(int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * @return Number of currently pending opens
+     */
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * @return Number of connections waiting for a slot
+     */
+    public synchronized int getDeferredCount() {
+        return deferred.size();
+    }
+
+    /**
+     * @param session The accepted connection
+     * @return {@code true} if a slot was acquired and the channel may be opened,
+     * {@code false} if the connection was queued until a slot is released
+     */
+    public synchronized boolean acquire(IoSession session) {
+        if ((maxPending <= 0) || (pending < maxPending)) {
+            pending++;
+            return true;
+        }
+
+        deferred.add(session);
+        return false;
+    }
+
+    /**
+     * Releases a slot once an open has completed (successfully or not)
+     *
+     * @return The next queued connection that now holds the released slot -
+     * {@code null} if none (in which case the slot is freed)
+     */
+    public synchronized IoSession release() {
+        for (IoSession session = deferred.poll(); session != null; session = deferred.poll()) {
+            if (!session.isClosing()) {
+                return session;
+            }
+        }
+
+        pending--;
+        return null;
+    }
+
+    /**
+     * @param session A connection that has been closed
+     * @return {@code true} if the connection was still queued (and has now
+     * been removed from the queue)
+     */
+    public synchronized boolean remove(IoSession session) {
+        return deferred.remove(session);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[max=" + getMaxPending() + ", pending=" + getPendingCount() + ", deferred=" + getDeferredCount() + "]";
+    }
+}
@@ -20,22 +20,37 @@ package org.apache.sshd.common.forward;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.sshd.client.channel.ClientChannel;
 import org.apache.sshd.client.future.OpenFuture;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.FactoryManagerUtils;
 import org.apache.sshd.common.SshException;
 import org.apache.sshd.common.SshdSocketAddress;
 import org.apache.sshd.common.future.SshFutureListener;
 import org.apache.sshd.common.io.IoHandler;
 import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.metrics.Counter;
+import org.apache.sshd.common.metrics.Histogram;
+import org.apache.sshd.common.metrics.LogLinearHistogram;
+import org.apache.sshd.common.metrics.MetricsRegistry;
 import org.apache.sshd.common.session.ConnectionService;
+import org.apache.sshd.common.session.Session;
 import org.apache.sshd.common.util.buffer.Buffer;
 import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
 import org.apache.sshd.common.util.closeable.AbstractCloseable;
 
 /**
- * SOCKS proxy server, supporting simple socks4/5 protocols.
+ * SOCKS proxy server, supporting simple socks4/5 protocols. Only the CONNECT
+ * command is supported - its channel is opened as soon as the request is parsed,
+ * even if it arrives pipelined with the SOCKS5 greeting, and data sent by the
+ * client before the channel is confirmed is queued and forwarded once it is (see
+ * also {@link FactoryManager#SOCKS_OPTIMISTIC_CONNECT}). No name resolution is done
+ * by the proxy - the destination host name is resolved by the peer.
  *
  * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
  * @see <A HREF="https://en.wikipedia.org/wiki/SOCKS">SOCKS Wikipedia</A>
@@ -44,9 +59,76 @@ public class SocksProxy extends AbstractCloseable implements IoHandler {
 
     private final ConnectionService service;
     private final Map<IoSession, Proxy> proxies = new ConcurrentHashMap<IoSession, Proxy>();
+    private final boolean optimisticConnect;
+    private final Map<String, DestinationStatistics> destinations;
+
+    //
+    // Metrics - {@code null} if no registry configured
+    //
+    private final Counter connectionsMetric;
+    private final Counter failedOpensMetric;
+    private final Histogram openDurationMetric;
 
     public SocksProxy(ConnectionService service) {
         this.service = service;
+
+        Session session = service.getSession();
+        optimisticConnect = FactoryManagerUtils.getBooleanProperty(session,
+                FactoryManager.SOCKS_OPTIMISTIC_CONNECT, FactoryManager.DEFAULT_SOCKS_OPTIMISTIC_CONNECT);
+
+        final int maxDestinations = FactoryManagerUtils.getIntProperty(session,
+                FactoryManager.SOCKS_MAX_TRACKED_DESTINATIONS, FactoryManager.DEFAULT_SOCKS_MAX_TRACKED_DESTINATIONS);
+        if (maxDestinations > 0) {
+            destinations = new LinkedHashMap<String, DestinationStatistics>(maxDestinations, 0.75f, true) {
+                private static final long serialVersionUID = 1L;    // we're not serializing it...
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, DestinationStatistics> eldest) {
+                    return size() > maxDestinations;
+                }
+            };
+        } else {
+            destinations = null;
+        }
+
+        MetricsRegistry metrics = session.getFactoryManager().getMetricsRegistry();
+        connectionsMetric = (metrics == null) ? null : metrics.getCounter(MetricsRegistry.FORWARD_CONNECTIONS);
+        failedOpensMetric = (metrics == null) ? null : metrics.getCounter(MetricsRegistry.FORWARD_OPENS_FAILED);
+        openDurationMetric = (metrics == null) ? null : metrics.getHistogram(MetricsRegistry.FORWARD_OPEN_DURATION);
+    }
+
+    public boolean isOptimisticConnect() {
+        return optimisticConnect;
+    }
+
+    /**
+     * @return A snapshot of the statistics of the most recently used destinations -
+     * key=the &quot;host:port&quot; destination, value=its {@link DestinationStatistics}
+     */
+    public Map<String, DestinationStatistics> getDestinationStatistics() {
+        if (destinations == null) {
+            return new LinkedHashMap<>();
+        }
+
+        synchronized (destinations) {
+            return new LinkedHashMap<>(destinations);
+        }
+    }
+
+    protected DestinationStatistics resolveDestinationStatistics(SshdSocketAddress remote) {
+        if (destinations == null) {
+            return null;
+        }
+
+        String key = remote.getHostName() + ":" + remote.getPort();
+        synchronized (destinations) {
+            DestinationStatistics stats = destinations.get(key);
+            if (stats == null) {
+                stats = new DestinationStatistics();
+                destinations.put(key, stats);
+            }
+            return stats;
+        }
     }
 
     @Override
@@ -54,6 +136,9 @@ public class SocksProxy extends AbstractCloseable implements IoHandler {
         if (isClosing()) {
             throw new SshException("SocksProxy is closing or closed");
         }
+        if (connectionsMetric != null) {
+            connectionsMetric.increment();
+        }
     }
 
     @Override
@@ -78,11 +163,9 @@ public class SocksProxy extends AbstractCloseable implements IoHandler {
             } else {
                 throw new IllegalStateException("Unsupported version: " + version);
             }
-            proxy.onMessage(buffer);
             proxies.put(session, proxy);
-        } else {
-            proxy.onMessage(buffer);
         }
+        proxy.onMessage(buffer);
     }
 
     @Override
@@ -91,20 +174,199 @@ public class SocksProxy extends AbstractCloseable implements IoHandler {
         session.close(false);
     }
 
+    /**
+     * Connection statistics of a destination
+     */
+    public static class DestinationStatistics {
+        private final Histogram openDurations = new LogLinearHistogram();
+        private final AtomicLong failures = new AtomicLong();
+
+        public DestinationStatistics() {
+            super();
+        }
+
+        /**
+         * @return Duration (nanos) from the CONNECT request until its channel
+         * is confirmed - for the successful connections
+         */
+        public Histogram getOpenDurations() {
+            return openDurations;
+        }
+
+        /**
+         * @return Number of connections whose channel could not be opened
+         */
+        public long getFailuresCount() {
+            return failures.get();
+        }
+
+        @Override
+        public String toString() {
+            return "opens=[" + getOpenDurations() + "], failures=" + getFailuresCount();
+        }
+    }
+
     public abstract class Proxy implements Closeable {
 
         IoSession session;
         TcpipClientChannel channel;
+        private Buffer handshake;    // partially received handshake data
+        private Buffer early;        // data received before the channel was confirmed
+        private boolean confirmed;
 
         protected Proxy(IoSession session) {
             this.session = session;
         }
 
         protected void onMessage(Buffer buffer) throws IOException {
-            channel.getInvertedIn().write(buffer.array(), buffer.rpos(), buffer.available());
-            channel.getInvertedIn().flush();
+            if (channel != null) {
+                forwardData(buffer);
+                return;
+            }
+
+            Buffer data = buffer;
+            if (handshake != null) {
+                handshake.putBuffer(buffer);
+                data = handshake;
+            }
+
+            if (!onHandshake(data)) {
+                if (data != handshake) {
+                    handshake = new ByteArrayBuffer(data.available());
+                    handshake.putBuffer(data);
+                } else {
+                    handshake.compact();
+                }
+                return;
+            }
+
+            handshake = null;
+            if ((channel != null) && (data.available() > 0)) {
+                forwardData(data);
+            }
+        }
+
+        /**
+         * Processes the complete handshake messages in the buffer
+         *
+         * @param buffer The received data - if a message is incomplete then the
+         * buffer read position is left at its start
+         * @return {@code true} if the handshake is done (successfully or not) - any
+         * data beyond it is forwarded over the channel, {@code false} if more data is
+         * required
+         * @throws IOException If failed to process the messages
+         */
+        protected abstract boolean onHandshake(Buffer buffer) throws IOException;
+
+        /**
+         * Opens the channel to the requested destination
+         *
+         * @param remote The destination
+         * @throws IOException If failed to open the channel
+         */
+        @SuppressWarnings("synthetic-access")
+        protected void openChannel(SshdSocketAddress remote) throws IOException {
+            final DestinationStatistics stats = resolveDestinationStatistics(remote);
+            final long startNanos = System.nanoTime();
+            channel = new TcpipClientChannel(TcpipClientChannel.Type.Direct, session, remote);
+            channel.setStreaming(ClientChannel.Streaming.Async);
+            // the destination is resolved by the peer, as the client would expect of a SOCKS server
+            channel.setResolveRemotely(true);
+            service.registerChannel(channel);
+            if (isOptimisticConnect()) {
+                sendConnectReply(true);
+            }
+
+            channel.open().addListener(new SshFutureListener<OpenFuture>() {
+                @Override
+                public void operationComplete(OpenFuture future) {
+                    long duration = System.nanoTime() - startNanos;
+                    Throwable t = future.getException();
+                    if (t == null) {
+                        if (stats != null) {
+                            stats.getOpenDurations().record(duration);
+                        }
+                        if (openDurationMetric != null) {
+                            openDurationMetric.record(duration);
+                        }
+                    } else {
+                        if (stats != null) {
+                            stats.failures.incrementAndGet();
+                        }
+                        if (failedOpensMetric != null) {
+                            failedOpensMetric.increment();
+                        }
+                    }
+                    onChannelOpened(future);
+                }
+            });
+        }
+
+        @SuppressWarnings("synthetic-access")
+        protected void onChannelOpened(OpenFuture future) {
+            Throwable t = future.getException();
+            if (t != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Failed ({}) to open channel for {}: {}", t.getClass().getSimpleName(), session, t.getMessage());
+                }
+                boolean optimistic = isOptimisticConnect();
+                if (!optimistic) {
+                    // queued before closing the channel (and hence the connection) so that it is still written
+                    sendConnectReply(false);
+                }
+                service.unregisterChannel(channel);
+                channel.close(false);
+                session.close(optimistic);
+                return;
+            }
+
+            if (!isOptimisticConnect()) {
+                sendConnectReply(true);
+            }
+
+            Buffer data;
+            synchronized (this) {
+                confirmed = true;
+                data = early;
+                early = null;
+            }
+
+            if (data != null) {
+                channel.forwardData(data);
+            } else {
+                session.resumeRead();
+            }
         }
 
+        /**
+         * Forwards the data received from the client - queued if the channel
+         * is not confirmed yet
+         *
+         * @param buffer The received data
+         */
+        protected void forwardData(Buffer buffer) {
+            synchronized (this) {
+                if (!confirmed) {
+                    if (early == null) {
+                        early = new ByteArrayBuffer(buffer.available());
+                    }
+                    early.putBuffer(buffer);
+                    // no more data until the channel is confirmed
+                    session.suspendRead();
+                    return;
+                }
+            }
+
+            channel.forwardData(buffer);
+        }
+
+        /**
+         * Sends the reply to the CONNECT request
+         *
+         * @param success Whether the channel was (or is assumed to be) opened
+         */
+        protected abstract void sendConnectReply(boolean success);
+
         @Override
         public void close() throws IOException {
             if (channel != null) {
@@ -131,52 +393,52 @@ public class SocksProxy extends AbstractCloseable implements IoHandler {
 
         @SuppressWarnings("synthetic-access")
         @Override
-        protected void onMessage(Buffer buffer) throws IOException {
-            if (channel == null) {
-                int cmd = buffer.getUByte();
-                if (cmd != 1) {
-                    throw new IllegalStateException("Unsupported socks command: " + cmd);
-                }
-                int port = getUShort(buffer);
-                String host = Integer.toString(getUByte(buffer)) + "."
-                        + Integer.toString(getUByte(buffer)) + "."
-                        + Integer.toString(getUByte(buffer)) + "."
-                        + Integer.toString(getUByte(buffer));
-                String userId = getNTString(buffer);
-                // Socks4a
-                if (host.startsWith("0.0.0.")) {
-                    host = getNTString(buffer);
-                }
-                if (log.isDebugEnabled()) {
-                    log.debug("Received socks4 connection request for {} to {}:{}", userId, host, port);
-                }
+        protected boolean onHandshake(Buffer buffer) throws IOException {
+            // command + port + address + user ID terminator
+            int rpos = buffer.rpos();
+            int userIdEnd = indexOfNul(buffer, rpos + 7);
+            if (userIdEnd < 0) {
+                return false;
+            }
 
-                SshdSocketAddress remote = new SshdSocketAddress(host, port);
-                channel = new TcpipClientChannel(TcpipClientChannel.Type.Direct, session, remote);
-                service.registerChannel(channel);
-                channel.open().addListener(new SshFutureListener<OpenFuture>() {
-                    @Override
-                    public void operationComplete(OpenFuture future) {
-                        onChannelOpened(future);
-                    }
-                });
-            } else {
-                super.onMessage(buffer);
+            int cmd = buffer.getUByte();
+            int port = getUShort(buffer);
+            String host = Integer.toString(getUByte(buffer)) + "."
+                    + Integer.toString(getUByte(buffer)) + "."
+                    + Integer.toString(getUByte(buffer)) + "."
+                    + Integer.toString(getUByte(buffer));
+            // Socks4a - the host name follows the user ID
+            boolean resolveRemotely = host.startsWith("0.0.0.");
+            if (resolveRemotely && (indexOfNul(buffer, userIdEnd + 1) < 0)) {
+                buffer.rpos(rpos);
+                return false;
+            }
+
+            String userId = getNTString(buffer);
+            if (resolveRemotely) {
+                host = getNTString(buffer);
+            }
+
+            if (cmd != 1) {
+                log.debug("Unsupported socks4 command {} from {}", cmd, session);
+                sendConnectReply(false);
+                session.close(false);
+                return true;
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Received socks4 connection request for {} to {}:{}", userId, host, port);
             }
+
+            openChannel(new SshdSocketAddress(host, port));
+            return true;
         }
 
-        @SuppressWarnings("synthetic-access")
-        protected void onChannelOpened(OpenFuture future) {
+        @Override
+        protected void sendConnectReply(boolean success) {
             Buffer buffer = new ByteArrayBuffer(8);
             buffer.putByte((byte) 0x00);
-            Throwable t = future.getException();
-            if (t != null) {
-                service.unregisterChannel(channel);
-                channel.close(false);
-                buffer.putByte((byte) 0x5b);
-            } else {
-                buffer.putByte((byte) 0x5a);
-            }
+            buffer.putByte((byte) (success ? 0x5a : 0x5b));
             buffer.putByte((byte) 0x00);
             buffer.putByte((byte) 0x00);
             buffer.putByte((byte) 0x00);
@@ -195,6 +457,15 @@ public class SocksProxy extends AbstractCloseable implements IoHandler {
             return sb.toString();
         }
 
+        private int indexOfNul(Buffer buffer, int from) {
+            byte[] data = buffer.array();
+            for (int index = from, end = buffer.wpos(); index < end; index++) {
+                if (data[index] == 0) {
+                    return index;
+                }
+            }
+            return -1;
+        }
     }
 
     /**
@@ -202,7 +473,6 @@ public class SocksProxy extends AbstractCloseable implements IoHandler {
      */
     public class Socks5 extends Proxy {
         private byte[] authMethods;
-        private Buffer response;
 
         public Socks5(IoSession session) {
             super(session);
@@ -210,8 +480,13 @@ public class SocksProxy extends AbstractCloseable implements IoHandler {
 
         @SuppressWarnings("synthetic-access")
         @Override
-        protected void onMessage(Buffer buffer) throws IOException {
+        protected boolean onHandshake(Buffer buffer) throws IOException {
             if (authMethods == null) {
+                int available = buffer.available();
+                if ((available < 1) || (available < (1 + (buffer.array()[buffer.rpos()] & 0xFF)))) {
+                    return false;
+                }
+
                 int nbAuthMethods = getUByte(buffer);
                 authMethods = new byte[nbAuthMethods];
                 buffer.getRawBytes(authMethods);
@@ -219,85 +494,110 @@ public class SocksProxy extends AbstractCloseable implements IoHandler {
                 for (int i = 0; i < nbAuthMethods; i++) {
                     foundNoAuth |= authMethods[i] == 0;
                 }
-                buffer = new ByteArrayBuffer(8);
-                buffer.putByte((byte) 0x05);
-                buffer.putByte((byte) (foundNoAuth ? 0x00 : 0xFF));
-                session.write(buffer);
+                Buffer reply = new ByteArrayBuffer(8);
+                reply.putByte((byte) 0x05);
+                reply.putByte((byte) (foundNoAuth ? 0x00 : 0xFF));
+                session.write(reply);
                 if (!foundNoAuth) {
-                    throw new IllegalStateException("Received socks5 greeting without NoAuth method");
-                } else {
-                    log.debug("Received socks5 greeting");
-                }
-            } else if (channel == null) {
-                response = buffer;
-                int version = getUByte(buffer);
-                if (version != 0x05) {
-                    throw new IllegalStateException("Unexpected version: " + version);
-                }
-                int cmd = buffer.getUByte();
-                if (cmd != 1) { // establish a TCP/IP stream connection
-                    throw new IllegalStateException("Unsupported socks command: " + cmd);
-                }
-                final int res = buffer.getUByte();
-                if (res != 0) {
-                    log.debug("No zero reserved value: " + res);
+                    log.debug("Received socks5 greeting without NoAuth method from {}", session);
+                    session.close(false);
+                    return true;
                 }
+                log.debug("Received socks5 greeting");
+            }
 
-                int type = buffer.getUByte();
-                String host;
-                if (type == 0x01) {
-                    host = Integer.toString(getUByte(buffer)) + "."
-                            + Integer.toString(getUByte(buffer)) + "."
-                            + Integer.toString(getUByte(buffer)) + "."
-                            + Integer.toString(getUByte(buffer));
-                } else if (type == 0x03) {
-                    host = getBLString(buffer);
-                } else if (type == 0x04) {
-                    host = Integer.toHexString(getUShort(buffer)) + ":"
-                            + Integer.toHexString(getUShort(buffer)) + ":"
-                            + Integer.toHexString(getUShort(buffer)) + ":"
-                            + Integer.toHexString(getUShort(buffer)) + ":"
-                            + Integer.toHexString(getUShort(buffer)) + ":"
-                            + Integer.toHexString(getUShort(buffer)) + ":"
-                            + Integer.toHexString(getUShort(buffer)) + ":"
-                            + Integer.toHexString(getUShort(buffer));
-                } else {
-                    throw new IllegalStateException("Unsupported address type: " + type);
-                }
-                int port = getUShort(buffer);
-                if (log.isDebugEnabled()) {
-                    log.debug("Received socks5 connection request to {}:{}", host, Integer.valueOf(port));
-                }
-                SshdSocketAddress remote = new SshdSocketAddress(host, port);
-                channel = new TcpipClientChannel(TcpipClientChannel.Type.Direct, session, remote);
-                service.registerChannel(channel);
-                channel.open().addListener(new SshFutureListener<OpenFuture>() {
-                    @Override
-                    public void operationComplete(OpenFuture future) {
-                        onChannelOpened(future);
-                    }
-                });
+            // the request may have been pipelined with the greeting
+            int rpos = buffer.rpos();
+            int available = buffer.available();
+            if (available < 5) {
+                return false;
+            }
+
+            byte[] data = buffer.array();
+            int type = data[rpos + 3] & 0xFF;
+            int addressLength;
+            if (type == 0x01) {
+                addressLength = 4;
+            } else if (type == 0x03) {
+                addressLength = 1 + (data[rpos + 4] & 0xFF);
+            } else if (type == 0x04) {
+                addressLength = 16;
             } else {
-                log.debug("Received socks5 connection message");
-                super.onMessage(buffer);
+                addressLength = 0;
+            }
+            if (available < (4 + addressLength + 2)) {
+                return false;
             }
-        }
 
-        @SuppressWarnings("synthetic-access")
-        protected void onChannelOpened(OpenFuture future) {
-            int wpos = response.wpos();
-            response.rpos(0);
-            response.wpos(1);
-            Throwable t = future.getException();
-            if (t != null) {
-                service.unregisterChannel(channel);
-                channel.close(false);
-                response.putByte((byte) 0x01);
+            int version = getUByte(buffer);
+            if (version != 0x05) {
+                throw new IllegalStateException("Unexpected version: " + version);
+            }
+            int cmd = buffer.getUByte();
+            final int res = buffer.getUByte();
+            if (res != 0) {
+                log.debug("No zero reserved value: " + res);
+            }
+            buffer.getUByte();  // the address type
+
+            String host;
+            if (type == 0x01) {
+                host = Integer.toString(getUByte(buffer)) + "."
+                        + Integer.toString(getUByte(buffer)) + "."
+                        + Integer.toString(getUByte(buffer)) + "."
+                        + Integer.toString(getUByte(buffer));
+            } else if (type == 0x03) {
+                host = getBLString(buffer);
+            } else if (type == 0x04) {
+                host = Integer.toHexString(getUShort(buffer)) + ":"
+                        + Integer.toHexString(getUShort(buffer)) + ":"
+                        + Integer.toHexString(getUShort(buffer)) + ":"
+                        + Integer.toHexString(getUShort(buffer)) + ":"
+                        + Integer.toHexString(getUShort(buffer)) + ":"
+                        + Integer.toHexString(getUShort(buffer)) + ":"
+                        + Integer.toHexString(getUShort(buffer)) + ":"
+                        + Integer.toHexString(getUShort(buffer));
             } else {
-                response.putByte((byte) 0x00);
+                log.debug("Unsupported socks5 address type {} from {}", type, session);
+                sendReply(0x08);
+                session.close(false);
+                return true;
             }
-            response.wpos(wpos);
-            session.write(response);
+            int port = getUShort(buffer);
+
+            if (cmd != 1) { // only establishing a TCP/IP stream connection is supported
+                log.debug("Unsupported socks5 command {} from {}", cmd, session);
+                sendReply(0x07);
+                session.close(false);
+                return true;
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Received socks5 connection request to {}:{}", host, Integer.valueOf(port));
+            }
+            openChannel(new SshdSocketAddress(host, port));
+            return true;
+        }
+
+        @Override
+        protected void sendConnectReply(boolean success) {
+            sendReply(success ? 0x00 : 0x01);
+        }
+
+        /**
+         * Sends a reply with an empty (IPv4) bound address
+         *
+         * @param status The reply status
+         */
+        protected void sendReply(int status) {
+            Buffer reply = new ByteArrayBuffer(10);
+            reply.putByte((byte) 0x05);
+            reply.putByte((byte) status);
+            reply.putByte((byte) 0x00);
+            reply.putByte((byte) 0x01);
+            reply.putInt(0L);
+            reply.putShort(0);
+            session.write(reply);
         }
 
         private String getBLString(Buffer buffer) {
@@ -28,8 +28,11 @@ import org.apache.sshd.common.Closeable;
 import org.apache.sshd.common.SshConstants;
 import org.apache.sshd.common.SshException;
 import org.apache.sshd.common.SshdSocketAddress;
+import org.apache.sshd.common.channel.ChannelAsyncOutputStream;
 import org.apache.sshd.common.channel.ChannelOutputStream;
+import org.apache.sshd.common.future.SshFutureListener;
 import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.io.IoWriteFuture;
 import org.apache.sshd.common.util.buffer.Buffer;
 import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
 
@@ -51,6 +54,7 @@ public class TcpipClientChannel extends AbstractClientChannel {
     private final Type typeEnum;
     private final IoSession serverSession;
     private final SshdSocketAddress remote;
+    private boolean resolveRemotely;
 
     public TcpipClientChannel(Type type, IoSession serverSession, SshdSocketAddress remote) {
         super(type == Type.Direct ? "direct-tcpip" : "forwarded-tcpip");
@@ -64,6 +68,20 @@ public class TcpipClientChannel extends AbstractClientChannel {
         return openFuture;
     }
 
+    public boolean isResolveRemotely() {
+        return resolveRemotely;
+    }
+
+    /**
+     * @param resolveRemotely If {@code true} then the target host name of a
+     * {@link Type#Direct} channel is sent as-is and resolved by the peer - e.g.,
+     * for a SOCKS proxy, where the client may refer to names that only the peer
+     * can resolve. Otherwise (default) it is resolved locally and its address sent
+     */
+    public void setResolveRemotely(boolean resolveRemotely) {
+        this.resolveRemotely = resolveRemotely;
+    }
+
     @Override
     public synchronized OpenFuture open() throws IOException {
         final InetSocketAddress src;
@@ -71,7 +89,12 @@ public class TcpipClientChannel extends AbstractClientChannel {
         switch (typeEnum) {
             case Direct:
                 src = (InetSocketAddress) serverSession.getRemoteAddress();
-                dst = this.remote.toInetSocketAddress();
+                if (isResolveRemotely()) {
+                    // no (blocking) lookup here - the peer resolves the target host name
+                    dst = InetSocketAddress.createUnresolved(this.remote.getHostName(), this.remote.getPort());
+                } else {
+                    dst = this.remote.toInetSocketAddress();
+                }
                 break;
             case Forwarded:
                 src = (InetSocketAddress) serverSession.getRemoteAddress();
@@ -91,7 +114,7 @@ public class TcpipClientChannel extends AbstractClientChannel {
         buffer.putInt(id);
         buffer.putInt(localWindow.getSize());
         buffer.putInt(localWindow.getPacketSize());
-        buffer.putString(dst.getAddress().getHostAddress());
+        buffer.putString(dst.isUnresolved() ? dst.getHostString() : dst.getAddress().getHostAddress());
         buffer.putInt(dst.getPort());
         buffer.putString(src.getAddress().getHostAddress());
         buffer.putInt(src.getPort());
@@ -102,10 +125,43 @@ public class TcpipClientChannel extends AbstractClientChannel {
     @Override
     protected synchronized void doOpen() throws IOException {
         if (streaming == Streaming.Async) {
-            throw new IllegalArgumentException("Asynchronous streaming isn't supported yet on this channel");
+            asyncIn = new ChannelAsyncOutputStream(this, SshConstants.SSH_MSG_CHANNEL_DATA);
+        } else {
+            out = new ChannelOutputStream(this, remoteWindow, log, SshConstants.SSH_MSG_CHANNEL_DATA);
+            invertedIn = out;
         }
-        out = new ChannelOutputStream(this, remoteWindow, log, SshConstants.SSH_MSG_CHANNEL_DATA);
-        invertedIn = out;
+    }
+
+    /**
+     * Writes data received from the connection to the channel asynchronously. Reading
+     * from the connection is suspended until the data has been written, so that the
+     * remote window throttles the connection. If the write fails then the connection
+     * is closed. Requires {@link org.apache.sshd.client.channel.ClientChannel.Streaming#Async}
+     * streaming
+     *
+     * @param buffer The data to write - must not be modified until the write completes
+     * @return The {@link IoWriteFuture} of the write
+     */
+    public IoWriteFuture forwardData(Buffer buffer) {
+        serverSession.suspendRead();
+        IoWriteFuture writeFuture = asyncIn.write(buffer);
+        writeFuture.addListener(new SshFutureListener<IoWriteFuture>() {
+            @SuppressWarnings("synthetic-access")
+            @Override
+            public void operationComplete(IoWriteFuture future) {
+                if (future.isWritten()) {
+                    serverSession.resumeRead();
+                } else {
+                    Throwable t = future.getException();
+                    if (log.isDebugEnabled()) {
+                        log.debug("forwardData(" + TcpipClientChannel.this + ") failed"
+                                + ((t == null) ? "" : " (" + t.getClass().getSimpleName() + "): " + t.getMessage()));
+                    }
+                    serverSession.close(false);
+                }
+            }
+        });
+        return writeFuture;
     }
 
     @Override
@@ -114,11 +170,27 @@ public class TcpipClientChannel extends AbstractClientChannel {
     }
 
     @Override
-    protected synchronized void doWriteData(byte[] data, int off, int len) throws IOException {
+    protected synchronized void doWriteData(byte[] data, int off, final int len) throws IOException {
         // Make sure we copy the data as the incoming buffer may be reused
         Buffer buf = new ByteArrayBuffer(data, off, len);
         buf = new ByteArrayBuffer(buf.getCompactData());
-        localWindow.consumeAndCheck(len);
-        serverSession.write(buf);
+        // consume the window only once the data is written so that a slow socket throttles the peer
+        serverSession.write(buf).addListener(new SshFutureListener<IoWriteFuture>() {
+            @SuppressWarnings("synthetic-access")
+            @Override
+            public void operationComplete(IoWriteFuture future) {
+                if ((!future.isWritten()) || isClosing()) {
+                    return;
+                }
+
+                try {
+                    localWindow.consumeAndCheck(len);
+                } catch (IOException e) {
+                    log.warn("doWriteData(" + TcpipClientChannel.this + ") failed (" + e.getClass().getSimpleName() + ")"
+                           + " to consume " + len + " bytes: " + e.getMessage());
+                    close(true);
+                }
+            }
+        });
     }
 }
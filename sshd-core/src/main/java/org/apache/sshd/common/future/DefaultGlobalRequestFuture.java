@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.future;
+
+import java.io.IOException;
+
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class DefaultGlobalRequestFuture extends DefaultVerifiableSshFuture<GlobalRequestFuture> implements GlobalRequestFuture {
+    private final String requestName;
+
+    public DefaultGlobalRequestFuture(String requestName, Object lock) {
+        super(lock);
+        this.requestName = requestName;
+    }
+
+    /**
+     * @return The name of the global request - for logging and debugging
+     */
+    public final String getRequestName() {
+        return requestName;
+    }
+
+    @Override   // TODO for JDK-8 make this a default method
+    public GlobalRequestFuture verify(long timeoutMillis) throws IOException {
+        if (!await(timeoutMillis)) {
+            throw new SshException("Failed to get global request=" + getRequestName() + " result within specified timeout: " + timeoutMillis);
+        }
+
+        Throwable t = getException();
+        if (t != null) {
+            t = GenericUtils.peelException(t);
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+
+            throw new SshException("Failed (" + t.getClass().getSimpleName() + ") to execute global request=" + getRequestName() + ": " + t.getMessage(), t);
+        }
+
+        return this;
+    }
+
+    @Override   // TODO for JDK-8 make this a default method
+    public boolean isSuccess() {
+        return getValue() instanceof Buffer;
+    }
+
+    @Override   // TODO for JDK-8 make this a default method
+    public Buffer getResponse() {
+        Object v = getValue();
+        if (v instanceof Buffer) {
+            return (Buffer) v;
+        } else {
+            return null;
+        }
+    }
+
+    @Override   // TODO for JDK-8 make this a default method
+    public Throwable getException() {
+        Object v = getValue();
+        if (v instanceof Throwable) {
+            return (Throwable) v;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + getRequestName() + "]";
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.future;
+
+import org.apache.sshd.common.util.buffer.Buffer;
+
+/**
+ * Represents the response to an {@code SSH_MSG_GLOBAL_REQUEST} that requires a reply
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public interface GlobalRequestFuture extends SshFuture<GlobalRequestFuture>, VerifiableFuture<GlobalRequestFuture> {
+    /**
+     * @return {@code true} if an {@code SSH_MSG_REQUEST_SUCCESS} response was received
+     */
+    boolean isSuccess();
+
+    /**
+     * @return The response data (if any) following the {@code SSH_MSG_REQUEST_SUCCESS}
+     * command - {@code null} if the request has not completed yet or was not successful
+     */
+    Buffer getResponse();
+
+    /**
+     * Returns the cause of the request failure.
+     *
+     * @return {@code null} if the request is not completed yet, or if no response
+     * could be received (e.g., session closed). <B>Note:</B> an {@code SSH_MSG_REQUEST_FAILURE}
+     * response is not considered an exception - see {@link #isSuccess()}
+     */
+    Throwable getException();
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.io;
+
+import java.net.SocketAddress;
+
+/**
+ * Optionally implemented by the {@link IoHandler} of an {@link IoAcceptor}
+ * in order to reject (or defer) incoming connections before an {@link IoSession}
+ * is created for them - e.g., for enforcing per-address connection limits
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public interface IoAcceptFilter {
+    /**
+     * The possible outcomes of filtering an incoming connection
+     */
+    enum Decision {
+        /** Create a session for the connection */
+        ACCEPT,
+        /**
+         * Hold the connection and re-evaluate it later - acceptors that
+         * do not support deferring connections treat it as {@link #REJECT}
+         */
+        DEFER,
+        /** Close the connection */
+        REJECT
+    }
+
+    /**
+     * @param acceptor The {@link IoAcceptor} that accepted the connection
+     * @param local The local address the connection was accepted on
+     * @param remote The remote peer address
+     * @return The {@link Decision} regarding the connection
+     */
+    Decision acceptConnection(IoAcceptor acceptor, SocketAddress local, SocketAddress remote);
+
+    /**
+     * @param acceptor The {@link IoAcceptor} that accepted the connection
+     * @param remote The remote peer address
+     * @return The data to send to a rejected connection before closing it -
+     * may be {@code null}/empty if nothing should be sent
+     */
+    byte[] getRejectionMessage(IoAcceptor acceptor, SocketAddress remote);
+}
@@ -69,6 +69,18 @@ public interface IoSession extends Closeable {
      */
     IoWriteFuture write(Buffer buffer);
 
+    /**
+     * Stops reading data from the peer until {@link #resumeRead()} is called.
+     * <B>Note:</B> data of a read that is already in progress may still be
+     * delivered to the handler after this call
+     */
+    void suspendRead();
+
+    /**
+     * Resumes reading data from the peer after {@link #suspendRead()}
+     */
+    void resumeRead();
+
 
     /**
      * Closes this session immediately or after all queued write requests
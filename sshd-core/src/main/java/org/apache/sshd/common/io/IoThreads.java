@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.io;
+
+/**
+ * Keeps track of the threads currently running I/O provider callbacks (reads,
+ * write completions, etc.) - such threads must not block waiting for other I/O
+ * of the same provider to complete, since they may be the ones needed to complete it
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public final class IoThreads {
+    private static final ThreadLocal<Boolean> IO_THREAD = new ThreadLocal<Boolean>();
+
+    private IoThreads() {
+        throw new UnsupportedOperationException("No instance");
+    }
+
+    /**
+     * @return {@code true} if the current thread is running an I/O provider callback
+     */
+    public static boolean isIoThread() {
+        return IO_THREAD.get() != null;
+    }
+
+    /**
+     * Marks the current thread as running an I/O provider callback
+     *
+     * @return {@code true} if the thread was already marked - to be passed
+     * to {@link #exit(boolean)} once the callback is done
+     */
+    public static boolean enter() {
+        if (isIoThread()) {
+            return true;
+        }
+
+        IO_THREAD.set(Boolean.TRUE);
+        return false;
+    }
+
+    /**
+     * @param nested The value returned by the matching {@link #enter()} call
+     */
+    public static void exit(boolean nested) {
+        if (!nested) {
+            IO_THREAD.remove();
+        }
+    }
+}
@@ -24,14 +24,17 @@ import java.util.Collection;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.service.IoAcceptor;
 import org.apache.mina.core.service.IoHandler;
 import org.apache.mina.core.service.IoProcessor;
 import org.apache.mina.core.service.IoService;
+import org.apache.mina.core.session.IoSession;
 import org.apache.mina.transport.socket.nio.NioSession;
 import org.apache.mina.transport.socket.nio.NioSocketAcceptor;
 import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.FactoryManagerUtils;
+import org.apache.sshd.common.io.IoAcceptFilter;
 
 /**
  */
@@ -83,6 +86,49 @@ public class MinaAcceptor extends MinaService implements org.apache.sshd.common.
         return getAcceptor();
     }
 
+    @Override
+    public void sessionCreated(IoSession session) throws Exception {
+        if (handler instanceof IoAcceptFilter) {
+            IoAcceptFilter filter = (IoAcceptFilter) handler;
+            // deferring connections is not supported - so they are rejected
+            if (!IoAcceptFilter.Decision.ACCEPT.equals(filter.acceptConnection(this, session.getLocalAddress(), session.getRemoteAddress()))) {
+                log.debug("sessionCreated({}) connection rejected", session);
+                byte[] message = filter.getRejectionMessage(this, session.getRemoteAddress());
+                if ((message != null) && (message.length > 0)) {
+                    session.write(IoBuffer.wrap(message));
+                    session.close(false);
+                } else {
+                    session.close(true);
+                }
+                return;
+            }
+        }
+
+        super.sessionCreated(session);
+    }
+
+    @Override
+    public void sessionClosed(IoSession session) throws Exception {
+        // rejected connections have no associated session
+        if (getSession(session) != null) {
+            super.sessionClosed(session);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(IoSession session, Throwable cause) throws Exception {
+        if (getSession(session) != null) {
+            super.exceptionCaught(session, cause);
+        }
+    }
+
+    @Override
+    public void messageReceived(IoSession session, Object message) throws Exception {
+        if (getSession(session) != null) {
+            super.messageReceived(session, message);
+        }
+    }
+
     @Override
     public void bind(Collection<? extends SocketAddress> addresses) throws IOException {
         getAcceptor().bind(addresses);
@@ -33,6 +33,7 @@ import org.apache.mina.transport.socket.nio.NioSession;
 import org.apache.sshd.common.Closeable;
 import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.FactoryManagerUtils;
+import org.apache.sshd.common.io.IoThreads;
 import org.apache.sshd.common.util.closeable.AbstractCloseable;
 
 /**
@@ -114,7 +115,12 @@ public abstract class MinaService extends AbstractCloseable implements org.apach
 
     @Override
     public void messageReceived(IoSession session, Object message) throws Exception {
-        handler.messageReceived(getSession(session), MinaSupport.asReadable((IoBuffer) message));
+        boolean nested = IoThreads.enter();
+        try {
+            handler.messageReceived(getSession(session), MinaSupport.asReadable((IoBuffer) message));
+        } finally {
+            IoThreads.exit(nested);
+        }
     }
 
     protected org.apache.sshd.common.io.IoSession getSession(IoSession session) {
@@ -56,6 +56,16 @@ public class MinaSession extends AbstractInnerCloseable implements IoSession {
         session.suspendWrite();
     }
 
+    @Override
+    public void suspendRead() {
+        session.suspendRead();
+    }
+
+    @Override
+    public void resumeRead() {
+        session.resumeRead();
+    }
+
     @Override
     public Object getAttribute(Object key) {
         return session.getAttribute(key);
@@ -21,6 +21,7 @@ package org.apache.sshd.common.io.mina;
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.sshd.common.util.Readable;
 import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
 
 public final class MinaSupport {
 
@@ -29,6 +30,11 @@ public final class MinaSupport {
     }
 
     public static Readable asReadable(final IoBuffer buffer) {
+        if (buffer.hasArray()) {
+            // allows the data to be processed in place
+            return new ByteArrayBuffer(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+
         return new Readable() {
             @Override
             public int available() {
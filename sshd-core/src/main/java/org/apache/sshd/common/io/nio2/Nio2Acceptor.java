@@ -21,6 +21,7 @@ package org.apache.sshd.common.io.nio2;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousChannelGroup;
 import java.nio.channels.AsynchronousServerSocketChannel;
 import java.nio.channels.AsynchronousSocketChannel;
@@ -28,12 +29,21 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.FactoryManagerUtils;
 import org.apache.sshd.common.future.CloseFuture;
+import org.apache.sshd.common.io.IoAcceptFilter;
+import org.apache.sshd.common.io.IoAcceptFilter.Decision;
 import org.apache.sshd.common.io.IoAcceptor;
 import org.apache.sshd.common.io.IoHandler;
 
@@ -41,14 +51,29 @@ import org.apache.sshd.common.io.IoHandler;
  */
 public class Nio2Acceptor extends Nio2Service implements IoAcceptor {
     public static final int DEFAULT_BACKLOG = 0;
+    public static final long DEFAULT_DISCONNECT_TIMEOUT = TimeUnit.SECONDS.toMillis(10L);
 
     private final Map<SocketAddress, AsynchronousServerSocketChannel> channels;
     private int backlog = DEFAULT_BACKLOG;
+    private final int queueSize;
+    private final long queueTimeout;
+    private final long retryInterval;
+    private final long disconnectTimeout;
+    private final Queue<PendingConnection> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final AtomicLong acceptedCount = new AtomicLong(0L);
+    private final AtomicLong deferredCount = new AtomicLong(0L);
+    private final AtomicLong rejectedCount = new AtomicLong(0L);
 
     public Nio2Acceptor(FactoryManager manager, IoHandler handler, AsynchronousChannelGroup group) {
         super(manager, handler, group);
         channels = new ConcurrentHashMap<SocketAddress, AsynchronousServerSocketChannel>();
         backlog = FactoryManagerUtils.getIntProperty(manager, FactoryManager.SOCKET_BACKLOG, DEFAULT_BACKLOG);
+        queueSize = FactoryManagerUtils.getIntProperty(manager, FactoryManager.NIO2_ACCEPT_QUEUE_SIZE, FactoryManager.DEFAULT_NIO2_ACCEPT_QUEUE_SIZE);
+        queueTimeout = FactoryManagerUtils.getLongProperty(manager, FactoryManager.NIO2_ACCEPT_QUEUE_TIMEOUT, FactoryManager.DEFAULT_NIO2_ACCEPT_QUEUE_TIMEOUT);
+        retryInterval = FactoryManagerUtils.getLongProperty(manager, FactoryManager.NIO2_ACCEPT_RETRY_INTERVAL, FactoryManager.DEFAULT_NIO2_ACCEPT_RETRY_INTERVAL);
+        disconnectTimeout = FactoryManagerUtils.getLongProperty(manager, FactoryManager.DISCONNECT_TIMEOUT, DEFAULT_DISCONNECT_TIMEOUT);
     }
 
     @Override
@@ -122,9 +147,239 @@ public class Nio2Acceptor extends Nio2Service implements IoAcceptor {
                 log.debug("Exception caught while closing channel", e);
             }
         }
+
+        for (PendingConnection p = pending.poll(); p != null; p = pending.poll()) {
+            pendingCount.decrementAndGet();
+            closeChannel(p.channel);
+        }
         super.doCloseImmediately();
     }
 
+    /**
+     * @return Number of connections for which a session was created
+     */
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    /**
+     * @return Number of connections that were deferred by the handler
+     * (including ones that were eventually accepted or rejected)
+     */
+    public long getDeferredCount() {
+        return deferredCount.get();
+    }
+
+    /**
+     * @return Number of connections that were rejected
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return Number of deferred connections currently waiting to be re-evaluated
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @param channel The accepted {@link AsynchronousSocketChannel}
+     * @param address The local address the connection was accepted on
+     * @return The {@link Decision} regarding the connection - if the handler
+     * is not an {@link IoAcceptFilter} then all connections are accepted
+     * @see IoAcceptFilter
+     */
+    protected Decision filterConnection(AsynchronousSocketChannel channel, SocketAddress address) {
+        if (!(handler instanceof IoAcceptFilter)) {
+            return Decision.ACCEPT;
+        }
+
+        SocketAddress remote = null;
+        try {
+            remote = channel.getRemoteAddress();
+            Decision decision = ((IoAcceptFilter) handler).acceptConnection(this, address, remote);
+            if (log.isTraceEnabled()) {
+                log.trace("filterConnection({}) {} connection from {}", address, decision, remote);
+            }
+            return (decision == null) ? Decision.REJECT : decision;
+        } catch (Throwable t) {
+            log.warn("Failed (" + t.getClass().getSimpleName() + ") to filter connection from " + remote + ": " + t.getMessage());
+            return Decision.REJECT;
+        }
+    }
+
+    protected void createSession(AsynchronousSocketChannel channel, SocketAddress address) {
+        acceptedCount.incrementAndGet();
+
+        Nio2Session session = null;
+        try {
+            // Create a session
+            session = new Nio2Session(this, manager, handler, channel);
+            handler.sessionCreated(session);
+            sessions.put(session.getId(), session);
+            session.startReading();
+        } catch (Throwable exc) {
+            log.warn("Caught " + exc.getClass().getSimpleName()
+                            + " while creating session for connection accepted on " + address
+                            + ": " + exc.getMessage(),
+                    exc);
+
+            // fail fast the accepted connection
+            if (session != null) {
+                try {
+                    session.close();
+                } catch (Throwable t) {
+                    log.warn("Failed (" + t.getClass().getSimpleName() + ")"
+                                    + " to close accepted connection from " + address
+                                    + ": " + t.getMessage(),
+                            t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the connection for later re-evaluation - if the queue is full then
+     * the connection is rejected
+     *
+     * @param channel The accepted {@link AsynchronousSocketChannel}
+     * @param address The local address the connection was accepted on
+     */
+    protected void deferConnection(AsynchronousSocketChannel channel, SocketAddress address) {
+        if (pendingCount.incrementAndGet() > queueSize) {
+            pendingCount.decrementAndGet();
+            rejectConnection(channel);
+            return;
+        }
+
+        deferredCount.incrementAndGet();
+        pending.add(new PendingConnection(channel, address, System.currentTimeMillis() + queueTimeout));
+        scheduleDrain();
+    }
+
+    /**
+     * Closes the connection - sending it the handler's rejection message first (if any)
+     *
+     * @param channel The {@link AsynchronousSocketChannel} to reject
+     * @see IoAcceptFilter#getRejectionMessage(IoAcceptor, SocketAddress)
+     */
+    protected void rejectConnection(final AsynchronousSocketChannel channel) {
+        rejectedCount.incrementAndGet();
+
+        byte[] message = null;
+        if (handler instanceof IoAcceptFilter) {
+            try {
+                message = ((IoAcceptFilter) handler).getRejectionMessage(this, channel.getRemoteAddress());
+            } catch (Throwable t) {
+                log.warn("Failed (" + t.getClass().getSimpleName() + ") to build rejection message: " + t.getMessage());
+            }
+        }
+
+        if ((message == null) || (message.length <= 0)) {
+            closeChannel(channel);
+            return;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(message);
+            channel.write(buffer, disconnectTimeout, TimeUnit.MILLISECONDS, buffer,
+                    new Nio2CompletionHandler<Integer, ByteBuffer>() {
+                        @SuppressWarnings("synthetic-access")
+                        @Override
+                        protected void onCompleted(Integer result, ByteBuffer data) {
+                            if (data.hasRemaining()) {
+                                channel.write(data, disconnectTimeout, TimeUnit.MILLISECONDS, data, this);
+                            } else {
+                                closeChannel(channel);
+                            }
+                        }
+
+                        @Override
+                        protected void onFailed(Throwable exc, ByteBuffer data) {
+                            log.debug("Failed ({}) to send rejection message: {}", exc.getClass().getSimpleName(), exc.getMessage());
+                            closeChannel(channel);
+                        }
+                    });
+        } catch (Throwable t) {
+            log.debug("Failed ({}) to send rejection message: {}", t.getClass().getSimpleName(), t.getMessage());
+            closeChannel(channel);
+        }
+    }
+
+    protected void closeChannel(AsynchronousSocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Failed ({}) to close rejected connection: {}", e.getClass().getSimpleName(), e.getMessage());
+        }
+    }
+
+    protected void scheduleDrain() {
+        if (!drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            ScheduledExecutorService executor = manager.getScheduledExecutorService();
+            executor.schedule(new Runnable() {
+                @SuppressWarnings("synthetic-access")
+                @Override
+                public void run() {
+                    drainPending();
+                }
+            }, retryInterval, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            drainScheduled.set(false);
+            log.warn("Failed (" + e.getClass().getSimpleName() + ") to schedule deferred connections processing: " + e.getMessage());
+            for (PendingConnection p = pending.poll(); p != null; p = pending.poll()) {
+                pendingCount.decrementAndGet();
+                rejectConnection(p.channel);
+            }
+        }
+    }
+
+    /**
+     * Re-evaluates the deferred connections in the order they were accepted - stops
+     * at the first one that is still deferred so that newer connections do not
+     * overtake it
+     */
+    protected void drainPending() {
+        drainScheduled.set(false);
+
+        synchronized (pending) {
+            for (PendingConnection p = pending.peek(); p != null; p = pending.peek()) {
+                Decision decision;
+                if (disposing.get() || (!channels.containsKey(p.address))) {
+                    decision = null;
+                } else if (System.currentTimeMillis() > p.expiration) {
+                    log.debug("drainPending({}) deferred connection expired", p.address);
+                    decision = Decision.REJECT;
+                } else {
+                    decision = filterConnection(p.channel, p.address);
+                    if (Decision.DEFER.equals(decision)) {
+                        break;
+                    }
+                }
+
+                pending.poll();
+                pendingCount.decrementAndGet();
+                if (decision == null) {
+                    closeChannel(p.channel);
+                } else if (Decision.ACCEPT.equals(decision)) {
+                    createSession(p.channel, p.address);
+                } else {
+                    rejectConnection(p.channel);
+                }
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
     class AcceptCompletionHandler extends Nio2CompletionHandler<AsynchronousSocketChannel, SocketAddress> {
         private final AsynchronousServerSocketChannel socket;
 
@@ -140,27 +395,17 @@ public class Nio2Acceptor extends Nio2Service implements IoAcceptor {
                 return;
             }
 
-            Nio2Session session = null;
-            try {
-                // Create a session
-                session = new Nio2Session(Nio2Acceptor.this, manager, handler, result);
-                handler.sessionCreated(session);
-                sessions.put(session.getId(), session);
-                session.startReading();
-            } catch (Throwable exc) {
-                failed(exc, address);
-
-                // fail fast the accepted connection
-                if (session != null) {
-                    try {
-                        session.close();
-                    } catch (Throwable t) {
-                        log.warn("Failed (" + t.getClass().getSimpleName() + ")"
-                                        + " to close accepted connection from " + address
-                                        + ": " + t.getMessage(),
-                                t);
-                    }
-                }
+            // do not let new connections overtake the deferred ones
+            Decision decision = (pendingCount.get() > 0) ? Decision.DEFER : filterConnection(result, address);
+            switch (decision) {
+                case ACCEPT:
+                    createSession(result, address);
+                    break;
+                case DEFER:
+                    deferConnection(result, address);
+                    break;
+                default:
+                    rejectConnection(result);
             }
 
             try {
@@ -182,4 +427,16 @@ public class Nio2Acceptor extends Nio2Service implements IoAcceptor {
             }
         }
     }
+
+    private static final class PendingConnection {
+        private final AsynchronousSocketChannel channel;
+        private final SocketAddress address;
+        private final long expiration;
+
+        PendingConnection(AsynchronousSocketChannel channel, SocketAddress address, long expiration) {
+            this.channel = channel;
+            this.address = address;
+            this.expiration = expiration;
+        }
+    }
 }
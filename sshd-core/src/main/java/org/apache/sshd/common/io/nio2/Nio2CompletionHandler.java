@@ -22,6 +22,8 @@ import java.nio.channels.CompletionHandler;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 
+import org.apache.sshd.common.io.IoThreads;
+
 /**
  */
 public abstract class Nio2CompletionHandler<V, A> implements CompletionHandler<V, A> {
@@ -31,7 +33,12 @@ public abstract class Nio2CompletionHandler<V, A> implements CompletionHandler<V
         AccessController.doPrivileged(new PrivilegedAction<Object>() {
             @Override
             public Object run() {
-                onCompleted(result, attachment);
+                boolean nested = IoThreads.enter();
+                try {
+                    onCompleted(result, attachment);
+                } finally {
+                    IoThreads.exit(nested);
+                }
                 return null;
             }
         });
@@ -42,7 +49,12 @@ public abstract class Nio2CompletionHandler<V, A> implements CompletionHandler<V
         AccessController.doPrivileged(new PrivilegedAction<Object>() {
             @Override
             public Object run() {
-                onFailed(exc, attachment);
+                boolean nested = IoThreads.enter();
+                try {
+                    onFailed(exc, attachment);
+                } finally {
+                    IoThreads.exit(nested);
+                }
                 return null;
             }
         });
@@ -31,7 +31,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.sshd.common.FactoryManager;
-import org.apache.sshd.common.FactoryManagerUtils;
+import org.apache.sshd.common.PropertyKey;
 import org.apache.sshd.common.future.CloseFuture;
 import org.apache.sshd.common.io.IoHandler;
 import org.apache.sshd.common.io.IoService;
@@ -39,6 +39,7 @@ import org.apache.sshd.common.io.IoSession;
 import org.apache.sshd.common.io.IoWriteFuture;
 import org.apache.sshd.common.util.Readable;
 import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
 import org.apache.sshd.common.util.closeable.AbstractCloseable;
 
 /**
@@ -46,6 +47,7 @@ import org.apache.sshd.common.util.closeable.AbstractCloseable;
 public class Nio2Session extends AbstractCloseable implements IoSession {
 
     public static final int DEFAULT_READBUF_SIZE = 32 * 1024;
+    public static final PropertyKey<Integer> READBUF_SIZE_KEY = PropertyKey.intKey(FactoryManager.NIO2_READ_BUFFER_SIZE, DEFAULT_READBUF_SIZE);
 
     private static final AtomicLong SESSION_ID_GENERATOR = new AtomicLong(100L);
 
@@ -59,6 +61,9 @@ public class Nio2Session extends AbstractCloseable implements IoSession {
     private final FactoryManager manager;
     private final Queue<Nio2DefaultIoWriteFuture> writes = new LinkedTransferQueue<>();
     private final AtomicReference<Nio2DefaultIoWriteFuture> currentWrite = new AtomicReference<>();
+    private final Object readLock = new Object();
+    private boolean readSuspended;
+    private Runnable pendingRead;    // the read cycle to start once resumed
 
     public Nio2Session(Nio2Service service, FactoryManager manager, IoHandler handler, AsynchronousSocketChannel socket) throws IOException {
         this.service = service;
@@ -108,6 +113,27 @@ public class Nio2Session extends AbstractCloseable implements IoSession {
         }
     }
 
+    @Override
+    public void suspendRead() {
+        synchronized (readLock) {
+            readSuspended = true;
+        }
+    }
+
+    @Override
+    public void resumeRead() {
+        Runnable task;
+        synchronized (readLock) {
+            readSuspended = false;
+            task = pendingRead;
+            pendingRead = null;
+        }
+
+        if ((task != null) && (!closeFuture.isClosed())) {
+            task.run();
+        }
+    }
+
     @Override
     public IoWriteFuture write(Buffer buffer) {
         if (log.isDebugEnabled()) {
@@ -179,7 +205,7 @@ public class Nio2Session extends AbstractCloseable implements IoSession {
     }
 
     public void startReading() {
-        startReading(FactoryManagerUtils.getIntProperty(manager, FactoryManager.NIO2_READ_BUFFER_SIZE, DEFAULT_READBUF_SIZE));
+        startReading(READBUF_SIZE_KEY.get(manager));
     }
 
     public void startReading(int bufSize) {
@@ -217,11 +243,11 @@ public class Nio2Session extends AbstractCloseable implements IoSession {
                     if (result >= 0) {
                         log.debug("Read {} bytes", result);
                         buffer.flip();
-                        handler.messageReceived(Nio2Session.this, bufReader);
+                        handler.messageReceived(Nio2Session.this, asReadable(buffer, bufReader));
                         if (!closeFuture.isClosed()) {
                             // re-use reference for next iteration since we finished processing it
                             buffer.clear();
-                            doReadCycle(buffer, this);
+                            continueReading(buffer, this);
                         } else {
                             log.debug("IoSession has been closed, stop reading");
                         }
@@ -240,9 +266,47 @@ public class Nio2Session extends AbstractCloseable implements IoSession {
                 exceptionCaught(exc);
             }
         };
+        continueReading(buffer, completion);
+    }
+
+    /**
+     * Issues the next read - unless reading is suspended, in which case it is
+     * issued when {@link #resumeRead()} is called
+     *
+     * @param buffer The read {@link ByteBuffer}
+     * @param completion The read completion handler
+     */
+    protected void continueReading(final ByteBuffer buffer, final Nio2CompletionHandler<Integer, Object> completion) {
+        synchronized (readLock) {
+            if (readSuspended) {
+                pendingRead = new Runnable() {
+                    @Override
+                    public void run() {
+                        doReadCycle(buffer, completion);
+                    }
+                };
+                return;
+            }
+        }
+
         doReadCycle(buffer, completion);
     }
 
+    /**
+     * @param buffer The read {@link ByteBuffer}
+     * @param bufReader The default {@link Readable} to use
+     * @return If the buffer is backed by an array then a {@link ByteArrayBuffer}
+     * view of the read data - thus allowing the handler to process it in place,
+     * otherwise the default {@link Readable}
+     */
+    protected Readable asReadable(ByteBuffer buffer, Readable bufReader) {
+        if (buffer.hasArray()) {
+            return new ByteArrayBuffer(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            return bufReader;
+        }
+    }
+
     protected void doReadCycle(ByteBuffer buffer, Nio2CompletionHandler<Integer, Object> completion) {
         socket.read(buffer, null, completion);
     }
@@ -22,6 +22,7 @@ import java.math.BigInteger;
 
 import org.apache.sshd.common.digest.Digest;
 import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
 
 /**
  * Base class for the Diffie-Hellman key agreement.
@@ -51,6 +52,26 @@ public abstract class AbstractDH {
 
     public abstract Digest getHash() throws Exception;
 
+    /**
+     * Writes the client's public value - by default as an {@code mpint}
+     *
+     * @param buffer The {@link Buffer} to write to
+     * @param e The public value
+     */
+    public void putE(Buffer buffer, byte[] e) {
+        buffer.putMPInt(e);
+    }
+
+    /**
+     * Writes the server's public value - by default as an {@code mpint}
+     *
+     * @param buffer The {@link Buffer} to write to
+     * @param f The public value
+     */
+    public void putF(Buffer buffer, byte[] f) {
+        buffer.putMPInt(f);
+    }
+
     /**
      * The shared secret returned by {@link javax.crypto.KeyAgreement#generateSecret()}
      * is a byte array, which can (by chance, roughly 1 out of 256 times) begin
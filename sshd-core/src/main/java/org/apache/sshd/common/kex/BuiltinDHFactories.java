@@ -144,6 +144,24 @@ public enum BuiltinDHFactories implements DHFactory {
         public boolean isSupported() {
             return SecurityUtils.hasEcc();
         }
+    },
+    curve25519(Constants.CURVE25519_SHA256) {
+        @Override
+        public Curve25519DH create(Object... params) throws Exception {
+            if (!GenericUtils.isEmpty(params)) {
+                throw new IllegalArgumentException("No accepted parameters for " + getName());
+            }
+            return new Curve25519DH();
+        }
+    },
+    curve25519libssh(Constants.CURVE25519_SHA256_LIBSSH) {
+        @Override
+        public Curve25519DH create(Object... params) throws Exception {
+            if (!GenericUtils.isEmpty(params)) {
+                throw new IllegalArgumentException("No accepted parameters for " + getName());
+            }
+            return new Curve25519DH();
+        }
     };
 
     public static final Set<BuiltinDHFactories> VALUES =
@@ -323,5 +341,7 @@ public enum BuiltinDHFactories implements DHFactory {
         public static final String ECDH_SHA2_NISTP256 = "ecdh-sha2-nistp256";
         public static final String ECDH_SHA2_NISTP384 = "ecdh-sha2-nistp384";
         public static final String ECDH_SHA2_NISTP521 = "ecdh-sha2-nistp521";
+        public static final String CURVE25519_SHA256 = "curve25519-sha256";
+        public static final String CURVE25519_SHA256_LIBSSH = "curve25519-sha256@libssh.org";
     }
 }
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.kex;
+
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * A pure Java implementation of the X25519 function described in
+ * <A HREF="https://tools.ietf.org/html/rfc7748">RFC 7748</A> - used when the
+ * JDK does not provide one. The field arithmetic (based on the public domain
+ * <A HREF="https://tweetnacl.cr.yp.to/">TweetNaCl</A> implementation) uses 16
+ * limbs of 16 bits each and contains no secret dependent branches or memory
+ * accesses. All the temporary values are allocated once per instance, so an
+ * instance is <U>not</U> thread-safe - though it can be re-used for several
+ * computations.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class Curve25519 {
+    /**
+     * Size (in bytes) of keys and shared secrets
+     */
+    public static final int KEY_SIZE = 32;
+
+    private static final long[] A24 = {0xDB41L, 1L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L};
+    private static final byte[] BASE_POINT = new byte[KEY_SIZE];
+
+    static {
+        BASE_POINT[0] = 9;
+    }
+
+    private final byte[] z = new byte[KEY_SIZE];
+    private final long[] x = new long[16];
+    private final long[] a = new long[16];
+    private final long[] b = new long[16];
+    private final long[] c = new long[16];
+    private final long[] d = new long[16];
+    private final long[] e = new long[16];
+    private final long[] f = new long[16];
+    private final long[] m = new long[16];
+    private final long[] t = new long[31];
+
+    public Curve25519() {
+        super();
+    }
+
+    /**
+     * Calculates the public key matching a private one
+     *
+     * @param privateKey The 32 bytes private key (a.k.a. scalar)
+     * @return The 32 bytes public key
+     */
+    public byte[] generatePublicKey(byte[] privateKey) {
+        return scalarMult(privateKey, BASE_POINT);
+    }
+
+    /**
+     * @param privateKey The 32 bytes private key (a.k.a. scalar)
+     * @param publicKey The peer's 32 bytes public key (a.k.a. u-coordinate)
+     * @return The 32 bytes result - <B>Note:</B> it is up to the caller to
+     * check that it is not all zeroes
+     */
+    public byte[] scalarMult(byte[] privateKey, byte[] publicKey) {
+        ValidateUtils.checkTrue((privateKey != null) && (privateKey.length == KEY_SIZE), "Bad private key size");
+        ValidateUtils.checkTrue((publicKey != null) && (publicKey.length == KEY_SIZE), "Bad public key size");
+
+        // clamp the scalar
+        System.arraycopy(privateKey, 0, z, 0, KEY_SIZE);
+        z[31] = (byte) ((z[31] & 0x7F) | 0x40);
+        z[0] &= (byte) 0xF8;
+
+        unpack(x, publicKey);
+        for (int i = 0; i < 16; i++) {
+            b[i] = x[i];
+            a[i] = 0L;
+            c[i] = 0L;
+            d[i] = 0L;
+        }
+        a[0] = 1L;
+        d[0] = 1L;
+
+        // Montgomery ladder
+        for (int i = 254; i >= 0; i--) {
+            int r = (z[i >>> 3] >>> (i & 7)) & 1;
+            select(a, b, r);
+            select(c, d, r);
+            add(e, a, c);
+            sub(a, a, c);
+            add(c, b, d);
+            sub(b, b, d);
+            sqr(d, e);
+            sqr(f, a);
+            mul(a, c, a);
+            mul(c, b, e);
+            add(e, a, c);
+            sub(a, a, c);
+            sqr(b, a);
+            sub(c, d, f);
+            mul(a, c, A24);
+            add(a, a, d);
+            mul(c, c, a);
+            mul(a, d, f);
+            mul(d, b, x);
+            sqr(b, e);
+            select(a, b, r);
+            select(c, d, r);
+        }
+
+        invert(c, c);
+        mul(a, a, c);
+
+        byte[] result = new byte[KEY_SIZE];
+        pack(result, a);
+        // don't leave secrets around
+        for (int i = 0; i < KEY_SIZE; i++) {
+            z[i] = 0;
+        }
+        return result;
+    }
+
+    private static void unpack(long[] o, byte[] n) {
+        for (int i = 0; i < 16; i++) {
+            o[i] = (n[2 * i] & 0xFFL) + ((n[2 * i + 1] & 0xFFL) << 8);
+        }
+        o[15] &= 0x7FFFL;
+    }
+
+    private void pack(byte[] o, long[] n) {
+        for (int i = 0; i < 16; i++) {
+            e[i] = n[i];
+        }
+        carry(e);
+        carry(e);
+        carry(e);
+        for (int j = 0; j < 2; j++) {
+            m[0] = e[0] - 0xFFEDL;
+            for (int i = 1; i < 15; i++) {
+                m[i] = e[i] - 0xFFFFL - ((m[i - 1] >> 16) & 1L);
+                m[i - 1] &= 0xFFFFL;
+            }
+            m[15] = e[15] - 0x7FFFL - ((m[14] >> 16) & 1L);
+            int borrow = (int) ((m[15] >> 16) & 1L);
+            m[14] &= 0xFFFFL;
+            select(e, m, 1 - borrow);
+        }
+        for (int i = 0; i < 16; i++) {
+            o[2 * i] = (byte) e[i];
+            o[2 * i + 1] = (byte) (e[i] >> 8);
+        }
+    }
+
+    private static void carry(long[] o) {
+        for (int i = 0; i < 16; i++) {
+            o[i] += 1L << 16;
+            long cv = o[i] >> 16;
+            if (i < 15) {
+                o[i + 1] += cv - 1L;
+            } else {
+                o[0] += 38L * (cv - 1L);
+            }
+            o[i] -= cv << 16;
+        }
+    }
+
+    /**
+     * Swaps the values if {@code bit} is 1 - without branching
+     */
+    private static void select(long[] p, long[] q, int bit) {
+        long mask = -((long) bit);
+        for (int i = 0; i < 16; i++) {
+            long v = mask & (p[i] ^ q[i]);
+            p[i] ^= v;
+            q[i] ^= v;
+        }
+    }
+
+    private static void add(long[] o, long[] p, long[] q) {
+        for (int i = 0; i < 16; i++) {
+            o[i] = p[i] + q[i];
+        }
+    }
+
+    private static void sub(long[] o, long[] p, long[] q) {
+        for (int i = 0; i < 16; i++) {
+            o[i] = p[i] - q[i];
+        }
+    }
+
+    private void mul(long[] o, long[] p, long[] q) {
+        for (int i = 0; i < t.length; i++) {
+            t[i] = 0L;
+        }
+        for (int i = 0; i < 16; i++) {
+            long pi = p[i];
+            for (int j = 0; j < 16; j++) {
+                t[i + j] += pi * q[j];
+            }
+        }
+        reduce(o);
+    }
+
+    // same as mul(o, p, p) but computes each cross product only once
+    private void sqr(long[] o, long[] p) {
+        for (int i = 0; i < t.length; i++) {
+            t[i] = 0L;
+        }
+        for (int i = 0; i < 16; i++) {
+            long pi = p[i];
+            t[2 * i] += pi * pi;
+            pi <<= 1;
+            for (int j = i + 1; j < 16; j++) {
+                t[i + j] += pi * p[j];
+            }
+        }
+        reduce(o);
+    }
+
+    // reduces the product in 't' modulo 2^255 - 19 (since 2^256 = 38)
+    private void reduce(long[] o) {
+        for (int i = 0; i < 15; i++) {
+            t[i] += 38L * t[i + 16];
+        }
+        for (int i = 0; i < 16; i++) {
+            o[i] = t[i];
+        }
+        carry(o);
+        carry(o);
+    }
+
+    private void invert(long[] o, long[] i) {
+        // uses 'f' as scratch since it is no longer needed once the ladder is done
+        for (int k = 0; k < 16; k++) {
+            f[k] = i[k];
+        }
+        // exponentiation by p - 2 - the exponent is public so branching is safe
+        for (int k = 253; k >= 0; k--) {
+            sqr(f, f);
+            if ((k != 2) && (k != 4)) {
+                mul(f, f, i);
+            }
+        }
+        for (int k = 0; k < 16; k++) {
+            o[k] = f[k];
+        }
+    }
+}
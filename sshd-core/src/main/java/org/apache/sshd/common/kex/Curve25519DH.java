@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.kex;
+
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import javax.crypto.KeyAgreement;
+
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.digest.BuiltinDigests;
+import org.apache.sshd.common.digest.Digest;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.SecurityUtils;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+
+/**
+ * The {@code curve25519-sha256} key agreement - see <A HREF="https://tools.ietf.org/html/rfc8731">RFC 8731</A>.
+ * Uses the JCE {@code X25519} implementation if the current JVM provides one,
+ * and the pure Java {@link Curve25519} otherwise.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class Curve25519DH extends AbstractDH {
+    /**
+     * The JCE name of the key agreement
+     */
+    public static final String ALGORITHM = "X25519";
+
+    /**
+     * The ASN.1 header of the X.509 encoding of an {@code X25519} public key - followed by the raw key
+     */
+    private static final byte[] X509_PREFIX = {
+        0x30, 0x2A, 0x30, 0x05, 0x06, 0x03, 0x2B, 0x65, 0x6E, 0x03, 0x21, 0x00
+    };
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final boolean useJce;
+    private byte[] e;
+    private byte[] f;
+    private byte[] privateKey;
+    private Curve25519 curve;
+    private KeyAgreement keyAgreement;
+
+    public Curve25519DH() {
+        this(isJceSupported());
+    }
+
+    /**
+     * @param useJce If {@code true} then the JCE implementation is used -
+     * <B>Note:</B> it is up to the caller to make sure it is available
+     * @see #isJceSupported()
+     */
+    public Curve25519DH(boolean useJce) {
+        this.useJce = useJce;
+    }
+
+    public final boolean isUsingJce() {
+        return useJce;
+    }
+
+    @Override
+    public byte[] getE() throws Exception {
+        if (e == null) {
+            if (isUsingJce()) {
+                KeyPair kp = SecurityUtils.getKeyPairGenerator(ALGORITHM).generateKeyPair();
+                keyAgreement = SecurityUtils.getKeyAgreement(ALGORITHM);
+                keyAgreement.init(kp.getPrivate());
+                e = decodeX509PublicKey(kp.getPublic().getEncoded());
+            } else {
+                privateKey = new byte[Curve25519.KEY_SIZE];
+                RANDOM.nextBytes(privateKey);
+                curve = new Curve25519();
+                e = curve.generatePublicKey(privateKey);
+            }
+        }
+        return e;
+    }
+
+    @Override
+    public void setF(byte[] f) {
+        ValidateUtils.checkTrue(GenericUtils.length(f) == Curve25519.KEY_SIZE, "Bad peer key length: %d", GenericUtils.length(f));
+        this.f = f.clone();
+    }
+
+    @Override
+    protected byte[] calculateK() throws Exception {
+        ValidateUtils.checkNotNull(f, "No peer key provided");
+        byte[] secret;
+        if (isUsingJce()) {
+            KeyFactory keyFactory = SecurityUtils.getKeyFactory(ALGORITHM);
+            PublicKey peerKey = keyFactory.generatePublic(new X509EncodedKeySpec(encodeX509PublicKey(f)));
+            keyAgreement.doPhase(peerKey, true);
+            secret = keyAgreement.generateSecret();
+        } else {
+            secret = curve.scalarMult(ValidateUtils.checkNotNull(privateKey, "No private key generated"), f);
+            Arrays.fill(privateKey, (byte) 0);
+            privateKey = null;
+        }
+
+        // RFC 8731 section 3 - abort if the result is all zeroes (checked without branching on the secret)
+        int bits = 0;
+        for (byte b : secret) {
+            bits |= b;
+        }
+        if (bits == 0) {
+            throw new SshException(SshConstants.SSH2_DISCONNECT_KEY_EXCHANGE_FAILED, "Invalid (all zeroes) shared secret");
+        }
+
+        // the secret is encoded as an unsigned integer in network byte order
+        return stripLeadingZeroes(secret);
+    }
+
+    @Override
+    public Digest getHash() throws Exception {
+        return BuiltinDigests.sha256.create();
+    }
+
+    @Override
+    public void putE(Buffer buffer, byte[] e) {
+        buffer.putBytes(e);
+    }
+
+    @Override
+    public void putF(Buffer buffer, byte[] f) {
+        buffer.putBytes(f);
+    }
+
+    /**
+     * @return {@code true} if the current JVM provides an {@code X25519} key agreement
+     */
+    public static boolean isJceSupported() {
+        return JceSupportHolder.SUPPORTED;
+    }
+
+    /**
+     * @param encoded The X.509 encoded public key
+     * @return The raw key
+     */
+    public static byte[] decodeX509PublicKey(byte[] encoded) {
+        int len = (encoded == null) ? 0 : encoded.length;
+        ValidateUtils.checkTrue(len == (X509_PREFIX.length + Curve25519.KEY_SIZE), "Bad encoded key length: %d", len);
+        for (int index = 0; index < X509_PREFIX.length; index++) {
+            ValidateUtils.checkTrue(encoded[index] == X509_PREFIX[index], "Bad encoded key header at offset=%d", index);
+        }
+        return Arrays.copyOfRange(encoded, X509_PREFIX.length, encoded.length);
+    }
+
+    /**
+     * @param key The raw public key
+     * @return The X.509 encoding of the key
+     */
+    public static byte[] encodeX509PublicKey(byte[] key) {
+        byte[] encoded = Arrays.copyOf(X509_PREFIX, X509_PREFIX.length + key.length);
+        System.arraycopy(key, 0, encoded, X509_PREFIX.length, key.length);
+        return encoded;
+    }
+
+    private static final class JceSupportHolder {
+        private static final boolean SUPPORTED = checkSupported();
+
+        private JceSupportHolder() {
+            throw new UnsupportedOperationException("No instance");
+        }
+
+        private static boolean checkSupported() {
+            try {
+                // make sure the entire flow works - including the encoding we assume
+                KeyPair kp = SecurityUtils.getKeyPairGenerator(ALGORITHM).generateKeyPair();
+                byte[] raw = decodeX509PublicKey(kp.getPublic().getEncoded());
+                PublicKey key = SecurityUtils.getKeyFactory(ALGORITHM).generatePublic(new X509EncodedKeySpec(encodeX509PublicKey(raw)));
+                KeyAgreement ka = SecurityUtils.getKeyAgreement(ALGORITHM);
+                ka.init(kp.getPrivate());
+                ka.doPhase(key, true);
+                return ka.generateSecret().length == Curve25519.KEY_SIZE;
+            } catch (Exception | LinkageError e) {
+                return false;
+            }
+        }
+    }
+}
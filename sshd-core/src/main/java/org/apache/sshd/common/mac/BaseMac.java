@@ -33,13 +33,19 @@ public class BaseMac implements Mac {
     private final int defbsize;
     private final int bsize;
     private final byte[] tmp;
+    private final boolean encryptThenMac;
     private javax.crypto.Mac mac;
 
     public BaseMac(String algorithm, int bsize, int defbsize) {
+        this(algorithm, bsize, defbsize, false);
+    }
+
+    public BaseMac(String algorithm, int bsize, int defbsize, boolean encryptThenMac) {
         this.algorithm = algorithm;
         this.bsize = bsize;
         this.defbsize = defbsize;
         this.tmp = new byte[defbsize];
+        this.encryptThenMac = encryptThenMac;
     }
 
     @Override
@@ -52,6 +58,11 @@ public class BaseMac implements Mac {
         return bsize;
     }
 
+    @Override
+    public boolean isEncryptThenMac() {
+        return encryptThenMac;
+    }
+
     @Override
     public void init(byte[] key) throws Exception {
         if (key.length > defbsize) {
@@ -78,6 +78,24 @@ public enum BuiltinMacs implements MacFactory {
         public Mac create() {
             return new BaseMac("HmacSHA1", 64, 64);
         }
+    },
+    hmacsha1etm(Constants.ETM_HMAC_SHA1) {
+        @Override
+        public Mac create() {
+            return new BaseMac("HmacSHA1", 20, 20, true);
+        }
+    },
+    hmacsha256etm(Constants.ETM_HMAC_SHA2_256) {
+        @Override
+        public Mac create() {
+            return new BaseMac("HmacSHA256", 32, 32, true);
+        }
+    },
+    hmacsha512etm(Constants.ETM_HMAC_SHA2_512) {
+        @Override
+        public Mac create() {
+            return new BaseMac("HmacSHA512", 64, 64, true);
+        }
     };
 
     public static final Set<BuiltinMacs> VALUES =
@@ -268,5 +286,8 @@ public enum BuiltinMacs implements MacFactory {
         public static final String HMAC_SHA1_96 = "hmac-sha1-96";
         public static final String HMAC_SHA2_256 = "hmac-sha2-256";
         public static final String HMAC_SHA2_512 = "hmac-sha2-512";
+        public static final String ETM_HMAC_SHA1 = "hmac-sha1-etm@openssh.com";
+        public static final String ETM_HMAC_SHA2_256 = "hmac-sha2-256-etm@openssh.com";
+        public static final String ETM_HMAC_SHA2_512 = "hmac-sha2-512-etm@openssh.com";
     }
 }
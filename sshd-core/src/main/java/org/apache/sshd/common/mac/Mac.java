@@ -29,6 +29,12 @@ public interface Mac {
 
     int getBlockSize();
 
+    /**
+     * @return {@code true} if the MAC is computed over the encrypted packet
+     * (a.k.a. <I>encrypt-then-mac</I>) rather than over the plain one
+     */
+    boolean isEncryptThenMac();
+
     void init(byte[] key) throws Exception;
 
     void update(byte[] foo, int start, int len);
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * A simple in-memory {@link MetricsRegistry} using {@link StripedCounter}s
+ * and {@link LogLinearHistogram}s
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class DefaultMetricsRegistry implements MetricsRegistry {
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    public DefaultMetricsRegistry() {
+        super();
+    }
+
+    @Override
+    public Counter getCounter(String name) {
+        ValidateUtils.checkNotNullAndNotEmpty(name, "No counter name");
+        Counter counter = counters.get(name);
+        if (counter != null) {
+            return counter;
+        }
+
+        counter = createCounter(name);
+        Counter prev = counters.putIfAbsent(name, counter);
+        return (prev == null) ? counter : prev;
+    }
+
+    @Override
+    public Histogram getHistogram(String name) {
+        ValidateUtils.checkNotNullAndNotEmpty(name, "No histogram name");
+        Histogram histogram = histograms.get(name);
+        if (histogram != null) {
+            return histogram;
+        }
+
+        histogram = createHistogram(name);
+        Histogram prev = histograms.putIfAbsent(name, histogram);
+        return (prev == null) ? histogram : prev;
+    }
+
+    @Override
+    public void registerGauge(String name, Gauge gauge) {
+        gauges.put(ValidateUtils.checkNotNullAndNotEmpty(name, "No gauge name"), ValidateUtils.checkNotNull(gauge, "No gauge"));
+    }
+
+    @Override
+    public Gauge unregisterGauge(String name) {
+        return gauges.remove(name);
+    }
+
+    @Override
+    public Map<String, Counter> getCounters() {
+        return snapshot(counters);
+    }
+
+    @Override
+    public Map<String, Histogram> getHistograms() {
+        return snapshot(histograms);
+    }
+
+    @Override
+    public Map<String, Gauge> getGauges() {
+        return snapshot(gauges);
+    }
+
+    protected Counter createCounter(String name) {
+        return new StripedCounter();
+    }
+
+    protected Histogram createHistogram(String name) {
+        return new LogLinearHistogram();
+    }
+
+    protected static <M> Map<String, M> snapshot(Map<String, M> metrics) {
+        return Collections.unmodifiableMap(new TreeMap<>(metrics));
+    }
+
+    @Override
+    public String toString() {
+        return "counters=" + getCounters() + ", gauges=" + getGauges().keySet() + ", histograms=" + getHistograms();
+    }
+}
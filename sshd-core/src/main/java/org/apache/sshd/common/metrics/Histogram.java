@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.metrics;
+
+/**
+ * Records the distribution of values - usually latencies in nanoseconds
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public interface Histogram {
+    /**
+     * @param value The (non-negative) value to record - negative values are ignored
+     */
+    void record(long value);
+
+    /**
+     * @return Number of recorded values
+     */
+    long getCount();
+
+    /**
+     * @return The max. recorded value - zero if none
+     */
+    long getMax();
+
+    /**
+     * @return The mean of the recorded values - zero if none
+     */
+    double getMean();
+
+    /**
+     * @param percentile The requested percentile - in the range {@code [0-100]}
+     * @return The (approximated) value at the requested percentile - zero if none recorded
+     */
+    long getValueAtPercentile(double percentile);
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * Exposes the contents of a {@link MetricsRegistry} as a read-only {@link DynamicMBean}:
+ * counters and gauges are exported under their names, while histograms are exported
+ * as several attributes - e.g., {@code session.kex.duration.p99}. The attributes set
+ * is re-evaluated on each access, so metrics registered later on are exported as well.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class JmxMetricsExporter implements DynamicMBean {
+    public static final String DEFAULT_OBJECT_NAME = "org.apache.sshd:type=Metrics";
+
+    private final MetricsRegistry registry;
+
+    public JmxMetricsExporter(MetricsRegistry registry) {
+        this.registry = ValidateUtils.checkNotNull(registry, "No metrics registry");
+    }
+
+    public final MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Registers the exporter with the platform {@link MBeanServer}
+     *
+     * @param name The {@link ObjectName} string - if {@code null}/empty then
+     *             {@link #DEFAULT_OBJECT_NAME} is used
+     * @return The registered {@link ObjectName}
+     * @throws JMException If failed to register
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(GenericUtils.isEmpty(name) ? DEFAULT_OBJECT_NAME : name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * @param objectName The {@link ObjectName} used to {@link #register(String)} the exporter
+     * @throws JMException If failed to un-register
+     */
+    public void unregister(ObjectName objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Map<String, Object> values = collectValues();
+        Object value = values.get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException("Unknown metric: " + attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metric is read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Object> values = collectValues();
+        AttributeList list = new AttributeList();
+        for (String name : attributes) {
+            Object value = values.get(name);
+            if (value != null) {
+                list.add(new Attribute(name, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException("invoke(" + actionName + ") N/A");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Object> values = collectValues();
+        List<MBeanAttributeInfo> attrs = new ArrayList<>(values.size());
+        for (Map.Entry<String, Object> ve : values.entrySet()) {
+            Object value = ve.getValue();
+            attrs.add(new MBeanAttributeInfo(ve.getKey(), value.getClass().getName(), ve.getKey(), true, false, false));
+        }
+
+        return new MBeanInfo(getClass().getName(), "SSH metrics",
+                attrs.toArray(new MBeanAttributeInfo[attrs.size()]), null, new MBeanOperationInfo[0], null);
+    }
+
+    protected Map<String, Object> collectValues() {
+        Map<String, Object> values = new TreeMap<>();
+        for (Map.Entry<String, Counter> ce : registry.getCounters().entrySet()) {
+            values.put(ce.getKey(), Long.valueOf(ce.getValue().get()));
+        }
+        for (Map.Entry<String, Gauge> ge : registry.getGauges().entrySet()) {
+            values.put(ge.getKey(), Long.valueOf(ge.getValue().getValue()));
+        }
+        for (Map.Entry<String, Histogram> he : registry.getHistograms().entrySet()) {
+            String name = he.getKey();
+            Histogram h = he.getValue();
+            values.put(name + ".count", Long.valueOf(h.getCount()));
+            values.put(name + ".mean", Double.valueOf(h.getMean()));
+            values.put(name + ".max", Long.valueOf(h.getMax()));
+            values.put(name + ".p50", Long.valueOf(h.getValueAtPercentile(50.0d)));
+            values.put(name + ".p90", Long.valueOf(h.getValueAtPercentile(90.0d)));
+            values.put(name + ".p99", Long.valueOf(h.getValueAtPercentile(99.0d)));
+            values.put(name + ".p999", Long.valueOf(h.getValueAtPercentile(99.9d)));
+        }
+        return values;
+    }
+}
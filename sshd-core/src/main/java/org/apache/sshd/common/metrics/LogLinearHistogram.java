@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free {@link Histogram} using log-linear buckets (similar to HDR histograms):
+ * each power of 2 range is split into {@value #SUB_BUCKETS} linear sub-buckets, so
+ * the relative error of any reported value is at most 1/{@value #SUB_BUCKETS} while
+ * covering the entire {@code long} range with a fixed and small memory footprint.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class LogLinearHistogram implements Histogram {
+    public static final int SUB_BUCKET_BITS = 4;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    public static final int NUM_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final Counter count = new StripedCounter();
+    private final Counter sum = new StripedCounter();
+    private final AtomicLong max = new AtomicLong(0L);
+
+    public LogLinearHistogram() {
+        super();
+    }
+
+    @Override
+    public void record(long value) {
+        if (value < 0L) {
+            return;
+        }
+
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+
+        for (long curMax = max.get(); value > curMax; curMax = max.get()) {
+            if (max.compareAndSet(curMax, value)) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public long getMax() {
+        return max.get();
+    }
+
+    @Override
+    public double getMean() {
+        long n = getCount();
+        return (n <= 0L) ? 0.0d : ((double) sum.get()) / n;
+    }
+
+    @Override
+    public long getValueAtPercentile(double percentile) {
+        long total = 0L;
+        long[] counts = new long[NUM_BUCKETS];
+        for (int index = 0; index < counts.length; index++) {
+            counts[index] = buckets.get(index);
+            total += counts[index];
+        }
+
+        if (total <= 0L) {
+            return 0L;
+        }
+
+        double p = Math.min(100.0d, Math.max(0.0d, percentile));
+        long target = Math.max(1L, (long) Math.ceil((p / 100.0d) * total));
+        long accumulated = 0L;
+        for (int index = 0; index < counts.length; index++) {
+            accumulated += counts[index];
+            if (accumulated >= target) {
+                return Math.min(bucketUpperBound(index), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * @param value A non-negative value
+     * @return The index of the bucket holding the value
+     */
+    public static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int sub = (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        return ((shift + 1) << SUB_BUCKET_BITS) + sub;
+    }
+
+    /**
+     * @param index The bucket index
+     * @return The highest value that falls in the bucket
+     */
+    public static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lower = ((long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1)))) << shift;
+        return lower + (1L << shift) - 1L;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount()
+             + ", mean=" + getMean()
+             + ", p50=" + getValueAtPercentile(50.0d)
+             + ", p99=" + getValueAtPercentile(99.0d)
+             + ", max=" + getMax();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.metrics;
+
+import java.util.Map;
+
+/**
+ * Holds the named metrics reported by the various components. Metrics are created
+ * on first access and the same instance is returned for the same name - so the
+ * instrumented code is expected to resolve them once and keep the reference.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ * @see org.apache.sshd.common.FactoryManager#getMetricsRegistry()
+ */
+public interface MetricsRegistry {
+    /**
+     * Number of decoded incoming packets
+     */
+    String SESSION_PACKETS_IN = "session.packets.in";
+    /**
+     * Number of encoded outgoing packets
+     */
+    String SESSION_PACKETS_OUT = "session.packets.out";
+    /**
+     * Number of decoded incoming payload bytes
+     */
+    String SESSION_BYTES_IN = "session.bytes.in";
+    /**
+     * Number of encoded outgoing payload bytes
+     */
+    String SESSION_BYTES_OUT = "session.bytes.out";
+    /**
+     * Number of packets queued while a key exchange is in progress
+     */
+    String SESSION_PACKETS_PENDING = "session.packets.pending";
+    /**
+     * Number of outgoing bytes written but not yet sent by the transport
+     */
+    String SESSION_BYTES_QUEUED = "session.bytes.queued";
+    /**
+     * Duration (nanos) of the key exchanges
+     */
+    String SESSION_KEX_DURATION = "session.kex.duration";
+    /**
+     * Duration (nanos) from session creation to successful authentication
+     */
+    String SESSION_AUTH_DURATION = "session.auth.duration";
+    /**
+     * Number of failed authentication attempts
+     */
+    String AUTH_FAILURES = "auth.failures";
+    /**
+     * Number of successfully opened channels
+     */
+    String CHANNEL_OPENED = "channel.opened";
+    /**
+     * Number of channel open requests that failed
+     */
+    String CHANNEL_OPEN_FAILED = "channel.open.failed";
+    /**
+     * Number of closed channels
+     */
+    String CHANNEL_CLOSED = "channel.closed";
+    /**
+     * Number of times a writer had to wait for the remote window to expand
+     */
+    String WINDOW_STALLS = "window.stalls";
+    /**
+     * Duration (nanos) of the waits for the remote window to expand
+     */
+    String WINDOW_STALL_DURATION = "window.stall.duration";
+    /**
+     * Number of accepted port forwarding connections
+     */
+    String FORWARD_CONNECTIONS = "forward.connections";
+    /**
+     * Number of port forwarding channels currently waiting for the open confirmation
+     */
+    String FORWARD_OPENS_PENDING = "forward.opens.pending";
+    /**
+     * Number of port forwarding channel opens deferred due to too many pending ones
+     */
+    String FORWARD_OPENS_DEFERRED = "forward.opens.deferred";
+    /**
+     * Number of port forwarding channel opens that failed
+     */
+    String FORWARD_OPENS_FAILED = "forward.opens.failed";
+    /**
+     * Duration (nanos) from accepting a port forwarding connection until its
+     * channel is confirmed
+     */
+    String FORWARD_OPEN_DURATION = "forward.open.duration";
+    /**
+     * Prefix of the per-command SFTP latency (nanos) histograms - followed
+     * by the command code - e.g., {@code sftp.5} for {@code SSH_FXP_READ}
+     */
+    String SFTP_COMMAND_PREFIX = "sftp.";
+    /**
+     * Prefix of the per-user metrics (if enabled) - followed by the username
+     * and the metric name - e.g., {@code user.foo.session.bytes.in}
+     * @see org.apache.sshd.common.FactoryManager#METRICS_PER_USER
+     */
+    String USER_PREFIX = "user.";
+
+    /**
+     * @param name The counter name
+     * @return The {@link Counter} registered under this name - created if none existed
+     */
+    Counter getCounter(String name);
+
+    /**
+     * @param name The histogram name
+     * @return The {@link Histogram} registered under this name - created if none existed
+     */
+    Histogram getHistogram(String name);
+
+    /**
+     * @param name  The gauge name
+     * @param gauge The {@link Gauge} to register - replaces any previous one
+     */
+    void registerGauge(String name, Gauge gauge);
+
+    /**
+     * @param name The gauge name
+     * @return The removed {@link Gauge} - {@code null} if none registered
+     */
+    Gauge unregisterGauge(String name);
+
+    /**
+     * @return A snapshot of the registered counters
+     */
+    Map<String, Counter> getCounters();
+
+    /**
+     * @return A snapshot of the registered histograms
+     */
+    Map<String, Histogram> getHistograms();
+
+    /**
+     * @return A snapshot of the registered gauges
+     */
+    Map<String, Gauge> getGauges();
+}
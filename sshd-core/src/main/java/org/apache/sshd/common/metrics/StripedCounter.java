@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link Counter} that spreads the updates over several cells selected
+ * by the updating thread - thus reducing contention when many I/O threads
+ * update the same counter. The cells are padded to avoid false sharing.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class StripedCounter implements Counter {
+    /**
+     * Number of {@code long}s separating 2 cells - 64 bytes cache line
+     */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    public StripedCounter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param concurrency The expected number of concurrently updating threads
+     * - rounded up to a power of 2
+     */
+    public StripedCounter(int concurrency) {
+        int stripes = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        mask = stripes - 1;
+        cells = new AtomicLongArray(stripes * PADDING);
+    }
+
+    @Override
+    public void increment() {
+        add(1L);
+    }
+
+    @Override
+    public void add(long delta) {
+        int index = (int) (Thread.currentThread().getId() & mask);
+        cells.addAndGet(index * PADDING, delta);
+    }
+
+    @Override
+    public long get() {
+        long sum = 0L;
+        for (int index = 0; index < cells.length(); index += PADDING) {
+            sum += cells.get(index);
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.random;
+
+import java.util.Arrays;
+
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * A &quot;random pool&quot; - pre-generates random bytes in bulk using a delegate
+ * {@link Random} and serves small requests (e.g., packet padding) from the
+ * pre-generated bytes. This amortizes the per-call overhead of the delegate,
+ * which is significant for requests of only a few bytes. <B>Note:</B> the
+ * instance is thread-safe, but it is intended to be used by a single session
+ * (or thread) - see {@link PerSessionRandomFactory} and {@link PerThreadRandomFactory}
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class BufferedRandom extends AbstractRandom {
+    /**
+     * Default number of pre-generated bytes
+     */
+    public static final int DEFAULT_POOL_SIZE = 4096;
+
+    private final Random random;
+    private final byte[] pool;
+    private int available;
+
+    public BufferedRandom(Random random) {
+        this(random, DEFAULT_POOL_SIZE);
+    }
+
+    public BufferedRandom(Random random, int poolSize) {
+        this.random = ValidateUtils.checkNotNull(random, "No delegate random");
+        ValidateUtils.checkTrue(poolSize > 0, "Bad pool size: %d", poolSize);
+        this.pool = new byte[poolSize];
+    }
+
+    public final Random getRandom() {
+        return random;
+    }
+
+    public final int getPoolSize() {
+        return pool.length;
+    }
+
+    @Override
+    public synchronized void fill(byte[] bytes, int start, int len) {
+        // large requests gain nothing from the pool
+        if (len >= pool.length) {
+            random.fill(bytes, start, len);
+            return;
+        }
+
+        int offset = start;
+        int remaining = len;
+        while (remaining > 0) {
+            if (available <= 0) {
+                random.fill(pool);
+                available = pool.length;
+            }
+
+            int chunk = Math.min(remaining, available);
+            int poolOffset = pool.length - available;
+            System.arraycopy(pool, poolOffset, bytes, offset, chunk);
+            // make sure the same bytes are never served twice
+            Arrays.fill(pool, poolOffset, poolOffset + chunk, (byte) 0);
+            available -= chunk;
+            offset += chunk;
+            remaining -= chunk;
+        }
+    }
+
+    @Override
+    public synchronized int random(int n) {
+        return random.random(n);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + random + "]";
+    }
+}
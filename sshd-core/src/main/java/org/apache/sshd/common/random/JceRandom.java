@@ -18,20 +18,62 @@
  */
 package org.apache.sshd.common.random;
 
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 
+import org.apache.sshd.common.util.ValidateUtils;
+
 /**
  * A <code>Random</code> implementation using the built-in {@link SecureRandom} PRNG.
  *
  * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
  */
 public class JceRandom extends AbstractRandom {
+    /**
+     * The algorithm used by {@link #createIndependentGenerator()} - chosen since its
+     * state is kept per-instance (unlike the native PRNG which is shared by all instances)
+     */
+    public static final String INDEPENDENT_GENERATOR_ALGORITHM = "SHA1PRNG";
+
+    /**
+     * Size (bytes) of the seed used by {@link #createIndependentGenerator()}
+     */
+    public static final int INDEPENDENT_GENERATOR_SEED_SIZE = 32;
+
+    private static final SecureRandom SEEDER = new SecureRandom();
 
     private byte[] tmp = new byte[16];
-    private final SecureRandom random = new SecureRandom();
+    private final SecureRandom random;
 
     public JceRandom() {
-        super();
+        this(new SecureRandom());
+    }
+
+    public JceRandom(SecureRandom random) {
+        this.random = ValidateUtils.checkNotNull(random, "No generator provided");
+    }
+
+    /**
+     * @return A {@link SecureRandom} whose state is not shared with other generators,
+     * explicitly seeded from the default system generator - suitable for a per-session
+     * or per-thread generator. If the {@link #INDEPENDENT_GENERATOR_ALGORITHM} is not
+     * available then a default {@link SecureRandom} is returned
+     */
+    public static SecureRandom createIndependentGenerator() {
+        SecureRandom generator;
+        try {
+            generator = SecureRandom.getInstance(INDEPENDENT_GENERATOR_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            return new SecureRandom();
+        }
+
+        byte[] seed = new byte[INDEPENDENT_GENERATOR_SEED_SIZE];
+        synchronized (SEEDER) {
+            SEEDER.nextBytes(seed);
+        }
+        // seeding before the first use replaces the self-seeding
+        generator.setSeed(seed);
+        return generator;
     }
 
     @Override
@@ -39,13 +81,11 @@ public class JceRandom extends AbstractRandom {
         if ((start == 0) && (len == foo.length)) {
             random.nextBytes(foo);
         } else {
-            synchronized (this) {
-                if (len > tmp.length) {
-                    tmp = new byte[len];
-                }
-                random.nextBytes(tmp);
-                System.arraycopy(tmp, 0, foo, start, len);
+            if (len > tmp.length) {
+                tmp = new byte[len];
             }
+            random.nextBytes(tmp);
+            System.arraycopy(tmp, 0, foo, start, len);
         }
     }
 
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.random;
+
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.OptionalFeature;
+import org.apache.sshd.common.util.SecurityUtils;
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * A random factory that creates a new independently seeded generator on each
+ * invocation - i.e., each session gets its own generator instead of sharing
+ * (and contending for) a single one as with {@link SingletonRandomFactory}.
+ * The created generators are optionally wrapped in a {@link BufferedRandom}
+ * so that the padding of each packet is served from pre-generated bytes.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class PerSessionRandomFactory implements RandomFactory {
+    private final NamedFactory<Random> factory;
+    private final int poolSize;
+
+    /**
+     * Uses the BouncyCastle generator if registered or an independently
+     * seeded JCE one otherwise, and the {@link BufferedRandom#DEFAULT_POOL_SIZE}
+     */
+    public PerSessionRandomFactory() {
+        this(SecurityUtils.isBouncyCastleRegistered() ? SecurityUtils.getRandomFactory() : IndependentJceRandomFactory.INSTANCE,
+             BufferedRandom.DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * @param factory The {@link NamedFactory} used to create each generator - <B>Note:</B>
+     * it must create a new and independently seeded instance on each invocation
+     * @param poolSize Number of pre-generated bytes - if non-positive then the
+     * generators are not wrapped in a {@link BufferedRandom}
+     */
+    public PerSessionRandomFactory(NamedFactory<Random> factory, int poolSize) {
+        this.factory = ValidateUtils.checkNotNull(factory, "No generator factory");
+        this.poolSize = poolSize;
+    }
+
+    public final NamedFactory<Random> getFactory() {
+        return factory;
+    }
+
+    public final int getPoolSize() {
+        return poolSize;
+    }
+
+    @Override
+    public boolean isSupported() {
+        if (factory instanceof OptionalFeature) {
+            return ((OptionalFeature) factory).isSupported();
+        } else {
+            return true;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return factory.getName();
+    }
+
+    @Override
+    public Random create() {
+        Random random = factory.create();
+        int size = getPoolSize();
+        return (size > 0) ? new BufferedRandom(random, size) : random;
+    }
+
+    /**
+     * Creates {@link JceRandom}s that do not share their state
+     *
+     * @see JceRandom#createIndependentGenerator()
+     */
+    public static class IndependentJceRandomFactory implements RandomFactory {
+        public static final IndependentJceRandomFactory INSTANCE = new IndependentJceRandomFactory();
+
+        public IndependentJceRandomFactory() {
+            super();
+        }
+
+        @Override
+        public String getName() {
+            return JceRandomFactory.INSTANCE.getName();
+        }
+
+        @Override
+        public boolean isSupported() {
+            return true;
+        }
+
+        @Override
+        public Random create() {
+            return new JceRandom(JceRandom.createIndependentGenerator());
+        }
+    }
+}
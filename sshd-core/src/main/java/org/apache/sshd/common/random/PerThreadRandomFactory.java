@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.random;
+
+import org.apache.sshd.common.util.ValidateUtils;
+
+/**
+ * A random factory that uses a single random instance (like the {@link SingletonRandomFactory})
+ * which delegates to a separate generator per thread - thus avoiding contention between
+ * threads that generate random data concurrently (e.g., the padding of packets sent by
+ * different sessions)
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class PerThreadRandomFactory extends AbstractRandom implements RandomFactory {
+    private final RandomFactory factory;
+    private final ThreadLocal<Random> generators = new ThreadLocal<Random>() {
+        @SuppressWarnings("synthetic-access")
+        @Override
+        protected Random initialValue() {
+            return factory.create();
+        }
+    };
+
+    public PerThreadRandomFactory() {
+        this(new PerSessionRandomFactory());
+    }
+
+    /**
+     * @param factory The {@link RandomFactory} used to create the generator of each
+     * thread - <B>Note:</B> it must create a new and independently seeded instance on
+     * each invocation - e.g., {@link PerSessionRandomFactory}
+     */
+    public PerThreadRandomFactory(RandomFactory factory) {
+        this.factory = ValidateUtils.checkNotNull(factory, "No generator factory");
+    }
+
+    public final RandomFactory getFactory() {
+        return factory;
+    }
+
+    @Override
+    public boolean isSupported() {
+        return factory.isSupported();
+    }
+
+    @Override
+    public String getName() {
+        return factory.getName();
+    }
+
+    @Override
+    public void fill(byte[] bytes, int start, int len) {
+        generators.get().fill(bytes, start, len);
+    }
+
+    @Override
+    public int random(int max) {
+        return generators.get().random(max);
+    }
+
+    @Override
+    public Random create() {
+        return this;
+    }
+}
@@ -30,8 +30,8 @@ import org.apache.sshd.client.channel.AbstractClientChannel;
 import org.apache.sshd.client.future.OpenFuture;
 import org.apache.sshd.common.Closeable;
 import org.apache.sshd.common.FactoryManager;
-import org.apache.sshd.common.FactoryManagerUtils;
 import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.PropertyKey;
 import org.apache.sshd.common.SshConstants;
 import org.apache.sshd.common.SshException;
 import org.apache.sshd.common.channel.Channel;
@@ -39,6 +39,8 @@ import org.apache.sshd.common.channel.RequestHandler;
 import org.apache.sshd.common.forward.TcpipForwarder;
 import org.apache.sshd.common.forward.TcpipForwarderFactory;
 import org.apache.sshd.common.future.SshFutureListener;
+import org.apache.sshd.common.metrics.Counter;
+import org.apache.sshd.common.metrics.MetricsRegistry;
 import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.common.util.Int2IntFunction;
 import org.apache.sshd.common.util.ValidateUtils;
@@ -75,6 +77,7 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
      */
     public static final String MAX_CONCURRENT_CHANNELS_PROP = "max-sshd-channels";
     public static final int DEFAULT_MAX_CHANNELS = Integer.MAX_VALUE;
+    public static final PropertyKey<Integer> MAX_CONCURRENT_CHANNELS_KEY = PropertyKey.intKey(MAX_CONCURRENT_CHANNELS_PROP, DEFAULT_MAX_CHANNELS);
 
     /**
      * Default growth factor function used to resize response buffers
@@ -100,6 +103,13 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
     protected final X11ForwardSupport x11Forward;
     protected boolean allowMoreSessions = true;
 
+    /**
+     * Channels metrics - {@code null} if no {@link MetricsRegistry} configured
+     */
+    protected final Counter channelOpenedMetric;
+    protected final Counter channelOpenFailedMetric;
+    protected final Counter channelClosedMetric;
+
     protected AbstractConnectionService(Session session) {
         ValidateUtils.checkTrue(session instanceof AbstractSession, "Not an AbstractSession");
         this.session = (AbstractSession) session;
@@ -112,6 +122,11 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
                 "No forwarder factory",
                 GenericUtils.EMPTY_OBJECT_ARRAY);
         tcpipForwarder = factory.create(this);
+
+        MetricsRegistry metrics = manager.getMetricsRegistry();
+        channelOpenedMetric = (metrics == null) ? null : metrics.getCounter(MetricsRegistry.CHANNEL_OPENED);
+        channelOpenFailedMetric = (metrics == null) ? null : metrics.getCounter(MetricsRegistry.CHANNEL_OPEN_FAILED);
+        channelClosedMetric = (metrics == null) ? null : metrics.getCounter(MetricsRegistry.CHANNEL_CLOSED);
     }
 
     public Collection<Channel> getChannels() {
@@ -147,7 +162,7 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
 
     @Override
     public int registerChannel(Channel channel) throws IOException {
-        int maxChannels = FactoryManagerUtils.getIntProperty(session, MAX_CONCURRENT_CHANNELS_PROP, DEFAULT_MAX_CHANNELS);
+        int maxChannels = MAX_CONCURRENT_CHANNELS_KEY.get(session);
         int curSize = channels.size();
         if (curSize > maxChannels) {
             throw new IllegalStateException("Currently active channels (" + curSize + ") at max.: " + maxChannels);
@@ -162,6 +177,7 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
 
             channels.put(channelId, channel);
         }
+        session.recordEvent(channelId, "ChannelRegistered " + channel.getClass().getSimpleName());
 
         if (log.isDebugEnabled()) {
             log.debug("registerChannel(id={}) {}", Integer.valueOf(channelId), channel);
@@ -176,7 +192,20 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
      */
     @Override
     public void unregisterChannel(Channel channel) {
-        channels.remove(channel.getId());
+        int channelId = channel.getId();
+        if (channels.remove(channelId) != null) {
+            session.recordEvent(channelId, "ChannelUnregistered");
+            incrementMetric(channelClosedMetric);
+        }
+    }
+
+    /**
+     * @param counter The {@link Counter} to increment - ignored if {@code null}
+     */
+    protected void incrementMetric(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
     }
 
     @Override
@@ -240,6 +269,7 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
         int rwsize = buffer.getInt();
         int rmpsize = buffer.getInt();
         channel.handleOpenSuccess(recipient, rwsize, rmpsize, buffer);
+        incrementMetric(channelOpenedMetric);
     }
 
     public void channelOpenFailure(Buffer buffer) throws IOException {
@@ -249,6 +279,7 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
             log.debug("Received SSH_MSG_CHANNEL_OPEN_FAILURE on channel {}", id);
         }
         channels.remove(id);
+        incrementMetric(channelOpenFailedMetric);
         channel.handleOpenFailure(buffer);
     }
 
@@ -366,6 +397,7 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
             buf.putString("SSH server is shutting down: " + type);
             buf.putString("");
             session.writePacket(buf);
+            incrementMetric(channelOpenFailedMetric);
             return;
         }
         if (!allowMoreSessions) {
@@ -375,6 +407,7 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
             buf.putString("additional sessions disabled");
             buf.putString("");
             session.writePacket(buf);
+            incrementMetric(channelOpenFailedMetric);
             return;
         }
 
@@ -386,6 +419,7 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
             buf.putString("Unsupported channel type: " + type);
             buf.putString("");
             session.writePacket(buf);
+            incrementMetric(channelOpenFailedMetric);
             return;
         }
 
@@ -395,6 +429,7 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
             public void operationComplete(OpenFuture future) {
                 try {
                     if (future.isOpened()) {
+                        incrementMetric(channelOpenedMetric);
                         Buffer buf = session.createBuffer(SshConstants.SSH_MSG_CHANNEL_OPEN_CONFIRMATION, Integer.SIZE);
                         buf.putInt(id);
                         buf.putInt(channelId);
@@ -402,6 +437,7 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
                         buf.putInt(channel.getLocalWindow().getPacketSize());
                         session.writePacket(buf);
                     } else {
+                        incrementMetric(channelOpenFailedMetric);
                         Throwable exception = future.getException();
                         if (exception != null) {
                             String message = exception.getMessage();
@@ -474,9 +510,10 @@ public abstract class AbstractConnectionService extends AbstractInnerCloseable i
             return;
         }
 
+        // global requests are answered with the global (not the channel) response messages - RFC 4254 section 4
         byte cmd = RequestHandler.Result.ReplySuccess.equals(result)
-                 ? SshConstants.SSH_MSG_CHANNEL_SUCCESS
-                 : SshConstants.SSH_MSG_CHANNEL_FAILURE;
+                 ? SshConstants.SSH_MSG_REQUEST_SUCCESS
+                 : SshConstants.SSH_MSG_REQUEST_FAILURE;
         buffer.clear();
         // leave room for the SSH header
         buffer.ensureCapacity(5 + 1 + (Integer.SIZE / Byte.SIZE), RESPONSE_BUFFER_GROWTH_FACTOR);
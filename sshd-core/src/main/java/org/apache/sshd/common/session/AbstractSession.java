@@ -19,8 +19,9 @@
 package org.apache.sshd.common.session;
 
 import java.io.IOException;
-import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumMap;
 import java.util.LinkedList;
@@ -46,9 +47,13 @@ import org.apache.sshd.common.SshException;
 import org.apache.sshd.common.channel.ChannelListener;
 import org.apache.sshd.common.cipher.Cipher;
 import org.apache.sshd.common.compression.Compression;
+import org.apache.sshd.common.compression.CompressionAdaptiveZlib;
+import org.apache.sshd.common.compression.CompressionStatistics;
 import org.apache.sshd.common.digest.Digest;
+import org.apache.sshd.common.future.DefaultGlobalRequestFuture;
 import org.apache.sshd.common.future.DefaultKeyExchangeFuture;
 import org.apache.sshd.common.future.DefaultSshFuture;
+import org.apache.sshd.common.future.GlobalRequestFuture;
 import org.apache.sshd.common.future.KeyExchangeFuture;
 import org.apache.sshd.common.future.SshFutureListener;
 import org.apache.sshd.common.io.IoSession;
@@ -57,6 +62,9 @@ import org.apache.sshd.common.kex.KexProposalOption;
 import org.apache.sshd.common.kex.KexState;
 import org.apache.sshd.common.kex.KeyExchange;
 import org.apache.sshd.common.mac.Mac;
+import org.apache.sshd.common.metrics.Counter;
+import org.apache.sshd.common.metrics.Histogram;
+import org.apache.sshd.common.metrics.MetricsRegistry;
 import org.apache.sshd.common.random.Random;
 import org.apache.sshd.common.util.EventListenerUtils;
 import org.apache.sshd.common.util.GenericUtils;
@@ -66,6 +74,7 @@ import org.apache.sshd.common.util.buffer.Buffer;
 import org.apache.sshd.common.util.buffer.BufferUtils;
 import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
 import org.apache.sshd.common.util.closeable.AbstractInnerCloseable;
+import org.apache.sshd.common.util.threads.ThreadUtils;
 
 /**
  * <P>
@@ -149,21 +158,45 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
     protected Cipher inCipher;
     protected int outCipherSize = 8;
     protected int inCipherSize = 8;
+    /**
+     * Size of the authentication tag appended by an AEAD cipher - zero if the cipher is not an AEAD one
+     */
+    protected int outCipherAuthSize;
+    protected int inCipherAuthSize;
+    /**
+     * Whether the MAC is an encrypt-then-mac one - i.e., computed over the encrypted
+     * packet, in which case the packet length is not encrypted
+     */
+    protected boolean outMacEtm;
+    protected boolean inMacEtm;
     protected Mac outMac;
     protected Mac inMac;
     protected byte[] inMacResult;
     protected Compression outCompression;
     protected Compression inCompression;
+    protected final CompressionStatistics outCompressionStatistics = new CompressionStatistics();
+    protected final CompressionStatistics inCompressionStatistics = new CompressionStatistics();
     protected long seqi;
     protected long seqo;
     protected Buffer decoderBuffer = new ByteArrayBuffer();
     protected Buffer uncompressBuffer;
+    // the data being decoded (if any) - packets written from it must be copied since it is re-used once decoded
+    private volatile byte[] decodingData;
     protected int decoderState;
     protected int decoderLength;
     protected final Object encodeLock = new Object();
     protected final Object decodeLock = new Object();
-    protected final Object requestLock = new Object();
-    protected final AtomicReference<Buffer> requestResult = new AtomicReference<>();
+    /**
+     * Encodes the outgoing packets concurrently - {@code null} if not enabled
+     *
+     * @see FactoryManager#PARALLEL_ENCODER_THREADS
+     */
+    protected final ParallelPacketEncoder parallelEncoder;
+    /**
+     * Global requests awaiting a response - in the order they were sent, since
+     * the responses are sent in the same order (RFC 4254 section 4)
+     */
+    protected final Queue<DefaultGlobalRequestFuture> pendingGlobalRequests = new LinkedList<>();
     protected final Map<AttributeKey<?>, Object> attributes = new ConcurrentHashMap<>();
 
     // Session timeout
@@ -183,6 +216,41 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
     protected final AtomicLong outBytesCount = new AtomicLong(0L);
     protected final AtomicLong lastKeyTimeValue = new AtomicLong(0L);
     protected final Queue<PendingWriteFuture> pendingPackets = new LinkedList<>();
+    /**
+     * Outbound bytes accounting and writability
+     */
+    protected final AtomicLong queuedOutboundBytes = new AtomicLong(0L);
+    protected final Collection<SessionWritabilityListener> writabilityListeners = new CopyOnWriteArraySet<>();
+    protected final Object writabilityLock = new Object();
+    protected final long outboundHighWatermark;
+    protected final long outboundLowWatermark;
+    protected volatile boolean writable = true;
+
+    //
+    // Metrics - {@code null} if no registry configured
+    //
+    protected final MetricsRegistry metricsRegistry;
+    protected final Counter inPacketsMetric;
+    protected final Counter outPacketsMetric;
+    protected final Counter inBytesMetric;
+    protected final Counter outBytesMetric;
+    protected final Counter pendingPacketsMetric;
+    protected final Counter queuedBytesMetric;
+    // the pending packets are no longer reported once the session is closed - guarded by the pending packets lock
+    private boolean pendingPacketsMetricReleased;
+    // the queued bytes this session contributes to the shared metric - Long.MIN_VALUE once the session is closed
+    private final AtomicLong queuedBytesContribution = new AtomicLong(0L);
+    protected final Histogram kexDurationMetric;
+    protected final Histogram authDurationMetric;
+    protected volatile Counter userInBytesMetric;
+    protected volatile Counter userOutBytesMetric;
+    protected final long creationNanos = System.nanoTime();
+    protected volatile long kexStartNanos;
+
+    /**
+     * Packets and events recorder - {@code null} if disabled
+     */
+    protected final FlightRecorder flightRecorder;
 
     protected Service currentService;
 
@@ -212,6 +280,42 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
         authTimeoutTimestamp = System.currentTimeMillis() + authTimeoutMs;
         idleTimeoutMs = getLongProperty(FactoryManager.IDLE_TIMEOUT, idleTimeoutMs);
         disconnectTimeoutMs = getLongProperty(FactoryManager.DISCONNECT_TIMEOUT, disconnectTimeoutMs);
+        outboundHighWatermark = getLongProperty(FactoryManager.OUTBOUND_HIGH_WATERMARK, FactoryManager.DEFAULT_OUTBOUND_HIGH_WATERMARK);
+        outboundLowWatermark = Math.min(outboundHighWatermark,
+                getLongProperty(FactoryManager.OUTBOUND_LOW_WATERMARK, FactoryManager.DEFAULT_OUTBOUND_LOW_WATERMARK));
+
+        int encoderThreads = getIntProperty(FactoryManager.PARALLEL_ENCODER_THREADS, FactoryManager.DEFAULT_PARALLEL_ENCODER_THREADS);
+        if (encoderThreads > 0) {
+            parallelEncoder = new ParallelPacketEncoder(this,
+                    ThreadUtils.newFixedThreadPool(getClass().getSimpleName() + "-encoder", encoderThreads),
+                    getIntProperty(FactoryManager.PARALLEL_ENCODER_MIN_PACKET_SIZE, FactoryManager.DEFAULT_PARALLEL_ENCODER_MIN_PACKET_SIZE));
+        } else {
+            parallelEncoder = null;
+        }
+
+        int recorderSize = getIntProperty(FactoryManager.FLIGHT_RECORDER_SIZE, FactoryManager.DEFAULT_FLIGHT_RECORDER_SIZE);
+        flightRecorder = (recorderSize > 0) ? new FlightRecorder(recorderSize) : null;
+
+        metricsRegistry = factoryManager.getMetricsRegistry();
+        if (metricsRegistry != null) {
+            inPacketsMetric = metricsRegistry.getCounter(MetricsRegistry.SESSION_PACKETS_IN);
+            outPacketsMetric = metricsRegistry.getCounter(MetricsRegistry.SESSION_PACKETS_OUT);
+            inBytesMetric = metricsRegistry.getCounter(MetricsRegistry.SESSION_BYTES_IN);
+            outBytesMetric = metricsRegistry.getCounter(MetricsRegistry.SESSION_BYTES_OUT);
+            pendingPacketsMetric = metricsRegistry.getCounter(MetricsRegistry.SESSION_PACKETS_PENDING);
+            queuedBytesMetric = metricsRegistry.getCounter(MetricsRegistry.SESSION_BYTES_QUEUED);
+            kexDurationMetric = metricsRegistry.getHistogram(MetricsRegistry.SESSION_KEX_DURATION);
+            authDurationMetric = metricsRegistry.getHistogram(MetricsRegistry.SESSION_AUTH_DURATION);
+        } else {
+            inPacketsMetric = null;
+            outPacketsMetric = null;
+            inBytesMetric = null;
+            outBytesMetric = null;
+            pendingPacketsMetric = null;
+            queuedBytesMetric = null;
+            kexDurationMetric = null;
+            authDurationMetric = null;
+        }
     }
 
     /**
@@ -270,6 +374,23 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
         return kex;
     }
 
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    /**
+     * Records a lifecycle event in the {@link FlightRecorder} (if enabled)
+     *
+     * @param channel The associated channel identifier - or {@link FlightRecorder#NO_CHANNEL}
+     * @param note The event description
+     */
+    public void recordEvent(int channel, String note) {
+        if (flightRecorder != null) {
+            flightRecorder.recordEvent(channel, note);
+        }
+    }
+
     @Override
     public byte[] getSessionId() {
         // return a clone to avoid anyone changing the internal value
@@ -305,16 +426,60 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
     @Override
     public void setAuthenticated() throws IOException {
         this.authed = true;
+        if (metricsRegistry != null) {
+            authDurationMetric.record(System.nanoTime() - creationNanos);
+            if (FactoryManagerUtils.getBooleanProperty(factoryManager, FactoryManager.METRICS_PER_USER, FactoryManager.DEFAULT_METRICS_PER_USER)
+                    && (!GenericUtils.isEmpty(username))) {
+                String prefix = MetricsRegistry.USER_PREFIX + username + ".";
+                userInBytesMetric = metricsRegistry.getCounter(prefix + MetricsRegistry.SESSION_BYTES_IN);
+                userOutBytesMetric = metricsRegistry.getCounter(prefix + MetricsRegistry.SESSION_BYTES_OUT);
+            }
+        }
         sendSessionEvent(SessionListener.Event.Authenticated);
     }
 
+    /**
+     * Reports a decoded incoming packet to the metrics - called only if
+     * a {@link MetricsRegistry} is configured
+     *
+     * @param len The packet payload length
+     */
+    protected void recordInboundPacket(int len) {
+        inPacketsMetric.increment();
+        inBytesMetric.add(len);
+
+        Counter userMetric = userInBytesMetric;
+        if (userMetric != null) {
+            userMetric.add(len);
+        }
+    }
+
+    /**
+     * Reports an encoded outgoing packet to the metrics - called only if
+     * a {@link MetricsRegistry} is configured
+     *
+     * @param len The packet payload length
+     */
+    protected void recordOutboundPacket(int len) {
+        outPacketsMetric.increment();
+        outBytesMetric.add(len);
+
+        Counter userMetric = userOutBytesMetric;
+        if (userMetric != null) {
+            userMetric.add(len);
+        }
+    }
+
     /**
      * <P>Main input point for the MINA framework.</P>
      *
      * <P>
      * This method will be called each time new data is received on
-     * the socket and will append it to the input buffer before
-     * calling the {@link #decode()} method.
+     * the socket. If the data is available as a {@link Buffer} then the
+     * packets it fully contains are decoded in place, and only a partial
+     * trailing packet is copied to the input buffer. Otherwise, the data
+     * is appended to the input buffer before calling the {@link #decode()}
+     * method.
      * </P>
      *
      * @param buffer the new buffer received
@@ -322,20 +487,66 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
      */
     public void messageReceived(Readable buffer) throws Exception {
         synchronized (decodeLock) {
-            decoderBuffer.putBuffer(buffer);
             // One of those property will be set by the constructor and the other
             // one should be set by the readIdentification method
             if (clientVersion == null || serverVersion == null) {
+                decoderBuffer.putBuffer(buffer);
                 if (readIdentification(decoderBuffer)) {
                     decoderBuffer.compact();
                 } else {
                     return;
                 }
+                decode();
+            } else if (buffer instanceof Buffer) {
+                decodeInPlace((Buffer) buffer);
+            } else {
+                decoderBuffer.putBuffer(buffer);
+                decode();
             }
-            decode();
         }
     }
 
+    /**
+     * Decodes the packets fully contained in the received data without copying
+     * them to the input buffer. If a partial packet is pending in the input buffer
+     * then only the bytes required to complete it are copied from the received
+     * data. A partial trailing packet is copied to the input buffer.
+     *
+     * @param buffer The received data - <B>Note:</B> the data is decrypted in place
+     * @throws Exception If failed to decode
+     */
+    protected void decodeInPlace(Buffer buffer) throws Exception {
+        while ((decoderBuffer.available() > 0) && (buffer.available() > 0)) {
+            int required;
+            if (decoderState == 0) {
+                required = inCipherSize + 1;
+            } else {
+                int macSize = inMac != null ? inMac.getBlockSize() : 0;
+                required = decoderLength + 4 + macSize + inCipherAuthSize;
+            }
+
+            int len = Math.min(required - decoderBuffer.available(), buffer.available());
+            if (len <= 0) {
+                break;  // can happen only if decode() did not consume the pending data - i.e., a bug
+            }
+
+            int rpos = buffer.rpos();
+            decoderBuffer.putRawBytes(buffer.array(), rpos, len);
+            buffer.rpos(rpos + len);
+            decode();
+        }
+
+        if (decoderBuffer.available() > 0) {
+            // the pending packet is still incomplete, so the received data has been consumed
+            return;
+        }
+
+        decode(buffer);
+        if (buffer.available() > 0) {
+            decoderBuffer.compact();
+            decoderBuffer.putBuffer(buffer);
+        }
+    }
 
     /**
      * Abstract method for processing incoming decoded packets.
@@ -434,6 +645,9 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
         if (log.isDebugEnabled()) {
             log.debug("Received SSH_MSG_DISCONNECT (reason={}, msg={})", Integer.valueOf(code), msg);
         }
+        if ((flightRecorder != null) && (code != SshConstants.SSH2_DISCONNECT_BY_APPLICATION)) {
+            flightRecorder.trigger("Received disconnect reason=" + code + ": " + msg);
+        }
         close(true);
     }
 
@@ -501,12 +715,27 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
                 synchronized (encodeLock) {
                     PendingWriteFuture future;
                     while ((future = pendingPackets.poll()) != null) {
+                        if ((pendingPacketsMetric != null) && (!pendingPacketsMetricReleased)) {
+                            pendingPacketsMetric.add(-1L);
+                        }
                         doWritePacket(future.getBuffer()).addListener(future);
                     }
                 }
             }
             kexState.set(KexState.DONE);
         }
+
+        if ((kexDurationMetric != null) && (kexStartNanos != 0L)) {
+            kexDurationMetric.record(System.nanoTime() - kexStartNanos);
+        }
+        notifyStateChanged();
+    }
+
+    /**
+     * Invoked when the session state (e.g., KEX) has changed - wakes up
+     * any threads waiting on the session's lock
+     */
+    protected void notifyStateChanged() {
         synchronized (lock) {
             lock.notifyAll();
         }
@@ -536,6 +765,11 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
             }
         }
         log.warn("Exception caught", t);
+        if (flightRecorder != null) {
+            String reason = t.getClass().getSimpleName() + ": " + t.getMessage();
+            flightRecorder.recordEvent(FlightRecorder.NO_CHANNEL, reason);
+            flightRecorder.trigger(reason);
+        }
         if (t instanceof SshException) {
             int code = ((SshException) t).getDisconnectCode();
             if (code > 0) {
@@ -574,6 +808,9 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
             }
         }
 
+        // fail any global requests still awaiting a response
+        failPendingGlobalRequests(new SshException("Session closing while global request in progress"));
+
         // Fire 'close' event
         SessionListener listener = getSessionListenerProxy();
         try {
@@ -585,11 +822,48 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
             // clear the listeners since we are closing the session (quicker GC)
             this.sessionListeners.clear();
             this.channelListeners.clear();
+            this.writabilityListeners.clear();
+        }
+
+        // release any writers waiting for the session to become writable
+        synchronized (writabilityLock) {
+            writabilityLock.notifyAll();
         }
 
         super.preClose();
     }
 
+    @Override
+    protected void doCloseImmediately() {
+        if (parallelEncoder != null) {
+            parallelEncoder.close();
+        }
+        releaseQueueMetrics();
+        super.doCloseImmediately();
+    }
+
+    /**
+     * Removes the packets and bytes still queued by the closed session from
+     * the shared metrics - any later updates are ignored
+     */
+    protected void releaseQueueMetrics() {
+        if (pendingPacketsMetric != null) {
+            synchronized (pendingPackets) {
+                if (!pendingPacketsMetricReleased) {
+                    pendingPacketsMetricReleased = true;
+                    pendingPacketsMetric.add(-pendingPackets.size());
+                }
+            }
+        }
+
+        if (queuedBytesMetric != null) {
+            long outstanding = queuedBytesContribution.getAndSet(Long.MIN_VALUE);
+            if ((outstanding != Long.MIN_VALUE) && (outstanding != 0L)) {
+                queuedBytesMetric.add(-outstanding);
+            }
+        }
+    }
+
     protected Service[] getServices() {
         return currentService != null ? new Service[]{currentService} : new Service[0];
     }
@@ -615,6 +889,58 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
      */
     @Override
     public IoWriteFuture writePacket(Buffer buffer) throws IOException {
+        buffer = detachFromDecoder(buffer);
+        final int len = buffer.available();
+        updateQueuedOutboundBytes(len);
+
+        IoWriteFuture future;
+        try {
+            future = enqueuePacket(buffer);
+        } catch (IOException | RuntimeException e) {
+            updateQueuedOutboundBytes(-len);
+            throw e;
+        }
+
+        future.addListener(new SshFutureListener<IoWriteFuture>() {
+            @Override
+            public void operationComplete(IoWriteFuture f) {
+                updateQueuedOutboundBytes(-len);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Handlers may build their reply in the buffer of the packet they handle - which is
+     * either the transport's read buffer (when decoding in place) or one of the decoder's
+     * buffers. Such buffers are re-used once the packet is handled, whereas the written
+     * packet may be queued until actually sent, so it is copied to a buffer of its own
+     *
+     * @param buffer The {@link Buffer} to be written
+     * @return The same buffer if not shared with the decoder, a copy otherwise
+     */
+    protected Buffer detachFromDecoder(Buffer buffer) {
+        byte[] data = buffer.array();
+        if ((data != decodingData) && ((uncompressBuffer == null) || (data != uncompressBuffer.array()))) {
+            return buffer;
+        }
+
+        // keep the same offsets since the encoding uses the space preceding the read position
+        int rpos = buffer.rpos();
+        int wpos = buffer.wpos();
+        Buffer copy = new ByteArrayBuffer(Arrays.copyOf(data, wpos), 0, wpos);
+        copy.rpos(rpos);
+        return copy;
+    }
+
+    /**
+     * Sends the packet - or queues it if a key exchange is in progress
+     *
+     * @param buffer the buffer to encode and send
+     * @return a future that can be used to check when the packet has actually been sent
+     * @throws IOException if an error occurred when encoding sending the packet
+     */
+    protected IoWriteFuture enqueuePacket(Buffer buffer) throws IOException {
         // While exchanging key, queue high level packets
         if (!KexState.DONE.equals(kexState.get())) {
             byte cmd = buffer.array()[buffer.rpos()];
@@ -626,6 +952,9 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
                         }
                         PendingWriteFuture future = new PendingWriteFuture(buffer);
                         pendingPackets.add(future);
+                        if ((pendingPacketsMetric != null) && (!pendingPacketsMetricReleased)) {
+                            pendingPacketsMetric.increment();
+                        }
                         return future;
                     }
                 }
@@ -668,6 +997,10 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
         // and also queue the write request in this synchronized block to ensure
         // packets are sent in the correct order
         synchronized (encodeLock) {
+            if (parallelEncoder != null) {
+                return encodeParallel(buffer);
+            }
+
             encode(buffer);
             return ioSession.write(buffer);
         }
@@ -676,25 +1009,77 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
     /**
      * Send a global request and wait for the response.
      * This must only be used when sending a SSH_MSG_GLOBAL_REQUEST with a result expected,
-     * else it will wait forever.
+     * else it will wait until the session is closed.
      *
      * @param buffer the buffer containing the global request
-     * @return <code>true</code> if the request was successful, <code>false</code> otherwise.
+     * @return the return buffer if the request was successful, {@code null} otherwise.
      * @throws IOException if an error occurred when encoding sending the packet
+     * @see #request(Buffer, long, TimeUnit)
      */
     @Override
     public Buffer request(Buffer buffer) throws IOException {
-        synchronized (requestLock) {
+        return request(buffer, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Buffer request(Buffer buffer, long timeout, TimeUnit unit) throws IOException {
+        GlobalRequestFuture future = requestAsync(buffer);
+        future.verify(timeout, unit);
+        return future.getResponse();
+    }
+
+    @Override
+    public GlobalRequestFuture requestAsync(Buffer buffer) throws IOException {
+        DefaultGlobalRequestFuture future = new DefaultGlobalRequestFuture(resolveGlobalRequestName(buffer), null);
+        // register and send under the same lock so that the registration order matches the order on the wire
+        synchronized (pendingGlobalRequests) {
+            if (isClosing() || (!isOpen())) {
+                throw new SshException("Session is closing - cannot send global request=" + future.getRequestName());
+            }
+
+            pendingGlobalRequests.add(future);
             try {
-                synchronized (requestResult) {
-                    writePacket(buffer);
-                    requestResult.wait();
-                    return requestResult.get();
-                }
-            } catch (InterruptedException e) {
-                throw (InterruptedIOException) new InterruptedIOException("Interrupted while waiting for request result").initCause(e);
+                writePacket(buffer);
+            } catch (IOException | RuntimeException e) {
+                pendingGlobalRequests.remove(future);
+                throw e;
             }
         }
+
+        if (log.isDebugEnabled()) {
+            log.debug("requestAsync(" + this + ") sent global request=" + future.getRequestName());
+        }
+        return future;
+    }
+
+    /**
+     * @param buffer The {@link Buffer} containing the {@code SSH_MSG_GLOBAL_REQUEST} packet -
+     * starting at the command byte
+     * @return The request name - used for logging and debugging
+     */
+    protected String resolveGlobalRequestName(Buffer buffer) {
+        int rpos = buffer.rpos();
+        try {
+            buffer.rpos(rpos + 1);  // skip the command
+            return buffer.getString();
+        } catch (RuntimeException e) {
+            return "<unknown>";
+        } finally {
+            buffer.rpos(rpos);
+        }
+    }
+
+    protected void failPendingGlobalRequests(Throwable reason) {
+        for (;;) {
+            DefaultGlobalRequestFuture future;
+            synchronized (pendingGlobalRequests) {
+                future = pendingGlobalRequests.poll();
+            }
+            if (future == null) {
+                return;
+            }
+            future.setValue(reason);
+        }
     }
 
     @Override
@@ -722,6 +1107,7 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
         if (outMac != null) {
             len += outMac.getBlockSize();
         }
+        len += outCipherAuthSize;
 
         return prepareBuffer(cmd, new ByteArrayBuffer(new byte[Math.max(len, ByteArrayBuffer.DEFAULT_SIZE)], false));
     }
@@ -744,63 +1130,56 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
      */
     protected void encode(Buffer buffer) throws IOException {
         try {
-            // Check that the packet has some free space for the header
-            if (buffer.rpos() < 5) {
-                log.warn("Performance cost: when sending a packet, ensure that "
-                        + "5 bytes are available in front of the buffer");
-                Buffer nb = new ByteArrayBuffer();
-                nb.wpos(5);
-                nb.putBuffer(buffer);
-                buffer = nb;
+            buffer = ensureHeaderSpace(buffer);
+            if (flightRecorder != null) {
+                flightRecorder.recordPacket(FlightRecorder.Kind.OUTBOUND, buffer);
             }
-            // Grab the length of the packet (excluding the 5 header bytes)
-            int len = buffer.available();
             int off = buffer.rpos() - 5;
-            // Debug log the packet
-            if (log.isTraceEnabled()) {
-                log.trace("Sending packet #{}: {}", Long.valueOf(seqo), buffer.printHex());
-            }
-            // Compress the packet if needed
-            if (outCompression != null && (authed || !outCompression.isDelayed())) {
-                outCompression.compress(buffer);
-                len = buffer.available();
-            }
-            // Compute padding length
-            int bsize = outCipherSize;
-            int oldLen = len;
-            len += 5;
-            int pad = (-len) & (bsize - 1);
-            if (pad < bsize) {
-                pad += bsize;
-            }
-            len = len + pad - 4;
-            // Write 5 header bytes
-            buffer.wpos(off);
-            buffer.putInt(len);
-            buffer.putByte((byte) pad);
-            // Fill padding
-            buffer.wpos(off + oldLen + 5 + pad);
-            random.fill(buffer.array(), buffer.wpos() - pad, pad);
-            // Compute mac
-            if (outMac != null) {
-                int macSize = outMac.getBlockSize();
-                int l = buffer.wpos();
-                buffer.wpos(l + macSize);
-                outMac.updateUInt(seqo);
-                outMac.update(buffer.array(), off, l);
-                outMac.doFinal(buffer.array(), l);
+            int len = preparePacket(buffer);
+            sealPacket(buffer, off, len, seqo, outCipher, outMac);
+            // Increment packet id
+            seqo = (seqo + 1) & 0xffffffffL;
+            // Update stats
+            outPacketsCount.incrementAndGet();
+            outBytesCount.addAndGet(len);
+            if (outPacketsMetric != null) {
+                recordOutboundPacket(len);
             }
-            // Encrypt packet, excluding mac
-            if (outCipher != null) {
-                outCipher.update(buffer.array(), off, len + 4);
+        } catch (SshException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SshException(e);
+        }
+    }
+
+    /**
+     * Encode a buffer into the SSH protocol via the {@link ParallelPacketEncoder}.
+     * The sequence number and the padding are assigned by the calling thread,
+     * while the encryption and MAC may be carried out by another thread.
+     * This method need to be called into a synchronized block around encodeLock
+     *
+     * @param buffer the buffer to encode
+     * @return a future that can be used to check when the packet has actually been sent
+     * @throws IOException if an exception occurs during the encoding process
+     */
+    protected IoWriteFuture encodeParallel(Buffer buffer) throws IOException {
+        try {
+            buffer = ensureHeaderSpace(buffer);
+            if (flightRecorder != null) {
+                flightRecorder.recordPacket(FlightRecorder.Kind.OUTBOUND, buffer);
             }
+            int off = buffer.rpos() - 5;
+            int len = preparePacket(buffer);
+            IoWriteFuture future = parallelEncoder.submit(buffer, off, len, seqo);
             // Increment packet id
             seqo = (seqo + 1) & 0xffffffffL;
             // Update stats
             outPacketsCount.incrementAndGet();
             outBytesCount.addAndGet(len);
-            // Make buffer ready to be read
-            buffer.rpos(off);
+            if (outPacketsMetric != null) {
+                recordOutboundPacket(len);
+            }
+            return future;
         } catch (SshException e) {
             throw e;
         } catch (Exception e) {
@@ -808,29 +1187,159 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
         }
     }
 
+    protected Buffer ensureHeaderSpace(Buffer buffer) {
+        // Check that the packet has some free space for the header
+        if (buffer.rpos() < 5) {
+            log.warn("Performance cost: when sending a packet, ensure that "
+                    + "5 bytes are available in front of the buffer");
+            Buffer nb = new ByteArrayBuffer();
+            nb.wpos(5);
+            nb.putBuffer(buffer);
+            buffer = nb;
+        }
+        return buffer;
+    }
+
+    /**
+     * Compresses the packet (if needed) and writes its header and padding - i.e.,
+     * everything that depends on the preceding packets. The buffer must have 5
+     * free bytes in front of its read position for the header.
+     * This method need to be called into a synchronized block around encodeLock
+     *
+     * @param buffer the buffer to prepare
+     * @return the packet length - excluding the length itself and the MAC
+     * @throws Exception if an exception occurs during the compression
+     */
+    protected int preparePacket(Buffer buffer) throws Exception {
+        // Grab the length of the packet (excluding the 5 header bytes)
+        int len = buffer.available();
+        int off = buffer.rpos() - 5;
+        // Debug log the packet
+        if (log.isTraceEnabled()) {
+            log.trace("Sending packet #{}: {}", Long.valueOf(seqo), buffer.printHex());
+        }
+        // Compress the packet if needed
+        if (outCompression != null && (authed || !outCompression.isDelayed())) {
+            outCompression.compress(buffer);
+            len = buffer.available();
+        }
+        // Compute padding length
+        int bsize = outCipherSize;
+        // an AEAD cipher or an encrypt-then-mac does not encrypt the length, so it is excluded from the aligned data
+        int aadSize = ((outCipherAuthSize > 0) || outMacEtm) ? 4 : 0;
+        int oldLen = len;
+        len += 5 - aadSize;
+        int pad = (-len) & (bsize - 1);
+        if (pad < bsize) {
+            pad += bsize;
+        }
+        len = len + pad - 4 + aadSize;
+        // Write 5 header bytes
+        buffer.wpos(off);
+        buffer.putInt(len);
+        buffer.putByte((byte) pad);
+        // Fill padding
+        buffer.wpos(off + oldLen + 5 + pad);
+        random.fill(buffer.array(), buffer.wpos() - pad, pad);
+        return len;
+    }
+
+    /**
+     * Computes the MAC and encrypts a prepared packet - depends only on the given
+     * arguments, so packets can be sealed concurrently by different ciphers and MACs
+     * as long as each is positioned according to the packet's place in the stream
+     *
+     * @param buffer the buffer containing the prepared packet
+     * @param off the offset of the packet in the buffer
+     * @param len the packet length - excluding the length itself and the MAC
+     * @param seq the packet sequence number
+     * @param cipher the {@link Cipher} to use - may be {@code null}
+     * @param mac the {@link Mac} to use - may be {@code null}
+     * @throws Exception if an exception occurs during the encryption or MAC
+     * @see #preparePacket(Buffer)
+     */
+    protected void sealPacket(Buffer buffer, int off, int len, long seq, Cipher cipher, Mac mac) throws Exception {
+        int authSize = (cipher == null) ? 0 : cipher.getAuthenticationTagSize();
+        boolean etm = (mac != null) && mac.isEncryptThenMac();
+        int aadSize = ((authSize > 0) || etm) ? 4 : 0;
+        // the packet ends right after the padding
+        int l = off + 4 + len;
+        // Compute mac - unless it is computed over the encrypted data
+        if ((mac != null) && (!etm)) {
+            buffer.wpos(l + mac.getBlockSize());
+            mac.updateUInt(seq);
+            mac.update(buffer.array(), off, l - off);
+            mac.doFinal(buffer.array(), l);
+        }
+        // Encrypt packet, excluding mac
+        if (cipher != null) {
+            if (authSize > 0) {
+                // authenticate the length and append the tag after the encrypted data
+                buffer.wpos(l + authSize);
+                cipher.updateAAD(buffer.array(), off, 4);
+                cipher.update(buffer.array(), off + 4, len);
+            } else {
+                cipher.update(buffer.array(), off + aadSize, len + 4 - aadSize);
+            }
+        }
+        // Compute mac over the (unencrypted) length and the encrypted data
+        if ((mac != null) && etm) {
+            buffer.wpos(l + mac.getBlockSize());
+            mac.updateUInt(seq);
+            mac.update(buffer.array(), off, l - off);
+            mac.doFinal(buffer.array(), l);
+        }
+        // Make buffer ready to be read
+        buffer.rpos(off);
+    }
+
     /**
      * Decode the incoming buffer and handle packets as needed.
      *
      * @throws Exception If failed to decode
      */
     protected void decode() throws Exception {
+        decode(decoderBuffer);
+        // compact once after all the available packets have been handled instead of after each one
+        decoderBuffer.compact();
+    }
+
+    /**
+     * Decodes and handles all the packets fully contained in the buffer - starting at
+     * its read position. Upon return, the read position of the buffer points to the start
+     * of the partial packet (if any) that remains to be decoded once more data is received.
+     *
+     * @param buffer The {@link Buffer} to decode - <B>Note:</B> the data is decrypted in place
+     * @throws Exception If failed to decode
+     */
+    protected void decode(Buffer buffer) throws Exception {
+        decodingData = buffer.array();
+        try {
+            doDecode(buffer);
+        } finally {
+            decodingData = null;
+        }
+    }
+
+    protected void doDecode(Buffer buffer) throws Exception {
         // Decoding loop
         for (;;) {
+            // The read position always points to the start of the current packet
+            int start = buffer.rpos();
             // Wait for beginning of packet
             if (decoderState == 0) {
-                // The read position should always be 0 at this point because we have compacted this buffer
-                assert decoderBuffer.rpos() == 0;
                 // If we have received enough bytes, start processing those
-                if (decoderBuffer.available() > inCipherSize) {
-                    // Decrypt the first bytes
-                    if (inCipher != null) {
-                        inCipher.update(decoderBuffer.array(), 0, inCipherSize);
+                if (buffer.available() > inCipherSize) {
+                    // Decrypt the first bytes - unless an AEAD cipher or an encrypt-then-mac is used, in which case the length is not encrypted
+                    if ((inCipher != null) && (inCipherAuthSize <= 0) && (!inMacEtm)) {
+                        inCipher.update(buffer.array(), start, inCipherSize);
                     }
                     // Read packet length
-                    decoderLength = decoderBuffer.getInt();
+                    decoderLength = buffer.getInt();
+                    buffer.rpos(start);
                     // Check packet length validity
                     if (decoderLength < 5 || decoderLength > (256 * 1024)) {
-                        log.warn("Error decoding packet (invalid length) {}", decoderBuffer.printHex());
+                        log.warn("Error decoding packet (invalid length) {}", buffer.printHex());
                         throw new SshException(SshConstants.SSH2_DISCONNECT_PROTOCOL_ERROR,
                                 "Invalid packet length: " + decoderLength);
                     }
@@ -842,35 +1351,32 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
                 }
                 // We have received the beginning of the packet
             } else if (decoderState == 1) {
-                // The read position should always be 4 at this point
-                assert decoderBuffer.rpos() == 4;
                 int macSize = inMac != null ? inMac.getBlockSize() : 0;
+                int authSize = inCipherAuthSize;
                 // Check if the packet has been fully received
-                if (decoderBuffer.available() >= decoderLength + macSize) {
-                    byte[] data = decoderBuffer.array();
+                if (buffer.available() >= decoderLength + 4 + macSize + authSize) {
+                    byte[] data = buffer.array();
+                    // Check the mac of the encrypted packet - before spending any effort on decrypting it
+                    if ((inMac != null) && inMacEtm) {
+                        validateIncomingMac(data, start, decoderLength + 4);
+                    }
                     // Decrypt the remaining of the packet
-                    if (inCipher != null) {
-                        inCipher.update(data, inCipherSize, decoderLength + 4 - inCipherSize);
+                    if (authSize > 0) {
+                        decryptAuthenticated(data, start, decoderLength);
+                    } else if (inCipher != null) {
+                        inCipher.update(data, start + inCipherSize, decoderLength + 4 - inCipherSize);
                     }
                     // Check the mac of the packet
-                    if (inMac != null) {
-                        // Update mac with packet id
-                        inMac.updateUInt(seqi);
-                        // Update mac with packet data
-                        inMac.update(data, 0, decoderLength + 4);
-                        // Compute mac result
-                        inMac.doFinal(inMacResult, 0);
-                        // Check the computed result with the received mac (just after the packet data)
-                        if (!BufferUtils.equals(inMacResult, 0, data, decoderLength + 4, macSize)) {
-                            throw new SshException(SshConstants.SSH2_DISCONNECT_MAC_ERROR, "MAC Error");
-                        }
+                    if ((inMac != null) && (!inMacEtm)) {
+                        validateIncomingMac(data, start, decoderLength + 4);
                     }
                     // Increment incoming packet sequence number
                     seqi = (seqi + 1) & 0xffffffffL;
                     // Get padding
-                    int pad = decoderBuffer.getUByte();
+                    buffer.rpos(start + 4);
+                    int pad = buffer.getUByte();
                     Buffer buf;
-                    int wpos = decoderBuffer.wpos();
+                    int wpos = buffer.wpos();
                     // Decompress if needed
                     if (inCompression != null && (authed || !inCompression.isDelayed())) {
                         if (uncompressBuffer == null) {
@@ -878,12 +1384,12 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
                         } else {
                             uncompressBuffer.clear();
                         }
-                        decoderBuffer.wpos(decoderBuffer.rpos() + decoderLength - 1 - pad);
-                        inCompression.uncompress(decoderBuffer, uncompressBuffer);
+                        buffer.wpos(start + decoderLength + 4 - pad);
+                        inCompression.uncompress(buffer, uncompressBuffer);
                         buf = uncompressBuffer;
                     } else {
-                        decoderBuffer.wpos(decoderLength + 4 - pad);
-                        buf = decoderBuffer;
+                        buffer.wpos(start + decoderLength + 4 - pad);
+                        buf = buffer;
                     }
                     if (log.isTraceEnabled()) {
                         log.trace("Received packet #{}: {}", Long.valueOf(seqi), buf.printHex());
@@ -891,12 +1397,17 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
                     // Update stats
                     inPacketsCount.incrementAndGet();
                     inBytesCount.addAndGet(buf.available());
+                    if (inPacketsMetric != null) {
+                        recordInboundPacket(buf.available());
+                    }
+                    if (flightRecorder != null) {
+                        flightRecorder.recordPacket(FlightRecorder.Kind.INBOUND, buf);
+                    }
                     // Process decoded packet
                     handleMessage(buf);
                     // Set ready to handle next packet
-                    decoderBuffer.rpos(decoderLength + 4 + macSize);
-                    decoderBuffer.wpos(wpos);
-                    decoderBuffer.compact();
+                    buffer.rpos(start + decoderLength + 4 + macSize + authSize);
+                    buffer.wpos(wpos);
                     decoderState = 0;
                 } else {
                     // need more data
@@ -906,6 +1417,47 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
         }
     }
 
+    /**
+     * Checks the MAC that follows the packet data
+     *
+     * @param data The packet data
+     * @param offset Offset of the packet (i.e., its length field) in the data
+     * @param length Number of bytes covered by the MAC - the MAC itself follows them
+     * @throws Exception If failed to compute the MAC
+     * @throws SshException If the computed MAC does not match the received one
+     */
+    protected void validateIncomingMac(byte[] data, int offset, int length) throws Exception {
+        // Update mac with packet id
+        inMac.updateUInt(seqi);
+        // Update mac with packet data
+        inMac.update(data, offset, length);
+        // Compute mac result
+        inMac.doFinal(inMacResult, 0);
+        // Check the computed result with the received mac (just after the packet data)
+        if (!BufferUtils.equals(inMacResult, 0, data, offset + length, inMac.getBlockSize())) {
+            throw new SshException(SshConstants.SSH2_DISCONNECT_MAC_ERROR, "MAC Error");
+        }
+    }
+
+    /**
+     * Decrypts a packet using the (AEAD) input cipher and verifies its authentication tag
+     *
+     * @param data The packet data
+     * @param start Offset of the packet (i.e., its length field) in the data
+     * @param length The packet length - excluding the length field and the tag
+     * @throws Exception If failed to decrypt
+     * @throws SshException If the authentication tag does not match the data
+     */
+    protected void decryptAuthenticated(byte[] data, int start, int length) throws Exception {
+        try {
+            inCipher.updateAAD(data, start, 4);
+            inCipher.update(data, start + 4, length);
+        } catch (GeneralSecurityException e) {
+            // typically an AEADBadTagException, but any failure means the data cannot be trusted
+            throw new SshException(SshConstants.SSH2_DISCONNECT_MAC_ERROR, "MAC Error", e);
+        }
+    }
+
     /**
      * Send our identification.
      *
@@ -1174,10 +1726,15 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
         e_s2c = resizeKey(e_s2c, s2ccipher.getBlockSize(), hash, k, h);
         s2ccipher.init(isServer ? Cipher.Mode.Encrypt : Cipher.Mode.Decrypt, e_s2c, iv_s2c);
 
-        value = getNegotiatedKexParameter(KexProposalOption.S2CMAC);
-        s2cmac = ValidateUtils.checkNotNull(NamedFactory.Utils.create(factoryManager.getMacFactories(), value), "Unknown s2c mac: %s", value);
-        mac_s2c = resizeKey(mac_s2c, s2cmac.getBlockSize(), hash, k, h);
-        s2cmac.init(mac_s2c);
+        // an AEAD cipher authenticates the data by itself so the negotiated MAC is ignored
+        if (s2ccipher.getAuthenticationTagSize() > 0) {
+            s2cmac = null;
+        } else {
+            value = getNegotiatedKexParameter(KexProposalOption.S2CMAC);
+            s2cmac = ValidateUtils.checkNotNull(NamedFactory.Utils.create(factoryManager.getMacFactories(), value), "Unknown s2c mac: %s", value);
+            mac_s2c = resizeKey(mac_s2c, s2cmac.getBlockSize(), hash, k, h);
+            s2cmac.init(mac_s2c);
+        }
 
         value = getNegotiatedKexParameter(KexProposalOption.S2CCOMP);
         s2ccomp = NamedFactory.Utils.create(factoryManager.getCompressionFactories(), value);
@@ -1187,10 +1744,14 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
         e_c2s = resizeKey(e_c2s, c2scipher.getBlockSize(), hash, k, h);
         c2scipher.init(isServer ? Cipher.Mode.Decrypt : Cipher.Mode.Encrypt, e_c2s, iv_c2s);
 
-        value = getNegotiatedKexParameter(KexProposalOption.C2SMAC);
-        c2smac = ValidateUtils.checkNotNull(NamedFactory.Utils.create(factoryManager.getMacFactories(), value), "Unknown c2s mac: %s", value);
-        mac_c2s = resizeKey(mac_c2s, c2smac.getBlockSize(), hash, k, h);
-        c2smac.init(mac_c2s);
+        if (c2scipher.getAuthenticationTagSize() > 0) {
+            c2smac = null;
+        } else {
+            value = getNegotiatedKexParameter(KexProposalOption.C2SMAC);
+            c2smac = ValidateUtils.checkNotNull(NamedFactory.Utils.create(factoryManager.getMacFactories(), value), "Unknown c2s mac: %s", value);
+            mac_c2s = resizeKey(mac_c2s, c2smac.getBlockSize(), hash, k, h);
+            c2smac.init(mac_c2s);
+        }
 
         value = getNegotiatedKexParameter(KexProposalOption.C2SCOMP);
         c2scomp = NamedFactory.Utils.create(factoryManager.getCompressionFactories(), value);
@@ -1210,14 +1771,30 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
             inMac = s2cmac;
             inCompression = s2ccomp;
         }
-        outCipherSize = outCipher.getIVSize();
+        outCipherSize = outCipher.getCipherBlockSize();
+        outCipherAuthSize = outCipher.getAuthenticationTagSize();
+        outMacEtm = (outMac != null) && outMac.isEncryptThenMac();
+        if (parallelEncoder != null) {
+            synchronized (encodeLock) {
+                if (isServer) {
+                    parallelEncoder.setKeys(outCipher, getNegotiatedKexParameter(KexProposalOption.S2CENC), e_s2c, iv_s2c,
+                            outMac, getNegotiatedKexParameter(KexProposalOption.S2CMAC), mac_s2c);
+                } else {
+                    parallelEncoder.setKeys(outCipher, getNegotiatedKexParameter(KexProposalOption.C2SENC), e_c2s, iv_c2s,
+                            outMac, getNegotiatedKexParameter(KexProposalOption.C2SMAC), mac_c2s);
+                }
+            }
+        }
         if (outCompression != null) {
-            outCompression.init(Compression.Type.Deflater, -1);
+            initCompression(outCompression, Compression.Type.Deflater, outCompressionStatistics);
         }
-        inCipherSize = inCipher.getIVSize();
-        inMacResult = new byte[inMac.getBlockSize()];
+        inCipherAuthSize = inCipher.getAuthenticationTagSize();
+        inMacEtm = (inMac != null) && inMac.isEncryptThenMac();
+        // only the length is needed in order to start processing a packet if the length is not encrypted
+        inCipherSize = ((inCipherAuthSize > 0) || inMacEtm) ? 4 : inCipher.getCipherBlockSize();
+        inMacResult = (inMac == null) ? null : new byte[inMac.getBlockSize()];
         if (inCompression != null) {
-            inCompression.init(Compression.Type.Inflater, -1);
+            initCompression(inCompression, Compression.Type.Inflater, inCompressionStatistics);
         }
         inBytesCount.set(0L);
         outBytesCount.set(0L);
@@ -1226,6 +1803,33 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
         lastKeyTimeValue.set(System.currentTimeMillis());
     }
 
+    /**
+     * Applies the configured compression properties and initializes the
+     * compression of a direction
+     *
+     * @param compression The {@link Compression} instance
+     * @param type The compression {@link Compression.Type}
+     * @param statistics The {@link CompressionStatistics} of its direction
+     * @see FactoryManager#COMPRESSION_LEVEL
+     * @see FactoryManager#COMPRESSION_MIN_PACKET_SIZE
+     * @see FactoryManager#COMPRESSION_BYPASS_RATIO
+     * @see FactoryManager#COMPRESSION_BYPASS_PACKETS
+     */
+    protected void initCompression(Compression compression, Compression.Type type, CompressionStatistics statistics) {
+        if (compression instanceof CompressionAdaptiveZlib) {
+            CompressionAdaptiveZlib zlib = (CompressionAdaptiveZlib) compression;
+            zlib.setMinCompressSize(getIntProperty(FactoryManager.COMPRESSION_MIN_PACKET_SIZE, FactoryManager.DEFAULT_COMPRESSION_MIN_PACKET_SIZE));
+            zlib.setBypassRatio(getIntProperty(FactoryManager.COMPRESSION_BYPASS_RATIO, FactoryManager.DEFAULT_COMPRESSION_BYPASS_RATIO));
+            zlib.setBypassPackets(getIntProperty(FactoryManager.COMPRESSION_BYPASS_PACKETS, FactoryManager.DEFAULT_COMPRESSION_BYPASS_PACKETS));
+            zlib.setStatistics(statistics);
+        }
+
+        int level = Compression.Type.Deflater.equals(type)
+                ? getIntProperty(FactoryManager.COMPRESSION_LEVEL, FactoryManager.DEFAULT_COMPRESSION_LEVEL)
+                : -1;
+        compression.init(type, level);
+    }
+
     /**
      * Method used while putting new keys into use that will resize the key used to
      * initialize the cipher to the needed length.
@@ -1257,6 +1861,9 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
     @Override
     public void disconnect(int reason, String msg) throws IOException {
         log.info("Disconnecting: {} - {}", reason, msg);
+        if ((flightRecorder != null) && (reason != SshConstants.SSH2_DISCONNECT_BY_APPLICATION)) {
+            flightRecorder.trigger("Sent disconnect reason=" + reason + ": " + msg);
+        }
         Buffer buffer = createBuffer(SshConstants.SSH_MSG_DISCONNECT, msg.length() + Short.SIZE);
         buffer.putInt(reason);
         buffer.putString(msg);
@@ -1359,21 +1966,39 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
     }
 
     protected void requestSuccess(Buffer buffer) throws Exception {
-        synchronized (requestResult) {
-            requestResult.set(new ByteArrayBuffer(buffer.getCompactData()));
-            resetIdleTimeout();
-            requestResult.notify();
+        resetIdleTimeout();
+        DefaultGlobalRequestFuture future = pollPendingGlobalRequest(SshConstants.SSH_MSG_REQUEST_SUCCESS);
+        if (future != null) {
+            future.setValue(new ByteArrayBuffer(buffer.getCompactData()));
         }
     }
 
     protected void requestFailure(Buffer buffer) throws Exception {
-        synchronized (requestResult) {
-            requestResult.set(null);
-            resetIdleTimeout();
-            requestResult.notify();
+        resetIdleTimeout();
+        DefaultGlobalRequestFuture future = pollPendingGlobalRequest(SshConstants.SSH_MSG_REQUEST_FAILURE);
+        if (future != null) {
+            future.setValue(Boolean.FALSE);
         }
     }
 
+    /**
+     * @param cmd The received response command
+     * @return The oldest global request awaiting a response - {@code null} if none
+     */
+    protected DefaultGlobalRequestFuture pollPendingGlobalRequest(int cmd) {
+        DefaultGlobalRequestFuture future;
+        synchronized (pendingGlobalRequests) {
+            future = pendingGlobalRequests.poll();
+        }
+
+        if (future == null) {
+            log.warn("pollPendingGlobalRequest(" + this + ") unexpected response cmd=" + cmd + " - no pending global request");
+        } else if (log.isDebugEnabled()) {
+            log.debug("pollPendingGlobalRequest(" + this + ") cmd=" + cmd + " for global request=" + future.getRequestName());
+        }
+        return future;
+    }
+
     /**
      * Retrieve a configuration property as an integer
      *
@@ -1503,7 +2128,124 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
         return channelListenerProxy;
     }
 
+    @Override
+    public CompressionStatistics getCompressionStatistics(Compression.Type type) {
+        return Compression.Type.Deflater.equals(type) ? outCompressionStatistics : inCompressionStatistics;
+    }
+
+    @Override
+    public long getQueuedOutboundBytes() {
+        return queuedOutboundBytes.get();
+    }
+
+    @Override
+    public boolean isWritable() {
+        return writable;
+    }
+
+    @Override
+    public boolean waitForWritable(long timeout) throws InterruptedException {
+        long maxWait = timeout;
+        synchronized (writabilityLock) {
+            while (!writable) {
+                if (isClosing() || (!isOpen())) {
+                    return false;
+                }
+
+                if (timeout <= 0L) {
+                    writabilityLock.wait();
+                } else {
+                    if (maxWait <= 0L) {
+                        return false;
+                    }
+
+                    long waitStart = System.currentTimeMillis();
+                    writabilityLock.wait(maxWait);
+                    maxWait -= System.currentTimeMillis() - waitStart;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void addWritabilityListener(SessionWritabilityListener listener) {
+        if (listener != null) {
+            writabilityListeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeWritabilityListener(SessionWritabilityListener listener) {
+        if (listener != null) {
+            writabilityListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Updates the queued outbound bytes count and the writability if one of
+     * the watermarks has been crossed
+     *
+     * @param delta Number of bytes added to (positive) or removed from (negative) the queue
+     */
+    protected void updateQueuedOutboundBytes(long delta) {
+        long queued = queuedOutboundBytes.addAndGet(delta);
+        if (queuedBytesMetric != null) {
+            for (long current = queuedBytesContribution.get(); current != Long.MIN_VALUE; current = queuedBytesContribution.get()) {
+                if (queuedBytesContribution.compareAndSet(current, current + delta)) {
+                    queuedBytesMetric.add(delta);
+                    break;
+                }
+            }
+        }
+        if (outboundHighWatermark <= 0L) {
+            return;
+        }
+
+        boolean crossed = writable ? (queued >= outboundHighWatermark) : (queued <= outboundLowWatermark);
+        if (!crossed) {
+            return;
+        }
+
+        boolean changed = false;
+        boolean value;
+        synchronized (writabilityLock) {
+            // re-check under lock since the count may have changed concurrently
+            queued = queuedOutboundBytes.get();
+            if (writable && (queued >= outboundHighWatermark)) {
+                writable = false;
+                changed = true;
+            } else if ((!writable) && (queued <= outboundLowWatermark)) {
+                writable = true;
+                changed = true;
+                writabilityLock.notifyAll();
+            }
+            value = writable;
+        }
+
+        if (changed) {
+            writabilityChanged(value);
+        }
+    }
+
+    protected void writabilityChanged(boolean value) {
+        if (log.isDebugEnabled()) {
+            log.debug("writabilityChanged(" + this + ") writable=" + value + ", queued=" + getQueuedOutboundBytes());
+        }
+
+        for (SessionWritabilityListener listener : writabilityListeners) {
+            try {
+                listener.writabilityChanged(this, value);
+            } catch (RuntimeException e) {
+                log.warn("writabilityChanged(" + this + ")[" + value + "] listener=" + listener
+                       + " failed (" + e.getClass().getSimpleName() + "): " + e.getMessage());
+            }
+        }
+    }
+
     protected void sendSessionEvent(SessionListener.Event event) throws IOException {
+        recordEvent(FlightRecorder.NO_CHANNEL, event.name());
         SessionListener listener = getSessionListenerProxy();
         listener.sessionEvent(this, event);
     }
@@ -1540,6 +2282,8 @@ public abstract class AbstractSession extends AbstractInnerCloseable implements
         }
 
         Map<KexProposalOption, String> proposal = createProposal(resolvedAlgorithms);
+        kexStartNanos = System.nanoTime();
+        recordEvent(FlightRecorder.NO_CHANNEL, "KexInit");
         byte[] seed = sendKexInit(proposal);
         if (log.isDebugEnabled()) {
             log.debug("sendKexInit(" + proposal + ") seed: " + BufferUtils.printHex(':', seed));
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.session;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.BufferUtils;
+
+/**
+ * A bounded ring buffer that records the metadata of the most recent packets
+ * (direction, message type, channel, size) and lifecycle events (KEX, authentication,
+ * channels, errors) of a session. Recording a packet does not allocate any memory,
+ * so it can be left on in production and the entries dumped when something goes
+ * wrong - e.g., via a {@link FlightRecorderSessionListener}.<BR>
+ * <B>Note:</B> entries are written without locking, so an entry that is being
+ * overwritten while the recorder is dumped may show inconsistent values.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class FlightRecorder {
+    /**
+     * The kind of a recorded entry
+     */
+    public enum Kind {
+        INBOUND, OUTBOUND, EVENT
+    }
+
+    /**
+     * Marks entries that are not associated with any channel
+     */
+    public static final int NO_CHANNEL = -1;
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final int capacity;
+    private final int mask;
+    private final long[] timestamps;
+    private final byte[] kinds;
+    private final byte[] commands;
+    private final int[] channels;
+    private final int[] sizes;
+    private final long[] values;
+    private final String[] notes;
+    private final AtomicLong sequence = new AtomicLong(0L);
+    private final long baseNanos = System.nanoTime();
+    private final long baseMillis = System.currentTimeMillis();
+    private volatile String triggerReason;
+
+    /**
+     * @param size The max. number of entries to keep - rounded up to a power of 2
+     */
+    public FlightRecorder(int size) {
+        ValidateUtils.checkTrue(size > 0, "Non-positive recorder size: %d", size);
+        ValidateUtils.checkTrue(size <= (1 << 30), "Recorder size too large: %d", size);
+        capacity = Integer.highestOneBit(size) == size ? size : Integer.highestOneBit(size) << 1;
+        mask = capacity - 1;
+        timestamps = new long[capacity];
+        kinds = new byte[capacity];
+        commands = new byte[capacity];
+        channels = new int[capacity];
+        sizes = new int[capacity];
+        values = new long[capacity];
+        notes = new String[capacity];
+    }
+
+    /**
+     * @return The max. number of entries kept
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Total number of entries recorded so far - including those
+     * that have already been overwritten
+     */
+    public long getRecordedCount() {
+        return sequence.get();
+    }
+
+    /**
+     * Records the metadata of a packet
+     *
+     * @param kind Either {@link Kind#INBOUND} or {@link Kind#OUTBOUND}
+     * @param buffer The packet payload - starting at the message type. The
+     * buffer positions are not modified
+     */
+    public void recordPacket(Kind kind, Buffer buffer) {
+        int len = buffer.available();
+        if (len <= 0) {
+            return;
+        }
+
+        byte[] data = buffer.array();
+        int pos = buffer.rpos();
+        int cmd = data[pos] & 0xFF;
+        int channel = NO_CHANNEL;
+        long value = 0L;
+        // all channel messages except the open request start with the recipient channel
+        if ((cmd > SshConstants.SSH_MSG_CHANNEL_OPEN) && (cmd <= SshConstants.SSH_MSG_CHANNEL_FAILURE) && (len >= 5)) {
+            channel = (int) BufferUtils.getUInt(data, pos + 1, 4);
+            if (((cmd == SshConstants.SSH_MSG_CHANNEL_WINDOW_ADJUST) || (cmd == SshConstants.SSH_MSG_CHANNEL_DATA)) && (len >= 9)) {
+                // the window adjustment or the number of data bytes consuming the window
+                value = BufferUtils.getUInt(data, pos + 5, 4);
+            } else if ((cmd == SshConstants.SSH_MSG_CHANNEL_EXTENDED_DATA) && (len >= 13)) {
+                value = BufferUtils.getUInt(data, pos + 9, 4);
+            }
+        }
+
+        record(kind, (byte) cmd, channel, len, value, null);
+    }
+
+    /**
+     * Records a lifecycle event
+     *
+     * @param channel The associated channel identifier - or {@link #NO_CHANNEL}
+     * @param note The event description
+     */
+    public void recordEvent(int channel, String note) {
+        record(Kind.EVENT, (byte) 0, channel, 0, 0L, note);
+    }
+
+    protected void record(Kind kind, byte cmd, int channel, int size, long value, String note) {
+        int index = (int) (sequence.getAndIncrement() & mask);
+        timestamps[index] = System.nanoTime();
+        kinds[index] = (byte) kind.ordinal();
+        commands[index] = cmd;
+        channels[index] = channel;
+        sizes[index] = size;
+        values[index] = value;
+        notes[index] = note;
+    }
+
+    /**
+     * Marks the recording as worth dumping - e.g., due to an exception or an
+     * abnormal disconnect. Only the first reason is kept
+     *
+     * @param reason The trigger reason
+     */
+    public void trigger(String reason) {
+        if (triggerReason == null) {
+            triggerReason = reason;
+        }
+    }
+
+    /**
+     * @return The reason given to the first {@link #trigger(String)} call - {@code null}
+     * if not triggered
+     */
+    public String getTriggerReason() {
+        return triggerReason;
+    }
+
+    /**
+     * @return A snapshot of the currently kept entries - oldest first
+     */
+    public List<Entry> getEntries() {
+        long last = sequence.get();
+        long first = Math.max(0L, last - capacity);
+        if (first >= last) {
+            return Collections.emptyList();
+        }
+
+        List<Entry> entries = new ArrayList<>((int) (last - first));
+        for (long seq = first; seq < last; seq++) {
+            int index = (int) (seq & mask);
+            long nanos = timestamps[index];
+            long millis = baseMillis + TimeUnit.NANOSECONDS.toMillis(nanos - baseNanos);
+            entries.add(new Entry(seq, millis, nanos, KINDS[kinds[index]],
+                    commands[index] & 0xFF, channels[index], sizes[index], values[index], notes[index]));
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the currently kept entries - one per line, oldest first
+     *
+     * @param <A> Type of {@link Appendable} being written to
+     * @param out The {@link Appendable} to write to
+     * @return The same as the input
+     * @throws IOException If failed to write
+     */
+    public <A extends Appendable> A dump(A out) throws IOException {
+        List<Entry> entries = getEntries();
+        long prevNanos = entries.isEmpty() ? 0L : entries.get(0).getNanoTime();
+        for (Entry e : entries) {
+            out.append(e.toString())
+               .append(" +").append(Long.toString(TimeUnit.NANOSECONDS.toMicros(e.getNanoTime() - prevNanos))).append("us")
+               .append(System.lineSeparator());
+            prevNanos = e.getNanoTime();
+        }
+        return out;
+    }
+
+    /**
+     * A snapshot of a recorded entry
+     */
+    public static class Entry {
+        private final long sequence;
+        private final long timestamp;
+        private final long nanoTime;
+        private final Kind kind;
+        private final int command;
+        private final int channel;
+        private final int size;
+        private final long value;
+        private final String note;
+
+        public Entry(long sequence, long timestamp, long nanoTime, Kind kind,
+                int command, int channel, int size, long value, String note) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.nanoTime = nanoTime;
+            this.kind = kind;
+            this.command = command;
+            this.channel = channel;
+            this.size = size;
+            this.value = value;
+            this.note = note;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return Approximate wall clock time (msec.) of the entry
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return The {@link System#nanoTime()} value when the entry was recorded
+         */
+        public long getNanoTime() {
+            return nanoTime;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return The SSH message type - zero for events
+         */
+        public int getCommand() {
+            return command;
+        }
+
+        /**
+         * @return The recipient channel of a packet (i.e., the local identifier for
+         * inbound packets and the remote one for outbound packets), the local channel
+         * identifier for an event - {@link FlightRecorder#NO_CHANNEL} if none
+         */
+        public int getChannel() {
+            return channel;
+        }
+
+        /**
+         * @return The packet payload size - zero for events
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * @return The window adjustment for {@code SSH_MSG_CHANNEL_WINDOW_ADJUST},
+         * the data length for {@code SSH_MSG_CHANNEL_(EXTENDED_)DATA} - zero otherwise
+         */
+        public long getValue() {
+            return value;
+        }
+
+        /**
+         * @return The event description - {@code null} for packets
+         */
+        public String getNote() {
+            return note;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(64)
+                    .append('#').append(getSequence())
+                    .append(' ').append(getTimestamp())
+                    .append(' ').append(getKind());
+            if (Kind.EVENT.equals(getKind())) {
+                sb.append(' ').append(getNote());
+            } else {
+                sb.append(" cmd=").append(getCommand())
+                  .append(" size=").append(getSize());
+                if (getValue() != 0L) {
+                    sb.append(" value=").append(getValue());
+                }
+            }
+            if (getChannel() != NO_CHANNEL) {
+                sb.append(" channel=").append(getChannel());
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.session;
+
+import java.io.IOException;
+
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+
+/**
+ * Dumps the {@link FlightRecorder} entries of a closed session to the log if
+ * the recorder was triggered (e.g., an exception or an abnormal disconnect) - or
+ * for every session if so configured
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class FlightRecorderSessionListener extends AbstractLoggingBean implements SessionListener {
+    private final boolean dumpAll;
+
+    public FlightRecorderSessionListener() {
+        this(false);
+    }
+
+    /**
+     * @param dumpAll If {@code true} then the entries are dumped for every closed
+     * session - otherwise only if the recorder was triggered
+     */
+    public FlightRecorderSessionListener(boolean dumpAll) {
+        this.dumpAll = dumpAll;
+    }
+
+    public boolean isDumpAll() {
+        return dumpAll;
+    }
+
+    @Override
+    public void sessionCreated(Session session) {
+        // ignored
+    }
+
+    @Override
+    public void sessionEvent(Session session, Event event) {
+        // ignored
+    }
+
+    @Override
+    public void sessionClosed(Session session) {
+        FlightRecorder recorder = session.getFlightRecorder();
+        if (recorder == null) {
+            return;
+        }
+
+        String reason = recorder.getTriggerReason();
+        if ((reason != null) || isDumpAll()) {
+            try {
+                dump(session, recorder, reason);
+            } catch (IOException | RuntimeException e) {
+                log.warn("sessionClosed(" + session + ") failed (" + e.getClass().getSimpleName() + ") to dump recorder: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Called when a session is closed and its recorder entries should be dumped
+     *
+     * @param session The closed {@link Session}
+     * @param recorder The session's {@link FlightRecorder}
+     * @param reason The trigger reason - {@code null} if not triggered
+     * @throws IOException If failed to dump the entries
+     */
+    protected void dump(Session session, FlightRecorder recorder, String reason) throws IOException {
+        StringBuilder sb = recorder.dump(new StringBuilder(Math.min(recorder.getCapacity(), 1024) * 64));
+        if (reason != null) {
+            log.warn("Session {} closed ({}) - last {} packets/events:{}{}",
+                     session, reason, Long.valueOf(Math.min(recorder.getCapacity(), recorder.getRecordedCount())), System.lineSeparator(), sb);
+        } else {
+            log.info("Session {} closed - last {} packets/events:{}{}",
+                     session, Long.valueOf(Math.min(recorder.getCapacity(), recorder.getRecordedCount())), System.lineSeparator(), sb);
+        }
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.session;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.cipher.Cipher;
+import org.apache.sshd.common.cipher.SeekableCipher;
+import org.apache.sshd.common.io.IoWriteFuture;
+import org.apache.sshd.common.mac.Mac;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+
+/**
+ * Encrypts and MACs the outgoing packets of a session concurrently on a worker pool.
+ * The sequence number and the position of each packet in the cipher stream are
+ * assigned (under the session's encode lock) when the packet is submitted, so that
+ * its encryption does not depend on that of the preceding packets - which requires
+ * a {@link SeekableCipher}. The packets are written to the underlying I/O session
+ * in the order they were submitted regardless of the order in which they are encoded.
+ * If the cipher is not seekable, the packets are encoded serially by the submitting
+ * thread via the session's own cipher and MAC.<BR>
+ * <B>Note:</B> since callers may re-use a buffer once its packet has been submitted
+ * (e.g., replies built in the buffer of the incoming packet), packets encoded by the
+ * worker pool are copied first, and so are packets encoded by the submitting thread
+ * if they cannot be written immediately.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ParallelPacketEncoder extends AbstractLoggingBean {
+    private final AbstractSession session;
+    private final ExecutorService executor;
+    private final int minPacketSize;
+    private final Queue<EncodeTask> pending = new LinkedList<>();
+    private final AtomicLong parallelPackets = new AtomicLong(0L);
+    private final AtomicLong serialPackets = new AtomicLong(0L);
+    private EncoderKeys keys;   // guarded by the session's encode lock
+    private Throwable failure;  // guarded by the pending queue
+    private boolean closed;     // guarded by the pending queue
+
+    /**
+     * @param session The {@link AbstractSession} whose packets are being encoded
+     * @param executor The {@link ExecutorService} used to encode the packets - owned
+     * by the encoder and shut down when it is closed
+     * @param minPacketSize Packets smaller than this size are encoded by the submitting thread
+     */
+    public ParallelPacketEncoder(AbstractSession session, ExecutorService executor, int minPacketSize) {
+        this.session = ValidateUtils.checkNotNull(session, "No session");
+        this.executor = ValidateUtils.checkNotNull(executor, "No executor");
+        this.minPacketSize = minPacketSize;
+    }
+
+    public final int getMinPacketSize() {
+        return minPacketSize;
+    }
+
+    /**
+     * @return Number of packets encoded by the worker pool
+     */
+    public long getParallelPackets() {
+        return parallelPackets.get();
+    }
+
+    /**
+     * @return Number of packets encoded by the submitting thread
+     */
+    public long getSerialPackets() {
+        return serialPackets.get();
+    }
+
+    /**
+     * Invoked (under the session's encode lock) whenever new outgoing keys take effect
+     *
+     * @param cipher The new outgoing {@link Cipher} - if not a {@link SeekableCipher} then
+     * packets are encoded serially until the next key exchange
+     * @param cipherName The negotiated cipher name
+     * @param key The cipher key
+     * @param iv The cipher IV
+     * @param mac The new outgoing {@link Mac} - may be {@code null}
+     * @param macName The negotiated MAC name - ignored if no MAC
+     * @param macKey The MAC key - ignored if no MAC
+     */
+    public void setKeys(Cipher cipher, String cipherName, byte[] key, byte[] iv, Mac mac, String macName, byte[] macKey) {
+        if (cipher instanceof SeekableCipher) {
+            keys = new EncoderKeys(cipherName, key, iv, (mac == null) ? null : macName, macKey,
+                    cipher.getAuthenticationTagSize(), (mac == null) ? 0 : mac.getBlockSize(), (mac != null) && mac.isEncryptThenMac());
+        } else {
+            keys = null;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("setKeys(" + session + ") cipher=" + cipherName + ", parallel=" + (keys != null));
+        }
+    }
+
+    /**
+     * Submits a packet whose header and padding have already been written - must be
+     * invoked under the session's encode lock so that the submission order matches
+     * the sequence numbers
+     *
+     * @param buffer The {@link Buffer} containing the packet
+     * @param off The offset of the packet (i.e., of its length) in the buffer
+     * @param len The packet length - excluding the length itself and the MAC
+     * @param seq The packet sequence number
+     * @return An {@link IoWriteFuture} that is fulfilled once the encoded packet is written
+     * @throws SshException If the encoder is closed or a previous packet failed to be encoded
+     */
+    public IoWriteFuture submit(Buffer buffer, int off, int len, long seq) throws SshException {
+        EncoderKeys current = keys;
+        boolean parallel = (current != null) && (len >= getMinPacketSize());
+        EncodeTask task;
+        if (current == null) {
+            task = new EncodeTask(buffer, off, len, seq, null, 0L, 0L, session.outCipher, session.outMac, false);
+        } else {
+            Buffer packet = buffer;
+            int packetOffset = off;
+            if (parallel) {
+                byte[] data = new byte[4 + len + current.authSize + current.macSize];
+                System.arraycopy(buffer.array(), off, data, 0, 4 + len);
+                packet = new ByteArrayBuffer(data, 0, 4 + len);
+                packetOffset = 0;
+            }
+            task = new EncodeTask(packet, packetOffset, len, seq, current, current.packets, current.bytes, null, null, parallel);
+            current.advance(len);
+        }
+
+        synchronized (pending) {
+            if (closed) {
+                throw new SshException("Encoder closed - cannot send packet #" + seq);
+            }
+            if (failure != null) {
+                throw new SshException("Encoder failed - cannot send packet #" + seq, failure);
+            }
+            pending.add(task);
+        }
+
+        if (parallel) {
+            parallelPackets.incrementAndGet();
+            executor.execute(task);
+        } else {
+            serialPackets.incrementAndGet();
+            task.run();
+        }
+
+        return task.future;
+    }
+
+    /**
+     * Fails all the packets still pending and shuts down the worker pool
+     */
+    public void close() {
+        Collection<EncodeTask> tasks;
+        synchronized (pending) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            tasks = new LinkedList<>(pending);
+            pending.clear();
+        }
+
+        executor.shutdownNow();
+        SshException reason = new SshException("Encoder closed while packet pending");
+        for (EncodeTask task : tasks) {
+            task.future.setException(reason);
+        }
+    }
+
+    /**
+     * Writes all the encoded packets at the head of the queue - the queue
+     * lock is held while writing so that the packets are written in order
+     */
+    protected void flush() {
+        synchronized (pending) {
+            for (EncodeTask task = pending.peek(); (task != null) && (task.sealed != null); task = pending.peek()) {
+                pending.remove();
+
+                if ((failure == null) && (task.failure != null)) {
+                    failure = task.failure;
+                }
+
+                if (failure != null) {
+                    task.future.setException(failure);
+                } else {
+                    session.ioSession.write(task.sealed).addListener(task.future);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + session + "]";
+    }
+
+    /**
+     * The (immutable) outgoing keys material of a specific key exchange along with
+     * a pool of ciphers and MACs initialized with them and the current stream position
+     */
+    protected class EncoderKeys {
+        protected final String cipherName;
+        protected final byte[] key;
+        protected final byte[] iv;
+        protected final String macName;
+        protected final byte[] macKey;
+        protected final int authSize;
+        protected final int macSize;
+        protected final boolean etm;
+        protected final Queue<EncoderContext> contexts = new ConcurrentLinkedQueue<>();
+        // guarded by the session's encode lock
+        protected long packets;
+        protected long bytes;
+
+        protected EncoderKeys(String cipherName, byte[] key, byte[] iv, String macName, byte[] macKey, int authSize, int macSize, boolean etm) {
+            this.cipherName = cipherName;
+            this.key = key.clone();
+            this.iv = iv.clone();
+            this.macName = macName;
+            this.macKey = (macName == null) ? null : macKey.clone();
+            this.authSize = authSize;
+            this.macSize = macSize;
+            this.etm = etm;
+        }
+
+        /**
+         * Updates the stream position past an encoded packet
+         *
+         * @param len The packet length - excluding the length itself and the MAC
+         */
+        protected void advance(int len) {
+            packets++;
+            // the length is not encrypted by an AEAD cipher or if encrypt-then-mac is used
+            bytes += ((authSize > 0) || etm) ? len : len + 4;
+        }
+
+        protected EncoderContext acquire() throws Exception {
+            EncoderContext context = contexts.poll();
+            if (context != null) {
+                return context;
+            }
+
+            SeekableCipher cipher = (SeekableCipher) ValidateUtils.checkNotNull(
+                    NamedFactory.Utils.create(session.getFactoryManager().getCipherFactories(), cipherName),
+                    "Unknown cipher: %s", cipherName);
+            cipher.init(Cipher.Mode.Encrypt, key, iv);
+
+            Mac mac = null;
+            if (macName != null) {
+                mac = ValidateUtils.checkNotNull(
+                        NamedFactory.Utils.create(session.getFactoryManager().getMacFactories(), macName),
+                        "Unknown mac: %s", macName);
+                mac.init(macKey);
+            }
+            return new EncoderContext(cipher, mac);
+        }
+
+        protected void release(EncoderContext context) {
+            contexts.add(context);
+        }
+    }
+
+    /**
+     * A cipher and MAC pair used by one packet at a time
+     */
+    protected static class EncoderContext {
+        protected final SeekableCipher cipher;
+        protected final Mac mac;
+
+        protected EncoderContext(SeekableCipher cipher, Mac mac) {
+            this.cipher = cipher;
+            this.mac = mac;
+        }
+    }
+
+    /**
+     * Encodes a single packet and then writes all the packets that are ready
+     */
+    protected class EncodeTask implements Runnable {
+        protected final Buffer buffer;
+        protected final int off;
+        protected final int len;
+        protected final long seq;
+        protected final EncoderKeys keys;
+        protected final long packets;
+        protected final long bytes;
+        protected final Cipher cipher;
+        protected final Mac mac;
+        protected final boolean parallel;
+        protected final PendingWriteFuture future;
+        // guarded by the pending queue
+        protected Buffer sealed;
+        protected Throwable failure;
+
+        protected EncodeTask(Buffer buffer, int off, int len, long seq, EncoderKeys keys, long packets, long bytes,
+                Cipher cipher, Mac mac, boolean parallel) {
+            this.buffer = buffer;
+            this.off = off;
+            this.len = len;
+            this.seq = seq;
+            this.keys = keys;
+            this.packets = packets;
+            this.bytes = bytes;
+            this.cipher = cipher;
+            this.mac = mac;
+            this.parallel = parallel;
+            this.future = new PendingWriteFuture(buffer);
+        }
+
+        @Override
+        public void run() {
+            Throwable err = null;
+            int size = 4 + len;
+            try {
+                if (keys == null) {
+                    session.sealPacket(buffer, off, len, seq, cipher, mac);
+                    size += ((cipher == null) ? 0 : cipher.getAuthenticationTagSize()) + ((mac == null) ? 0 : mac.getBlockSize());
+                } else {
+                    EncoderContext context = keys.acquire();
+                    try {
+                        context.cipher.seek(packets, bytes);
+                        session.sealPacket(buffer, off, len, seq, context.cipher, context.mac);
+                    } finally {
+                        keys.release(context);
+                    }
+                    size += keys.authSize + keys.macSize;
+                }
+            } catch (Throwable t) {
+                err = t;
+            }
+
+            synchronized (pending) {
+                if (err != null) {
+                    failure = err;
+                    sealed = buffer;
+                } else if (parallel || (pending.peek() == this)) {
+                    sealed = new ByteArrayBuffer(buffer.array(), off, size);
+                } else {
+                    // cannot be written yet and the caller may re-use the buffer once we return
+                    sealed = new ByteArrayBuffer(Arrays.copyOfRange(buffer.array(), off, off + size));
+                }
+            }
+
+            flush();
+
+            if (err != null) {
+                log.warn("run(" + session + ") failed (" + err.getClass().getSimpleName() + ")"
+                       + " to encode packet #" + seq + ": " + err.getMessage());
+                session.exceptionCaught(err);
+            }
+        }
+    }
+}
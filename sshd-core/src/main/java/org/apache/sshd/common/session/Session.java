@@ -26,6 +26,9 @@ import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.Service;
 import org.apache.sshd.common.auth.UsernameHolder;
 import org.apache.sshd.common.channel.ChannelListenerManager;
+import org.apache.sshd.common.compression.Compression;
+import org.apache.sshd.common.compression.CompressionStatistics;
+import org.apache.sshd.common.future.GlobalRequestFuture;
 import org.apache.sshd.common.future.KeyExchangeFuture;
 import org.apache.sshd.common.io.IoSession;
 import org.apache.sshd.common.io.IoWriteFuture;
@@ -164,6 +167,49 @@ public interface Session extends SessionListenerManager, ChannelListenerManager,
      */
     IoWriteFuture writePacket(Buffer buffer, long timeout, TimeUnit unit) throws IOException;
 
+    /**
+     * @param type {@link Compression.Type#Deflater} for the outgoing data,
+     * {@link Compression.Type#Inflater} for the incoming one
+     * @return The {@link CompressionStatistics} of the given direction - accumulated
+     * across key exchanges. Updated only by compressions that support it - e.g.,
+     * the built-in zlib ones
+     */
+    CompressionStatistics getCompressionStatistics(Compression.Type type);
+
+    /**
+     * @return Number of outbound bytes written via {@link #writePacket(Buffer)}
+     * that have not been sent yet
+     */
+    long getQueuedOutboundBytes();
+
+    /**
+     * @return {@code false} if the number of {@link #getQueuedOutboundBytes() queued outbound bytes}
+     * has exceeded the configured high watermark and has not yet dropped below the low one. Writers
+     * should refrain from writing more data until the session becomes writable again.
+     * @see org.apache.sshd.common.FactoryManager#OUTBOUND_HIGH_WATERMARK
+     * @see org.apache.sshd.common.FactoryManager#OUTBOUND_LOW_WATERMARK
+     */
+    boolean isWritable();
+
+    /**
+     * Waits until the session becomes {@link #isWritable() writable} or is closing
+     *
+     * @param timeout Max. time (msec.) to wait - if non-positive then waits indefinitely
+     * @return {@code true} if the session is writable
+     * @throws InterruptedException If interrupted while waiting
+     */
+    boolean waitForWritable(long timeout) throws InterruptedException;
+
+    /**
+     * @param listener The {@link SessionWritabilityListener} to add - ignored if {@code null}
+     */
+    void addWritabilityListener(SessionWritabilityListener listener);
+
+    /**
+     * @param listener The {@link SessionWritabilityListener} to remove - ignored if {@code null}
+     */
+    void removeWritabilityListener(SessionWritabilityListener listener);
+
     /**
      * Send a global request and wait for the response.
      * This must only be used when sending a SSH_MSG_GLOBAL_REQUEST with a result expected,
@@ -172,9 +218,35 @@ public interface Session extends SessionListenerManager, ChannelListenerManager,
      * @param buffer the buffer containing the global request
      * @return the return buffer if the request was successful, {@code null} otherwise.
      * @throws java.io.IOException if an error occurred when encoding sending the packet
+     * @see #requestAsync(Buffer)
      */
     Buffer request(Buffer buffer) throws IOException;
 
+    /**
+     * Send a global request and wait for the response up to the specified timeout.
+     *
+     * @param buffer  the buffer containing the global request
+     * @param timeout the timeout
+     * @param unit    the time unit of the timeout parameter
+     * @return the return buffer if the request was successful, {@code null} otherwise.
+     * @throws java.io.IOException if an error occurred when encoding sending the packet,
+     * or no response was received within the timeout
+     */
+    Buffer request(Buffer buffer, long timeout, TimeUnit unit) throws IOException;
+
+    /**
+     * Send a global request without waiting for the response. Several requests may
+     * be outstanding at the same time - the responses are matched to the requests in
+     * the order they were sent. This must only be used when sending a SSH_MSG_GLOBAL_REQUEST
+     * with a result expected.
+     *
+     * @param buffer the buffer containing the global request
+     * @return A {@link GlobalRequestFuture} that is completed when the response is received
+     * or the session is closed
+     * @throws java.io.IOException if an error occurred when encoding sending the packet
+     */
+    GlobalRequestFuture requestAsync(Buffer buffer) throws IOException;
+
     /**
      * Handle any exceptions that occured on this session.
      * The session will be closed and a disconnect packet will be
@@ -268,6 +340,13 @@ public interface Session extends SessionListenerManager, ChannelListenerManager,
 
     KeyExchange getKex();
 
+    /**
+     * @return The {@link FlightRecorder} keeping the metadata of the most recent
+     * packets and events of this session - {@code null} if recording is disabled
+     * @see org.apache.sshd.common.FactoryManager#FLIGHT_RECORDER_SIZE
+     */
+    FlightRecorder getFlightRecorder();
+
     /**
      * Send a disconnect packet with the given reason and message.
      * Once the packet has been sent, the session will be closed
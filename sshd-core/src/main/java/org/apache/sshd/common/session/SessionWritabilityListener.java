@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.session;
+
+import java.util.EventListener;
+
+/**
+ * Notified when the writability of a session changes - i.e., when the number of
+ * queued outbound bytes crosses the configured high or low watermark.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ * @see Session#isWritable()
+ */
+public interface SessionWritabilityListener extends EventListener {
+    /**
+     * @param session The {@link Session} whose writability has changed
+     * @param writable {@code true} if the session has become writable,
+     * {@code false} if it has become non-writable
+     */
+    void writabilityChanged(Session session, boolean writable);
+}
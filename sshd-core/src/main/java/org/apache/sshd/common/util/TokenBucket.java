@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A simple token bucket rate limiter - tokens are replenished continuously
+ * at a fixed rate up to the bucket capacity, and each {@link #tryAcquire()}
+ * consumes one token if available
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class TokenBucket {
+    private final long capacity;
+    private final long nanosPerToken;
+    private long available;
+    private long lastRefill;
+
+    /**
+     * @param ratePerSecond Number of tokens replenished per second - must be positive
+     * @param capacity Max. number of accumulated tokens - must be positive
+     */
+    public TokenBucket(long ratePerSecond, long capacity) {
+        ValidateUtils.checkTrue(ratePerSecond > 0L, "Bad rate: %d", ratePerSecond);
+        ValidateUtils.checkTrue(capacity > 0L, "Bad capacity: %d", capacity);
+        this.capacity = capacity;
+        this.nanosPerToken = Math.max(1L, TimeUnit.SECONDS.toNanos(1L) / ratePerSecond);
+        this.available = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Number of currently available tokens
+     */
+    public synchronized long getAvailable() {
+        refill(System.nanoTime());
+        return available;
+    }
+
+    /**
+     * @return {@code true} if a token was available and consumed
+     */
+    public synchronized boolean tryAcquire() {
+        refill(System.nanoTime());
+        if (available <= 0L) {
+            return false;
+        }
+
+        available--;
+        return true;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        long tokens = elapsed / nanosPerToken;
+        if (tokens <= 0L) {
+            return;
+        }
+
+        if (tokens >= (capacity - available)) {
+            available = capacity;
+            lastRefill = now;
+        } else {
+            available += tokens;
+            lastRefill += tokens * nanosPerToken;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[capacity=" + getCapacity() + ", available=" + getAvailable() + "]";
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link HashMap} that counts the modifications made through its
+ * {@code put/remove/clear} methods - allowing values derived from its
+ * contents to be cached until the map changes. <B>Note:</B> modifications
+ * made through the key/value/entry views are <U>not</U> counted
+ *
+ * @param <K> Type of key
+ * @param <V> Type of value
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class VersionedHashMap<K, V> extends HashMap<K, V> {
+    private static final long serialVersionUID = -2961392617532398101L;
+
+    private final AtomicLong version = new AtomicLong(0L);
+
+    public VersionedHashMap() {
+        super();
+    }
+
+    public VersionedHashMap(Map<? extends K, ? extends V> m) {
+        super(m);
+    }
+
+    /**
+     * @return The current modification count
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public V put(K key, V value) {
+        try {
+            return super.put(key, value);
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        try {
+            super.putAll(m);
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        try {
+            return super.remove(key);
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            super.clear();
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+}
@@ -29,6 +29,8 @@ import org.apache.sshd.server.auth.gss.GSSAuthenticator;
 import org.apache.sshd.server.auth.keyboard.KeyboardInteractiveAuthenticator;
 import org.apache.sshd.server.auth.password.PasswordAuthenticator;
 import org.apache.sshd.server.auth.pubkey.PublickeyAuthenticator;
+import org.apache.sshd.server.keyprovider.HostKeyRegistry;
+import org.apache.sshd.server.session.ServerSessionRegistry;
 
 /**
  * The <code>ServerFactoryManager</code> enable the retrieval of additional
@@ -41,6 +43,47 @@ public interface ServerFactoryManager extends FactoryManager, KeyPairProviderHol
      * Key used to retrieve the value of the maximum concurrent open session count per username
      */
     String MAX_CONCURRENT_SESSIONS = "max-concurrent-sessions";
+    /**
+     * Key used to retrieve the max. number of not yet authenticated sessions
+     * allowed from the same remote address - connections beyond this number
+     * are rejected when accepted. If non-positive then no limit is enforced
+     */
+    String MAX_UNAUTHENTICATED_SESSIONS_PER_ADDRESS = "max-unauthenticated-sessions-per-address";
+    /**
+     * Default value for {@link #MAX_UNAUTHENTICATED_SESSIONS_PER_ADDRESS} if none configured
+     */
+    int DEFAULT_MAX_UNAUTHENTICATED_SESSIONS_PER_ADDRESS = 0;
+    /**
+     * Key used to retrieve the max. number of not yet authenticated sessions
+     * allowed server-wide - connections beyond this number are deferred (if
+     * the acceptor supports it) until some of the sessions are authenticated
+     * or closed. If non-positive then no limit is enforced
+     */
+    String MAX_UNAUTHENTICATED_SESSIONS = "max-unauthenticated-sessions";
+    /**
+     * Default value for {@link #MAX_UNAUTHENTICATED_SESSIONS} if none configured
+     */
+    int DEFAULT_MAX_UNAUTHENTICATED_SESSIONS = 0;
+    /**
+     * Key used to retrieve the max. sustained rate (connections per second)
+     * of accepted connections - connections beyond this rate are deferred (if
+     * the acceptor supports it). If non-positive then no limit is enforced
+     */
+    String ACCEPT_RATE = "accept-rate";
+    /**
+     * Default value for {@link #ACCEPT_RATE} if none configured
+     */
+    int DEFAULT_ACCEPT_RATE = 0;
+    /**
+     * Key used to retrieve the max. number of connections that may be accepted
+     * in a burst when {@link #ACCEPT_RATE} is enforced - if non-positive then
+     * the rate value is used
+     */
+    String ACCEPT_BURST = "accept-burst";
+    /**
+     * Default value for {@link #ACCEPT_BURST} if none configured
+     */
+    int DEFAULT_ACCEPT_BURST = 0;
     /**
      * Key used to retrieve the value of the server identification string if not default.
      */
@@ -190,4 +233,16 @@ public interface ServerFactoryManager extends FactoryManager, KeyPairProviderHol
      * or {@code null} if subsystems are not supported on this server
      */
     List<NamedFactory<Command>> getSubsystemFactories();
+
+    /**
+     * @return The {@link ServerSessionRegistry} used to keep track of the
+     * active sessions - or {@code null} if sessions are not tracked
+     */
+    ServerSessionRegistry getSessionRegistry();
+
+    /**
+     * @return The {@link HostKeyRegistry} indexing the host keys of the current
+     * {@link #getKeyPairProvider()} - never {@code null}
+     */
+    HostKeyRegistry getHostKeyRegistry();
 }
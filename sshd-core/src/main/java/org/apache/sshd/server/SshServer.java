@@ -40,7 +40,9 @@ import org.apache.sshd.common.io.IoServiceFactory;
 import org.apache.sshd.common.io.IoSession;
 import org.apache.sshd.common.io.mina.MinaServiceFactory;
 import org.apache.sshd.common.io.nio2.Nio2ServiceFactory;
+import org.apache.sshd.common.keyprovider.KeyPairProvider;
 import org.apache.sshd.common.session.AbstractSession;
+import org.apache.sshd.common.signature.Signature;
 import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.common.util.SecurityUtils;
 import org.apache.sshd.common.util.ValidateUtils;
@@ -57,9 +59,11 @@ import org.apache.sshd.server.auth.pubkey.PublickeyAuthenticator;
 import org.apache.sshd.server.command.ScpCommandFactory;
 import org.apache.sshd.server.forward.AcceptAllForwardingFilter;
 import org.apache.sshd.server.forward.ForwardingFilter;
+import org.apache.sshd.server.keyprovider.HostKeyRegistry;
 import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
 import org.apache.sshd.server.session.ServerConnectionServiceFactory;
 import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.server.session.ServerSessionRegistry;
 import org.apache.sshd.server.session.ServerUserAuthServiceFactory;
 import org.apache.sshd.server.session.SessionFactory;
 import org.apache.sshd.server.shell.InteractiveProcessShellFactory;
@@ -132,6 +136,9 @@ public class SshServer extends AbstractFactoryManager implements ServerFactoryMa
     protected PublickeyAuthenticator publickeyAuthenticator;
     protected KeyboardInteractiveAuthenticator interactiveAuthenticator;
     protected GSSAuthenticator gssAuthenticator;
+    protected ServerSessionRegistry sessionRegistry = new ServerSessionRegistry();
+    private final Object hostKeyRegistryLock = new Object();
+    private volatile HostKeyRegistry hostKeyRegistry;
 
     public SshServer() {
         super();
@@ -184,6 +191,57 @@ public class SshServer extends AbstractFactoryManager implements ServerFactoryMa
         this.sessionFactory = sessionFactory;
     }
 
+    @Override
+    public ServerSessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
+    /**
+     * @param sessionRegistry The {@link ServerSessionRegistry} to use - <B>Note:</B>
+     * must be set before the server is started. If {@code null} then sessions are
+     * not tracked and the concurrent sessions limits are evaluated by scanning
+     * all the sessions
+     */
+    public void setSessionRegistry(ServerSessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    /**
+     * The registry is built on first use and re-built whenever the key pair provider
+     * or the signature factories are replaced. In order to pick up keys that the
+     * current provider would load differently (e.g., rotated key files) call
+     * {@link #resetHostKeyRegistry()}
+     */
+    @Override
+    public HostKeyRegistry getHostKeyRegistry() {
+        KeyPairProvider provider = getKeyPairProvider();
+        List<NamedFactory<Signature>> factories = getSignatureFactories();
+        // invoked on every key exchange, so avoid locking unless the registry needs to be (re-)built
+        HostKeyRegistry registry = hostKeyRegistry;
+        if ((registry != null) && registry.isIndexOf(provider, factories)) {
+            return registry;
+        }
+
+        synchronized (hostKeyRegistryLock) {
+            registry = hostKeyRegistry;
+            if ((registry == null) || (!registry.isIndexOf(provider, factories))) {
+                registry = new HostKeyRegistry(provider, factories);
+                hostKeyRegistry = registry;
+                log.debug("getHostKeyRegistry() indexed {}", registry);
+            }
+            return registry;
+        }
+    }
+
+    /**
+     * Discards the current {@link HostKeyRegistry} so that it is re-built on next access
+     */
+    public void resetHostKeyRegistry() {
+        synchronized (hostKeyRegistryLock) {
+            hostKeyRegistry = null;
+        }
+    }
+
     @Override
     public CommandFactory getCommandFactory() {
         return commandFactory;
@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.server.auth.pubkey;
+
+import java.security.PublicKey;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sshd.common.digest.BuiltinDigests;
+import org.apache.sshd.common.digest.DigestUtils;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+import org.apache.sshd.server.session.ServerSession;
+
+/**
+ * Caches the results of a delegate authenticator across sessions - keyed by the
+ * username and the (SHA-256) fingerprint of the offered key. Successful and failed
+ * results expire after different periods of time, and the number of cached results
+ * is bounded - the oldest results are evicted first. Useful when the delegate is
+ * expensive (e.g., LDAP or database backed) and the same clients connect repeatedly.
+ * <B>Note:</B> revoking a key in the delegate takes effect only once the cached
+ * result expires or is invalidated - see {@link #invalidate(String)}
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ * @see CachingPublicKeyAuthenticator for a per-session cache
+ */
+public class ExpiringCachePublickeyAuthenticator extends AbstractLoggingBean implements PublickeyAuthenticator {
+    /**
+     * Default time (msec.) a successful authentication result is cached
+     */
+    public static final long DEFAULT_SUCCESS_TTL = TimeUnit.MINUTES.toMillis(5L);
+
+    /**
+     * Default time (msec.) a failed authentication result is cached
+     */
+    public static final long DEFAULT_FAILURE_TTL = TimeUnit.SECONDS.toMillis(30L);
+
+    /**
+     * Default max. number of cached results
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private final PublickeyAuthenticator authenticator;
+    private final long successTtl;
+    private final long failureTtl;
+    private final int maxEntries;
+    private final Map<CacheKey, CachedResult> cache;
+    // incremented (under the cache lock) on every invalidation
+    private long generation;
+    private final AtomicLong hits = new AtomicLong(0L);
+    private final AtomicLong misses = new AtomicLong(0L);
+
+    public ExpiringCachePublickeyAuthenticator(PublickeyAuthenticator authenticator) {
+        this(authenticator, DEFAULT_SUCCESS_TTL, DEFAULT_FAILURE_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param authenticator The delegate {@link PublickeyAuthenticator}
+     * @param successTtl Time (msec.) a successful result is cached - if non-positive
+     * then successful results are not cached
+     * @param failureTtl Time (msec.) a failed result is cached - if non-positive
+     * then failed results are not cached
+     * @param maxEntries Max. number of cached results
+     */
+    public ExpiringCachePublickeyAuthenticator(PublickeyAuthenticator authenticator, long successTtl, long failureTtl, final int maxEntries) {
+        this.authenticator = ValidateUtils.checkNotNull(authenticator, "No delegate authenticator");
+        ValidateUtils.checkTrue(maxEntries > 0, "Bad max. entries value: %d", maxEntries);
+        this.successTtl = successTtl;
+        this.failureTtl = failureTtl;
+        this.maxEntries = maxEntries;
+        // insertion order - i.e., the oldest cached results are evicted first
+        this.cache = new LinkedHashMap<CacheKey, CachedResult>(Math.min(maxEntries, 64), 0.75f, false) {
+            private static final long serialVersionUID = 1L;    // we're not serializing it...
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public final PublickeyAuthenticator getAuthenticator() {
+        return authenticator;
+    }
+
+    public final long getSuccessTtl() {
+        return successTtl;
+    }
+
+    public final long getFailureTtl() {
+        return failureTtl;
+    }
+
+    public final int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return Number of attempts resolved from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of attempts that were delegated
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of currently cached results - including expired
+     * ones that have not been removed yet
+     */
+    public int getCachedEntriesCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @Override
+    public boolean authenticate(String username, PublicKey key, ServerSession session) {
+        CacheKey cacheKey = resolveCacheKey(username, key);
+        if (cacheKey == null) {
+            misses.incrementAndGet();
+            return authenticator.authenticate(username, key, session);
+        }
+
+        long now = System.nanoTime();
+        long gen;
+        synchronized (cache) {
+            gen = generation;
+            CachedResult cached = cache.get(cacheKey);
+            if (cached != null) {
+                if ((now - cached.expiration) < 0L) {
+                    hits.incrementAndGet();
+                    return cached.accepted;
+                }
+                cache.remove(cacheKey);
+            }
+        }
+
+        // invoke the delegate outside the lock so that concurrent sessions are not blocked
+        misses.incrementAndGet();
+        boolean accepted = authenticator.authenticate(username, key, session);
+        long ttl = accepted ? getSuccessTtl() : getFailureTtl();
+        if (ttl > 0L) {
+            CachedResult result = new CachedResult(accepted, now + TimeUnit.MILLISECONDS.toNanos(ttl));
+            synchronized (cache) {
+                // don't re-insert a result computed before some invalidation took place
+                if (gen == generation) {
+                    cache.put(cacheKey, result);
+                }
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("authenticate(" + username + ")[" + session + "] delegated result=" + accepted);
+        }
+        return accepted;
+    }
+
+    /**
+     * Removes all the cached results of a user - e.g., if a key has been revoked
+     *
+     * @param username The username
+     * @return Number of removed results
+     */
+    public int invalidate(String username) {
+        int count = 0;
+        synchronized (cache) {
+            generation++;
+            for (Iterator<CacheKey> iter = cache.keySet().iterator(); iter.hasNext();) {
+                CacheKey k = iter.next();
+                if (Objects.equals(username, k.getUsername())) {
+                    iter.remove();
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes all the cached results
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            generation++;
+            cache.clear();
+        }
+    }
+
+    /**
+     * @param username The username
+     * @param key The offered {@link PublicKey}
+     * @return The cache key - {@code null} if the result should not be cached
+     */
+    protected CacheKey resolveCacheKey(String username, PublicKey key) {
+        if ((username == null) || (key == null)) {
+            return null;
+        }
+
+        byte[] data;
+        try {
+            Buffer buffer = new ByteArrayBuffer();
+            buffer.putRawPublicKey(key);
+            data = buffer.getCompactData();
+        } catch (RuntimeException e) {
+            return null;    // unsupported key type - don't cache
+        }
+
+        try {
+            return new CacheKey(username, DigestUtils.getFingerPrint(BuiltinDigests.sha256, data));
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.debug("resolveCacheKey(" + username + ") failed (" + e.getClass().getSimpleName() + ") to digest key: " + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Identifies a cached result - the username and the offered key fingerprint
+     */
+    protected static final class CacheKey {
+        private final String username;
+        private final String fingerprint;
+
+        public CacheKey(String username, String fingerprint) {
+            this.username = ValidateUtils.checkNotNull(username, "No username");
+            this.fingerprint = ValidateUtils.checkNotNull(fingerprint, "No fingerprint");
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * username.hashCode() + fingerprint.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) obj;
+            return username.equals(other.username) && fingerprint.equals(other.fingerprint);
+        }
+
+        @Override
+        public String toString() {
+            return username + "[" + fingerprint + "]";
+        }
+    }
+
+    private static final class CachedResult {
+        private final boolean accepted;
+        private final long expiration;
+
+        CachedResult(boolean accepted, long expiration) {
+            this.accepted = accepted;
+            this.expiration = expiration;
+        }
+    }
+}
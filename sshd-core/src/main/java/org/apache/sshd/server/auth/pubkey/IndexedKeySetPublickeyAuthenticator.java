@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.server.auth.pubkey;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sshd.common.config.keys.KeyUtils;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.server.session.ServerSession;
+
+/**
+ * Checks against a {@link Collection} of {@link PublicKey}s using an index
+ * built once when the authenticator is created, so that the cost of a lookup
+ * does not depend on the number of keys. The index is keyed by the SSH
+ * encoding of the key - which also contains the key type. Keys that cannot be
+ * encoded are checked by comparing them one by one as in the
+ * {@link KeySetPublickeyAuthenticator}
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class IndexedKeySetPublickeyAuthenticator extends KeySetPublickeyAuthenticator {
+    private final Map<KeyBlob, PublicKey> keysIndex;
+    private final Collection<PublicKey> unindexedKeys;
+
+    public IndexedKeySetPublickeyAuthenticator(Collection<? extends PublicKey> keySet) {
+        super(keySet);
+
+        Collection<? extends PublicKey> keys = getKeySet();
+        Map<KeyBlob, PublicKey> index = new HashMap<KeyBlob, PublicKey>(Math.max(16, keys.size() * 4 / 3 + 1));
+        List<PublicKey> unindexed = new ArrayList<PublicKey>();
+        for (PublicKey k : keys) {
+            KeyBlob blob = encode(k);
+            if (blob == null) {
+                unindexed.add(k);
+            } else {
+                index.put(blob, k);
+            }
+        }
+
+        keysIndex = index;
+        unindexedKeys = unindexed.isEmpty() ? Collections.<PublicKey>emptyList() : unindexed;
+    }
+
+    /**
+     * @return Number of indexed keys - may be less than the number of keys in
+     * the key set if duplicates exist or some keys could not be encoded
+     */
+    public int getIndexedKeysCount() {
+        return keysIndex.size();
+    }
+
+    @Override
+    public boolean authenticate(String username, PublicKey key, ServerSession session) {
+        PublicKey matchKey = findMatchingKey(key);
+        boolean matchFound = matchKey != null;
+        if (log.isDebugEnabled()) {
+            log.debug("authenticate(" + username + ")[" + session + "] match found=" + matchFound);
+        }
+        return matchFound;
+    }
+
+    /**
+     * @param key The {@link PublicKey} to look up - ignored if {@code null}
+     * @return The matching key from the key set - {@code null} if no match found
+     */
+    public PublicKey findMatchingKey(PublicKey key) {
+        if (key == null) {
+            return null;
+        }
+
+        KeyBlob blob = encode(key);
+        if (blob != null) {
+            PublicKey matchKey = keysIndex.get(blob);
+            if (matchKey != null) {
+                return matchKey;
+            }
+        }
+
+        if (GenericUtils.isEmpty(unindexedKeys)) {
+            return null;
+        }
+
+        return KeyUtils.findMatchingKey(key, unindexedKeys);
+    }
+
+    /**
+     * @param key The {@link PublicKey} to encode
+     * @return The encoded key - {@code null} if the key type is not supported
+     */
+    protected KeyBlob encode(PublicKey key) {
+        try {
+            Buffer buffer = new ByteArrayBuffer();
+            buffer.putRawPublicKey(key);
+            return new KeyBlob(buffer.getCompactData());
+        } catch (RuntimeException e) {
+            if (log.isTraceEnabled()) {
+                log.trace("encode(" + key.getAlgorithm() + ") failed (" + e.getClass().getSimpleName() + ") to encode: " + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Immutable wrapper of the encoded key data used as the index key
+     */
+    protected static final class KeyBlob {
+        private final byte[] data;
+        private final int hash;
+
+        public KeyBlob(byte[] data) {
+            this.data = data;
+            this.hash = Arrays.hashCode(data);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof KeyBlob)) {
+                return false;
+            }
+
+            KeyBlob other = (KeyBlob) obj;
+            return (hash == other.hash) && Arrays.equals(data, other.data);
+        }
+    }
+}
@@ -94,6 +94,14 @@ public class AuthorizedKeysAuthenticator extends ModifiableFileWatcher implement
         return !GenericUtils.isEmpty(username);
     }
 
+    /**
+     * @return The currently used delegate - without checking if the file
+     * needs to be re-loaded
+     */
+    protected PublickeyAuthenticator getDelegate() {
+        return delegateHolder.get();
+    }
+
     protected PublickeyAuthenticator resolvePublickeyAuthenticator(String username, ServerSession session)
             throws IOException, GeneralSecurityException {
         if (checkReloadRequired()) {
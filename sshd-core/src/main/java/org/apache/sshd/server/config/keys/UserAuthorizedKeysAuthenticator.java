@@ -0,0 +1,342 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.server.config.keys;
+
+import java.io.IOException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sshd.common.config.keys.KeyUtils;
+import org.apache.sshd.common.config.keys.PublicKeyEntry;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.io.IoUtils;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+import org.apache.sshd.server.auth.pubkey.PublickeyAuthenticator;
+import org.apache.sshd.server.session.ServerSession;
+
+/**
+ * Authenticates each user against their own {@code authorized_keys} file -
+ * by default {@code <root>/<username>/.ssh/authorized_keys}. The parsed (and
+ * indexed) keys of the most recently used users are kept in a bounded LRU cache
+ * and re-loaded only if the file has changed. In order to avoid querying the file
+ * system on every attempt, the file is checked for changes at most once per
+ * configured check interval.
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class UserAuthorizedKeysAuthenticator extends AbstractLoggingBean implements PublickeyAuthenticator {
+    /**
+     * Default max. number of users whose keys are cached
+     */
+    public static final int DEFAULT_MAX_CACHED_USERS = 1024;
+
+    /**
+     * Default minimum time (msec.) between checks whether a user's file has changed
+     */
+    public static final long DEFAULT_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(5L);
+
+    private final Path root;
+    private final int maxCachedUsers;
+    private final long checkInterval;
+    private final boolean strict;
+    private final LinkOption[] options;
+    private final Map<String, UserKeysAuthenticator> cache;
+    private final AtomicLong cacheHits = new AtomicLong(0L);
+    private final AtomicLong cacheMisses = new AtomicLong(0L);
+    private final AtomicLong evictions = new AtomicLong(0L);
+    private final AtomicLong fileChecks = new AtomicLong(0L);
+    private final AtomicLong reloads = new AtomicLong(0L);
+
+    /**
+     * Uses the parent folder of the current user's home as the root and
+     * the default cache settings
+     *
+     * @param strict If {@code true} then the {@code OpenSSH} permissions regime is
+     * enforced on the files - see {@link KeyUtils#validateStrictKeyFilePermissions(Path, LinkOption...)}
+     */
+    public UserAuthorizedKeysAuthenticator(boolean strict) {
+        this(Paths.get(System.getProperty("user.home")).getParent(), strict);
+    }
+
+    public UserAuthorizedKeysAuthenticator(Path root, boolean strict) {
+        this(root, strict, DEFAULT_MAX_CACHED_USERS, DEFAULT_CHECK_INTERVAL, IoUtils.getLinkOptions(false));
+    }
+
+    /**
+     * @param root The root folder containing the users' home folders
+     * @param strict If {@code true} then the {@code OpenSSH} permissions regime is enforced on the files
+     * @param maxCachedUsers Max. number of users whose keys are cached - the least recently used
+     * user is evicted when the limit is exceeded
+     * @param checkInterval Minimum time (msec.) between checks whether a cached user's file has changed -
+     * if non-positive then the file is checked on every attempt
+     * @param options The {@link LinkOption}s to use when querying the files
+     */
+    public UserAuthorizedKeysAuthenticator(Path root, boolean strict, int maxCachedUsers, long checkInterval, LinkOption... options) {
+        this.root = ValidateUtils.checkNotNull(root, "No root folder");
+        ValidateUtils.checkTrue(maxCachedUsers > 0, "Bad max. cached users value: %d", maxCachedUsers);
+        this.maxCachedUsers = maxCachedUsers;
+        this.checkInterval = checkInterval;
+        this.strict = strict;
+        // use a clone to avoid being sensitive to changes in the passed array
+        this.options = (options == null) ? IoUtils.EMPTY_LINK_OPTIONS : options.clone();
+        this.cache = new LinkedHashMap<String, UserKeysAuthenticator>(Math.min(maxCachedUsers, 64), 0.75f, true) {
+            private static final long serialVersionUID = 1L;    // we're not serializing it...
+
+            @SuppressWarnings("synthetic-access")
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserKeysAuthenticator> eldest) {
+                if (size() <= getMaxCachedUsers()) {
+                    return false;
+                }
+
+                evictions.incrementAndGet();
+                if (log.isDebugEnabled()) {
+                    log.debug("removeEldestEntry(" + eldest.getKey() + ") evicted " + eldest.getValue());
+                }
+                return true;
+            }
+        };
+    }
+
+    public final Path getRoot() {
+        return root;
+    }
+
+    public final boolean isStrict() {
+        return strict;
+    }
+
+    public final int getMaxCachedUsers() {
+        return maxCachedUsers;
+    }
+
+    public final long getCheckInterval() {
+        return checkInterval;
+    }
+
+    /**
+     * @return Number of attempts that found the user's keys in the cache
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * @return Number of attempts that did not find the user's keys in the cache
+     */
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    /**
+     * @return Number of users evicted from the cache due to its size limit
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return Number of times a file has been checked for changes
+     */
+    public long getFileChecks() {
+        return fileChecks.get();
+    }
+
+    /**
+     * @return Number of times a file has been (re-)loaded
+     */
+    public long getReloads() {
+        return reloads.get();
+    }
+
+    /**
+     * @return Number of users currently cached
+     */
+    public int getCachedUsersCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Removes a user's keys from the cache - e.g., if the user was removed
+     *
+     * @param username The username
+     * @return {@code true} if the user's keys were cached
+     */
+    public boolean invalidate(String username) {
+        synchronized (cache) {
+            return cache.remove(username) != null;
+        }
+    }
+
+    /**
+     * Removes all the cached keys
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public boolean authenticate(String username, PublicKey key, ServerSession session) {
+        if (!isValidUsername(username, session)) {
+            if (log.isDebugEnabled()) {
+                log.debug("authenticate(" + username + ")[" + session + "][" + key.getAlgorithm() + "] invalid user name");
+            }
+            return false;
+        }
+
+        PublickeyAuthenticator delegate;
+        try {
+            delegate = resolveUserAuthenticator(username, session);
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.debug("authenticate(" + username + ")[" + session + "]"
+                        + " failed (" + e.getClass().getSimpleName() + ")"
+                        + " to resolve delegate: " + e.getMessage());
+            }
+            return false;
+        }
+
+        return delegate.authenticate(username, key, session);
+    }
+
+    /**
+     * <B>Note:</B> since the username is used to build the path of the file,
+     * the default implementation rejects names that might be used to access
+     * files outside the user's folder
+     *
+     * @param username The username
+     * @param session The {@link ServerSession}
+     * @return {@code true} if the username is valid
+     */
+    protected boolean isValidUsername(String username, ServerSession session) {
+        if (GenericUtils.isEmpty(username) || ".".equals(username) || "..".equals(username)) {
+            return false;
+        }
+
+        return (username.indexOf('/') < 0) && (username.indexOf('\\') < 0) && (username.indexOf('\0') < 0);
+    }
+
+    protected PublickeyAuthenticator resolveUserAuthenticator(String username, ServerSession session) throws IOException {
+        synchronized (cache) {
+            UserKeysAuthenticator delegate = cache.get(username);
+            if (delegate != null) {
+                cacheHits.incrementAndGet();
+                return delegate;
+            }
+
+            cacheMisses.incrementAndGet();
+            delegate = new UserKeysAuthenticator(username, resolveAuthorizedKeysFile(username, session), options);
+            cache.put(username, delegate);
+            return delegate;
+        }
+    }
+
+    /**
+     * @param username The username
+     * @param session The {@link ServerSession}
+     * @return The {@link Path} of the user's {@code authorized_keys} file
+     */
+    protected Path resolveAuthorizedKeysFile(String username, ServerSession session) {
+        return getRoot().resolve(username).resolve(PublicKeyEntry.STD_KEYFILE_FOLDER_NAME).resolve(AuthorizedKeyEntry.STD_AUTHORIZED_KEYS_FILENAME);
+    }
+
+    /**
+     * Invoked before (re-)loading a user's file
+     *
+     * @param path The {@link Path} of the user's file
+     * @param username The username
+     * @param session The {@link ServerSession}
+     * @throws IOException If the file should not be used
+     */
+    protected void validateAuthorizedKeysFile(Path path, String username, ServerSession session) throws IOException {
+        if (isStrict()) {
+            PosixFilePermission violation = KeyUtils.validateStrictKeyFilePermissions(path, options);
+            if (violation != null) {
+                throw new IOException("String permission violation (" + violation + ") for " + path);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + getRoot() + "]";
+    }
+
+    /**
+     * Holds the indexed keys of a specific user and re-loads them if the
+     * file has changed - checking the file at most once per check interval
+     */
+    protected class UserKeysAuthenticator extends AuthorizedKeysAuthenticator {
+        private final String username;
+        private long lastChecked;
+        private boolean checked;
+
+        public UserKeysAuthenticator(String username, Path file, LinkOption... options) {
+            super(file, options);
+            this.username = username;
+        }
+
+        public final String getUsername() {
+            return username;
+        }
+
+        @Override
+        protected boolean isValidUsername(String username, ServerSession session) {
+            return getUsername().equals(username);
+        }
+
+        @SuppressWarnings("synthetic-access")
+        @Override
+        protected synchronized PublickeyAuthenticator resolvePublickeyAuthenticator(String username, ServerSession session)
+                throws IOException, GeneralSecurityException {
+            long now = System.currentTimeMillis();
+            long interval = getCheckInterval();
+            if (checked && (interval > 0L) && ((now - lastChecked) < interval)) {
+                return getDelegate();
+            }
+
+            checked = true;
+            lastChecked = now;
+            fileChecks.incrementAndGet();
+            return super.resolvePublickeyAuthenticator(username, session);
+        }
+
+        @SuppressWarnings("synthetic-access")
+        @Override
+        protected Collection<AuthorizedKeyEntry> reloadAuthorizedKeys(Path path, String username, ServerSession session) throws IOException {
+            reloads.incrementAndGet();
+            validateAuthorizedKeysFile(path, username, session);
+            return super.reloadAuthorizedKeys(path, username, session);
+        }
+    }
+}
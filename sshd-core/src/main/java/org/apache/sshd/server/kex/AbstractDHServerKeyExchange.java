@@ -19,11 +19,18 @@
 
 package org.apache.sshd.server.kex;
 
+import java.security.KeyPair;
 import java.security.PublicKey;
 
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.NamedFactory;
 import org.apache.sshd.common.kex.dh.AbstractDHKeyExchange;
 import org.apache.sshd.common.session.AbstractSession;
+import org.apache.sshd.common.signature.Signature;
 import org.apache.sshd.common.util.ValidateUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.server.keyprovider.HostKeyRegistry;
 import org.apache.sshd.server.session.ServerSession;
 
 /**
@@ -48,4 +55,58 @@ public abstract class AbstractDHServerKeyExchange extends AbstractDHKeyExchange
     public PublicKey getServerKey() {
         return ValidateUtils.checkNotNull(session.getHostKey(), "No server key pair available").getPublic();
     }
+
+    /**
+     * @param kp The host {@link KeyPair} used for the exchange
+     * @param algo The negotiated host key algorithm
+     * @return The matching pre-indexed {@link HostKeyRegistry.Entry} - {@code null}
+     * if none (e.g., the session overrides the host key resolution)
+     */
+    protected HostKeyRegistry.Entry resolveHostKeyEntry(KeyPair kp, String algo) {
+        HostKeyRegistry registry = session.getFactoryManager().getHostKeyRegistry();
+        HostKeyRegistry.Entry entry = (registry == null) ? null : registry.getEntry(algo);
+        if ((entry == null) || (entry.getKeyPair() != kp) || (!entry.isSigningSupported())) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @param kp The host {@link KeyPair} used for the exchange
+     * @param algo The negotiated host key algorithm
+     * @return The SSH encoding of the host public key
+     */
+    protected byte[] encodeHostKey(KeyPair kp, String algo) {
+        HostKeyRegistry.Entry entry = resolveHostKeyEntry(kp, algo);
+        if (entry != null) {
+            return entry.getPublicKeyBlob();
+        }
+
+        Buffer buffer = new ByteArrayBuffer();
+        buffer.putRawPublicKey(kp.getPublic());
+        return buffer.getCompactData();
+    }
+
+    /**
+     * @param kp The host {@link KeyPair} used for the exchange
+     * @param algo The negotiated host key algorithm
+     * @param h The exchange hash to sign
+     * @return The signature value
+     * @throws Exception If failed to sign
+     */
+    protected byte[] signWithHostKey(KeyPair kp, String algo, byte[] h) throws Exception {
+        HostKeyRegistry.Entry entry = resolveHostKeyEntry(kp, algo);
+        if (entry != null) {
+            return entry.sign(h);
+        }
+
+        FactoryManager manager = session.getFactoryManager();
+        Signature sig = ValidateUtils.checkNotNull(
+                NamedFactory.Utils.create(manager.getSignatureFactories(), algo),
+                "Unknown negotiated server keys: %s",
+                algo);
+        sig.initSigner(kp.getPrivate());
+        sig.update(h, 0, h.length);
+        return sig.sign();
+    }
 }
@@ -27,7 +27,6 @@ import java.security.KeyPair;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.FactoryManagerUtils;
 import org.apache.sshd.common.NamedFactory;
 import org.apache.sshd.common.SshConstants;
@@ -40,7 +39,6 @@ import org.apache.sshd.common.kex.KeyExchange;
 import org.apache.sshd.common.kex.KeyExchangeFactory;
 import org.apache.sshd.common.random.Random;
 import org.apache.sshd.common.session.AbstractSession;
-import org.apache.sshd.common.signature.Signature;
 import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.common.util.SecurityUtils;
 import org.apache.sshd.common.util.ValidateUtils;
@@ -160,18 +158,9 @@ public class DHGEXServer extends AbstractDHServerKeyExchange {
             byte[] k_s;
             KeyPair kp = ValidateUtils.checkNotNull(session.getHostKey(), "No server key pair available");
             String algo = session.getNegotiatedKexParameter(KexProposalOption.SERVERKEYS);
-            FactoryManager manager = session.getFactoryManager();
-            Signature sig = ValidateUtils.checkNotNull(
-                    NamedFactory.Utils.create(manager.getSignatureFactories(), algo),
-                    "Unknown negotiated server keys: %s",
-                    algo);
-            sig.initSigner(kp.getPrivate());
+            k_s = encodeHostKey(kp, algo);
 
             buffer = new ByteArrayBuffer();
-            buffer.putRawPublicKey(kp.getPublic());
-            k_s = buffer.getCompactData();
-
-            buffer.clear();
             buffer.putBytes(v_c);
             buffer.putBytes(v_s);
             buffer.putBytes(i_c);
@@ -194,9 +183,8 @@ public class DHGEXServer extends AbstractDHServerKeyExchange {
 
             byte[] sigH;
             buffer.clear();
-            sig.update(h, 0, h.length);
             buffer.putString(algo);
-            buffer.putBytes(sig.sign());
+            buffer.putBytes(signWithHostKey(kp, algo, h));
             sigH = buffer.getCompactData();
 
             if (log.isDebugEnabled()) {
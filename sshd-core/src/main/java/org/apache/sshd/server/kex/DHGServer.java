@@ -20,7 +20,6 @@ package org.apache.sshd.server.kex;
 
 import java.security.KeyPair;
 
-import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.NamedFactory;
 import org.apache.sshd.common.SshConstants;
 import org.apache.sshd.common.SshException;
@@ -30,7 +29,6 @@ import org.apache.sshd.common.kex.KexProposalOption;
 import org.apache.sshd.common.kex.KeyExchange;
 import org.apache.sshd.common.kex.KeyExchangeFactory;
 import org.apache.sshd.common.session.AbstractSession;
-import org.apache.sshd.common.signature.Signature;
 import org.apache.sshd.common.util.ValidateUtils;
 import org.apache.sshd.common.util.buffer.Buffer;
 import org.apache.sshd.common.util.buffer.BufferUtils;
@@ -93,34 +91,24 @@ public class DHGServer extends AbstractDHServerKeyExchange {
         byte[] k_s;
         KeyPair kp = ValidateUtils.checkNotNull(session.getHostKey(), "No server key pair available");
         String algo = session.getNegotiatedKexParameter(KexProposalOption.SERVERKEYS);
-        FactoryManager manager = session.getFactoryManager();
-        Signature sig = ValidateUtils.checkNotNull(
-                NamedFactory.Utils.create(manager.getSignatureFactories(), algo),
-                "Unknown negotiated server keys: %s",
-                algo);
-        sig.initSigner(kp.getPrivate());
+        k_s = encodeHostKey(kp, algo);
 
         buffer = new ByteArrayBuffer();
-        buffer.putRawPublicKey(kp.getPublic());
-        k_s = buffer.getCompactData();
-
-        buffer.clear();
         buffer.putBytes(v_c);
         buffer.putBytes(v_s);
         buffer.putBytes(i_c);
         buffer.putBytes(i_s);
         buffer.putBytes(k_s);
-        buffer.putMPInt(e);
-        buffer.putMPInt(f);
+        dh.putE(buffer, e);
+        dh.putF(buffer, f);
         buffer.putMPInt(k);
         hash.update(buffer.array(), 0, buffer.available());
         h = hash.digest();
 
         byte[] sigH;
         buffer.clear();
-        sig.update(h, 0, h.length);
         buffer.putString(algo);
-        buffer.putBytes(sig.sign());
+        buffer.putBytes(signWithHostKey(kp, algo, h));
         sigH = buffer.getCompactData();
 
         if (log.isDebugEnabled()) {
@@ -136,7 +124,7 @@ public class DHGServer extends AbstractDHServerKeyExchange {
         buffer.wpos(5);
         buffer.putByte(SshConstants.SSH_MSG_KEXDH_REPLY);
         buffer.putBytes(k_s);
-        buffer.putBytes(f);
+        dh.putF(buffer, f);
         buffer.putBytes(sigH);
         session.writePacket(buffer);
         return true;
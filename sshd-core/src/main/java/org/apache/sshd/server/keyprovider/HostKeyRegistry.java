@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.server.keyprovider;
+
+import java.security.KeyPair;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.NamedResource;
+import org.apache.sshd.common.config.keys.KeyUtils;
+import org.apache.sshd.common.keyprovider.KeyPairProvider;
+import org.apache.sshd.common.signature.Signature;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+
+/**
+ * An immutable index of the server host keys built once from a {@link KeyPairProvider}
+ * and the supported signature factories, so that handshakes do not need to re-scan
+ * (and re-encode) the provided keys or re-create the host key signers. The index
+ * holds the key pair and the encoded public key of each key type, the signatures
+ * proposal of the server and a per-thread signer initialized with the private key
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class HostKeyRegistry extends AbstractLoggingBean {
+    private final KeyPairProvider provider;
+    private final List<NamedFactory<Signature>> factories;
+    private final Map<String, Entry> entries;
+    private final String proposal;
+
+    public HostKeyRegistry(KeyPairProvider provider, List<NamedFactory<Signature>> factories) {
+        this.provider = provider;
+        this.factories = factories;
+
+        Map<String, Entry> map = new LinkedHashMap<>();
+        StringBuilder sb = null;
+        Iterable<KeyPair> keys = (provider == null) ? null : provider.loadKeys();
+        if (keys != null) {
+            for (KeyPair kp : keys) {
+                String type = KeyUtils.getKeyType(kp);
+                // same as KeyPairProvider#loadKey - the first key of each type is used
+                if (GenericUtils.isEmpty(type) || map.containsKey(type)) {
+                    continue;
+                }
+
+                NamedFactory<Signature> factory = NamedResource.Utils.findByName(type, String.CASE_INSENSITIVE_ORDER, factories);
+                map.put(type, new Entry(type, kp, factory));
+                if (factory == null) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("HostKeyRegistry({}) no signature factory for key type={}", provider, type);
+                    }
+                    continue;
+                }
+
+                if (sb == null) {
+                    sb = new StringBuilder(GenericUtils.size(factories) * 16 /* ecdsa-sha2-xxxx */);
+                } else {
+                    sb.append(',');
+                }
+                sb.append(type);
+            }
+        }
+
+        this.entries = Collections.unmodifiableMap(map);
+        this.proposal = (sb == null) ? null : sb.toString();
+    }
+
+    /**
+     * @param kpp The {@link KeyPairProvider}
+     * @param signatures The signature factories
+     * @return {@code true} if this registry was built from the same instances
+     */
+    public boolean isIndexOf(KeyPairProvider kpp, List<NamedFactory<Signature>> signatures) {
+        return (provider == kpp) && (factories == signatures);
+    }
+
+    /**
+     * @return The types of all the provided keys - in the provider's order
+     */
+    public Collection<String> getKeyTypes() {
+        return entries.keySet();
+    }
+
+    /**
+     * @return A comma separated list of the provided key types that have a
+     * matching signature factory - {@code null} if none
+     */
+    public String getSignaturesProposal() {
+        return proposal;
+    }
+
+    /**
+     * @param type The key type
+     * @return The matching {@link Entry} - {@code null} if no such key
+     */
+    public Entry getEntry(String type) {
+        return GenericUtils.isEmpty(type) ? null : entries.get(type);
+    }
+
+    /**
+     * @param type The key type
+     * @return The matching {@link KeyPair} - {@code null} if no such key
+     */
+    public KeyPair getKeyPair(String type) {
+        Entry entry = getEntry(type);
+        return (entry == null) ? null : entry.getKeyPair();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + getKeyTypes();
+    }
+
+    /**
+     * A single indexed host key
+     */
+    public static class Entry {
+        private final String keyType;
+        private final KeyPair keyPair;
+        private final byte[] publicKeyBlob;
+        private final NamedFactory<Signature> factory;
+        private final ThreadLocal<Signature> signers = new ThreadLocal<>();
+
+        Entry(String keyType, KeyPair keyPair, NamedFactory<Signature> factory) {
+            this.keyType = keyType;
+            this.keyPair = keyPair;
+            this.factory = factory;
+
+            Buffer buffer = new ByteArrayBuffer();
+            buffer.putRawPublicKey(keyPair.getPublic());
+            this.publicKeyBlob = buffer.getCompactData();
+        }
+
+        public String getKeyType() {
+            return keyType;
+        }
+
+        public KeyPair getKeyPair() {
+            return keyPair;
+        }
+
+        /**
+         * @return The SSH encoding of the public key - <B>Note:</B> the returned
+         * array is shared and must not be modified
+         */
+        public byte[] getPublicKeyBlob() {
+            return publicKeyBlob;
+        }
+
+        /**
+         * @return {@code true} if there is a signature factory for the key type
+         */
+        public boolean isSigningSupported() {
+            return factory != null;
+        }
+
+        /**
+         * Signs the data using a signer that is initialized once per thread
+         * and re-used for subsequent signatures by the same thread
+         *
+         * @param data The data to sign
+         * @return The signature value
+         * @throws Exception If failed to sign or no signature factory available
+         */
+        public byte[] sign(byte[] data) throws Exception {
+            Signature sig = signers.get();
+            if (sig == null) {
+                if (factory == null) {
+                    throw new IllegalStateException("No signature factory for key type=" + keyType);
+                }
+
+                sig = factory.create();
+                sig.initSigner(keyPair.getPrivate());
+                signers.set(sig);
+            }
+
+            boolean success = false;
+            try {
+                sig.update(data, 0, data.length);
+                byte[] signature = sig.sign();
+                success = true;
+                return signature;
+            } finally {
+                // a failed signer may be left with partial data - don't re-use it
+                if (!success) {
+                    signers.remove();
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return getKeyType();
+        }
+    }
+}
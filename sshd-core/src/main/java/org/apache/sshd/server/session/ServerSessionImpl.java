@@ -37,13 +37,13 @@ import org.apache.sshd.common.io.IoSession;
 import org.apache.sshd.common.io.IoWriteFuture;
 import org.apache.sshd.common.kex.KexProposalOption;
 import org.apache.sshd.common.kex.KexState;
-import org.apache.sshd.common.keyprovider.KeyPairProvider;
 import org.apache.sshd.common.session.AbstractSession;
 import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.common.util.ValidateUtils;
 import org.apache.sshd.common.util.buffer.Buffer;
 import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
 import org.apache.sshd.server.ServerFactoryManager;
+import org.apache.sshd.server.keyprovider.HostKeyRegistry;
 
 /**
  * TODO Add javadoc
@@ -129,38 +129,14 @@ public class ServerSessionImpl extends AbstractSession implements ServerSession
         ServerFactoryManager manager = getFactoryManager();
         ValidateUtils.checkTrue(proposedManager == manager, "Mismatched signatures proposed factory manager");
 
-        KeyPairProvider kpp = manager.getKeyPairProvider();
-        Collection<String> supported = NamedResource.Utils.getNameList(manager.getSignatureFactories());
-        Iterable<String> provided = (kpp == null) ? null : kpp.getKeyTypes();
-        if ((provided == null) || GenericUtils.isEmpty(supported)) {
-            return resolveEmptySignaturesProposal(supported, provided);
+        HostKeyRegistry registry = manager.getHostKeyRegistry();
+        String proposal = registry.getSignaturesProposal();
+        if (GenericUtils.isEmpty(proposal)) {
+            Collection<String> supported = NamedResource.Utils.getNameList(manager.getSignatureFactories());
+            return resolveEmptySignaturesProposal(supported, registry.getKeyTypes());
         }
 
-        StringBuilder resolveKeys = null;
-        for (String keyType : provided) {
-            if (!supported.contains(keyType)) {
-                if (log.isDebugEnabled()) {
-                    log.debug("resolveAvailableSignaturesProposal(" + provided + ") " + keyType + " not in list of supported: " + supported);
-                }
-                continue;
-            }
-
-            if (resolveKeys == null) {
-                resolveKeys = new StringBuilder(supported.size() * 16 /* ecdsa-sha2-xxxx */);
-            }
-
-            if (resolveKeys.length() > 0) {
-                resolveKeys.append(',');
-            }
-
-            resolveKeys.append(keyType);
-        }
-
-        if (GenericUtils.isEmpty(resolveKeys)) {
-            return resolveEmptySignaturesProposal(supported, provided);
-        } else {
-            return resolveKeys.toString();
-        }
+        return proposal;
     }
 
     /**
@@ -212,8 +188,8 @@ public class ServerSessionImpl extends AbstractSession implements ServerSession
     public KeyPair getHostKey() {
         String value = getNegotiatedKexParameter(KexProposalOption.SERVERKEYS);
         ServerFactoryManager manager = getFactoryManager();
-        KeyPairProvider provider = ValidateUtils.checkNotNull(manager.getKeyPairProvider(), "No host keys provider");
-        return provider.loadKey(value);
+        ValidateUtils.checkNotNull(manager.getKeyPairProvider(), "No host keys provider");
+        return manager.getHostKeyRegistry().getKeyPair(value);
     }
 
     @Override
@@ -222,6 +198,12 @@ public class ServerSessionImpl extends AbstractSession implements ServerSession
             return 0;
         }
 
+        ServerSessionRegistry registry = getFactoryManager().getSessionRegistry();
+        if (registry != null) {
+            return registry.getSessionCountForUser(userName);
+        }
+
+        // no registry - scan all the sessions
         IoService service = ioSession.getService();
         Map<?, IoSession> sessionsMap = service.getManagedSessions();
         if (GenericUtils.isEmpty(sessionsMap)) {
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.server.session;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.SessionListener;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
+
+/**
+ * Keeps track of the active server sessions and maintains per-user and
+ * per-remote address counters that are updated when sessions are created,
+ * authenticated and closed. The counters are read without locking, so
+ * limits can be checked in O(1) regardless of the number of sessions.
+ * <B>Note:</B> remote addresses are counted by their IP (i.e., regardless
+ * of the remote port) if they are {@link InetSocketAddress}-es
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public class ServerSessionRegistry extends AbstractLoggingBean implements SessionListener {
+    private final Map<Session, SessionEntry> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> userSessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, AtomicInteger> addressSessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, AtomicInteger> unauthenticatedSessions = new ConcurrentHashMap<>();
+    private final AtomicInteger unauthenticatedCount = new AtomicInteger(0);
+
+    public ServerSessionRegistry() {
+        super();
+    }
+
+    /**
+     * @return Number of registered (i.e., not yet closed) sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return Number of registered sessions that have not been authenticated yet
+     */
+    public int getUnauthenticatedSessionCount() {
+        return unauthenticatedCount.get();
+    }
+
+    /**
+     * @return A snapshot of the registered sessions
+     */
+    public Collection<Session> getSessions() {
+        return new ArrayList<>(sessions.keySet());
+    }
+
+    /**
+     * @return A snapshot of the users that have authenticated sessions
+     */
+    public Collection<String> getUsers() {
+        return new ArrayList<>(userSessions.keySet());
+    }
+
+    /**
+     * @param username The username
+     * @return A snapshot of the user's authenticated sessions
+     */
+    public List<Session> getUserSessions(String username) {
+        if (GenericUtils.isEmpty(username) || (!userSessions.containsKey(username))) {
+            return Collections.emptyList();
+        }
+
+        List<Session> result = new ArrayList<>();
+        for (Map.Entry<Session, SessionEntry> se : sessions.entrySet()) {
+            if (username.equals(se.getValue().getUsername())) {
+                result.add(se.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param username The username
+     * @return Number of authenticated sessions of the user
+     */
+    public int getSessionCountForUser(String username) {
+        return GenericUtils.isEmpty(username) ? 0 : count(userSessions, username);
+    }
+
+    /**
+     * @param address The remote address - if an {@link InetSocketAddress} then
+     * only its IP is taken into account
+     * @return Number of sessions - authenticated or not - from the address
+     */
+    public int getSessionCountForAddress(SocketAddress address) {
+        return (address == null) ? 0 : count(addressSessions, resolveAddressKey(address));
+    }
+
+    /**
+     * @param address The remote address - if an {@link InetSocketAddress} then
+     * only its IP is taken into account
+     * @return Number of sessions from the address that have not been
+     * authenticated yet
+     */
+    public int getUnauthenticatedSessionCountForAddress(SocketAddress address) {
+        return (address == null) ? 0 : count(unauthenticatedSessions, resolveAddressKey(address));
+    }
+
+    @Override
+    public void sessionCreated(Session session) {
+        IoSession ioSession = session.getIoSession();
+        Object key = resolveAddressKey((ioSession == null) ? null : ioSession.getRemoteAddress());
+        SessionEntry entry = new SessionEntry(key);
+        unauthenticatedCount.incrementAndGet();
+        if (key != null) {
+            increment(addressSessions, key);
+            increment(unauthenticatedSessions, key);
+        }
+
+        if (sessions.put(session, entry) != null) {
+            log.warn("sessionCreated({}) session already registered", session);
+        }
+    }
+
+    @Override
+    public void sessionEvent(Session session, Event event) {
+        if (!Event.Authenticated.equals(event)) {
+            return;
+        }
+
+        SessionEntry entry = sessions.get(session);
+        String username = session.getUsername();
+        if ((entry == null) || GenericUtils.isEmpty(username)) {
+            return;
+        }
+
+        synchronized (entry) {
+            if (entry.closed || (entry.username != null)) {
+                return;
+            }
+
+            entry.username = username;
+            int count = increment(userSessions, username);
+            unauthenticatedCount.decrementAndGet();
+            if (entry.address != null) {
+                decrement(unauthenticatedSessions, entry.address);
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("sessionEvent({}) user={} sessions={}", session, username, count);
+            }
+        }
+    }
+
+    @Override
+    public void sessionClosed(Session session) {
+        SessionEntry entry = sessions.remove(session);
+        if (entry == null) {
+            return;
+        }
+
+        synchronized (entry) {
+            entry.closed = true;
+            if (entry.username != null) {
+                decrement(userSessions, entry.username);
+            } else {
+                unauthenticatedCount.decrementAndGet();
+            }
+
+            if (entry.address != null) {
+                decrement(addressSessions, entry.address);
+                if (entry.username == null) {
+                    decrement(unauthenticatedSessions, entry.address);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param address The remote {@link SocketAddress} - may be {@code null}
+     * @return The key used to count the address - by default the IP of
+     * an {@link InetSocketAddress} or the address itself otherwise
+     */
+    protected Object resolveAddressKey(SocketAddress address) {
+        if (address instanceof InetSocketAddress) {
+            InetSocketAddress inetAddress = (InetSocketAddress) address;
+            return inetAddress.isUnresolved() ? inetAddress.getHostString() : inetAddress.getAddress();
+        } else {
+            return address;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[sessions=" + getSessionCount() + ", users=" + userSessions.size() + "]";
+    }
+
+    private static <K> int count(Map<K, AtomicInteger> counters, K key) {
+        AtomicInteger counter = (key == null) ? null : counters.get(key);
+        return (counter == null) ? 0 : Math.max(counter.get(), 0);
+    }
+
+    /*
+     * A counter that reached zero may be concurrently removed from the map,
+     * so it is never incremented from zero - a new counter is used instead
+     */
+    private static <K> int increment(ConcurrentMap<K, AtomicInteger> counters, K key) {
+        for (;;) {
+            AtomicInteger counter = counters.get(key);
+            if (counter == null) {
+                counter = new AtomicInteger(1);
+                AtomicInteger prev = counters.putIfAbsent(key, counter);
+                if (prev == null) {
+                    return 1;
+                }
+                counter = prev;
+            }
+
+            for (int cur = counter.get(); cur > 0; cur = counter.get()) {
+                if (counter.compareAndSet(cur, cur + 1)) {
+                    return cur + 1;
+                }
+            }
+
+            // the counter is being discarded - make sure it is removed and re-try
+            counters.remove(key, counter);
+        }
+    }
+
+    private static <K> int decrement(ConcurrentMap<K, AtomicInteger> counters, K key) {
+        AtomicInteger counter = counters.get(key);
+        if (counter == null) {
+            return 0;
+        }
+
+        int count = counter.decrementAndGet();
+        if ((count <= 0) && counter.compareAndSet(0, -1)) {
+            counters.remove(key, counter);
+        }
+        return Math.max(count, 0);
+    }
+
+    private static final class SessionEntry {
+        private final Object address;
+        private String username;
+        private boolean closed;
+
+        SessionEntry(Object address) {
+            this.address = address;
+        }
+
+        synchronized String getUsername() {
+            return username;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.apache.sshd.common.NamedResource;
 import org.apache.sshd.common.Service;
 import org.apache.sshd.common.SshConstants;
 import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.metrics.MetricsRegistry;
 import org.apache.sshd.common.session.Session;
 import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.common.util.ValidateUtils;
@@ -269,6 +270,11 @@ public class ServerUserAuthService extends AbstractCloseable implements Service,
             log.debug("handleAuthenticationFailure({}@{})", username, session);
         }
 
+        MetricsRegistry metrics = session.getFactoryManager().getMetricsRegistry();
+        if (metrics != null) {
+            metrics.getCounter(MetricsRegistry.AUTH_FAILURES).increment();
+        }
+
         buffer = session.prepareBuffer(SshConstants.SSH_MSG_USERAUTH_FAILURE, BufferUtils.clear(buffer));
         StringBuilder sb = new StringBuilder((authMethods.size() + 1) * Byte.SIZE);
         for (List<String> l : authMethods) {
@@ -18,8 +18,21 @@
  */
 package org.apache.sshd.server.session;
 
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.sshd.common.FactoryManagerUtils;
+import org.apache.sshd.common.PropertyKey;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.io.IoAcceptFilter;
+import org.apache.sshd.common.io.IoAcceptor;
 import org.apache.sshd.common.io.IoSession;
+import org.apache.sshd.common.session.AbstractSession;
 import org.apache.sshd.common.session.AbstractSessionFactory;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.common.util.TokenBucket;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
 import org.apache.sshd.server.ServerFactoryManager;
 
 /**
@@ -29,7 +42,21 @@ import org.apache.sshd.server.ServerFactoryManager;
  * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
  * @see org.apache.sshd.server.SshServer#setSessionFactory(SessionFactory)
  */
-public class SessionFactory extends AbstractSessionFactory<ServerFactoryManager, ServerSessionImpl> {
+public class SessionFactory extends AbstractSessionFactory<ServerFactoryManager, ServerSessionImpl> implements IoAcceptFilter {
+    public static final PropertyKey<Integer> MAX_UNAUTHENTICATED_SESSIONS_PER_ADDRESS_KEY =
+            PropertyKey.intKey(ServerFactoryManager.MAX_UNAUTHENTICATED_SESSIONS_PER_ADDRESS,
+                               ServerFactoryManager.DEFAULT_MAX_UNAUTHENTICATED_SESSIONS_PER_ADDRESS);
+    public static final PropertyKey<Integer> MAX_UNAUTHENTICATED_SESSIONS_KEY =
+            PropertyKey.intKey(ServerFactoryManager.MAX_UNAUTHENTICATED_SESSIONS,
+                               ServerFactoryManager.DEFAULT_MAX_UNAUTHENTICATED_SESSIONS);
+    public static final PropertyKey<Integer> ACCEPT_RATE_KEY =
+            PropertyKey.intKey(ServerFactoryManager.ACCEPT_RATE, ServerFactoryManager.DEFAULT_ACCEPT_RATE);
+    public static final PropertyKey<Integer> ACCEPT_BURST_KEY =
+            PropertyKey.intKey(ServerFactoryManager.ACCEPT_BURST, ServerFactoryManager.DEFAULT_ACCEPT_BURST);
+
+    private final Object acceptRateLock = new Object();
+    private TokenBucket acceptRateLimiter;
+    private boolean acceptRateResolved;
 
     public SessionFactory(ServerFactoryManager server) {
         super(server);
@@ -39,8 +66,107 @@ public class SessionFactory extends AbstractSessionFactory<ServerFactoryManager,
         return getFactoryManager();
     }
 
+    @Override
+    public Decision acceptConnection(IoAcceptor acceptor, SocketAddress local, SocketAddress remote) {
+        ServerFactoryManager server = getServer();
+        ServerSessionRegistry registry = server.getSessionRegistry();
+        if (registry != null) {
+            int maxPerAddress = MAX_UNAUTHENTICATED_SESSIONS_PER_ADDRESS_KEY.get(server);
+            int count = (maxPerAddress > 0) ? registry.getUnauthenticatedSessionCountForAddress(remote) : 0;
+            if ((maxPerAddress > 0) && (count >= maxPerAddress)) {
+                log.warn("acceptConnection({}) rejected - too many ({}) unauthenticated sessions from the same address", remote, count);
+                return Decision.REJECT;
+            }
+
+            int maxUnauthenticated = MAX_UNAUTHENTICATED_SESSIONS_KEY.get(server);
+            count = (maxUnauthenticated > 0) ? registry.getUnauthenticatedSessionCount() : 0;
+            if ((maxUnauthenticated > 0) && (count >= maxUnauthenticated)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("acceptConnection({}) deferred - too many ({}) unauthenticated sessions", remote, count);
+                }
+                return Decision.DEFER;
+            }
+        }
+
+        TokenBucket bucket = resolveAcceptRateLimiter();
+        if ((bucket != null) && (!bucket.tryAcquire())) {
+            if (log.isDebugEnabled()) {
+                log.debug("acceptConnection({}) deferred - accept rate exceeded", remote);
+            }
+            return Decision.DEFER;
+        }
+
+        return Decision.ACCEPT;
+    }
+
+    /**
+     * @return The {@link TokenBucket} used to enforce the {@link ServerFactoryManager#ACCEPT_RATE}
+     * - {@code null} if no rate is enforced. <B>Note:</B> the limiter is initialized
+     * once from the configuration the first time it is required
+     */
+    protected TokenBucket resolveAcceptRateLimiter() {
+        synchronized (acceptRateLock) {
+            if (!acceptRateResolved) {
+                ServerFactoryManager server = getServer();
+                int rate = ACCEPT_RATE_KEY.get(server);
+                if (rate > 0) {
+                    int burst = ACCEPT_BURST_KEY.get(server);
+                    acceptRateLimiter = new TokenBucket(rate, (burst > 0) ? burst : rate);
+                }
+                acceptRateResolved = true;
+            }
+
+            return acceptRateLimiter;
+        }
+    }
+
+    /**
+     * Sends the server identification followed by an (unencrypted) {@code SSH_MSG_DISCONNECT}
+     * - which is allowed at any stage of the protocol - so that the client reports a
+     * meaningful error instead of a closed connection
+     */
+    @Override
+    public byte[] getRejectionMessage(IoAcceptor acceptor, SocketAddress remote) {
+        ServerFactoryManager server = getServer();
+        String ident = FactoryManagerUtils.getString(server, ServerFactoryManager.SERVER_IDENTIFICATION);
+        if (GenericUtils.isEmpty(ident)) {
+            ident = server.getVersion();
+        }
+
+        Buffer payload = new ByteArrayBuffer();
+        payload.putByte(SshConstants.SSH_MSG_DISCONNECT);
+        payload.putInt(SshConstants.SSH2_DISCONNECT_TOO_MANY_CONNECTIONS);
+        payload.putString("Too many connections");
+        payload.putString("");   // language...
+
+        int len = payload.available();
+        // packet length + padding length + payload + padding must be a multiple of 8 with at least 4 bytes of padding
+        int pad = (-(len + 5)) & 7;
+        if (pad < 4) {
+            pad += 8;
+        }
+
+        Buffer buffer = new ByteArrayBuffer();
+        buffer.putRawBytes((AbstractSession.DEFAULT_SSH_VERSION_PREFIX + ident + "\r\n").getBytes(StandardCharsets.UTF_8));
+        buffer.putInt(len + pad + 1);
+        buffer.putByte((byte) pad);
+        buffer.putBuffer(payload);
+        buffer.putRawBytes(new byte[pad]);
+        return buffer.getCompactData();
+    }
+
     @Override
     protected ServerSessionImpl doCreateSession(IoSession ioSession) throws Exception {
         return new ServerSessionImpl(getServer(), ioSession);
     }
+
+    @Override
+    protected ServerSessionImpl setupSession(ServerSessionImpl session) throws Exception {
+        ServerSessionRegistry registry = getServer().getSessionRegistry();
+        if (registry != null) {
+            registry.sessionCreated(session);
+            session.addSessionListener(registry);
+        }
+        return super.setupSession(session);
+    }
 }
@@ -21,9 +21,14 @@ package org.apache.sshd.server.shell;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.sshd.common.util.io.IoUtils;
+import org.apache.sshd.common.util.logging.AbstractLoggingBean;
 import org.apache.sshd.common.util.threads.ThreadUtils;
 import org.apache.sshd.server.Command;
 import org.apache.sshd.server.Environment;
@@ -35,21 +40,50 @@ import org.apache.sshd.server.session.ServerSession;
  * A shell implementation that wraps an instance of {@link InvertedShell}
  * as a {@link Command}.  This is useful when using external
  * processes.
- * When starting the shell, this wrapper will also create a thread used
- * to pump the streams and also to check if the shell is alive.
+ * When starting the shell, this wrapper will submit one pump per stream
+ * to the executor - the input, output and error streams are each pumped
+ * using blocking reads, so an idle shell does not consume any CPU and data
+ * is forwarded as soon as it becomes available - as well as a task that
+ * waits for the termination of a {@link WaitableInvertedShell}. <B>Note:</B>
+ * the executor must therefore be able to run {@link #TASKS_COUNT} tasks
+ * concurrently. Unless one is provided, the wrappers share a common cached
+ * thread pool.
+ * The exit of a {@link WaitableInvertedShell} is signalled once it terminates
+ * and its remaining output has been drained - waiting at most {@link #getOutputDrainTimeout()}
+ * for the output streams to reach EOF, since they may still be held open by some
+ * background process started by the shell. Any other shell is considered to
+ * have exited once both its output and error streams have reached EOF.
  *
  * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
  */
-public class InvertedShellWrapper implements Command, SessionAware {
+public class InvertedShellWrapper extends AbstractLoggingBean implements Command, SessionAware {
 
     /**
      * default buffer size for the IO pumps.
      */
     public static final int DEFAULT_BUFFER_SIZE = 8192;
 
+    /**
+     * Number of concurrent pumps (input, output and error) used per shell
+     */
+    public static final int PUMPS_COUNT = 3;
+
+    /**
+     * Number of concurrent tasks (the pumps and the exit watcher) used per shell
+     */
+    public static final int TASKS_COUNT = PUMPS_COUNT + 1;
+
+    /**
+     * Default max. time (msec.) to wait for the output streams to be drained
+     * once the shell has terminated
+     */
+    public static final long DEFAULT_OUTPUT_DRAIN_TIMEOUT = TimeUnit.SECONDS.toMillis(5L);
+
     private final InvertedShell shell;
     private final Executor executor;
     private final int bufferSize;
+    private final CountDownLatch outputDrained = new CountDownLatch(2);
+    private final AtomicBoolean exited = new AtomicBoolean(false);
     private InputStream in;
     private OutputStream out;
     private OutputStream err;
@@ -58,6 +92,8 @@ public class InvertedShellWrapper implements Command, SessionAware {
     private InputStream shellErr;
     private ExitCallback callback;
     private boolean shutdownExecutor;
+    private long outputDrainTimeout = DEFAULT_OUTPUT_DRAIN_TIMEOUT;
+    private volatile boolean destroyed;
 
     public InvertedShellWrapper(InvertedShell shell) {
         this(shell, DEFAULT_BUFFER_SIZE);
@@ -68,10 +104,7 @@ public class InvertedShellWrapper implements Command, SessionAware {
     }
 
     public InvertedShellWrapper(InvertedShell shell, int bufferSize) {
-        this(shell,
-                ThreadUtils.newSingleThreadExecutor("shell[" + Integer.toHexString(shell.hashCode()) + "]"),
-                true,
-                bufferSize);
+        this(shell, getDefaultExecutor(), false, bufferSize);
     }
 
     public InvertedShellWrapper(InvertedShell shell, Executor executor, int bufferSize) {
@@ -85,6 +118,27 @@ public class InvertedShellWrapper implements Command, SessionAware {
         this.shutdownExecutor = shutdownExecutor;
     }
 
+    /**
+     * @return The {@link Executor} shared by all the wrappers that were not
+     * given a specific one - a cached pool of daemon threads that cannot be
+     * shut down
+     */
+    public static Executor getDefaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * @return Max. time (msec.) to wait for the output streams to be drained
+     * once the shell has terminated
+     */
+    public long getOutputDrainTimeout() {
+        return outputDrainTimeout;
+    }
+
+    public void setOutputDrainTimeout(long outputDrainTimeout) {
+        this.outputDrainTimeout = outputDrainTimeout;
+    }
+
     @Override
     public void setInputStream(InputStream in) {
         this.in = in;
@@ -129,56 +183,151 @@ public class InvertedShellWrapper implements Command, SessionAware {
 
     @Override
     public synchronized void destroy() {
+        destroyed = true;
         shell.destroy();
         if (shutdownExecutor && executor instanceof ExecutorService) {
             ((ExecutorService) executor).shutdown();
         }
     }
 
+    /**
+     * Invoked by the executor once the shell has been started - submits the output
+     * pumps (and the exit watcher of a {@link WaitableInvertedShell}) and then pumps
+     * the input in the calling thread.
+     */
     protected void pumpStreams() {
-        try {
-            // Use a single thread to correctly sequence the output and error streams.
-            // If any bytes are available from the output stream, send them first, then
-            // check the error stream, or wait until more data is available.
-            byte[] buffer = new byte[bufferSize];
-            for (;;) {
-                if (pumpStream(in, shellIn, buffer)) {
-                    continue;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                pumpOutput(shellOut, out);
+            }
+        });
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                pumpOutput(shellErr, err);
+            }
+        });
+        if (shell instanceof WaitableInvertedShell) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    watchExit((WaitableInvertedShell) shell);
                 }
-                if (pumpStream(shellOut, out, buffer)) {
-                    continue;
+            });
+        }
+        pumpInput();
+    }
+
+    /**
+     * Pumps the data received from the client into the shell until EOF
+     * is reached on either side - at which point the shell input is closed
+     * so that the shell can detect it.
+     */
+    protected void pumpInput() {
+        try {
+            pumpStream(in, shellIn, new byte[bufferSize]);
+        } catch (IOException e) {
+            // expected if the shell exited while we were still waiting for data
+            if (log.isDebugEnabled()) {
+                log.debug("pumpInput(" + shell + ") " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        } finally {
+            IoUtils.closeQuietly(shellIn);
+        }
+    }
+
+    /**
+     * Pumps one of the shell's output streams to the client until EOF. Unless the
+     * shell is a {@link WaitableInvertedShell}, the exit is signalled once both the
+     * output and the error streams have been exhausted.
+     *
+     * @param shellStream The shell's {@link InputStream} to read from
+     * @param clientStream The client's {@link OutputStream} to write to
+     */
+    protected void pumpOutput(InputStream shellStream, OutputStream clientStream) {
+        try {
+            pumpStream(shellStream, clientStream, new byte[bufferSize]);
+        } catch (IOException e) {
+            if (!destroyed) {
+                if (log.isDebugEnabled()) {
+                    log.debug("pumpOutput(" + shell + ") " + e.getClass().getSimpleName() + ": " + e.getMessage());
                 }
-                if (pumpStream(shellErr, err, buffer)) {
-                    continue;
+            }
+        } finally {
+            outputDrained.countDown();
+        }
+
+        if ((!(shell instanceof WaitableInvertedShell)) && (outputDrained.getCount() <= 0L)) {
+            try {
+                signalExit(shell.exitValue());
+            } catch (RuntimeException e) {
+                if (!destroyed) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("pumpOutput(" + shell + ") failed (" + e.getClass().getSimpleName() + ") to get exit value: " + e.getMessage());
+                    }
+                    signalExit(-1);
                 }
-                if (!shell.isAlive()) {
-                    callback.onExit(shell.exitValue());
-                    return;
+            }
+        }
+    }
+
+    /**
+     * Waits for the shell to terminate and then for its remaining output to
+     * be drained (up to {@link #getOutputDrainTimeout()}) before invoking
+     * the {@link ExitCallback} - the output streams may never reach EOF if
+     * some background process inherited them.
+     *
+     * @param waitable The {@link WaitableInvertedShell} to wait for
+     */
+    protected void watchExit(WaitableInvertedShell waitable) {
+        try {
+            int exitValue = waitable.waitFor();
+            long timeout = getOutputDrainTimeout();
+            if (!outputDrained.await(timeout, TimeUnit.MILLISECONDS)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("watchExit(" + shell + ") output not drained within " + timeout + " msec.");
                 }
-                // Sleep a bit.  This is not very good, as it consumes CPU, but the
-                // input streams are not selectable for nio, and any other blocking
-                // method would consume at least two threads
-                Thread.sleep(1);
+                // release the pumps that are still blocked on the shell's streams
+                IoUtils.closeQuietly(shellOut, shellErr);
             }
+
+            signalExit(exitValue);
         } catch (Exception e) {
+            if (destroyed) {
+                return; // the shell is no longer available once destroyed
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("watchExit(" + shell + ") " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
             shell.destroy();
-            callback.onExit(shell.exitValue());
+            signalExit(-1);
+        }
+    }
+
+    private void signalExit(int exitValue) {
+        if (exited.getAndSet(true)) {
+            return;
         }
+        callback.onExit(exitValue);
     }
 
-    private boolean pumpStream(InputStream in, OutputStream out, byte[] buffer) throws IOException {
-        int available = in.available();
-        if (available > 0) {
-            int len = in.read(buffer);
+    private static void pumpStream(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        for (int len = in.read(buffer); len != -1; len = in.read(buffer)) {
             if (len > 0) {
                 out.write(buffer, 0, len);
                 out.flush();
-                return true;
             }
-        } else if (available == -1) {
-            out.close();
         }
-        return false;
     }
 
+    private static final class DefaultExecutorHolder {
+        private static final Executor EXECUTOR = ThreadUtils.protectExecutorServiceShutdown(
+                ThreadUtils.newCachedThreadPool("inverted-shell"), false);
+
+        private DefaultExecutorHolder() {
+            throw new UnsupportedOperationException("No instance allowed");
+        }
+    }
 }
@@ -22,12 +22,14 @@ import java.io.FilterInputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.apache.sshd.common.Factory;
 import org.apache.sshd.common.util.GenericUtils;
@@ -73,6 +75,7 @@ public class ProcessShellFactory extends AbstractLoggingBean implements Factory<
 
     private String[] command;
     private final Set<TtyOptions> ttyOptions;
+    private Executor executor;
 
     public ProcessShellFactory() {
         this(GenericUtils.EMPTY_STRING_ARRAY);
@@ -95,12 +98,34 @@ public class ProcessShellFactory extends AbstractLoggingBean implements Factory<
         this.command = command;
     }
 
+    /**
+     * @return The {@link Executor} used to pump the shells' streams - if {@code null}
+     * then the {@link InvertedShellWrapper#getDefaultExecutor() default} one is used
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor The {@link Executor} used to pump the shells' streams. <B>Note:</B>
+     * each shell requires {@link InvertedShellWrapper#TASKS_COUNT} concurrent tasks - plus
+     * one more if the {@link TtyOptions#Echo} option is used
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    protected Executor resolveExecutor() {
+        Executor value = getExecutor();
+        return (value == null) ? InvertedShellWrapper.getDefaultExecutor() : value;
+    }
+
     @Override
     public Command create() {
-        return new InvertedShellWrapper(new ProcessShell());
+        return new InvertedShellWrapper(new ProcessShell(), resolveExecutor());
     }
 
-    public class ProcessShell implements InvertedShell {
+    public class ProcessShell implements WaitableInvertedShell {
 
         private Process process;
         private TtyFilterOutputStream in;
@@ -135,8 +160,9 @@ public class ProcessShellFactory extends AbstractLoggingBean implements Factory<
             log.info("Starting shell with command: '{}' and env: {}", builder.command(), builder.environment());
             process = builder.start();
             out = new TtyFilterInputStream(process.getInputStream());
-            err = new TtyFilterInputStream(process.getErrorStream());
+            err = new TtyFilterInputStream(process.getErrorStream(), ttyOptions.contains(TtyOptions.Echo));
             in = new TtyFilterOutputStream(process.getOutputStream(), err);
+            err.startReadAhead(resolveExecutor());
         }
 
         @Override
@@ -173,6 +199,15 @@ public class ProcessShellFactory extends AbstractLoggingBean implements Factory<
             }
         }
 
+        @Override
+        public int waitFor() throws InterruptedException {
+            Process p = process;
+            if (p == null) {
+                throw new IllegalStateException("Shell not started or already destroyed");
+            }
+            return p.waitFor();
+        }
+
         @Override
         public void destroy() {
             if (process != null) {
@@ -185,24 +220,88 @@ public class ProcessShellFactory extends AbstractLoggingBean implements Factory<
         }
 
         protected class TtyFilterInputStream extends FilterInputStream {
+            private final boolean echoTarget;
             private Buffer buffer;
             private int lastChar;
+            private boolean eof;
+            private IOException failure;
 
             public TtyFilterInputStream(InputStream in) {
+                this(in, false);
+            }
+
+            /**
+             * @param in The underlying {@link InputStream}
+             * @param echoTarget If {@code true} then this stream also receives
+             * echoed data - in which case a dedicated task reads the underlying
+             * stream so that echoed data is not delayed by a blocking read
+             * @see #startReadAhead(Executor)
+             */
+            public TtyFilterInputStream(InputStream in, boolean echoTarget) {
                 super(in);
+                this.echoTarget = echoTarget;
                 buffer = new ByteArrayBuffer(32);
             }
 
             synchronized void write(int c) {
                 buffer.putByte((byte) c);
+                notifyAll();
             }
 
             synchronized void write(byte[] buf, int off, int len) {
                 buffer.putBytes(buf, off, len);
+                notifyAll();
+            }
+
+            /**
+             * Starts reading the underlying stream into the internal buffer
+             * if this stream is an echo target - otherwise does nothing
+             *
+             * @param executor The {@link Executor} used to run the read-ahead task
+             */
+            void startReadAhead(Executor executor) {
+                if (!echoTarget) {
+                    return;
+                }
+
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        readAhead();
+                    }
+                });
+            }
+
+            @SuppressWarnings("synthetic-access")
+            protected void readAhead() {
+                byte[] data = new byte[InvertedShellWrapper.DEFAULT_BUFFER_SIZE];
+                try {
+                    for (int len = in.read(data); len != -1; len = in.read(data)) {
+                        synchronized (this) {
+                            buffer.putRawBytes(data, 0, len);
+                            notifyAll();
+                        }
+                    }
+                } catch (IOException e) {
+                    synchronized (this) {
+                        failure = e;
+                    }
+                    log.debug("readAhead() failed ({}) to read: {}", e.getClass().getSimpleName(), e.getMessage());
+                } finally {
+                    synchronized (this) {
+                        eof = true;
+                        notifyAll();
+                    }
+                }
             }
 
             @Override
             public int available() throws IOException {
+                if (echoTarget) {
+                    synchronized (this) {
+                        return buffer.available();
+                    }
+                }
                 return super.available() + buffer.available();
             }
 
@@ -213,6 +312,12 @@ public class ProcessShellFactory extends AbstractLoggingBean implements Factory<
                 if (buffer.available() > 0) {
                     c = buffer.getByte();
                     buffer.compact();
+                } else if (echoTarget) {
+                    if (!awaitBufferedData()) {
+                        return -1;
+                    }
+                    c = buffer.getByte();
+                    buffer.compact();
                 } else {
                     c = super.read();
                 }
@@ -232,8 +337,17 @@ public class ProcessShellFactory extends AbstractLoggingBean implements Factory<
             @Override
             public synchronized int read(byte[] b, int off, int len) throws IOException {
                 if (buffer.available() == 0) {
-                    int nb = super.read(b, off, len);
-                    buffer.putRawBytes(b, off, nb);
+                    if (echoTarget) {
+                        if (!awaitBufferedData()) {
+                            return -1;
+                        }
+                    } else {
+                        int nb = super.read(b, off, len);
+                        if (nb == -1) {
+                            return -1;
+                        }
+                        buffer.putRawBytes(b, off, nb);
+                    }
                 }
                 int nb = 0;
                 while (nb < len && buffer.available() > 0) {
@@ -241,6 +355,31 @@ public class ProcessShellFactory extends AbstractLoggingBean implements Factory<
                 }
                 return nb;
             }
+
+            /**
+             * Waits (without holding the lock) until either some data has been buffered
+             * by the read-ahead task or echoed, or the underlying stream is exhausted
+             *
+             * @return {@code false} if EOF reached and no more data is buffered
+             * @throws IOException If the read-ahead failed or interrupted while waiting
+             */
+            protected synchronized boolean awaitBufferedData() throws IOException {
+                while (buffer.available() <= 0) {
+                    if (eof) {
+                        if (failure != null) {
+                            throw failure;
+                        }
+                        return false;
+                    }
+
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException("Interrupted while waiting for data");
+                    }
+                }
+                return true;
+            }
         }
 
         protected class TtyFilterOutputStream extends FilterOutputStream {
@@ -267,7 +406,7 @@ public class ProcessShellFactory extends AbstractLoggingBean implements Factory<
 
             @Override
             public void write(byte[] b, int off, int len) throws IOException {
-                for (int i = off; i < len; i++) {
+                for (int i = off; i < off + len; i++) {
                     write(b[i]);
                 }
             }
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.server.shell;
+
+/**
+ * An {@link InvertedShell} whose termination can be waited for - e.g., one that
+ * wraps a {@link Process}. This allows the {@link InvertedShellWrapper} to
+ * signal the exit as soon as the shell terminates, even if its output streams
+ * are still held open by some background process
+ *
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+public interface WaitableInvertedShell extends InvertedShell {
+    /**
+     * Waits until the shell terminates
+     *
+     * @return The exit value of the shell
+     * @throws InterruptedException If interrupted while waiting
+     */
+    int waitFor() throws InterruptedException;
+}
@@ -68,10 +68,13 @@ import org.apache.sshd.common.Factory;
 import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.FactoryManagerUtils;
 import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.PropertyKey;
 import org.apache.sshd.common.config.VersionProperties;
 import org.apache.sshd.common.digest.BuiltinDigests;
 import org.apache.sshd.common.digest.Digest;
 import org.apache.sshd.common.file.FileSystemAware;
+import org.apache.sshd.common.metrics.Histogram;
+import org.apache.sshd.common.metrics.MetricsRegistry;
 import org.apache.sshd.common.random.Random;
 import org.apache.sshd.common.subsystem.sftp.SftpConstants;
 import org.apache.sshd.common.subsystem.sftp.extensions.SpaceAvailableExtensionInfo;
@@ -183,6 +186,7 @@ public class SftpSubsystem extends AbstractLoggingBean implements Command, Runna
      */
     public static final String MAX_OPEN_HANDLES_PER_SESSION = "max-open-handles-per-session";
     public static final int DEFAULT_MAX_OPEN_HANDLES = Integer.MAX_VALUE;
+    public static final PropertyKey<Integer> MAX_OPEN_HANDLES_KEY = PropertyKey.intKey(MAX_OPEN_HANDLES_PER_SESSION, DEFAULT_MAX_OPEN_HANDLES);
 
     /**
      * Size in bytes of the opaque handle value
@@ -223,6 +227,7 @@ public class SftpSubsystem extends AbstractLoggingBean implements Command, Runna
      */
     public static final String MAX_PACKET_LENGTH_PROP = "sftp-max-packet-length";
     public static final int DEFAULT_MAX_PACKET_LENGTH = 1024 * 16;
+    public static final PropertyKey<Integer> MAX_PACKET_LENGTH_KEY = PropertyKey.intKey(MAX_PACKET_LENGTH_PROP, DEFAULT_MAX_PACKET_LENGTH);
 
     /**
      * Allows controlling reports of which client extensions are supported
@@ -320,6 +325,11 @@ public class SftpSubsystem extends AbstractLoggingBean implements Command, Runna
     protected int fileHandleSize = DEFAULT_FILE_HANDLE_SIZE;
     protected int maxFileHandleRounds = DEFAULT_FILE_HANDLE_ROUNDS;
     protected ServerSession session;
+    protected MetricsRegistry metricsRegistry;
+    /**
+     * Per-command latency histograms - resolved on first use
+     */
+    protected final Histogram[] commandMetrics = new Histogram[256];
     protected boolean closed;
     protected ExecutorService executors;
     protected boolean shutdownExecutor;
@@ -373,6 +383,7 @@ public class SftpSubsystem extends AbstractLoggingBean implements Command, Runna
         this.session = session;
 
         FactoryManager manager = session.getFactoryManager();
+        this.metricsRegistry = manager.getMetricsRegistry();
         Factory<? extends Random> factory = manager.getRandomFactory();
         this.randomizer = factory.create();
 
@@ -484,6 +495,7 @@ public class SftpSubsystem extends AbstractLoggingBean implements Command, Runna
                     length, type, id);
         }
 
+        long startTime = (metricsRegistry == null) ? 0L : System.nanoTime();
         switch (type) {
             case SSH_FXP_INIT:
                 doInit(buffer, id);
@@ -559,11 +571,30 @@ public class SftpSubsystem extends AbstractLoggingBean implements Command, Runna
                 sendStatus(BufferUtils.clear(buffer), id, SSH_FX_OP_UNSUPPORTED, "Command " + type + " is unsupported or not implemented");
         }
 
+        if (metricsRegistry != null) {
+            resolveCommandMetric(type).record(System.nanoTime() - startTime);
+        }
+
         if (type != SSH_FXP_INIT) {
             requestsCount++;
         }
     }
 
+    /**
+     * @param type The SFTP command type
+     * @return The latency {@link Histogram} of the command
+     * @see MetricsRegistry#SFTP_COMMAND_PREFIX
+     */
+    protected Histogram resolveCommandMetric(int type) {
+        int index = type & 0xFF;
+        Histogram metric = commandMetrics[index];
+        if (metric == null) {
+            metric = metricsRegistry.getHistogram(MetricsRegistry.SFTP_COMMAND_PREFIX + index);
+            commandMetrics[index] = metric;
+        }
+        return metric;
+    }
+
     protected void doExtended(Buffer buffer, int id) throws IOException {
         executeExtendedCommand(buffer, id, buffer.getString());
     }
@@ -1694,7 +1725,7 @@ public class SftpSubsystem extends AbstractLoggingBean implements Command, Runna
                 int lenPos = reply.wpos();
                 reply.putInt(0);
 
-                int count = doReadDir(id, dh, reply, FactoryManagerUtils.getIntProperty(session, MAX_PACKET_LENGTH_PROP, DEFAULT_MAX_PACKET_LENGTH));
+                int count = doReadDir(id, dh, reply, MAX_PACKET_LENGTH_KEY.get(session));
                 BufferUtils.updateLengthPlaceholder(reply, lenPos, count);
                 if (log.isDebugEnabled()) {
                     log.debug("doReadDir({})[{}] - sent {} entries", handle, h, count);
@@ -1890,7 +1921,7 @@ public class SftpSubsystem extends AbstractLoggingBean implements Command, Runna
         String handle = buffer.getString();
         long offset = buffer.getLong();
         int requestedLength = buffer.getInt();
-        int maxAllowed = FactoryManagerUtils.getIntProperty(session, MAX_PACKET_LENGTH_PROP, DEFAULT_MAX_PACKET_LENGTH);
+        int maxAllowed = MAX_PACKET_LENGTH_KEY.get(session);
         int readLen = Math.min(requestedLength, maxAllowed);
 
         if (log.isTraceEnabled()) {
@@ -2035,7 +2066,7 @@ public class SftpSubsystem extends AbstractLoggingBean implements Command, Runna
                     path, Integer.toHexString(access), Integer.toHexString(pflags), attrs);
         }
         int curHandleCount = handles.size();
-        int maxHandleCount = FactoryManagerUtils.getIntProperty(session, MAX_OPEN_HANDLES_PER_SESSION, DEFAULT_MAX_OPEN_HANDLES);
+        int maxHandleCount = MAX_OPEN_HANDLES_KEY.get(session);
         if (curHandleCount > maxHandleCount) {
             throw new IllegalStateException("Too many open handles: current=" + curHandleCount + ", max.=" + maxHandleCount);
         }
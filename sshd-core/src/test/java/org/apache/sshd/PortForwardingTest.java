@@ -29,8 +29,10 @@ import java.lang.reflect.Proxy;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -54,6 +56,8 @@ import org.apache.sshd.common.FactoryManagerUtils;
 import org.apache.sshd.common.SshdSocketAddress;
 import org.apache.sshd.common.forward.TcpipForwarder;
 import org.apache.sshd.common.forward.TcpipForwarderFactory;
+import org.apache.sshd.common.metrics.DefaultMetricsRegistry;
+import org.apache.sshd.common.metrics.MetricsRegistry;
 import org.apache.sshd.common.session.ConnectionService;
 import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.common.util.ValidateUtils;
@@ -319,6 +323,56 @@ public class PortForwardingTest extends BaseTestSupport {
         }
     }
 
+    @Test
+    public void testRemoteForwardingDeferredOpens() throws Exception {
+        MetricsRegistry metrics = new DefaultMetricsRegistry();
+        sshd.setMetricsRegistry(metrics);
+        FactoryManagerUtils.updateProperty(sshd, FactoryManager.MAX_PENDING_FORWARD_OPENS, 1);
+
+        final int numConnections = 5;
+        Session session = createSession();
+        try {
+            int forwardedPort = getFreePort();
+            session.setPortForwardingR(forwardedPort, TEST_LOCALHOST, echoPort);
+            waitForForwardingRequest(TcpipForwardHandler.REQUEST, TimeUnit.SECONDS.toMillis(5L));
+
+            List<Socket> sockets = new ArrayList<>(numConnections);
+            try {
+                // connect all of them first so that some of the channel opens are deferred
+                for (int index = 0; index < numConnections; index++) {
+                    Socket s = new Socket(TEST_LOCALHOST, forwardedPort);
+                    s.setSoTimeout((int) TimeUnit.SECONDS.toMillis(10L));
+                    sockets.add(s);
+                }
+
+                for (int index = 0; index < numConnections; index++) {
+                    Socket s = sockets.get(index);
+                    String expected = getCurrentTestName() + "-" + index;
+                    byte[] bytes = expected.getBytes(StandardCharsets.UTF_8);
+                    OutputStream output = s.getOutputStream();
+                    output.write(bytes);
+                    output.flush();
+
+                    byte[] buf = new byte[bytes.length + Long.SIZE];
+                    int n = s.getInputStream().read(buf);
+                    String res = new String(buf, 0, n, StandardCharsets.UTF_8);
+                    assertEquals("Mismatched data", expected, res);
+                }
+            } finally {
+                for (Socket s : sockets) {
+                    s.close();
+                }
+                session.delPortForwardingR(forwardedPort);
+            }
+        } finally {
+            session.disconnect();
+        }
+
+        assertEquals("Mismatched connections count", numConnections, metrics.getCounter(MetricsRegistry.FORWARD_CONNECTIONS).get());
+        assertEquals("Mismatched opens count", numConnections, metrics.getHistogram(MetricsRegistry.FORWARD_OPEN_DURATION).getCount());
+        assertEquals("Mismatched pending opens", 0L, metrics.getCounter(MetricsRegistry.FORWARD_OPENS_PENDING).get());
+    }
+
     @Test
     public void testLocalForwarding() throws Exception {
         Session session = createSession();
@@ -18,6 +18,8 @@
  */
 package org.apache.sshd;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -25,6 +27,7 @@ import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.mina.core.buffer.IoBuffer;
@@ -37,9 +40,13 @@ import org.apache.sshd.client.session.ClientSession;
 import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.FactoryManagerUtils;
 import org.apache.sshd.common.SshdSocketAddress;
+import org.apache.sshd.common.forward.DefaultTcpipForwarder;
+import org.apache.sshd.common.forward.SocksProxy;
+import org.apache.sshd.common.session.ConnectionService;
 import org.apache.sshd.server.SshServer;
 import org.apache.sshd.server.forward.AcceptAllForwardingFilter;
 import org.apache.sshd.util.test.BaseTestSupport;
+import org.apache.sshd.util.test.Utils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.FixMethodOrder;
@@ -138,6 +145,101 @@ public class ProxyTest extends BaseTestSupport {
         }
     }
 
+    @Test
+    public void testSocks5PipelinedHandshake() throws Exception {
+        try (ClientSession session = createNativeSession()) {
+            String expected = getCurrentTestName();
+            byte[] bytes = expected.getBytes(StandardCharsets.UTF_8);
+            SshdSocketAddress dynamic = session.startDynamicPortForwarding(new SshdSocketAddress(TEST_LOCALHOST, 0));
+
+            try (Socket s = new Socket(TEST_LOCALHOST, dynamic.getPort())) {
+                s.setSoTimeout((int) TimeUnit.SECONDS.toMillis(10L));
+
+                // greeting, CONNECT request and data sent without waiting for any reply
+                byte[] host = TEST_LOCALHOST.getBytes(StandardCharsets.US_ASCII);
+                ByteArrayOutputStream request = new ByteArrayOutputStream();
+                request.write(new byte[]{0x05, 0x01, 0x00});
+                request.write(new byte[]{0x05, 0x01, 0x00, 0x03, (byte) host.length});
+                request.write(host);
+                request.write(new byte[]{(byte) (echoPort >> Byte.SIZE), (byte) echoPort});
+                request.write(bytes);
+
+                OutputStream sockOut = s.getOutputStream();
+                sockOut.write(request.toByteArray());
+                sockOut.flush();
+
+                DataInputStream sockIn = new DataInputStream(s.getInputStream());
+                byte[] greeting = new byte[2];
+                sockIn.readFully(greeting);
+                assertArrayEquals("Mismatched greeting reply", new byte[]{0x05, 0x00}, greeting);
+
+                byte[] reply = new byte[10];
+                sockIn.readFully(reply);
+                assertEquals("Mismatched reply version", 0x05, reply[0]);
+                assertEquals("Mismatched reply status", 0x00, reply[1]);
+
+                byte[] data = new byte[bytes.length];
+                sockIn.readFully(data);
+                assertEquals("Mismatched data", expected, new String(data, StandardCharsets.UTF_8));
+            }
+
+            DefaultTcpipForwarder forwarder = (DefaultTcpipForwarder) session.getService(ConnectionService.class).getTcpipForwarder();
+            SocksProxy proxy = forwarder.getDynamicPortForwardingProxy(dynamic.getPort());
+            assertNotNull("No proxy for dynamic forwarding", proxy);
+
+            Map<String, SocksProxy.DestinationStatistics> stats = proxy.getDestinationStatistics();
+            SocksProxy.DestinationStatistics destStats = stats.get(TEST_LOCALHOST + ":" + echoPort);
+            assertNotNull("No statistics for destination: " + stats.keySet(), destStats);
+            assertEquals("Mismatched opens count", 1L, destStats.getOpenDurations().getCount());
+            assertEquals("Mismatched failures count", 0L, destStats.getFailuresCount());
+
+            session.stopDynamicPortForwarding(dynamic);
+        }
+    }
+
+    @Test
+    public void testSocks5ConnectFailure() throws Exception {
+        try (ClientSession session = createNativeSession()) {
+            SshdSocketAddress dynamic = session.startDynamicPortForwarding(new SshdSocketAddress(TEST_LOCALHOST, 0));
+            int unreachablePort = Utils.getFreePort();  // nothing is listening on it
+
+            try (Socket s = new Socket(TEST_LOCALHOST, dynamic.getPort())) {
+                s.setSoTimeout((int) TimeUnit.SECONDS.toMillis(10L));
+
+                byte[] host = TEST_LOCALHOST.getBytes(StandardCharsets.US_ASCII);
+                ByteArrayOutputStream request = new ByteArrayOutputStream();
+                request.write(new byte[]{0x05, 0x01, 0x00});
+                request.write(new byte[]{0x05, 0x01, 0x00, 0x03, (byte) host.length});
+                request.write(host);
+                request.write(new byte[]{(byte) (unreachablePort >> Byte.SIZE), (byte) unreachablePort});
+
+                OutputStream sockOut = s.getOutputStream();
+                sockOut.write(request.toByteArray());
+                sockOut.flush();
+
+                DataInputStream sockIn = new DataInputStream(s.getInputStream());
+                byte[] greeting = new byte[2];
+                sockIn.readFully(greeting);
+                assertArrayEquals("Mismatched greeting reply", new byte[]{0x05, 0x00}, greeting);
+
+                byte[] reply = new byte[10];
+                sockIn.readFully(reply);
+                assertEquals("Mismatched reply version", 0x05, reply[0]);
+                assertEquals("Mismatched reply status", 0x01, reply[1]);
+                assertEquals("Connection not closed after failure reply", -1, sockIn.read());
+            }
+
+            DefaultTcpipForwarder forwarder = (DefaultTcpipForwarder) session.getService(ConnectionService.class).getTcpipForwarder();
+            SocksProxy proxy = forwarder.getDynamicPortForwardingProxy(dynamic.getPort());
+            Map<String, SocksProxy.DestinationStatistics> stats = proxy.getDestinationStatistics();
+            SocksProxy.DestinationStatistics destStats = stats.get(TEST_LOCALHOST + ":" + unreachablePort);
+            assertNotNull("No statistics for destination: " + stats.keySet(), destStats);
+            assertEquals("Mismatched failures count", 1L, destStats.getFailuresCount());
+
+            session.stopDynamicPortForwarding(dynamic);
+        }
+    }
+
     protected ClientSession createNativeSession() throws Exception {
         client = setupTestClient();
         FactoryManagerUtils.updateProperty(client, FactoryManager.WINDOW_SIZE, 2048);
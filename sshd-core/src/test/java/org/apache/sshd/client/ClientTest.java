@@ -30,6 +30,7 @@ import java.net.SocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
 import java.security.PublicKey;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -53,10 +54,13 @@ import org.apache.sshd.client.auth.UserAuthPasswordFactory;
 import org.apache.sshd.client.auth.UserAuthPublicKeyFactory;
 import org.apache.sshd.client.auth.UserInteraction;
 import org.apache.sshd.client.channel.ChannelExec;
+import org.apache.sshd.client.channel.ChannelOutputHandler;
 import org.apache.sshd.client.channel.ChannelShell;
 import org.apache.sshd.client.channel.ClientChannel;
 import org.apache.sshd.client.future.AuthFuture;
+import org.apache.sshd.client.future.ExecFuture;
 import org.apache.sshd.client.future.OpenFuture;
+import org.apache.sshd.client.future.StateFuture;
 import org.apache.sshd.client.keyverifier.ServerKeyVerifier;
 import org.apache.sshd.client.session.ClientSession;
 import org.apache.sshd.client.subsystem.SubsystemClient;
@@ -74,8 +78,10 @@ import org.apache.sshd.common.channel.AbstractChannel;
 import org.apache.sshd.common.channel.Channel;
 import org.apache.sshd.common.channel.ChannelListener;
 import org.apache.sshd.common.channel.ChannelListenerManager;
+import org.apache.sshd.common.channel.RequestHandler;
 import org.apache.sshd.common.channel.TestChannelListener;
 import org.apache.sshd.common.future.CloseFuture;
+import org.apache.sshd.common.future.GlobalRequestFuture;
 import org.apache.sshd.common.future.SshFutureListener;
 import org.apache.sshd.common.io.IoReadFuture;
 import org.apache.sshd.common.io.IoSession;
@@ -512,6 +518,79 @@ public class ClientTest extends BaseTestSupport {
         assertNull("Session closure not signalled", clientSessionHolder.get());
     }
 
+    @Test
+    public void testExecuteAsync() throws Exception {
+        client.start();
+
+        try (ClientSession session = createTestClientSession();
+             final ByteArrayOutputStream baosOut = new ByteArrayOutputStream();
+             final ByteArrayOutputStream baosErr = new ByteArrayOutputStream()) {
+            String command = getCurrentTestName();
+            ExecFuture future = session.executeAsync(command, new ChannelOutputHandler() {
+                @Override
+                public void handleOutput(ClientChannel channel, byte[] data, int off, int len) throws IOException {
+                    baosOut.write(data, off, len);
+                }
+
+                @Override
+                public void handleError(ClientChannel channel, byte[] data, int off, int len) throws IOException {
+                    baosErr.write(data, off, len);
+                }
+            });
+            future.verify(11L, TimeUnit.SECONDS);
+
+            assertTrue("Execution not completed", future.isCompleted());
+            assertEquals("Mismatched exit status", Integer.valueOf(1), future.getExitStatus());
+            assertNull("Unexpected exit signal", future.getExitSignal());
+            assertEquals("Unexpected STDOUT data", 0, baosOut.size());
+            assertEquals("Mismatched STDERR data", "Unknown command: " + command + "\n", new String(baosErr.toByteArray(), StandardCharsets.UTF_8));
+            assertTrue("Channel not closed", future.getChannel().isClosing());
+        } finally {
+            client.stop();
+        }
+    }
+
+    @Test
+    public void testWatchChannelsState() throws Exception {
+        client.start();
+
+        final int numChannels = 8;
+        try (ClientSession session = createTestClientSession()) {
+            StateFuture authed = session.watchState(ClientSession.AUTHED);
+            assertTrue("Authenticated state not signalled", authed.isDone());
+            assertEquals("Mismatched session state", ClientSession.AUTHED, authed.getState() & ClientSession.AUTHED);
+
+            final CountDownLatch latch = new CountDownLatch(numChannels);
+            final AtomicInteger exitStatusCount = new AtomicInteger(0);
+            List<ChannelExec> channels = new ArrayList<>(numChannels);
+            for (int index = 0; index < numChannels; index++) {
+                ChannelExec channel = session.createExecChannel(getCurrentTestName() + "-" + index);
+                channels.add(channel);
+                channel.watchState(ClientChannel.CLOSED).addListener(new SshFutureListener<StateFuture>() {
+                    @Override
+                    public void operationComplete(StateFuture future) {
+                        if ((future.getState() & ClientChannel.EXIT_STATUS) != 0) {
+                            exitStatusCount.incrementAndGet();
+                        }
+                        latch.countDown();
+                    }
+                });
+                channel.open();
+            }
+
+            assertTrue("Not all channels closed on time", latch.await(11L, TimeUnit.SECONDS));
+            assertEquals("Mismatched exit status notifications", numChannels, exitStatusCount.get());
+
+            for (ChannelExec channel : channels) {
+                StateFuture future = channel.watchState(ClientChannel.CLOSED);
+                assertTrue("Closed state not signalled for " + channel, future.isDone());
+                assertEquals("Mismatched waitFor result for " + channel, ClientChannel.CLOSED, channel.waitFor(ClientChannel.CLOSED, 1L) & ClientChannel.CLOSED);
+            }
+        } finally {
+            client.stop();
+        }
+    }
+
     @Test
     public void testClient() throws Exception {
         client.start();
@@ -1209,6 +1288,51 @@ public class ClientTest extends BaseTestSupport {
         }
     }
 
+    @Test
+    public void testPipelinedGlobalRequests() throws Exception {
+        final String successRequest = "success@" + getCurrentTestName();
+        final String failureRequest = "failure@" + getCurrentTestName();
+        sshd.setGlobalRequestHandlers(Arrays.<RequestHandler<ConnectionService>>asList(
+                new RequestHandler<ConnectionService>() {
+                    @Override
+                    public Result process(ConnectionService t, String request, boolean wantReply, Buffer buffer) throws Exception {
+                        if (successRequest.equals(request)) {
+                            return Result.ReplySuccess;
+                        } else if (failureRequest.equals(request)) {
+                            return Result.ReplyFailure;
+                        } else {
+                            return Result.Unsupported;
+                        }
+                    }
+                }));
+        client.start();
+
+        try (ClientSession session = createTestClientSession()) {
+            List<GlobalRequestFuture> futures = new ArrayList<>();
+            // send all the requests before waiting for any response
+            for (int index = 0; index < Byte.SIZE; index++) {
+                Buffer buffer = session.createBuffer(SshConstants.SSH_MSG_GLOBAL_REQUEST);
+                buffer.putString(((index & 0x01) == 0) ? successRequest : failureRequest);
+                buffer.putBoolean(true);
+                futures.add(session.requestAsync(buffer));
+            }
+
+            for (int index = 0; index < futures.size(); index++) {
+                GlobalRequestFuture future = futures.get(index);
+                future.verify(7L, TimeUnit.SECONDS);
+                assertEquals("Mismatched result for request #" + index, (index & 0x01) == 0, future.isSuccess());
+            }
+
+            // make sure the blocking API is still functional
+            Buffer buffer = session.createBuffer(SshConstants.SSH_MSG_GLOBAL_REQUEST);
+            buffer.putString(successRequest);
+            buffer.putBoolean(true);
+            assertNotNull("Blocking request failed", session.request(buffer, 7L, TimeUnit.SECONDS));
+        } finally {
+            client.stop();
+        }
+    }
+
     @Test
     public void testWaitAuth() throws Exception {
         final AtomicBoolean ok = new AtomicBoolean();
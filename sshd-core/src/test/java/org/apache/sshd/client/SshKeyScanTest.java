@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.apache.sshd.common.config.keys.BuiltinIdentities;
+import org.apache.sshd.common.util.GenericUtils;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.util.test.BaseTestSupport;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class SshKeyScanTest extends BaseTestSupport {
+    public SshKeyScanTest() {
+        super();
+    }
+
+    @Test
+    public void testConcurrentHostsScan() throws Exception {
+        SshServer sshd = setupTestServer();
+        sshd.start();
+        try {
+            List<String> hosts = Arrays.asList("localhost", TEST_LOCALHOST);
+            final List<String> reported = Collections.synchronizedList(new ArrayList<String>());
+            try (SshKeyScan scanner = new SshKeyScan() {
+                @Override
+                protected void writeServerKey(String remoteLocation, String keyType, PublicKey serverKey) throws Exception {
+                    reported.add(remoteLocation + " " + keyType);
+                }
+            }) {
+                scanner.setPort(sshd.getPort());
+                scanner.setKeyTypes(Collections.singletonList(BuiltinIdentities.Constants.RSA));
+                scanner.setTimeout(SshKeyScan.DEFAULT_TIMEOUT);
+                scanner.setParallelism(hosts.size());
+                scanner.setLogLevel(Level.WARNING);
+                scanner.setInputStream(new ByteArrayInputStream(GenericUtils.join(hosts, ',').getBytes(StandardCharsets.UTF_8)));
+                scanner.call();
+            }
+
+            assertEquals("Mismatched reported keys: " + reported, hosts.size(), reported.size());
+            for (String h : hosts) {
+                assertTrue("Missing key of " + h + ": " + reported, reported.contains(h + " ssh-rsa"));
+            }
+        } finally {
+            sshd.stop(true);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.client.session;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.client.ClientFactoryManager;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.config.hosts.HostConfigEntry;
+import org.apache.sshd.common.FactoryManagerUtils;
+import org.apache.sshd.common.util.threads.ThreadUtils;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.util.test.BaseTestSupport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ClientSessionPoolTest extends BaseTestSupport {
+    private SshServer sshd;
+    private SshClient client;
+    private int port;
+
+    public ClientSessionPoolTest() {
+        super();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        sshd = setupTestServer();
+        sshd.start();
+        port = sshd.getPort();
+
+        client = setupTestClient();
+        FactoryManagerUtils.updateProperty(client, ClientFactoryManager.POOL_MAX_LEASES_PER_SESSION, 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (sshd != null) {
+            sshd.stop(true);
+        }
+        if (client != null) {
+            client.stop();
+        }
+    }
+
+    @Test
+    public void testSessionsReusedUpToMaxLeases() throws Exception {
+        client.start();
+        try (ClientSessionPool pool = createPool()) {
+            ClientSession session;
+            try (ClientSessionPool.Lease l1 = pool.lease(getCurrentTestName(), TEST_LOCALHOST, port);
+                 ClientSessionPool.Lease l2 = pool.lease(getCurrentTestName(), TEST_LOCALHOST, port);
+                 ClientSessionPool.Lease l3 = pool.lease(getCurrentTestName(), TEST_LOCALHOST, port)) {
+                session = l1.getSession();
+                assertTrue("Session not authenticated", session.isAuthenticated());
+                assertSame("Session not re-used", session, l2.getSession());
+                assertNotSame("Max. leases exceeded", session, l3.getSession());
+                assertEquals("Mismatched pooled sessions count", 2, pool.getSessionCount());
+            }
+
+            try (ClientSessionPool.Lease lease = pool.lease(getCurrentTestName(), TEST_LOCALHOST, port)) {
+                assertTrue("Released session not open", lease.getSession().isOpen());
+                assertEquals("Unexpected new session", 2, pool.getSessionCount());
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentLeasesShareCreatedSessions() throws Exception {
+        final int maxLeases = 2;
+        final int numLeases = 3 * maxLeases;
+        client.start();
+        ExecutorService executor = ThreadUtils.newFixedThreadPool(getCurrentTestName(), numLeases);
+        try (final ClientSessionPool pool = createPool()) {
+            final CountDownLatch startSignal = new CountDownLatch(1);
+            List<Future<ClientSessionPool.Lease>> futures = new ArrayList<>(numLeases);
+            for (int index = 0; index < numLeases; index++) {
+                futures.add(executor.submit(new Callable<ClientSessionPool.Lease>() {
+                    @SuppressWarnings("synthetic-access")
+                    @Override
+                    public ClientSessionPool.Lease call() throws Exception {
+                        startSignal.await();
+                        return pool.lease(getCurrentTestName(), TEST_LOCALHOST, port);
+                    }
+                }));
+            }
+            startSignal.countDown();
+
+            List<ClientSessionPool.Lease> leases = new ArrayList<>(numLeases);
+            try {
+                Map<ClientSession, Integer> usage = new IdentityHashMap<>();
+                for (Future<ClientSessionPool.Lease> f : futures) {
+                    ClientSessionPool.Lease lease = f.get(30L, TimeUnit.SECONDS);
+                    leases.add(lease);
+
+                    ClientSession session = lease.getSession();
+                    Integer count = usage.get(session);
+                    usage.put(session, (count == null) ? 1 : count + 1);
+                }
+
+                assertEquals("Mismatched pooled sessions count", numLeases / maxLeases, pool.getSessionCount());
+                Collection<Integer> counts = usage.values();
+                assertEquals("Mismatched leased sessions count", numLeases / maxLeases, counts.size());
+                for (Integer count : counts) {
+                    assertEquals("Mismatched leases per session", maxLeases, count.intValue());
+                }
+            } finally {
+                for (ClientSessionPool.Lease lease : leases) {
+                    lease.close();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvalidatedSessionReplaced() throws Exception {
+        client.start();
+        try (ClientSessionPool pool = createPool()) {
+            ClientSession session;
+            try (ClientSessionPool.Lease lease = pool.lease(getCurrentTestName(), TEST_LOCALHOST, port)) {
+                session = lease.getSession();
+                lease.invalidate();
+            }
+
+            assertTrue("Invalidated session not closed", (session.waitFor(ClientSession.CLOSED, TimeUnit.SECONDS.toMillis(5L)) & ClientSession.CLOSED) != 0);
+            try (ClientSessionPool.Lease lease = pool.lease(getCurrentTestName(), TEST_LOCALHOST, port)) {
+                assertNotSame("Invalidated session re-used", session, lease.getSession());
+                assertEquals("Mismatched pooled sessions count", 1, pool.getSessionCount());
+            }
+        }
+    }
+
+    @Test
+    public void testIdleSessionsEvicted() throws Exception {
+        FactoryManagerUtils.updateProperty(client, ClientFactoryManager.POOL_IDLE_TIMEOUT, 250L);
+        client.start();
+        try (ClientSessionPool pool = createPool()) {
+            ClientSession session;
+            try (ClientSessionPool.Lease lease = pool.lease(getCurrentTestName(), TEST_LOCALHOST, port)) {
+                session = lease.getSession();
+            }
+
+            for (long waitTime = TimeUnit.SECONDS.toMillis(5L); (pool.getSessionCount() > 0) && (waitTime > 0L); waitTime -= 50L) {
+                Thread.sleep(50L);
+            }
+            assertEquals("Idle session not evicted", 0, pool.getSessionCount());
+            assertTrue("Evicted session not closed", (session.waitFor(ClientSession.CLOSED, TimeUnit.SECONDS.toMillis(5L)) & ClientSession.CLOSED) != 0);
+        }
+    }
+
+    private ClientSessionPool createPool() {
+        return new ClientSessionPool(client) {
+            @Override
+            protected void setupSession(ClientSession session, HostConfigEntry entry) throws IOException {
+                session.addPasswordIdentity(entry.getUsername());
+            }
+        };
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.util.test.BaseTestSupport;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.mockito.Mockito;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class PropertyKeyTest extends BaseTestSupport {
+    public PropertyKeyTest() {
+        super();
+    }
+
+    @Test
+    public void testSnapshotInvalidatedOnChange() {
+        SshServer sshd = SshServer.setUpDefaultServer();
+        PropertyKey<Integer> key = PropertyKey.intKey(getCurrentTestName(), 7365);
+        assertEquals("Mismatched default value", key.getDefaultValue(), key.get(sshd));
+
+        PropertiesSnapshot snapshot = sshd.getPropertiesSnapshot();
+        assertSame("Snapshot re-created without changes", snapshot, sshd.getPropertiesSnapshot());
+
+        FactoryManagerUtils.updateProperty(sshd, key.getName(), "3777");
+        assertEquals("Updated value not seen", Integer.valueOf(3777), key.get(sshd));
+        assertNotSame("Snapshot not re-created after change", snapshot, sshd.getPropertiesSnapshot());
+
+        sshd.getProperties().remove(key.getName());
+        assertEquals("Removed value still seen", key.getDefaultValue(), key.get(sshd));
+
+        Map<String, Object> props = new HashMap<>();
+        props.put(key.getName(), 1001);
+        sshd.setProperties(props);
+        assertEquals("Replaced properties not seen", Integer.valueOf(1001), key.get(sshd));
+
+        // plain maps are not cached so modifications are seen immediately
+        props.put(key.getName(), 3003);
+        assertEquals("Modified plain map value not seen", Integer.valueOf(3003), key.get(sshd));
+    }
+
+    @Test
+    public void testTypedKeys() {
+        Map<String, Object> props = new HashMap<>();
+        FactoryManager manager = Mockito.mock(FactoryManager.class);
+        Mockito.when(manager.getProperties()).thenReturn(props);
+
+        PropertyKey<Long> longKey = PropertyKey.longKey(getCurrentTestName() + "-long", 7365L);
+        PropertyKey<Boolean> booleanKey = PropertyKey.booleanKey(getCurrentTestName() + "-boolean", false);
+        PropertyKey<String> stringKey = PropertyKey.stringKey(getCurrentTestName() + "-string", null);
+        assertEquals("Mismatched default long", longKey.getDefaultValue(), longKey.get(manager));
+        assertEquals("Mismatched default boolean", booleanKey.getDefaultValue(), booleanKey.get(manager));
+        assertNull("Unexpected default string", stringKey.get(manager));
+
+        props.put(longKey.getName(), "3777");
+        props.put(booleanKey.getName(), "true");
+        props.put(stringKey.getName(), getCurrentTestName());
+        assertEquals("Mismatched long", Long.valueOf(3777L), longKey.get(manager));
+        assertEquals("Mismatched boolean", Boolean.TRUE, booleanKey.get(manager));
+        assertEquals("Mismatched string", getCurrentTestName(), stringKey.get(manager));
+    }
+
+    @Test
+    public void testSnapshotGrowsForLateKeys() {
+        SshServer sshd = SshServer.setUpDefaultServer();
+        PropertiesSnapshot snapshot = sshd.getPropertiesSnapshot();
+        for (int index = 0; index < Byte.MAX_VALUE; index++) {
+            PropertyKey<Integer> key = PropertyKey.intKey(getCurrentTestName() + "-" + index, index);
+            assertEquals("Mismatched value for " + key, Integer.valueOf(index), snapshot.get(key));
+            assertEquals("Mismatched cached value for " + key, Integer.valueOf(index), snapshot.get(key));
+        }
+        assertSame("Snapshot re-created", snapshot, sshd.getPropertiesSnapshot());
+    }
+}
@@ -29,6 +29,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.sshd.client.SshClient;
 import org.apache.sshd.client.channel.ChannelShell;
@@ -44,6 +45,7 @@ import org.apache.sshd.common.io.IoInputStream;
 import org.apache.sshd.common.io.IoOutputStream;
 import org.apache.sshd.common.io.IoReadFuture;
 import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.SessionWritabilityListener;
 import org.apache.sshd.common.util.buffer.Buffer;
 import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
 import org.apache.sshd.server.Command;
@@ -296,6 +298,91 @@ public class WindowTest extends BaseTestSupport {
         }
     }
 
+    @Test
+    public void testSessionWritabilityWatermarksWithInvertedStreams() throws Exception {
+        sshd.setShellFactory(new AsyncEchoShellFactory());
+        // every packet makes the session non-writable until it has been sent
+        FactoryManagerUtils.updateProperty(client, FactoryManager.OUTBOUND_HIGH_WATERMARK, 1L);
+        FactoryManagerUtils.updateProperty(client, FactoryManager.OUTBOUND_LOW_WATERMARK, 0L);
+        client.start();
+
+        try (ClientSession session = client.connect(getCurrentTestName(), TEST_LOCALHOST, port).verify(7L, TimeUnit.SECONDS).getSession()) {
+            session.addPasswordIdentity(getCurrentTestName());
+            session.auth().verify(5L, TimeUnit.SECONDS);
+
+            final AtomicInteger writableCount = new AtomicInteger();
+            final AtomicInteger nonWritableCount = new AtomicInteger();
+            session.addWritabilityListener(new SessionWritabilityListener() {
+                @Override
+                public void writabilityChanged(Session s, boolean writable) {
+                    if (writable) {
+                        writableCount.incrementAndGet();
+                    } else {
+                        nonWritableCount.incrementAndGet();
+                    }
+                }
+            });
+
+            try (ChannelShell channel = session.createShellChannel()) {
+                channel.open().verify(5L, TimeUnit.SECONDS);
+
+                final String message = "0123456789";
+                final int nbMessages = 100;
+                try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(channel.getInvertedIn()));
+                     BufferedReader reader = new BufferedReader(new InputStreamReader(channel.getInvertedOut()))) {
+                    for (int i = 0; i < nbMessages; i++) {
+                        writer.write(message);
+                        writer.write("\n");
+                        writer.flush();
+
+                        String line = reader.readLine();
+                        assertEquals("Mismatched message at line #" + i, message, line);
+                    }
+                }
+            }
+
+            assertTrue("Session never became non-writable", nonWritableCount.get() > 0);
+            assertTrue("Session never became writable again", writableCount.get() > 0);
+        } finally {
+            client.stop();
+        }
+    }
+
+    @Test
+    public void testSessionWritabilityWatermarksWithAsyncStreams() throws Exception {
+        sshd.setShellFactory(new AsyncEchoShellFactory());
+        FactoryManagerUtils.updateProperty(client, FactoryManager.OUTBOUND_HIGH_WATERMARK, 1L);
+        FactoryManagerUtils.updateProperty(client, FactoryManager.OUTBOUND_LOW_WATERMARK, 0L);
+        client.start();
+
+        try (ClientSession session = client.connect(getCurrentTestName(), TEST_LOCALHOST, port).verify(7L, TimeUnit.SECONDS).getSession()) {
+            session.addPasswordIdentity(getCurrentTestName());
+            session.auth().verify(5L, TimeUnit.SECONDS);
+
+            try (ChannelShell channel = session.createShellChannel()) {
+                channel.setStreaming(ClientChannel.Streaming.Async);
+                channel.open().verify(5L, TimeUnit.SECONDS);
+
+                final String message = "0123456789\n";
+                final byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+                final int nbMessages = 100;
+                IoOutputStream output = channel.getAsyncIn();
+                IoInputStream input = channel.getAsyncOut();
+                for (int i = 0; i < nbMessages; i++) {
+                    output.write(new ByteArrayBuffer(bytes)).verify(5L, TimeUnit.SECONDS);
+
+                    Buffer buf = new ByteArrayBuffer(16);
+                    input.read(buf).verify(5L, TimeUnit.SECONDS);
+                    assertEquals("Mismatched data at line #" + i, message, new String(buf.array(), buf.rpos(), buf.available()));
+                }
+            }
+
+            assertTrue("Session not writable at end", session.waitForWritable(TimeUnit.SECONDS.toMillis(5L)));
+        } finally {
+            client.stop();
+        }
+    }
+
     private static void waitForWindowNotEquals(Window w1, Window w2, String n1, String n2, long maxWait) throws InterruptedException {
         for (long waited = 0L, maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWait); waited < maxWaitNanos; ) {
             if (w1.getSize() != w2.getSize()) {
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.cipher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.channel.ClientChannel;
+import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.SshException;
+import org.apache.sshd.common.cipher.Cipher.Mode;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.util.test.TeeOutputStream;
+import org.junit.Assume;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class AES128GCMTest extends BaseCipherTest {
+    public AES128GCMTest() {
+        super();
+    }
+
+    @Test
+    public void testEncryptDecrypt() throws Exception {
+        ensureKeySizeSupported(16, "AES", "AES/GCM/NoPadding");
+        testEncryptDecrypt(BuiltinCiphers.aes128gcm);
+    }
+
+    @Test
+    public void testInvocationCounterIncremented() throws Exception {
+        ensureKeySizeSupported(16, "AES", "AES/GCM/NoPadding");
+        Cipher enc = BuiltinCiphers.aes128gcm.create();
+        byte[] key = new byte[enc.getBlockSize()];
+        byte[] iv = new byte[enc.getIVSize()];
+        Arrays.fill(iv, BaseGCMCipher.FIXED_IV_SIZE, iv.length, (byte) 0xFF);  // make sure carry is propagated
+        enc.init(Mode.Encrypt, key, iv);
+
+        Cipher dec = BuiltinCiphers.aes128gcm.create();
+        dec.init(Mode.Decrypt, key, iv);
+
+        byte[] expected = getCurrentTestName().getBytes(StandardCharsets.UTF_8);
+        byte[] previous = null;
+        for (int index = 0; index < Byte.SIZE; index++) {
+            byte[] workBuf = Arrays.copyOf(expected, expected.length + enc.getAuthenticationTagSize());
+            enc.update(workBuf, 0, expected.length);
+            // same data must yield different results since the IV changes for each packet
+            assertFalse("Same encryption at packet #" + index, Arrays.equals(previous, workBuf));
+            previous = workBuf.clone();
+
+            dec.update(workBuf, 0, expected.length);
+            assertArrayEquals("Mismatched data at packet #" + index, expected, Arrays.copyOf(workBuf, expected.length));
+        }
+    }
+
+    @Test
+    public void testTamperedDataRejected() throws Exception {
+        ensureKeySizeSupported(16, "AES", "AES/GCM/NoPadding");
+        Cipher enc = BuiltinCiphers.aes128gcm.create();
+        byte[] key = new byte[enc.getBlockSize()];
+        byte[] iv = new byte[enc.getIVSize()];
+        enc.init(Mode.Encrypt, key, iv);
+
+        byte[] expected = getCurrentTestName().getBytes(StandardCharsets.UTF_8);
+        byte[] workBuf = Arrays.copyOf(expected, expected.length + enc.getAuthenticationTagSize());
+        enc.update(workBuf, 0, expected.length);
+        workBuf[0] ^= 0x01;
+
+        Cipher dec = BuiltinCiphers.aes128gcm.create();
+        dec.init(Mode.Decrypt, key, iv);
+        try {
+            dec.update(workBuf, 0, expected.length);
+            fail("Unexpected success to decrypt tampered data");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testClientServerSession() throws Exception {
+        Assume.assumeTrue("No internal support for " + BuiltinCiphers.aes128gcm, BuiltinCiphers.aes128gcm.isSupported());
+        try (SshServer sshd = setupTestServer()) {
+            sshd.setCipherFactories(Collections.<NamedFactory<Cipher>>singletonList(BuiltinCiphers.aes128gcm));
+            sshd.start();
+
+            try (SshClient client = setupTestClient()) {
+                client.setCipherFactories(Collections.<NamedFactory<Cipher>>singletonList(BuiltinCiphers.aes128gcm));
+                client.start();
+
+                try (ClientSession session = client.connect(getCurrentTestName(), TEST_LOCALHOST, sshd.getPort()).verify(7L, TimeUnit.SECONDS).getSession();
+                     ByteArrayOutputStream sent = new ByteArrayOutputStream();
+                     ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                    session.addPasswordIdentity(getCurrentTestName());
+                    session.auth().verify(5L, TimeUnit.SECONDS);
+
+                    try (ClientChannel channel = session.createChannel(ClientChannel.CHANNEL_SHELL);
+                         PipedOutputStream pipedIn = new PipedOutputStream();
+                         InputStream inPipe = new PipedInputStream(pipedIn);
+                         ByteArrayOutputStream err = new ByteArrayOutputStream();
+                         OutputStream teeOut = new TeeOutputStream(sent, pipedIn)) {
+                        channel.setIn(inPipe);
+                        channel.setOut(out);
+                        channel.setErr(err);
+                        channel.open().verify(9L, TimeUnit.SECONDS);
+
+                        // use various lengths in order to exercise the padding
+                        StringBuilder sb = new StringBuilder(Byte.MAX_VALUE);
+                        for (int index = 0; index < Byte.MAX_VALUE; index++) {
+                            sb.append((char) ('a' + (index % 26)));
+                            teeOut.write((sb.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+                        }
+                        teeOut.write("exit\n".getBytes(StandardCharsets.UTF_8));
+                        teeOut.flush();
+
+                        channel.waitFor(ClientChannel.CLOSED, 0);
+                    }
+
+                    assertArrayEquals("Mismatched echoed data", sent.toByteArray(), out.toByteArray());
+                } finally {
+                    client.stop();
+                }
+            } finally {
+                sshd.stop(true);
+            }
+        }
+    }
+
+    @Test
+    public void testMismatchedKeysRejected() throws Exception {
+        ensureKeySizeSupported(16, "AES", "AES/GCM/NoPadding");
+        Cipher enc = BuiltinCiphers.aes128gcm.create();
+        byte[] key = new byte[enc.getBlockSize()];
+        byte[] iv = new byte[enc.getIVSize()];
+        enc.init(Mode.Encrypt, key, iv);
+
+        byte[] data = new byte[Byte.SIZE + enc.getAuthenticationTagSize()];
+        enc.update(data, 0, Byte.SIZE);
+
+        Cipher dec = BuiltinCiphers.aes128gcm.create();
+        key[0] = 1;
+        dec.init(Mode.Decrypt, key, iv);
+        try {
+            dec.update(data, 0, Byte.SIZE);
+            fail("Unexpected success to decrypt with mismatched key");
+        } catch (Exception e) {
+            assertFalse("Unexpected wrapped exception", e instanceof SshException);
+        }
+    }
+}
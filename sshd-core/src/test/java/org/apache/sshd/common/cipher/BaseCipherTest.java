@@ -24,6 +24,7 @@ import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
+import java.util.Arrays;
 
 import org.apache.sshd.common.NamedFactory;
 import org.apache.sshd.common.cipher.Cipher.Mode;
@@ -76,14 +77,22 @@ public abstract class BaseCipherTest extends BaseTestSupport {
         enc.init(Mode.Encrypt, key, iv);
 
         byte[] expected = facName.getBytes(StandardCharsets.UTF_8);
-        byte[] workBuf = expected.clone();    // need to clone since the cipher works in-line
-        enc.update(workBuf, 0, workBuf.length);
+        int authSize = enc.getAuthenticationTagSize();
+        // need to copy since the cipher works in-line - leave room for the authentication tag (if any)
+        byte[] workBuf = Arrays.copyOf(expected, expected.length + authSize);
+        if (authSize > 0) {
+            enc.updateAAD(key, 0, key.length);
+        }
+        enc.update(workBuf, 0, expected.length);
 
         Cipher dec = factory.create();
         dec.init(Mode.Decrypt, key, iv);
         byte[] actual = workBuf.clone();
-        dec.update(actual, 0, actual.length);
+        if (authSize > 0) {
+            dec.updateAAD(key, 0, key.length);
+        }
+        dec.update(actual, 0, expected.length);
 
-        assertArrayEquals(facName, expected, actual);
+        assertArrayEquals(facName, expected, Arrays.copyOf(actual, expected.length));
     }
 }
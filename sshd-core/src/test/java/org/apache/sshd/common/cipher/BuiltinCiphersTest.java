@@ -154,6 +154,54 @@ public class BuiltinCiphersTest extends BaseTestSupport {
         }
     }
 
+    @Test   // make sure that a seeked cipher yields the same results as one that processed all the preceding data
+    public void testSeekableCiphersPositioning() throws Exception {
+        Random rnd = new Random(System.nanoTime());
+        int[] lengths = {32, 64, 16, 128, 48, 16, 256};
+        for (BuiltinCiphers c : BuiltinCiphers.VALUES) {
+            if (!c.isSupported()) {
+                continue;
+            }
+
+            Cipher sequential = c.create();
+            if (!(sequential instanceof SeekableCipher)) {
+                continue;
+            }
+
+            byte[] key = new byte[sequential.getBlockSize()];
+            rnd.nextBytes(key);
+            byte[] iv = new byte[sequential.getIVSize()];
+            Arrays.fill(iv, (byte) 0xFF);   // make sure carry is propagated
+            sequential.init(Cipher.Mode.Encrypt, key, iv);
+
+            int authSize = sequential.getAuthenticationTagSize();
+            List<byte[]> plain = new ArrayList<>(lengths.length);
+            List<byte[]> expected = new ArrayList<>(lengths.length);
+            for (int len : lengths) {
+                byte[] data = new byte[len + authSize];
+                rnd.nextBytes(data);
+                plain.add(data.clone());
+                sequential.update(data, 0, len);
+                expected.add(data);
+            }
+
+            SeekableCipher seekable = (SeekableCipher) c.create();
+            seekable.init(Cipher.Mode.Encrypt, key, iv);
+            // process the packets in reverse order
+            for (int index = lengths.length - 1; index >= 0; index--) {
+                long bytes = 0L;
+                for (int pos = 0; pos < index; pos++) {
+                    bytes += lengths[pos];
+                }
+
+                byte[] data = plain.get(index).clone();
+                seekable.seek(index, bytes);
+                seekable.update(data, 0, lengths[index]);
+                assertArrayEquals(c.getName() + ": mismatched packet #" + index, expected.get(index), data);
+            }
+        }
+    }
+
     @Test
     public void testSshClientSupportedCiphersConfiguration() throws Exception {
         try (SshClient client = setupTestClient()) {
@@ -192,10 +240,11 @@ public class BuiltinCiphersTest extends BaseTestSupport {
         rnd.nextBytes(iv);
         cipher.init(Cipher.Mode.Encrypt, key, iv);
 
-        byte[] data = new byte[cipher.getBlockSize()];
+        // leave room for the authentication tag (if any)
+        byte[] data = new byte[cipher.getBlockSize() + cipher.getAuthenticationTagSize()];
         rnd.nextBytes(data);
 
-        cipher.update(data);
+        cipher.update(data, 0, cipher.getBlockSize());
     }
 
     @Test
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.compression;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.util.test.BaseTestSupport;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class CompressionAdaptiveZlibTest extends BaseTestSupport {
+    public CompressionAdaptiveZlibTest() {
+        super();
+    }
+
+    @Test
+    public void testCompressibleData() throws Exception {
+        CompressionAdaptiveZlib deflater = createDeflater();
+        CompressionAdaptiveZlib inflater = createInflater();
+        byte[] line = (getCurrentTestName() + " - the quick brown fox jumps over the lazy dog\n").getBytes(StandardCharsets.UTF_8);
+        for (int index = 0; index < Byte.SIZE; index++) {
+            byte[] data = new byte[line.length * (index + 1) * 16];
+            for (int pos = 0; pos < data.length; pos += line.length) {
+                System.arraycopy(line, 0, data, pos, line.length);
+            }
+            assertRoundTrip("packet #" + index, deflater, inflater, data);
+        }
+
+        CompressionStatistics stats = deflater.getStatistics();
+        assertEquals("Mismatched packets count", Byte.SIZE, stats.getPackets());
+        assertEquals("Unexpected bypassed packets", 0L, stats.getBypassedPackets());
+        assertTrue("Poor compression ratio: " + stats, stats.getRatio() < 0.5d);
+        assertEquals("Mismatched inflated bytes", stats.getUncompressedBytes(), inflater.getStatistics().getUncompressedBytes());
+    }
+
+    @Test
+    public void testIncompressibleDataBypassed() throws Exception {
+        CompressionAdaptiveZlib deflater = createDeflater();
+        deflater.setBypassPackets(Byte.SIZE);
+        CompressionAdaptiveZlib inflater = createInflater();
+        Random rnd = new Random(System.nanoTime());
+        int numPackets = 4 * Byte.SIZE;
+        for (int index = 0; index < numPackets; index++) {
+            byte[] data = new byte[Short.MAX_VALUE / 2];
+            rnd.nextBytes(data);
+            assertRoundTrip("packet #" + index, deflater, inflater, data);
+        }
+
+        CompressionStatistics stats = deflater.getStatistics();
+        // the first packet detects the poor ratio and then compression is re-attempted after every bypass period
+        assertEquals("Mismatched bypassed packets: " + stats, numPackets - (numPackets / (Byte.SIZE + 1)) - 1, stats.getBypassedPackets());
+    }
+
+    @Test
+    public void testSmallPacketsStored() throws Exception {
+        CompressionAdaptiveZlib deflater = createDeflater();
+        deflater.setMinCompressSize(Byte.MAX_VALUE);
+        CompressionAdaptiveZlib inflater = createInflater();
+        for (int index = 1; index < Byte.MAX_VALUE; index++) {
+            byte[] data = new byte[index];
+            Arrays.fill(data, (byte) index);
+            assertRoundTrip("packet #" + index, deflater, inflater, data);
+        }
+
+        CompressionStatistics stats = deflater.getStatistics();
+        assertEquals("Mismatched bypassed packets", stats.getPackets(), stats.getBypassedPackets());
+    }
+
+    @Test
+    public void testCompatibleWithLegacyZlib() throws Exception {
+        CompressionAdaptiveZlib deflater = createDeflater();
+        deflater.setMinCompressSize(Byte.SIZE * Byte.SIZE);
+        Compression legacyInflater = new CompressionZlib();
+        legacyInflater.init(Compression.Type.Inflater, -1);
+
+        Compression legacyDeflater = new CompressionZlib();
+        legacyDeflater.init(Compression.Type.Deflater, -1);
+        CompressionAdaptiveZlib inflater = createInflater();
+
+        Random rnd = new Random(System.nanoTime());
+        for (int index = 0; index < Byte.MAX_VALUE; index++) {
+            byte[] data = new byte[1 + rnd.nextInt(Short.MAX_VALUE / 8)];
+            // mix compressible and random data
+            if ((index & 0x01) == 0) {
+                rnd.nextBytes(data);
+            } else {
+                Arrays.fill(data, (byte) index);
+            }
+            assertRoundTrip("adaptive packet #" + index, deflater, legacyInflater, data);
+            assertRoundTrip("legacy packet #" + index, legacyDeflater, inflater, data);
+        }
+    }
+
+    private static CompressionAdaptiveZlib createDeflater() {
+        CompressionAdaptiveZlib deflater = new CompressionAdaptiveZlib();
+        deflater.init(Compression.Type.Deflater, -1);
+        return deflater;
+    }
+
+    private static CompressionAdaptiveZlib createInflater() {
+        CompressionAdaptiveZlib inflater = new CompressionAdaptiveZlib();
+        inflater.init(Compression.Type.Inflater, -1);
+        return inflater;
+    }
+
+    private static void assertRoundTrip(String message, Compression deflater, Compression inflater, byte[] data) throws Exception {
+        // simulate a packet with some header before the payload
+        Buffer packet = new ByteArrayBuffer(Byte.SIZE);
+        packet.putRawBytes(new byte[5]);
+        packet.rpos(5);
+        packet.putRawBytes(data);
+        deflater.compress(packet);
+
+        Buffer uncompressed = new ByteArrayBuffer(Byte.SIZE);
+        inflater.uncompress(packet, uncompressed);
+        assertArrayEquals(message, data, uncompressed.getCompactData());
+    }
+}
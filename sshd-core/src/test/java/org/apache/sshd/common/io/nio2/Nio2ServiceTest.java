@@ -19,11 +19,20 @@
 
 package org.apache.sshd.common.io.nio2;
 
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.sshd.common.FactoryManager;
 import org.apache.sshd.common.FactoryManagerUtils;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.session.AbstractSession;
+import org.apache.sshd.server.ServerFactoryManager;
 import org.apache.sshd.server.SshServer;
 import org.apache.sshd.util.test.BaseTestSupport;
 import org.junit.FixMethodOrder;
@@ -62,4 +71,74 @@ public class Nio2ServiceTest extends BaseTestSupport {
             }
         }
     }
+
+    @Test
+    public void testRejectedConnectionReceivesDisconnect() throws Exception {
+        try(SshServer sshd = setupTestServer()) {
+            sshd.setIoServiceFactoryFactory(new Nio2ServiceFactoryFactory());
+            FactoryManagerUtils.updateProperty(sshd, ServerFactoryManager.MAX_UNAUTHENTICATED_SESSIONS, 1);
+            sshd.start();
+
+            int port = sshd.getPort();
+            try(Socket s1 = new Socket(TEST_LOCALHOST, port); Socket s2 = new Socket(TEST_LOCALHOST, port)) {
+                s1.setSoTimeout((int) TimeUnit.SECONDS.toMillis(7L));
+                assertTrue("Bad 1st identification", readLine(s1.getInputStream()).startsWith(AbstractSession.DEFAULT_SSH_VERSION_PREFIX));
+
+                s2.setSoTimeout((int) TimeUnit.SECONDS.toMillis(7L));
+                DataInputStream input = new DataInputStream(s2.getInputStream());
+                assertTrue("Bad 2nd identification", readLine(input).startsWith(AbstractSession.DEFAULT_SSH_VERSION_PREFIX));
+                int len = input.readInt();
+                assertEquals("Packet not aligned: " + len, 0, (len + Integer.SIZE / Byte.SIZE) % 8);
+                input.readByte();   // padding length
+                assertEquals("Not a disconnect message", SshConstants.SSH_MSG_DISCONNECT, input.readByte());
+                assertEquals("Mismatched disconnect reason", SshConstants.SSH2_DISCONNECT_TOO_MANY_CONNECTIONS, input.readInt());
+            } finally {
+                sshd.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testDeferredConnectionAcceptedWhenSlotAvailable() throws Exception {
+        try(SshServer sshd = setupTestServer()) {
+            sshd.setIoServiceFactoryFactory(new Nio2ServiceFactoryFactory());
+            FactoryManagerUtils.updateProperty(sshd, ServerFactoryManager.MAX_UNAUTHENTICATED_SESSIONS, 1);
+            FactoryManagerUtils.updateProperty(sshd, FactoryManager.NIO2_ACCEPT_QUEUE_SIZE, 1);
+            sshd.start();
+
+            int port = sshd.getPort();
+            try(Socket s2 = new Socket()) {
+                try(Socket s1 = new Socket(TEST_LOCALHOST, port)) {
+                    s1.setSoTimeout((int) TimeUnit.SECONDS.toMillis(7L));
+                    assertTrue("Bad 1st identification", readLine(s1.getInputStream()).startsWith(AbstractSession.DEFAULT_SSH_VERSION_PREFIX));
+
+                    s2.connect(new InetSocketAddress(TEST_LOCALHOST, port));
+                    s2.setSoTimeout((int) TimeUnit.SECONDS.toMillis(1L));
+                    try {
+                        String line = readLine(s2.getInputStream());
+                        fail("Unexpected identification of deferred connection: " + line);
+                    } catch (SocketTimeoutException e) {
+                        // expected
+                    }
+                }
+
+                // once the 1st session is closed the deferred connection should be accepted
+                s2.setSoTimeout((int) TimeUnit.SECONDS.toMillis(7L));
+                assertTrue("Bad 2nd identification", readLine(s2.getInputStream()).startsWith(AbstractSession.DEFAULT_SSH_VERSION_PREFIX));
+            } finally {
+                sshd.stop();
+            }
+        }
+    }
+
+    private static String readLine(InputStream input) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int c = input.read(); c != '\n'; c = input.read()) {
+            if (c < 0) {
+                throw new EOFException("Premature EOF after " + sb);
+            }
+            sb.append((char) c);
+        }
+        return sb.toString().trim();
+    }
 }
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.kex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.common.util.buffer.BufferUtils;
+import org.apache.sshd.util.test.BaseTestSupport;
+import org.junit.Assume;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class Curve25519Test extends BaseTestSupport {
+    // see RFC 7748 section 6.1
+    private static final String ALICE_PRIVATE = "77076d0a7318a57d3c16c17251b26645df4c2f87ebc0992ab177fba51db92c2a";
+    private static final String ALICE_PUBLIC = "8520f0098930a754748b7ddcb43ef75a0dbf3a0d26381af4eba4a98eaa9b4e6a";
+    private static final String BOB_PRIVATE = "5dab087e624a8a4b79e17f8b83800ee66f3bb1292618b6fd1c2f8b27ff88e0eb";
+    private static final String BOB_PUBLIC = "de9edb7d7b7dc1b4d35b61c2ece435373f8343c85b78674dadfc7e146f882b4f";
+    private static final String SHARED_SECRET = "4a5d9d5ba4ce2de1728e3bf480350f25e07e21c947d19e3376f09b3c1e161742";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    public Curve25519Test() {
+        super();
+    }
+
+    @Test
+    public void testScalarMultVector() {
+        // see RFC 7748 section 5.2
+        byte[] actual = new Curve25519().scalarMult(
+                fromHex("a546e36bf0527c9d3b16154b82465edd62144c0ac1fc5a18506a2244ba449ac4"),
+                fromHex("e6db6867583030db3594c1a424b15f7c726624ec26b3353b10a903a6d0ab1c4c"));
+        assertEquals("c3da55379de9c6908e94ea4df28d084f32eccf03491c71f754b4075577a28552", toHex(actual));
+    }
+
+    @Test
+    public void testIteratedScalarMult() {
+        // see RFC 7748 section 5.2 - result after 1,000 iterations
+        Curve25519 curve = new Curve25519();
+        byte[] k = fromHex("0900000000000000000000000000000000000000000000000000000000000000");
+        byte[] u = k.clone();
+        for (int index = 0; index < 1000; index++) {
+            byte[] r = curve.scalarMult(k, u);
+            u = k;
+            k = r;
+        }
+        assertEquals("684cf59ba83309552800ef566f2f4d3c1c3887c49360e3875f2eb94d99532c51", toHex(k));
+    }
+
+    @Test
+    public void testKeyAgreementVectors() {
+        Curve25519 curve = new Curve25519();
+        assertEquals("Alice public", ALICE_PUBLIC, toHex(curve.generatePublicKey(fromHex(ALICE_PRIVATE))));
+        assertEquals("Bob public", BOB_PUBLIC, toHex(curve.generatePublicKey(fromHex(BOB_PRIVATE))));
+        assertEquals("Alice shared", SHARED_SECRET, toHex(curve.scalarMult(fromHex(ALICE_PRIVATE), fromHex(BOB_PUBLIC))));
+        assertEquals("Bob shared", SHARED_SECRET, toHex(curve.scalarMult(fromHex(BOB_PRIVATE), fromHex(ALICE_PUBLIC))));
+    }
+
+    @Test
+    public void testPureJavaAgreement() throws Exception {
+        testAgreement(new Curve25519DH(false), new Curve25519DH(false));
+    }
+
+    @Test
+    public void testPureJavaAgreementWithJce() throws Exception {
+        Assume.assumeTrue("No JCE support for " + Curve25519DH.ALGORITHM, Curve25519DH.isJceSupported());
+        testAgreement(new Curve25519DH(false), new Curve25519DH(true));
+        testAgreement(new Curve25519DH(true), new Curve25519DH(false));
+    }
+
+    @Test
+    public void testLowOrderPointRejected() throws Exception {
+        Curve25519DH dh = new Curve25519DH(false);
+        dh.getE();
+        dh.setF(new byte[Curve25519.KEY_SIZE]);    // zero is a point of small order
+        try {
+            byte[] k = dh.getK();
+            fail("Unexpected success: " + BufferUtils.printHex(k));
+        } catch (Exception e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testKeyAgreementRates() throws Exception {
+        List<BuiltinDHFactories> factories = new ArrayList<>();
+        for (BuiltinDHFactories f : BuiltinDHFactories.VALUES) {
+            if (f.isSupported() && (!f.isGroupExchange())) {
+                factories.add(f);
+            }
+        }
+
+        for (BuiltinDHFactories f : factories) {
+            measureAgreementRate(f.getName(), f, Byte.SIZE);   // warm-up
+        }
+
+        for (BuiltinDHFactories f : factories) {
+            measureAgreementRate(f.getName(), f, Byte.MAX_VALUE);
+        }
+
+        if (Curve25519DH.isJceSupported()) {
+            long nanos = System.nanoTime();
+            for (int index = 0; index < Byte.MAX_VALUE; index++) {
+                testAgreement(new Curve25519DH(false), new Curve25519DH(false));
+            }
+            nanos = System.nanoTime() - nanos;
+            log.info("{}: {} (pure Java) - {} usec. per handshake",
+                     getCurrentTestName(), Curve25519DH.ALGORITHM, TimeUnit.NANOSECONDS.toMicros(nanos) / Byte.MAX_VALUE);
+        }
+    }
+
+    private void measureAgreementRate(String name, DHFactory factory, int numHandshakes) throws Exception {
+        long nanos = System.nanoTime();
+        for (int index = 0; index < numHandshakes; index++) {
+            testAgreement(factory.create(), factory.create());
+        }
+        nanos = System.nanoTime() - nanos;
+        log.info("{}: {} - {} usec. per handshake", getCurrentTestName(), name, TimeUnit.NANOSECONDS.toMicros(nanos) / numHandshakes);
+    }
+
+    // simulates the client and server side of a key exchange
+    private static void testAgreement(AbstractDH client, AbstractDH server) throws Exception {
+        byte[] e = client.getE();
+        byte[] f = server.getE();
+        server.setF(e);
+        client.setF(f);
+        assertArrayEquals("Mismatched shared secrets", client.getK(), server.getK());
+    }
+
+    private static String toHex(byte[] data) {
+        return BufferUtils.printHex(BufferUtils.EMPTY_HEX_SEPARATOR, data);
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] data = new byte[hex.length() / 2];
+        for (int index = 0; index < data.length; index++) {
+            data[index] = (byte) Integer.parseInt(hex.substring(2 * index, 2 * index + 2), 16);
+        }
+        return data;
+    }
+}
@@ -18,11 +18,18 @@
  */
 package org.apache.sshd.common.mac;
 
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.channel.ClientChannel;
+import org.apache.sshd.client.session.ClientSession;
 import org.apache.sshd.common.NamedFactory;
 import org.apache.sshd.common.cipher.BuiltinCiphers;
 import org.apache.sshd.common.cipher.Cipher;
@@ -31,6 +38,7 @@ import org.apache.sshd.server.SshServer;
 import org.apache.sshd.util.test.BaseTestSupport;
 import org.apache.sshd.util.test.JSchLogger;
 import org.apache.sshd.util.test.SimpleUserInfo;
+import org.apache.sshd.util.test.TeeOutputStream;
 import org.apache.sshd.util.test.Utils;
 import org.junit.After;
 import org.junit.FixMethodOrder;
@@ -88,6 +96,24 @@ public class MacTest extends BaseTestSupport {
         runTest();
     }
 
+    @Test
+    public void testHMACSHA1ETM() throws Exception {
+        setUp(BuiltinMacs.hmacsha1etm);
+        runClientTest(BuiltinMacs.hmacsha1etm);
+    }
+
+    @Test
+    public void testHMACSHA256ETM() throws Exception {
+        setUp(BuiltinMacs.hmacsha256etm);
+        runClientTest(BuiltinMacs.hmacsha256etm);
+    }
+
+    @Test
+    public void testHMACSHA512ETM() throws Exception {
+        setUp(BuiltinMacs.hmacsha512etm);
+        runClientTest(BuiltinMacs.hmacsha512etm);
+    }
+
     @Test
     public void loadTest() throws Exception {
         Random random = Utils.getRandomizerInstance();
@@ -166,6 +192,46 @@ public class MacTest extends BaseTestSupport {
         }
     }
 
+    // JSch does not support the encrypt-then-mac variants
+    protected void runClientTest(NamedFactory<Mac> mac) throws Exception {
+        try (SshClient client = setupTestClient()) {
+            client.setMacFactories(Arrays.<NamedFactory<Mac>>asList(mac));
+            client.start();
+
+            try (ClientSession session = client.connect(getCurrentTestName(), TEST_LOCALHOST, port).verify(7L, TimeUnit.SECONDS).getSession();
+                 ByteArrayOutputStream sent = new ByteArrayOutputStream();
+                 ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                session.addPasswordIdentity(getCurrentTestName());
+                session.auth().verify(5L, TimeUnit.SECONDS);
+
+                try (ClientChannel channel = session.createChannel(ClientChannel.CHANNEL_SHELL);
+                     PipedOutputStream pipedIn = new PipedOutputStream();
+                     InputStream inPipe = new PipedInputStream(pipedIn);
+                     ByteArrayOutputStream err = new ByteArrayOutputStream();
+                     OutputStream teeOut = new TeeOutputStream(sent, pipedIn)) {
+                    channel.setIn(inPipe);
+                    channel.setOut(out);
+                    channel.setErr(err);
+                    channel.open().verify(9L, TimeUnit.SECONDS);
+
+                    byte[] bytes = "this is my command\n".getBytes(StandardCharsets.UTF_8);
+                    for (int i = 0; i < 10; i++) {
+                        teeOut.write(bytes);
+                        teeOut.flush();
+                    }
+                    teeOut.write("exit\n".getBytes(StandardCharsets.UTF_8));
+                    teeOut.flush();
+
+                    channel.waitFor(ClientChannel.CLOSED, 0);
+                }
+
+                assertArrayEquals(mac.getName(), sent.toByteArray(), out.toByteArray());
+            } finally {
+                client.stop();
+            }
+        }
+    }
+
     static boolean checkCipher(String cipher) {
         try {
             Class<?> c = Class.forName(cipher);
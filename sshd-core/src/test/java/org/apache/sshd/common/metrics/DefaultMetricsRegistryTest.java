@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.sshd.util.test.BaseTestSupport;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class DefaultMetricsRegistryTest extends BaseTestSupport {
+    public DefaultMetricsRegistryTest() {
+        super();
+    }
+
+    @Test
+    public void testStripedCounterConcurrentUpdates() throws Exception {
+        final Counter counter = new StripedCounter(4);
+        final int numThreads = 8;
+        final int numUpdates = 10000;
+        final CountDownLatch latch = new CountDownLatch(numThreads);
+        List<Thread> threads = new ArrayList<>(numThreads);
+        for (int index = 0; index < numThreads; index++) {
+            Thread t = new Thread(getCurrentTestName() + "-" + index) {
+                @Override
+                public void run() {
+                    try {
+                        for (int count = 0; count < numUpdates; count++) {
+                            counter.increment();
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            };
+            threads.add(t);
+            t.start();
+        }
+
+        assertTrue("Updates not completed on time", latch.await(10L, TimeUnit.SECONDS));
+        assertEquals("Mismatched count", numThreads * numUpdates, counter.get());
+
+        counter.add(-numUpdates);
+        assertEquals("Mismatched count after negative delta", (numThreads - 1) * numUpdates, counter.get());
+    }
+
+    @Test
+    public void testHistogramBucketBounds() {
+        long[] values = {0L, 1L, 15L, 16L, 17L, 31L, 32L, 33L, 1000L, 123456789L, Long.MAX_VALUE / 3L, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LogLinearHistogram.bucketIndex(value);
+            assertTrue("Bucket index out of range for " + value + ": " + index, (index >= 0) && (index < LogLinearHistogram.NUM_BUCKETS));
+
+            long upper = LogLinearHistogram.bucketUpperBound(index);
+            assertTrue("Upper bound " + upper + " below value=" + value, upper >= value);
+            if (index > 0) {
+                long prevUpper = LogLinearHistogram.bucketUpperBound(index - 1);
+                assertTrue("Previous bucket upper bound " + prevUpper + " not below value=" + value, prevUpper < value);
+            }
+
+            // relative error is bounded by the sub-buckets resolution
+            if (value >= LogLinearHistogram.SUB_BUCKETS) {
+                double error = ((double) (upper - value)) / value;
+                assertTrue("Relative error too large for " + value + ": " + error, error <= (1.0d / LogLinearHistogram.SUB_BUCKETS));
+            }
+        }
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram histogram = new LogLinearHistogram();
+        assertEquals("Unexpected empty histogram percentile", 0L, histogram.getValueAtPercentile(50.0d));
+
+        for (long value = 1L; value <= 1000L; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-1L);  // ignored
+
+        assertEquals("Mismatched count", 1000L, histogram.getCount());
+        assertEquals("Mismatched max", 1000L, histogram.getMax());
+        assertEquals("Mismatched mean", 500.5d, histogram.getMean(), 0.0001d);
+
+        double[] percentiles = {50.0d, 90.0d, 99.0d, 100.0d};
+        for (double p : percentiles) {
+            long expected = (long) (p * 10.0d);
+            long actual = histogram.getValueAtPercentile(p);
+            assertTrue("Percentile " + p + " value (" + actual + ") below expected=" + expected, actual >= expected);
+            assertTrue("Percentile " + p + " value (" + actual + ") too far from expected=" + expected,
+                       (actual - expected) <= (expected / LogLinearHistogram.SUB_BUCKETS) + 1L);
+        }
+    }
+
+    @Test
+    public void testRegistryReturnsSameMetrics() {
+        MetricsRegistry registry = new DefaultMetricsRegistry();
+        Counter counter = registry.getCounter(getCurrentTestName());
+        assertSame("Mismatched counter instance", counter, registry.getCounter(getCurrentTestName()));
+
+        Histogram histogram = registry.getHistogram(getCurrentTestName());
+        assertSame("Mismatched histogram instance", histogram, registry.getHistogram(getCurrentTestName()));
+
+        Gauge gauge = new Gauge() {
+            @Override
+            public long getValue() {
+                return 7365L;
+            }
+        };
+        registry.registerGauge(getCurrentTestName(), gauge);
+        assertSame("Mismatched gauge instance", gauge, registry.getGauges().get(getCurrentTestName()));
+        assertSame("Mismatched removed gauge", gauge, registry.unregisterGauge(getCurrentTestName()));
+        assertTrue("Gauge not removed", registry.getGauges().isEmpty());
+    }
+
+    @Test
+    public void testJmxExport() throws Exception {
+        MetricsRegistry registry = new DefaultMetricsRegistry();
+        registry.getCounter(MetricsRegistry.SESSION_PACKETS_IN).add(3777L);
+        registry.getHistogram(MetricsRegistry.SESSION_KEX_DURATION).record(1000L);
+
+        JmxMetricsExporter exporter = new JmxMetricsExporter(registry);
+        ObjectName name = exporter.register(JmxMetricsExporter.DEFAULT_OBJECT_NAME + ",name=" + getCurrentTestName());
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals("Mismatched counter value", Long.valueOf(3777L), server.getAttribute(name, MetricsRegistry.SESSION_PACKETS_IN));
+            assertEquals("Mismatched histogram count", Long.valueOf(1L), server.getAttribute(name, MetricsRegistry.SESSION_KEX_DURATION + ".count"));
+
+            // metrics registered after the export are visible as well
+            registry.getCounter(MetricsRegistry.CHANNEL_OPENED).increment();
+            assertEquals("Mismatched late counter value", Long.valueOf(1L), server.getAttribute(name, MetricsRegistry.CHANNEL_OPENED));
+        } finally {
+            exporter.unregister(name);
+        }
+    }
+}
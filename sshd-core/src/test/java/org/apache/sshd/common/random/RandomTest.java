@@ -18,13 +18,24 @@
  */
 package org.apache.sshd.common.random;
 
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.sshd.common.util.SecurityUtils;
+import org.apache.sshd.common.util.threads.ThreadUtils;
 import org.apache.sshd.util.test.BaseTestSupport;
 import org.apache.sshd.util.test.Utils;
 import org.junit.Assume;
 import org.junit.FixMethodOrder;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * TODO Add javadoc
@@ -33,6 +44,8 @@ import org.junit.runners.MethodSorters;
  */
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 public class RandomTest extends BaseTestSupport {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
     public RandomTest() {
         super();
     }
@@ -50,6 +63,117 @@ public class RandomTest extends BaseTestSupport {
         System.out.println("BC:  " + t + " micro");
     }
 
+    @Test
+    public void testBufferedRandomNeverRepeatsPool() {
+        final int poolSize = 64;
+        BufferedRandom random = new BufferedRandom(new JceRandom(), poolSize);
+        byte[] first = new byte[poolSize - 1];
+        random.fill(first);
+        byte[] second = new byte[poolSize - 1];
+        random.fill(second);   // spans a refill
+        assertFalse("Same bytes served twice", Arrays.equals(first, second));
+
+        byte[] large = new byte[2 * poolSize];
+        random.fill(large, 0, large.length);
+        assertEquals("Mismatched pool size", poolSize, random.getPoolSize());
+    }
+
+    @Test
+    public void testPerSessionFactoryCreatesIndependentGenerators() {
+        PerSessionRandomFactory factory = new PerSessionRandomFactory(PerSessionRandomFactory.IndependentJceRandomFactory.INSTANCE, 128);
+        Random r1 = factory.create();
+        Random r2 = factory.create();
+        assertNotSame("Generators shared", r1, r2);
+        assertTrue("Generator not buffered", r1 instanceof BufferedRandom);
+
+        byte[] b1 = new byte[32];
+        r1.fill(b1);
+        byte[] b2 = new byte[32];
+        r2.fill(b2);
+        assertFalse("Generators not independently seeded", Arrays.equals(b1, b2));
+    }
+
+    @Test
+    public void testConcurrentPaddingGeneratorsIndependent() throws Exception {
+        RandomFactory[] factories = createPaddingFactories();
+        for (RandomFactory factory : factories) {
+            PaddingResult[] results = testConcurrentPadding(factory, 4, 100);
+            for (int i = 0; i < results.length; i++) {
+                for (int j = i + 1; j < results.length; j++) {
+                    assertFalse("Same padding generated by threads " + i + " and " + j + " of " + factory,
+                            Arrays.equals(results[i].padding, results[j].padding));
+                }
+            }
+        }
+    }
+
+    /*
+     * Simulates the padding generated by concurrently sending sessions - each thread
+     * plays the role of a session and uses the generator that its session would get
+     * from the factory.
+     */
+    @Test
+    @Ignore("Benchmark - run manually to compare the scaling of the generators")
+    public void testConcurrentPaddingScaling() throws Exception {
+        int cores = Math.max(1, Runtime.getRuntime().availableProcessors());
+        RandomFactory[] factories = createPaddingFactories();
+        String[] names = {"singleton", "per-session", "per-session(pool)", "per-thread(pool)"};
+
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            for (int index = 0; index < factories.length; index++) {
+                long maxNanos = 0L;
+                for (PaddingResult r : testConcurrentPadding(factories[index], threads, 10000)) {
+                    maxNanos = Math.max(maxNanos, r.nanos);
+                }
+                log.info("{} threads={}: {} micro", names[index], Integer.valueOf(threads), Long.valueOf(maxNanos / 1000L));
+            }
+        }
+    }
+
+    private static RandomFactory[] createPaddingFactories() {
+        return new RandomFactory[] {
+            new SingletonRandomFactory(JceRandomFactory.INSTANCE),
+            new PerSessionRandomFactory(PerSessionRandomFactory.IndependentJceRandomFactory.INSTANCE, 0),
+            new PerSessionRandomFactory(PerSessionRandomFactory.IndependentJceRandomFactory.INSTANCE, BufferedRandom.DEFAULT_POOL_SIZE),
+            new PerThreadRandomFactory(new PerSessionRandomFactory(PerSessionRandomFactory.IndependentJceRandomFactory.INSTANCE, BufferedRandom.DEFAULT_POOL_SIZE)),
+        };
+    }
+
+    private static PaddingResult[] testConcurrentPadding(final RandomFactory factory, int numThreads, final int packetsPerThread) throws Exception {
+        ExecutorService executor = ThreadUtils.newFixedThreadPool("testConcurrentPadding", numThreads);
+        try {
+            final CountDownLatch startSignal = new CountDownLatch(1);
+            @SuppressWarnings("unchecked")
+            Future<PaddingResult>[] futures = new Future[numThreads];
+            for (int index = 0; index < numThreads; index++) {
+                futures[index] = executor.submit(new Callable<PaddingResult>() {
+                    @Override
+                    public PaddingResult call() throws Exception {
+                        Random random = factory.create();
+                        byte[] packet = new byte[64];
+                        startSignal.await();
+                        long l0 = System.nanoTime();
+                        for (int i = 0; i < packetsPerThread; i++) {
+                            int pad = 4 + (i & 0x0F);   // typical padding length
+                            random.fill(packet, packet.length - pad, pad);
+                        }
+                        long nanos = System.nanoTime() - l0;
+                        return new PaddingResult(nanos, packet);
+                    }
+                });
+            }
+
+            startSignal.countDown();
+            PaddingResult[] results = new PaddingResult[numThreads];
+            for (int index = 0; index < numThreads; index++) {
+                results[index] = futures[index].get(30L, TimeUnit.SECONDS);
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private static long testRandom(Random random) {
         byte[] bytes = new byte[32];
         long l0 = System.nanoTime();
@@ -59,4 +183,14 @@ public class RandomTest extends BaseTestSupport {
         long l1 = System.nanoTime();
         return (l1 - l0) / 1000;
     }
+
+    private static class PaddingResult {
+        private final long nanos;
+        private final byte[] padding;
+
+        PaddingResult(long nanos, byte[] padding) {
+            this.nanos = nanos;
+            this.padding = padding;
+        }
+    }
 }
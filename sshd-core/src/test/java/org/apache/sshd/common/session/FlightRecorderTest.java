@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.session;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.channel.ChannelExec;
+import org.apache.sshd.client.channel.ClientChannel;
+import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.common.SshConstants;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.util.test.BaseTestSupport;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class FlightRecorderTest extends BaseTestSupport {
+    public FlightRecorderTest() {
+        super();
+    }
+
+    @Test
+    public void testRingBufferKeepsLatestEntries() {
+        FlightRecorder recorder = new FlightRecorder(5);
+        assertEquals("Mismatched rounded capacity", 8, recorder.getCapacity());
+
+        for (int index = 0; index < 10; index++) {
+            Buffer buffer = new ByteArrayBuffer();
+            buffer.putByte(SshConstants.SSH_MSG_CHANNEL_DATA);
+            buffer.putInt(7);
+            buffer.putBytes(new byte[index + 1]);
+            recorder.recordPacket(FlightRecorder.Kind.INBOUND, buffer);
+            assertEquals("Buffer position modified", 0, buffer.rpos());
+        }
+        recorder.recordEvent(7, getCurrentTestName());
+
+        List<FlightRecorder.Entry> entries = recorder.getEntries();
+        assertEquals("Mismatched entries count", recorder.getCapacity(), entries.size());
+        assertEquals("Mismatched recorded count", 11L, recorder.getRecordedCount());
+
+        for (int index = 0; index < entries.size() - 1; index++) {
+            FlightRecorder.Entry e = entries.get(index);
+            int dataLen = index + 3;   // the first 3 entries have been overwritten
+            assertEquals("Mismatched sequence", index + 3L, e.getSequence());
+            assertEquals("Mismatched kind", FlightRecorder.Kind.INBOUND, e.getKind());
+            assertEquals("Mismatched command", SshConstants.SSH_MSG_CHANNEL_DATA, e.getCommand());
+            assertEquals("Mismatched channel", 7, e.getChannel());
+            assertEquals("Mismatched data length", dataLen, e.getValue());
+            assertEquals("Mismatched size", 1 + 4 + 4 + dataLen, e.getSize());
+        }
+
+        FlightRecorder.Entry last = entries.get(entries.size() - 1);
+        assertEquals("Mismatched last kind", FlightRecorder.Kind.EVENT, last.getKind());
+        assertEquals("Mismatched last note", getCurrentTestName(), last.getNote());
+    }
+
+    @Test
+    public void testTriggerKeepsFirstReason() {
+        FlightRecorder recorder = new FlightRecorder(1);
+        assertNull("Unexpected initial reason", recorder.getTriggerReason());
+        recorder.trigger(getCurrentTestName());
+        recorder.trigger(getClass().getSimpleName());
+        assertEquals("Mismatched reason", getCurrentTestName(), recorder.getTriggerReason());
+    }
+
+    @Test
+    public void testSessionPacketsRecorded() throws Exception {
+        final AtomicReference<FlightRecorder> recorderHolder = new AtomicReference<>();
+        try (SshServer sshd = setupTestServer()) {
+            sshd.addSessionListener(new FlightRecorderSessionListener(true) {
+                @Override
+                public void sessionClosed(Session session) {
+                    recorderHolder.set(session.getFlightRecorder());
+                    super.sessionClosed(session);
+                }
+            });
+            sshd.start();
+
+            try (SshClient client = setupTestClient()) {
+                client.start();
+
+                try (ClientSession session = client.connect(getCurrentTestName(), TEST_LOCALHOST, sshd.getPort()).verify(7L, TimeUnit.SECONDS).getSession()) {
+                    session.addPasswordIdentity(getCurrentTestName());
+                    session.auth().verify(5L, TimeUnit.SECONDS);
+
+                    try (ChannelExec channel = session.createExecChannel(getCurrentTestName())) {
+                        channel.open().verify(5L, TimeUnit.SECONDS);
+                        int res = channel.waitFor(ClientChannel.CLOSED, TimeUnit.SECONDS.toMillis(7L));
+                        assertTrue("Channel not closed: " + res, (res & ClientChannel.CLOSED) != 0);
+                    }
+                } finally {
+                    client.stop();
+                }
+            } finally {
+                sshd.stop(true);
+            }
+        }
+
+        FlightRecorder recorder = recorderHolder.get();
+        assertNotNull("No server session recorder", recorder);
+
+        boolean channelOpen = false;
+        boolean authenticated = false;
+        for (FlightRecorder.Entry e : recorder.getEntries()) {
+            if (FlightRecorder.Kind.INBOUND.equals(e.getKind()) && (e.getCommand() == (SshConstants.SSH_MSG_CHANNEL_OPEN & 0xFF))) {
+                channelOpen = true;
+            } else if (FlightRecorder.Kind.EVENT.equals(e.getKind()) && SessionListener.Event.Authenticated.name().equals(e.getNote())) {
+                authenticated = true;
+            }
+        }
+        assertTrue("Channel open not recorded", channelOpen);
+        assertTrue("Authentication not recorded", authenticated);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.common.session;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.channel.ClientChannel;
+import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.common.AbstractFactoryManager;
+import org.apache.sshd.common.FactoryManager;
+import org.apache.sshd.common.FactoryManagerUtils;
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.cipher.BuiltinCiphers;
+import org.apache.sshd.common.cipher.Cipher;
+import org.apache.sshd.common.mac.BuiltinMacs;
+import org.apache.sshd.common.mac.Mac;
+import org.apache.sshd.server.ServerFactoryManager;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.util.test.BaseTestSupport;
+import org.apache.sshd.util.test.TeeOutputStream;
+import org.junit.Assume;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ParallelPacketEncoderTest extends BaseTestSupport {
+    private static final int ENCODER_THREADS = 4;
+
+    public ParallelPacketEncoderTest() {
+        super();
+    }
+
+    @Test
+    public void testCtrCipherWithEncryptThenMac() throws Exception {
+        long parallel = testEchoedData(BuiltinCiphers.aes128ctr, BuiltinMacs.hmacsha256etm, 0L);
+        assertTrue("No packets encoded in parallel", parallel > 0L);
+    }
+
+    @Test
+    public void testCtrCipherWithMac() throws Exception {
+        long parallel = testEchoedData(BuiltinCiphers.aes256ctr, BuiltinMacs.hmacsha1, 0L);
+        assertTrue("No packets encoded in parallel", parallel > 0L);
+    }
+
+    @Test
+    public void testGcmCipher() throws Exception {
+        long parallel = testEchoedData(BuiltinCiphers.aes128gcm, BuiltinMacs.hmacsha256, 0L);
+        assertTrue("No packets encoded in parallel", parallel > 0L);
+    }
+
+    @Test   // make sure that the stream position is reset when new keys take effect
+    public void testCtrCipherWithRekey() throws Exception {
+        long parallel = testEchoedData(BuiltinCiphers.aes128ctr, BuiltinMacs.hmacsha256, 256L * 1024L);
+        assertTrue("No packets encoded in parallel", parallel > 0L);
+    }
+
+    @Test   // a non-seekable cipher falls back to serial encoding
+    public void testNonSeekableCipherEncodedSerially() throws Exception {
+        long parallel = testEchoedData(BuiltinCiphers.aes128cbc, BuiltinMacs.hmacsha256, 0L);
+        assertEquals("Unexpected packets encoded in parallel", 0L, parallel);
+    }
+
+    private long testEchoedData(BuiltinCiphers cipher, BuiltinMacs mac, long rekeyLimit) throws Exception {
+        Assume.assumeTrue("No internal support for " + cipher, cipher.isSupported());
+        try (SshServer sshd = setupTestServer()) {
+            setupParallelEncoder(sshd, cipher, mac);
+            if (rekeyLimit > 0L) {
+                FactoryManagerUtils.updateProperty(sshd, ServerFactoryManager.REKEY_BYTES_LIMIT, rekeyLimit);
+            }
+            sshd.start();
+
+            try (SshClient client = setupTestClient()) {
+                setupParallelEncoder(client, cipher, mac);
+                client.start();
+
+                try (ClientSession session = client.connect(getCurrentTestName(), TEST_LOCALHOST, sshd.getPort()).verify(7L, TimeUnit.SECONDS).getSession();
+                     ByteArrayOutputStream sent = new ByteArrayOutputStream();
+                     ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                    session.addPasswordIdentity(getCurrentTestName());
+                    session.auth().verify(5L, TimeUnit.SECONDS);
+
+                    try (ClientChannel channel = session.createChannel(ClientChannel.CHANNEL_SHELL);
+                         PipedOutputStream pipedIn = new PipedOutputStream();
+                         InputStream inPipe = new PipedInputStream(pipedIn);
+                         ByteArrayOutputStream err = new ByteArrayOutputStream();
+                         OutputStream teeOut = new TeeOutputStream(sent, pipedIn)) {
+                        channel.setIn(inPipe);
+                        channel.setOut(out);
+                        channel.setErr(err);
+                        channel.open().verify(9L, TimeUnit.SECONDS);
+
+                        // use various lengths in order to exercise the padding and the stream positions
+                        Random rnd = new Random(System.nanoTime());
+                        for (int index = 0; index < Byte.MAX_VALUE; index++) {
+                            byte[] line = new byte[1 + rnd.nextInt(Short.MAX_VALUE / 4)];
+                            for (int pos = 0; pos < line.length; pos++) {
+                                line[pos] = (byte) ('a' + rnd.nextInt(26));
+                            }
+                            teeOut.write(line);
+                            teeOut.write('\n');
+                        }
+                        teeOut.write("exit\n".getBytes(StandardCharsets.UTF_8));
+                        teeOut.flush();
+
+                        channel.waitFor(ClientChannel.CLOSED, 0);
+                    }
+
+                    assertArrayEquals("Mismatched echoed data", sent.toByteArray(), out.toByteArray());
+
+                    ParallelPacketEncoder encoder = ((AbstractSession) session).parallelEncoder;
+                    assertNotNull("No parallel encoder", encoder);
+                    return encoder.getParallelPackets();
+                } finally {
+                    client.stop();
+                }
+            } finally {
+                sshd.stop(true);
+            }
+        }
+    }
+
+    private static void setupParallelEncoder(AbstractFactoryManager manager, BuiltinCiphers cipher, BuiltinMacs mac) {
+        FactoryManagerUtils.updateProperty(manager, FactoryManager.PARALLEL_ENCODER_THREADS, ENCODER_THREADS);
+        FactoryManagerUtils.updateProperty(manager, FactoryManager.PARALLEL_ENCODER_MIN_PACKET_SIZE, 0);
+        manager.setCipherFactories(Collections.<NamedFactory<Cipher>>singletonList(cipher));
+        manager.setMacFactories(Collections.<NamedFactory<Mac>>singletonList(mac));
+    }
+}
@@ -22,12 +22,22 @@ package org.apache.sshd.server;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.math.BigInteger;
+import java.security.KeyPair;
 import java.security.PublicKey;
 import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.sshd.common.config.keys.KeyUtils;
+import org.apache.sshd.common.keyprovider.KeyPairProvider;
 import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.server.auth.pubkey.AcceptAllPublickeyAuthenticator;
+import org.apache.sshd.server.auth.pubkey.ExpiringCachePublickeyAuthenticator;
+import org.apache.sshd.server.auth.pubkey.IndexedKeySetPublickeyAuthenticator;
 import org.apache.sshd.server.auth.pubkey.PublickeyAuthenticator;
 import org.apache.sshd.server.auth.pubkey.RejectAllPublickeyAuthenticator;
 import org.apache.sshd.server.auth.pubkey.StaticPublickeyAuthenticator;
@@ -57,6 +67,89 @@ public class PublickeyAuthenticatorTest extends BaseTestSupport {
         testStaticPublickeyAuthenticator(RejectAllPublickeyAuthenticator.INSTANCE);
     }
 
+    @Test
+    public void testIndexedKeySetPublickeyAuthenticator() throws Exception {
+        List<PublicKey> keys = new ArrayList<>();
+        for (int index = 0; index < Byte.SIZE; index++) {
+            keys.add(KeyUtils.generateKeyPair(KeyPairProvider.SSH_RSA, 1024).getPublic());
+        }
+
+        IndexedKeySetPublickeyAuthenticator authenticator = new IndexedKeySetPublickeyAuthenticator(keys);
+        assertEquals("Mismatched indexed keys count", keys.size(), authenticator.getIndexedKeysCount());
+
+        String username = getCurrentTestName();
+        for (PublicKey k : keys) {
+            // use a different instance of the same key to make sure not relying on identity
+            PublicKey clone = KeyUtils.cloneKeyPair(KeyPairProvider.SSH_RSA, new KeyPair(k, null)).getPublic();
+            assertTrue("Indexed key not found", authenticator.authenticate(username, clone, null));
+        }
+
+        PublicKey unknown = KeyUtils.generateKeyPair(KeyPairProvider.SSH_RSA, 1024).getPublic();
+        assertFalse("Unexpected success for unknown key", authenticator.authenticate(username, unknown, null));
+    }
+
+    @Test
+    public void testExpiringCachePublickeyAuthenticator() throws Exception {
+        final PublicKey acceptedKey = KeyUtils.generateKeyPair(KeyPairProvider.SSH_RSA, 1024).getPublic();
+        PublicKey rejectedKey = KeyUtils.generateKeyPair(KeyPairProvider.SSH_RSA, 1024).getPublic();
+        final AtomicInteger delegateCalls = new AtomicInteger(0);
+        ExpiringCachePublickeyAuthenticator authenticator = new ExpiringCachePublickeyAuthenticator(new PublickeyAuthenticator() {
+            @Override
+            public boolean authenticate(String username, PublicKey key, ServerSession session) {
+                delegateCalls.incrementAndGet();
+                return KeyUtils.compareKeys(acceptedKey, key);
+            }
+        }, TimeUnit.MINUTES.toMillis(1L), 1L, ExpiringCachePublickeyAuthenticator.DEFAULT_MAX_ENTRIES);
+
+        String username = getCurrentTestName();
+        for (int index = 0; index < Byte.SIZE; index++) {
+            assertTrue("Accepted key not authenticated at attempt #" + index, authenticator.authenticate(username, acceptedKey, null));
+        }
+        assertEquals("Mismatched delegate calls for accepted key", 1, delegateCalls.get());
+
+        // make sure results are cached per user
+        assertTrue("Accepted key not authenticated for other user", authenticator.authenticate(username + "-other", acceptedKey, null));
+        assertEquals("Mismatched delegate calls for other user", 2, delegateCalls.get());
+
+        assertFalse("Rejected key authenticated", authenticator.authenticate(username, rejectedKey, null));
+        Thread.sleep(5L);   // let the failure result expire
+        assertFalse("Rejected key authenticated after expiration", authenticator.authenticate(username, rejectedKey, null));
+        assertEquals("Mismatched delegate calls for rejected key", 4, delegateCalls.get());
+
+        assertEquals("Mismatched invalidated entries", 2, authenticator.invalidate(username));
+        assertTrue("Accepted key not authenticated after invalidation", authenticator.authenticate(username, acceptedKey, null));
+        assertEquals("Mismatched delegate calls after invalidation", 5, delegateCalls.get());
+
+        // make sure only the exact user's results were invalidated
+        assertTrue("Accepted key not authenticated for other user after invalidation", authenticator.authenticate(username + "-other", acceptedKey, null));
+        assertEquals("Mismatched delegate calls for other user after invalidation", 5, delegateCalls.get());
+    }
+
+    @Test
+    public void testExpiringCachePublickeyAuthenticatorInvalidatedWhileDelegating() throws Exception {
+        final PublicKey acceptedKey = KeyUtils.generateKeyPair(KeyPairProvider.SSH_RSA, 1024).getPublic();
+        final AtomicInteger delegateCalls = new AtomicInteger(0);
+        final AtomicReference<ExpiringCachePublickeyAuthenticator> holder = new AtomicReference<>();
+        ExpiringCachePublickeyAuthenticator authenticator = new ExpiringCachePublickeyAuthenticator(new PublickeyAuthenticator() {
+            @Override
+            public boolean authenticate(String username, PublicKey key, ServerSession session) {
+                if (delegateCalls.incrementAndGet() == 1) {
+                    // simulate a revocation while the delegate is consulted
+                    holder.get().invalidate(username);
+                }
+                return KeyUtils.compareKeys(acceptedKey, key);
+            }
+        });
+        holder.set(authenticator);
+
+        String username = getCurrentTestName();
+        assertTrue("Accepted key not authenticated", authenticator.authenticate(username, acceptedKey, null));
+        assertEquals("Stale result cached", 0, authenticator.getCachedEntriesCount());
+        assertTrue("Accepted key not re-authenticated", authenticator.authenticate(username, acceptedKey, null));
+        assertEquals("Mismatched delegate calls", 2, delegateCalls.get());
+        assertEquals("Result not cached", 1, authenticator.getCachedEntriesCount());
+    }
+
     private void testStaticPublickeyAuthenticator(StaticPublickeyAuthenticator authenticator) throws Throwable {
         Method method = PublickeyAuthenticator.class.getMethod("authenticate", String.class, PublicKey.class, ServerSession.class);
         RSAPublicKey key = Mockito.mock(RSAPublicKey.class);
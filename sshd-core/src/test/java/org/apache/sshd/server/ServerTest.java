@@ -53,6 +53,9 @@ import org.apache.sshd.common.channel.TestChannelListener;
 import org.apache.sshd.common.channel.WindowClosedException;
 import org.apache.sshd.common.io.IoSession;
 import org.apache.sshd.common.kex.KexProposalOption;
+import org.apache.sshd.common.metrics.Counter;
+import org.apache.sshd.common.metrics.DefaultMetricsRegistry;
+import org.apache.sshd.common.metrics.MetricsRegistry;
 import org.apache.sshd.common.session.AbstractConnectionService;
 import org.apache.sshd.common.session.AbstractSession;
 import org.apache.sshd.common.session.Session;
@@ -61,6 +64,7 @@ import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.common.util.ValidateUtils;
 import org.apache.sshd.deprecated.ClientUserAuthServiceOld;
 import org.apache.sshd.server.command.ScpCommandFactory;
+import org.apache.sshd.server.session.ServerSessionRegistry;
 import org.apache.sshd.server.subsystem.sftp.SftpSubsystemFactory;
 import org.apache.sshd.util.test.BaseTestSupport;
 import org.apache.sshd.util.test.EchoShell;
@@ -466,6 +470,105 @@ public class ServerTest extends BaseTestSupport {
         fail("No success to authenticate");
     }
 
+    @Test
+    public void testSessionRegistryCounters() throws Exception {
+        FactoryManagerUtils.updateProperty(sshd, ServerFactoryManager.MAX_CONCURRENT_SESSIONS, 2);
+        ServerSessionRegistry registry = sshd.getSessionRegistry();
+        client.start();
+
+        try (ClientSession s1 = createAuthenticatedSession(); ClientSession s2 = createAuthenticatedSession()) {
+            SocketAddress address = s1.getIoSession().getLocalAddress();
+            assertEquals("Mismatched user sessions", 2, registry.getSessionCountForUser(getCurrentTestName()));
+            assertEquals("Mismatched address sessions", 2, registry.getSessionCountForAddress(address));
+            assertEquals("Unexpected unauthenticated sessions", 0, registry.getUnauthenticatedSessionCountForAddress(address));
+            assertEquals("Mismatched registered user sessions", 2, registry.getUserSessions(getCurrentTestName()).size());
+
+            // 3rd session exceeds the limit
+            try (ClientSession s3 = client.connect(getCurrentTestName(), TEST_LOCALHOST, port).verify(7L, TimeUnit.SECONDS).getSession()) {
+                s3.addPasswordIdentity(getCurrentTestName());
+                s3.auth().await(5L, TimeUnit.SECONDS);
+                int res = s3.waitFor(ClientSession.CLOSED, TimeUnit.SECONDS.toMillis(5L));
+                assertTrue("Excess session not closed: " + res, (res & ClientSession.CLOSED) != 0);
+            }
+
+            s2.close(false).await(5L, TimeUnit.SECONDS);
+            for (long waitTime = TimeUnit.SECONDS.toMillis(5L); waitTime > 0L; waitTime -= 10L) {
+                if (registry.getSessionCountForAddress(address) <= 1) {
+                    break;
+                }
+                Thread.sleep(10L);
+            }
+            assertEquals("Mismatched user sessions after close", 1, registry.getSessionCountForUser(getCurrentTestName()));
+            assertEquals("Mismatched address sessions after close", 1, registry.getSessionCountForAddress(address));
+        }
+    }
+
+    @Test
+    public void testMetricsCollected() throws Exception {
+        MetricsRegistry metrics = new DefaultMetricsRegistry();
+        sshd.setMetricsRegistry(metrics);
+        FactoryManagerUtils.updateProperty(sshd, FactoryManager.METRICS_PER_USER, true);
+        client.start();
+
+        try (ClientSession s = createAuthenticatedSession();
+             ChannelExec channel = s.createExecChannel(getCurrentTestName())) {
+            channel.open().verify(5L, TimeUnit.SECONDS);
+            int res = channel.waitFor(ClientChannel.CLOSED, TimeUnit.SECONDS.toMillis(7L));
+            assertTrue("Channel not closed: " + res, (res & ClientChannel.CLOSED) != 0);
+        } finally {
+            client.stop();
+        }
+
+        assertTrue("No incoming packets counted", metrics.getCounter(MetricsRegistry.SESSION_PACKETS_IN).get() > 0L);
+        assertTrue("No outgoing bytes counted", metrics.getCounter(MetricsRegistry.SESSION_BYTES_OUT).get() > 0L);
+        assertTrue("No user bytes counted",
+                   metrics.getCounter(MetricsRegistry.USER_PREFIX + getCurrentTestName() + "." + MetricsRegistry.SESSION_BYTES_IN).get() > 0L);
+        assertEquals("Mismatched KEX durations count", 1L, metrics.getHistogram(MetricsRegistry.SESSION_KEX_DURATION).getCount());
+        assertEquals("Mismatched auth durations count", 1L, metrics.getHistogram(MetricsRegistry.SESSION_AUTH_DURATION).getCount());
+        assertEquals("Mismatched opened channels count", 1L, metrics.getCounter(MetricsRegistry.CHANNEL_OPENED).get());
+
+        // the server session may still be closing - its queued data must not be reported once closed
+        Counter queuedBytes = metrics.getCounter(MetricsRegistry.SESSION_BYTES_QUEUED);
+        Counter pendingPackets = metrics.getCounter(MetricsRegistry.SESSION_PACKETS_PENDING);
+        for (long remaining = TimeUnit.SECONDS.toMillis(5L); (remaining > 0L) && ((queuedBytes.get() != 0L) || (pendingPackets.get() != 0L)); remaining -= 10L) {
+            Thread.sleep(10L);
+        }
+        assertEquals("Mismatched queued bytes after close", 0L, queuedBytes.get());
+        assertEquals("Mismatched pending packets after close", 0L, pendingPackets.get());
+    }
+
+    @Test
+    public void testMaxUnauthenticatedSessionsPerAddress() throws Exception {
+        FactoryManagerUtils.updateProperty(sshd, ServerFactoryManager.MAX_UNAUTHENTICATED_SESSIONS_PER_ADDRESS, 1);
+        client.start();
+
+        try (ClientSession s1 = client.connect(getCurrentTestName(), TEST_LOCALHOST, port).verify(7L, TimeUnit.SECONDS).getSession()) {
+            try (ClientSession s2 = client.connect(getCurrentTestName(), TEST_LOCALHOST, port).verify(7L, TimeUnit.SECONDS).getSession()) {
+                int res = s2.waitFor(ClientSession.CLOSED, TimeUnit.SECONDS.toMillis(5L));
+                assertTrue("Excess unauthenticated session not closed: " + res, (res & ClientSession.CLOSED) != 0);
+            }
+
+            // once authenticated the session no longer counts towards the limit
+            s1.addPasswordIdentity(getCurrentTestName());
+            s1.auth().verify(5L, TimeUnit.SECONDS);
+            try (ClientSession s3 = createAuthenticatedSession()) {
+                assertTrue("Session not authenticated", s3.isAuthenticated());
+            }
+        }
+    }
+
+    private ClientSession createAuthenticatedSession() throws IOException {
+        ClientSession session = client.connect(getCurrentTestName(), TEST_LOCALHOST, port).verify(7L, TimeUnit.SECONDS).getSession();
+        try {
+            session.addPasswordIdentity(getCurrentTestName());
+            session.auth().verify(5L, TimeUnit.SECONDS);
+            return session;
+        } catch (IOException | RuntimeException e) {
+            session.close(true);
+            throw e;
+        }
+    }
+
     @Test
     public void testEnvironmentVariablesPropagationToServer() throws Exception {
         final AtomicReference<Environment> envHolder = new AtomicReference<Environment>(null);
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.server.config.keys;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PublicKey;
+
+import org.apache.sshd.common.config.keys.KeyUtils;
+import org.apache.sshd.common.config.keys.PublicKeyEntry;
+import org.apache.sshd.common.keyprovider.KeyPairProvider;
+import org.apache.sshd.common.util.io.IoUtils;
+import org.apache.sshd.util.test.BaseTestSupport;
+import org.apache.sshd.util.test.Utils;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class UserAuthorizedKeysAuthenticatorTest extends BaseTestSupport {
+    public UserAuthorizedKeysAuthenticatorTest() {
+        super();
+    }
+
+    @Test
+    public void testPerUserKeysCaching() throws Exception {
+        Path root = getTempTargetRelativeFile(getClass().getSimpleName(), getCurrentTestName());
+        Utils.deleteRecursive(root);
+
+        PublicKey user1Key = KeyUtils.generateKeyPair(KeyPairProvider.SSH_RSA, 1024).getPublic();
+        PublicKey user2Key = KeyUtils.generateKeyPair(KeyPairProvider.SSH_RSA, 1024).getPublic();
+        writeAuthorizedKey(root, "user1", user1Key);
+        writeAuthorizedKey(root, "user2", user2Key);
+
+        // no interval so that each attempt checks the file
+        UserAuthorizedKeysAuthenticator auth = new UserAuthorizedKeysAuthenticator(root, false, 1, 0L, IoUtils.getLinkOptions(false));
+        assertTrue("user1 not authenticated", auth.authenticate("user1", user1Key, null));
+        assertFalse("user1 authenticated with user2 key", auth.authenticate("user1", user2Key, null));
+        assertEquals("Mismatched cache misses", 1L, auth.getCacheMisses());
+        assertEquals("Mismatched cache hits", 1L, auth.getCacheHits());
+        assertEquals("Mismatched reloads", 1L, auth.getReloads());
+
+        assertTrue("user2 not authenticated", auth.authenticate("user2", user2Key, null));
+        assertEquals("Mismatched evictions", 1L, auth.getEvictions());
+        assertEquals("Mismatched cached users", 1, auth.getCachedUsersCount());
+
+        // replace user2 key - make sure size changes so that re-load is detected even if same timestamp
+        PublicKey newKey = KeyUtils.generateKeyPair(KeyPairProvider.SSH_DSS, 1024).getPublic();
+        writeAuthorizedKey(root, "user2", newKey);
+        assertTrue("New user2 key not authenticated", auth.authenticate("user2", newKey, null));
+        assertFalse("Old user2 key still authenticated", auth.authenticate("user2", user2Key, null));
+        assertEquals("Mismatched reloads after change", 3L, auth.getReloads());
+    }
+
+    @Test
+    public void testFileChecksRateLimited() throws Exception {
+        Path root = getTempTargetRelativeFile(getClass().getSimpleName(), getCurrentTestName());
+        Utils.deleteRecursive(root);
+
+        PublicKey key = KeyUtils.generateKeyPair(KeyPairProvider.SSH_RSA, 1024).getPublic();
+        writeAuthorizedKey(root, getCurrentTestName(), key);
+
+        UserAuthorizedKeysAuthenticator auth = new UserAuthorizedKeysAuthenticator(root, false,
+                UserAuthorizedKeysAuthenticator.DEFAULT_MAX_CACHED_USERS, Long.MAX_VALUE, IoUtils.getLinkOptions(false));
+        for (int index = 0; index < Byte.SIZE; index++) {
+            assertTrue("Attempt #" + index + " not authenticated", auth.authenticate(getCurrentTestName(), key, null));
+        }
+
+        assertEquals("Mismatched file checks", 1L, auth.getFileChecks());
+        assertEquals("Mismatched reloads", 1L, auth.getReloads());
+    }
+
+    @Test
+    public void testRejectPathTraversalUsernames() throws Exception {
+        Path root = getTempTargetRelativeFile(getClass().getSimpleName(), getCurrentTestName());
+        PublicKey key = KeyUtils.generateKeyPair(KeyPairProvider.SSH_RSA, 1024).getPublic();
+        UserAuthorizedKeysAuthenticator auth = new UserAuthorizedKeysAuthenticator(root, false);
+        for (String username : new String[]{"..", ".", "../user", "a/b", "a\\b"}) {
+            assertFalse("Unexpected success for " + username, auth.authenticate(username, key, null));
+        }
+        assertEquals("Unexpected cached users", 0, auth.getCachedUsersCount());
+    }
+
+    private static void writeAuthorizedKey(Path root, String username, PublicKey key) throws Exception {
+        Path file = root.resolve(username).resolve(PublicKeyEntry.STD_KEYFILE_FOLDER_NAME).resolve(AuthorizedKeyEntry.STD_AUTHORIZED_KEYS_FILENAME);
+        Files.createDirectories(file.getParent());
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            PublicKeyEntry.appendPublicKeyEntry(w, key);
+            w.append(IoUtils.EOL);
+        }
+    }
+}
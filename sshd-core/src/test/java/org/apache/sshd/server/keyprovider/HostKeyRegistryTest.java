@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sshd.server.keyprovider;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.keyprovider.KeyPairProvider;
+import org.apache.sshd.common.keyprovider.MappedKeyPairProvider;
+import org.apache.sshd.common.signature.BuiltinSignatures;
+import org.apache.sshd.common.signature.Signature;
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.util.test.BaseTestSupport;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+/**
+ * @author <a href="mailto:dev@mina.apache.org">Apache MINA SSHD Project</a>
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class HostKeyRegistryTest extends BaseTestSupport {
+    public HostKeyRegistryTest() {
+        super();
+    }
+
+    @Test
+    public void testIndexedKeys() throws Exception {
+        Map<String, KeyPair> pairsMap = new LinkedHashMap<>();
+        pairsMap.put(KeyPairProvider.SSH_DSS, generateKeyPair("DSA", 1024));
+        pairsMap.put(KeyPairProvider.SSH_RSA, generateKeyPair("RSA", 1024));
+        KeyPairProvider provider = new MappedKeyPairProvider(pairsMap);
+        // DSA intentionally not supported
+        List<NamedFactory<Signature>> factories = Collections.<NamedFactory<Signature>>singletonList(BuiltinSignatures.rsa);
+
+        HostKeyRegistry registry = new HostKeyRegistry(provider, factories);
+        assertTrue("Not an index of the original instances", registry.isIndexOf(provider, factories));
+        assertEquals("Mismatched key types", Arrays.asList(KeyPairProvider.SSH_DSS, KeyPairProvider.SSH_RSA), registry.getKeyTypes());
+        assertEquals("Mismatched proposal", KeyPairProvider.SSH_RSA, registry.getSignaturesProposal());
+        assertNull("Unexpected unknown key", registry.getKeyPair(getCurrentTestName()));
+
+        for (Map.Entry<String, KeyPair> pe : pairsMap.entrySet()) {
+            String keyType = pe.getKey();
+            KeyPair kp = pe.getValue();
+            HostKeyRegistry.Entry entry = registry.getEntry(keyType);
+            assertNotNull("No entry for " + keyType, entry);
+            assertSame("Mismatched key pair for " + keyType, kp, registry.getKeyPair(keyType));
+
+            Buffer buffer = new ByteArrayBuffer();
+            buffer.putRawPublicKey(kp.getPublic());
+            assertArrayEquals("Mismatched public key blob for " + keyType, buffer.getCompactData(), entry.getPublicKeyBlob());
+            assertEquals("Mismatched signing support for " + keyType, KeyPairProvider.SSH_RSA.equals(keyType), entry.isSigningSupported());
+        }
+    }
+
+    @Test
+    public void testReusedSigner() throws Exception {
+        KeyPair kp = generateKeyPair("RSA", 1024);
+        KeyPairProvider provider = new MappedKeyPairProvider(Collections.singletonMap(KeyPairProvider.SSH_RSA, kp));
+        HostKeyRegistry registry = new HostKeyRegistry(provider, Collections.<NamedFactory<Signature>>singletonList(BuiltinSignatures.rsa));
+        HostKeyRegistry.Entry entry = registry.getEntry(KeyPairProvider.SSH_RSA);
+
+        // make sure the re-used signer produces valid signatures each time
+        for (int index = 0; index < Byte.SIZE; index++) {
+            byte[] data = (getCurrentTestName() + "-" + index).getBytes(StandardCharsets.UTF_8);
+            byte[] sig = entry.sign(data);
+
+            Signature verifier = BuiltinSignatures.rsa.create();
+            verifier.initVerifier(kp.getPublic());
+            verifier.update(data);
+            assertTrue("Bad signature #" + index, verifier.verify(sig));
+        }
+    }
+
+    private static KeyPair generateKeyPair(String algorithm, int keySize) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+        generator.initialize(keySize);
+        return generator.generateKeyPair();
+    }
+}
@@ -20,7 +20,16 @@ package org.apache.sshd.server.shell;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.common.util.threads.ThreadUtils;
 
 import org.apache.sshd.util.test.BaseTestSupport;
 import org.apache.sshd.util.test.BogusEnvironment;
@@ -41,14 +50,18 @@ public class InvertedShellWrapperTest extends BaseTestSupport {
              ByteArrayOutputStream out = new ByteArrayOutputStream(50);
              ByteArrayOutputStream err = new ByteArrayOutputStream()) {
 
-            InvertedShellWrapper wrapper = new InvertedShellWrapper(shell);
+            ExecutorService executor = ThreadUtils.newFixedThreadPool(getCurrentTestName(), InvertedShellWrapper.TASKS_COUNT);
+            InvertedShellWrapper wrapper = new InvertedShellWrapper(shell, executor, true, InvertedShellWrapper.DEFAULT_BUFFER_SIZE);
+            BogusExitCallback callback = new BogusExitCallback();
             wrapper.setInputStream(in);
             wrapper.setOutputStream(out);
             wrapper.setErrorStream(err);
-            wrapper.setExitCallback(new BogusExitCallback());
+            wrapper.setExitCallback(callback);
             wrapper.start(new BogusEnvironment());
 
-            wrapper.pumpStreams();
+            wrapper.destroy();  // shuts down the executor once all pumps are done
+            assertTrue("Pumps not terminated on time", executor.awaitTermination(5L, TimeUnit.SECONDS));
+            assertTrue("Exit not signalled", callback.isExited());
 
             // check the streams were flushed before exiting
             assertEquals("in", shell.getInputStream().toString());
@@ -57,10 +70,114 @@ public class InvertedShellWrapperTest extends BaseTestSupport {
         }
     }
 
+    @Test
+    public void testExitSignalledOnlyAfterOutputStreamsExhausted() throws Exception {
+        try (PipedOutputStream shellOut = new PipedOutputStream();
+             PipedInputStream shellOutSink = new PipedInputStream(shellOut);
+             PipedOutputStream shellErr = new PipedOutputStream();
+             PipedInputStream shellErrSink = new PipedInputStream(shellErr);
+             PipedOutputStream clientIn = new PipedOutputStream();
+             PipedInputStream in = new PipedInputStream(clientIn);
+             ByteArrayOutputStream out = new ByteArrayOutputStream();
+             ByteArrayOutputStream err = new ByteArrayOutputStream()) {
+
+            BogusInvertedShell shell = new BogusInvertedShell(new ByteArrayOutputStream(), shellOutSink, shellErrSink);
+            shell.setAlive(false);
+
+            ExecutorService executor = ThreadUtils.newFixedThreadPool(getCurrentTestName(), InvertedShellWrapper.TASKS_COUNT);
+            InvertedShellWrapper wrapper = new InvertedShellWrapper(shell, executor, true, InvertedShellWrapper.DEFAULT_BUFFER_SIZE);
+            BogusExitCallback callback = new BogusExitCallback();
+            wrapper.setInputStream(in);
+            wrapper.setOutputStream(out);
+            wrapper.setErrorStream(err);
+            wrapper.setExitCallback(callback);
+            wrapper.start(new BogusEnvironment());
+
+            shellOut.write("out".getBytes(StandardCharsets.UTF_8));
+            shellOut.close();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(1L));
+            assertFalse("Premature exit signalled", callback.isExited());
+
+            shellErr.close();
+            clientIn.close();
+            wrapper.destroy();
+            assertTrue("Pumps not terminated on time", executor.awaitTermination(5L, TimeUnit.SECONDS));
+            assertTrue("Exit not signalled", callback.isExited());
+            assertEquals("out", out.toString());
+        }
+    }
+
+    @Test
+    public void testExitSignalledWhenOutputHeldOpenAfterTermination() throws Exception {
+        // simulates a background process that inherited the shell's output streams
+        try (PipedOutputStream shellOut = new PipedOutputStream();
+             PipedInputStream shellOutSink = new PipedInputStream(shellOut);
+             PipedOutputStream shellErr = new PipedOutputStream();
+             PipedInputStream shellErrSink = new PipedInputStream(shellErr);
+             PipedOutputStream clientIn = new PipedOutputStream();
+             PipedInputStream in = new PipedInputStream(clientIn);
+             ByteArrayOutputStream out = new ByteArrayOutputStream();
+             ByteArrayOutputStream err = new ByteArrayOutputStream()) {
+
+            WaitableBogusInvertedShell shell = new WaitableBogusInvertedShell(new ByteArrayOutputStream(), shellOutSink, shellErrSink);
+            ExecutorService executor = ThreadUtils.newFixedThreadPool(getCurrentTestName(), InvertedShellWrapper.TASKS_COUNT);
+            InvertedShellWrapper wrapper = new InvertedShellWrapper(shell, executor, true, InvertedShellWrapper.DEFAULT_BUFFER_SIZE);
+            wrapper.setOutputDrainTimeout(TimeUnit.SECONDS.toMillis(1L));
+            BogusExitCallback callback = new BogusExitCallback();
+            wrapper.setInputStream(in);
+            wrapper.setOutputStream(out);
+            wrapper.setErrorStream(err);
+            wrapper.setExitCallback(callback);
+            wrapper.start(new BogusEnvironment());
+
+            shellOut.write("out".getBytes(StandardCharsets.UTF_8));
+            shellOut.flush();
+            shell.terminate();
+
+            for (long remaining = TimeUnit.SECONDS.toMillis(5L); (remaining > 0L) && (!callback.isExited()); remaining -= 50L) {
+                Thread.sleep(50L);
+            }
+            assertTrue("Exit not signalled", callback.isExited());
+            assertEquals("out", out.toString());
+
+            // the background process exits
+            shellOut.close();
+            shellErr.close();
+            clientIn.close();
+            wrapper.destroy();
+            assertTrue("Pumps not terminated on time", executor.awaitTermination(5L, TimeUnit.SECONDS));
+        }
+    }
+
     private BogusInvertedShell newShell(String contentOut, String contentErr) {
         ByteArrayOutputStream in = new ByteArrayOutputStream(20);
         ByteArrayInputStream out = new ByteArrayInputStream(contentOut.getBytes(StandardCharsets.UTF_8));
         ByteArrayInputStream err = new ByteArrayInputStream(contentErr.getBytes(StandardCharsets.UTF_8));
         return new BogusInvertedShell(in, out, err);
     }
+
+    private static class WaitableBogusInvertedShell extends BogusInvertedShell implements WaitableInvertedShell {
+        private final CountDownLatch terminated = new CountDownLatch(1);
+
+        WaitableBogusInvertedShell(OutputStream in, InputStream out, InputStream err) {
+            super(in, out, err);
+        }
+
+        void terminate() {
+            setAlive(false);
+            terminated.countDown();
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            terminated.await();
+            return exitValue();
+        }
+
+        @Override
+        public void destroy() {
+            super.destroy();
+            terminated.countDown();
+        }
+    }
 }
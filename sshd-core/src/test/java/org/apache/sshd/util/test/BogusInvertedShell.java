@@ -35,7 +35,7 @@ public class BogusInvertedShell implements InvertedShell {
 
     // for test assertions
     private boolean started = false;
-    private boolean alive = true;
+    private volatile boolean alive = true;
     private Map<String, String> env = null;
 
     public BogusInvertedShell(OutputStream in, InputStream out, InputStream err) {